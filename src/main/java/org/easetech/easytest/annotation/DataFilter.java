@@ -0,0 +1,30 @@
+package org.easetech.easytest.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that restricts the rows of test data a test method is run with to the rows matching an expression.
+ * The expression is compiled once and evaluated while the test data is being loaded, so the rows that do not match
+ * it are neither stored nor converted, and no test is created for them.<br>
+ * An expression compares the value of a column with a literal, for example <code>tag = 'smoke'</code> or
+ * <code>amount &gt; 10000</code>. The supported operators are <code>=</code>, <code>!=</code>, <code>&lt;</code>,
+ * <code>&lt;=</code>, <code>&gt;</code> and <code>&gt;=</code>. A column is compared as a number with a numeric literal
+ * and as a string with a quoted literal. The literal <code>null</code> matches a missing value. Comparisons can be
+ * combined using <code>and</code>, <code>or</code>, <code>not</code> and parentheses.<br>
+ * The annotation can be applied on a test method, on a test class, in which case it applies to all of its test
+ * methods, or on a {@link TestPolicy} class. A filter can also be given at runtime using the System Property
+ * <B>easytest.dataFilter</B>. A row has to match all the filters that apply to its test method.
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD , ElementType.TYPE})
+public @interface DataFilter {
+
+    /**
+     * The expression the rows of test data have to match
+     */
+    String value();
+}
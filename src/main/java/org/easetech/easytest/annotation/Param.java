@@ -115,9 +115,8 @@ import org.junit.experimental.theories.PotentialAssignment;
  * Interger, Float, Double etc) then you don't have to do anything and the framework will take care of converting the
  * String data to the requested type. <br>
  * <br>
- * Finally, even though the EasyTest framework is compiled with JDK 1.5, it does not stop you from using Java 6
- * Collection Types in case you are running your code on JRE 6. For using Java 6 Collection type(like Deque ,
- * LinkedBlockingDeque etc) in your test cases, all you have to do is register an empty implementation of
+ * Finally, the EasyTest framework does not convert all the Collection Types of the JRE on its own. For using other
+ * Collection types(like Deque , LinkedBlockingDeque etc) in your test cases, all you have to do is register an empty implementation of
  * {@link AbstractConverter} in the {@link BeforeClass} method. Note that you should pass only the Concrete type as
  * parameter argument while extending the {@link AbstractConverter} and not the Abstract type or the interface type. You
  * can always override the default implementation of creating a specific type instance for use in your test cases by
@@ -62,7 +62,84 @@ public enum SystemProperties {
     /**
      * System property to specify whethere the data should be written back to the file or not
      */
-    WRITE_DATA("easytest.writeData");
+    WRITE_DATA("easytest.writeData"),
+    
+    /**
+     * System property to specify the approximate maximum size, in megabytes, of the process wide cache 
+     * of parsed test data. A value of 0 disables the cache.
+     */
+    DATA_CACHE_SIZE("easytest.dataCacheSize"),
+    
+    /**
+     * System property to specify whether a binary snapshot should be created next to every local test data file 
+     * that is parsed, so that the later runs can load the snapshot instead of parsing the file again.
+     */
+    CREATE_SNAPSHOTS("easytest.createSnapshots"),
+    
+    /**
+     * System property to specify the maximum number of distinct values a parameter can have for its values to be 
+     * pooled while the test data is loaded. A value of 0, the default, pools only the names of the parameters.
+     */
+    INTERN_VALUE_CARDINALITY("easytest.internValueCardinality"),
+    
+    /**
+     * System property to specify whether only the columns of the test data that a test method references through its 
+     * parameters, its expected result and its display fields should be loaded. The names of the tests then only 
+     * contain the values of these columns.
+     */
+    PROJECT_COLUMNS("easytest.projectColumns"),
+    
+    /**
+     * System property to specify an expression, in the syntax of the DataFilter annotation, that the rows of test 
+     * data of every test method have to match in order to be loaded.
+     */
+    DATA_FILTER("easytest.dataFilter"),
+    
+    /**
+     * System property to specify the directory in which the test data downloaded from an HTTP URL is cached. 
+     * The data is only cached when this property is set.
+     */
+    URL_CACHE_DIRECTORY("easytest.urlCacheDir"),
+    
+    /**
+     * System property to specify the time, in seconds, for which the cached copy of the test data downloaded from 
+     * an HTTP URL is used without asking the server whether it changed. The default is 0, which revalidates the 
+     * copy every time it is used.
+     */
+    URL_CACHE_TTL("easytest.urlCacheTtl"),
+    
+    /**
+     * System property to specify the maximum size, in megabytes, of the cache of the test data downloaded from 
+     * HTTP URLs. The least recently used copies are removed beyond it. A value of 0 does not limit the size.
+     */
+    URL_CACHE_SIZE("easytest.urlCacheSize"),
+    
+    /**
+     * System property to specify the shard of the rows of test data to run, as the index of the shard followed by 
+     * the number of shards, for eg. 3/16. The rows of every test method are split between the shards by a stable 
+     * hash, so that the processes running the different shards of the same tests run every row exactly once.
+     */
+    SHARD("easytest.shard"),
+    
+    /**
+     * System property to specify whether an index sidecar should be built next to every local CSV test data file, 
+     * recording the byte offsets of its method blocks and rows, so that only the rows that are needed are read.
+     */
+    CSV_INDEX("easytest.csvIndex"),
+
+    /**
+     * System property to specify whether the output data of the tests run with the data of a local CSV file should 
+     * be appended to a result sidecar file next to it, instead of rewriting the CSV file. The sidecar can be merged 
+     * back into the CSV file on demand with CSVDataLoader#compactResults.
+     */
+    CSV_RESULTS("easytest.csvResults"),
+
+    /**
+     * System property to specify whether the output data of a test data file is written in the background, once all 
+     * the test methods whose data it holds have completed, while the other tests are still running. By default all 
+     * the output data of a test class is written once its tests have completed.
+     */
+    WRITE_BEHIND("easytest.writeBehind");
     
     /**
      * the actual value of the system property
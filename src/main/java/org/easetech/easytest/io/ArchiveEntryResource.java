@@ -0,0 +1,325 @@
+package org.easetech.easytest.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.easetech.easytest.util.CommonUtils;
+
+/**
+ * A {@link Resource} representing a single entry of a zip archive, so that a bundle of test data files can be shipped
+ * as one archive and loaded without being extracted. The entry is identified using the
+ * {@value #ENTRY_SEPARATOR} separator, for eg. :<br>
+ * <B>@DataLoader(filePaths={"classpath:org/example/bundle.zip!/orders.csv"})</B><br>
+ * When the archive resides on the local file system, the entry is looked up in the central directory of the archive
+ * and only its own data is read. Otherwise the archive is read as a stream up to the entry.<br>
+ * The data of an entry can only be written back when the archive resides on the local file system. The archive is then
+ * rewritten, with the new data of the entry in place of the old one, once the {@link OutputStream} is closed.
+ *
+ */
+public class ArchiveEntryResource implements Resource {
+
+    /** The separator between the path of the archive and the name of the entry */
+    public static final String ENTRY_SEPARATOR = "!/";
+
+    /** The size of the buffer used to copy the entries of the archive */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The resource representing the archive
+     */
+    private final Resource archive;
+
+    /**
+     * The name of the entry within the archive
+     */
+    private final String entryName;
+
+    /**
+     *
+     * Construct a new ArchiveEntryResource
+     *
+     * @param archive the resource representing the archive
+     * @param entryName the name of the entry within the archive
+     */
+    public ArchiveEntryResource(Resource archive, String entryName) {
+        if (entryName == null || entryName.length() <= 0) {
+            throw new IllegalArgumentException("The name of the entry of archive " + archive.getResourceName()
+                + " can not be Null or empty");
+        }
+        this.archive = archive;
+        this.entryName = entryName;
+    }
+
+    /**
+     * @return the resource representing the archive
+     */
+    public Resource getArchive() {
+        return archive;
+    }
+
+    /**
+     * @return the name of the entry within the archive
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+
+    /**
+     * Identifies whether the archive exists and contains the entry
+     *
+     * @return boolean
+     */
+    public boolean exists() {
+        if (!archive.exists()) {
+            return false;
+        }
+        try {
+            File archiveFile = getLocalArchiveFile();
+            if (archiveFile != null) {
+                ZipFile zipFile = new ZipFile(archiveFile);
+                try {
+                    return zipFile.getEntry(entryName) != null;
+                } finally {
+                    zipFile.close();
+                }
+            }
+            InputStream entryData = openEntryStream();
+            if (entryData == null) {
+                return false;
+            }
+            entryData.close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the {@link InputStream} of the data of the entry
+     *
+     * @return {@link InputStream}
+     * @throws IOException if an IOException occurs
+     */
+    public InputStream getInputStream() throws IOException {
+        File archiveFile = getLocalArchiveFile();
+        if (archiveFile != null) {
+            final ZipFile zipFile = new ZipFile(archiveFile);
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null) {
+                zipFile.close();
+                throw new FileNotFoundException(getResourceName() + " cannot be opened because it does not exist");
+            }
+            // closing the stream of the entry closes the archive
+            return new FilterInputStream(new BufferedInputStream(zipFile.getInputStream(entry), BUFFER_SIZE)) {
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zipFile.close();
+                    }
+                }
+            };
+        }
+        InputStream entryData = openEntryStream();
+        if (entryData == null) {
+            throw new FileNotFoundException(getResourceName() + " cannot be opened because it does not exist");
+        }
+        return new BufferedInputStream(entryData, BUFFER_SIZE);
+    }
+
+    /**
+     * Get an {@link OutputStream} to write the new data of the entry to. The archive is rewritten once the stream is
+     * closed.
+     *
+     * @return {@link OutputStream}
+     * @throws IOException if the archive does not reside on the local file system
+     */
+    public OutputStream getOutputStream() throws IOException {
+        final File archiveFile = getLocalArchiveFile();
+        if (archiveFile == null) {
+            throw new IOException("The entry " + entryName + " can not be written to as the archive "
+                + archive.getResourceName() + " does not reside on the local file system");
+        }
+        return new ByteArrayOutputStream() {
+
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    replaceEntry(archiveFile, toByteArray());
+                }
+            }
+        };
+    }
+
+    /**
+     * Get the <code>jar:</code> {@link URL} of the entry
+     *
+     * @return {@link URL}
+     */
+    public URL getURL() {
+        try {
+            return new URL("jar:" + archive.getURL().toExternalForm() + ENTRY_SEPARATOR + entryName);
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * An entry of an archive is not backed by a {@link File}
+     *
+     * @return null
+     */
+    public File getFile() {
+        return null;
+    }
+
+    /**
+     * Get the resource name
+     *
+     * @return the name of the archive followed by the name of the entry
+     */
+    public String getResourceName() {
+        return archive.getResourceName() + ENTRY_SEPARATOR + entryName;
+    }
+
+    /**
+     * @return the overridden toString
+     */
+    @Override
+    public String toString() {
+        return "ArchiveEntryResource [archive=" + archive + ", entryName=" + entryName + "]";
+    }
+
+    /**
+     * Get the local file of the archive
+     *
+     * @return the file of the archive or null if the archive is compressed or does not reside on the local file
+     *         system
+     */
+    private File getLocalArchiveFile() {
+        if (archive instanceof CompressedResource) {
+            return null;
+        }
+        try {
+            if (!"file".equals(archive.getURL().getProtocol())) {
+                return null;
+            }
+            File file = archive.getFile();
+            return file != null && file.isFile() ? file : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the archive as a stream up to the entry
+     *
+     * @return the stream positioned at the start of the data of the entry or null if the archive does not contain it
+     * @throws IOException if an IOException occurs
+     */
+    private InputStream openEntryStream() throws IOException {
+        ZipInputStream zipStream = new ZipInputStream(new BufferedInputStream(archive.getInputStream(), BUFFER_SIZE));
+        ZipEntry entry;
+        while ((entry = zipStream.getNextEntry()) != null) {
+            if (entryName.equals(entry.getName())) {
+                return zipStream;
+            }
+        }
+        zipStream.close();
+        return null;
+    }
+
+    /**
+     * Rewrite the archive with the given data in place of the data of the entry. All the other entries are copied as
+     * they are, in their original order. The archive is written to a temporary file of its own in the same directory
+     * first, which then atomically replaces it.
+     *
+     * @param archiveFile the file of the archive
+     * @param data the new data of the entry
+     * @throws IOException if an IOException occurs
+     */
+    private void replaceEntry(File archiveFile, byte[] data) throws IOException {
+        File tempFile = File.createTempFile(archiveFile.getName(), ".tmp", archiveFile.getAbsoluteFile()
+            .getParentFile());
+        try {
+            writeArchive(archiveFile, tempFile, data);
+            CommonUtils.replaceFile(tempFile, archiveFile);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Write a copy of the archive, with the given data in place of the data of the entry, to the given file
+     *
+     * @param archiveFile the file of the archive
+     * @param tempFile the file to write the copy to
+     * @param data the new data of the entry
+     * @throws IOException if an IOException occurs
+     */
+    private void writeArchive(File archiveFile, File tempFile, byte[] data) throws IOException {
+        ZipFile zipFile = new ZipFile(archiveFile);
+        boolean replaced = false;
+        try {
+            ZipOutputStream zipOutput = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile),
+                BUFFER_SIZE));
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    ZipEntry copy = new ZipEntry(entry.getName());
+                    copy.setComment(entry.getComment());
+                    if (entryName.equals(entry.getName())) {
+                        copy.setTime(System.currentTimeMillis());
+                        zipOutput.putNextEntry(copy);
+                        zipOutput.write(data);
+                        replaced = true;
+                    } else {
+                        copy.setTime(entry.getTime());
+                        zipOutput.putNextEntry(copy);
+                        InputStream entryData = zipFile.getInputStream(entry);
+                        try {
+                            int read;
+                            while ((read = entryData.read(buffer)) != -1) {
+                                zipOutput.write(buffer, 0, read);
+                            }
+                        } finally {
+                            entryData.close();
+                        }
+                    }
+                    zipOutput.closeEntry();
+                }
+                if (!replaced) {
+                    zipOutput.putNextEntry(new ZipEntry(entryName));
+                    zipOutput.write(data);
+                    zipOutput.closeEntry();
+                }
+            } finally {
+                zipOutput.close();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+}
@@ -47,6 +47,11 @@ public class ClasspathResource implements Resource {
      */
     private Class<?> classObj;
 
+    /**
+     * The URL of the resource, once it is found
+     */
+    private volatile URL url;
+
     /**
      * 
      * Construct a new ClasspathResource and defaults the {@link #classLoader} with current Threads ContextClassLoader
@@ -129,8 +134,7 @@ public class ClasspathResource implements Resource {
      * @return boolean indicating whether the resouorce exists or not
      */
     public boolean exists() {
-        return getClassObj() != null ? (getClassObj().getResource(getPath()) != null ? true : getClassLoader()
-            .getResource(getPath()) != null) : getClassLoader().getResource(getPath()) != null;
+        return findURL() != null;
     }
 
     /**
@@ -161,21 +165,35 @@ public class ClasspathResource implements Resource {
      * @return the url associated with the given file path.
      */
     public URL getURL() {
-        URL url;
-        if (getClassObj() != null) {
-            url = getClassObj().getResource(getPath());
-            if (url == null) {
-                url = getClassLoader().getResource(getPath());
-            }
-        } else {
-            url = getClassLoader().getResource(getPath());
-        }
+        URL url = findURL();
         if (url == null) {
             throw new RuntimeException("File : " + getPath() + FILE_CANNOT_BE_OPENED_BECAUSE_IT_DOES_NOT_EXIST);
         }
         return url;
     }
 
+    /**
+     * Look the resource up using the Class object and then the class loader. The URL is looked up only until the
+     * resource is found, so that a resource can be resolved once and then used repeatedly.
+     * 
+     * @return the url of the resource or null if the resource does not exist
+     */
+    private URL findURL() {
+        URL url = this.url;
+        if (url == null) {
+            if (getClassObj() != null) {
+                url = getClassObj().getResource(getPath());
+                if (url == null) {
+                    url = getClassLoader().getResource(getPath());
+                }
+            } else {
+                url = getClassLoader().getResource(getPath());
+            }
+            this.url = url;
+        }
+        return url;
+    }
+
     /**
      * Get the File associated with the given file path.
      * 
@@ -205,8 +223,9 @@ public class ClasspathResource implements Resource {
      * @return the resource name associated with the given resource.
      */
     public String getResourceName() {
-        if (getURL() != null) {
-            return getURL().getPath();
+        URL url = findURL();
+        if (url != null) {
+            return url.getPath();
         }
         return getPath();
     }
@@ -218,9 +237,10 @@ public class ClasspathResource implements Resource {
      */
     public OutputStream getOutputStream() {
         OutputStream outputStream = null;
-        if (getFile() != null) {
+        File file = getFile();
+        if (file != null) {
             try {
-                outputStream = new FileOutputStream(getFile());
+                outputStream = new FileOutputStream(file);
             } catch (FileNotFoundException e) {
                 try {
                     outputStream = new FileOutputStream(getResourceName());
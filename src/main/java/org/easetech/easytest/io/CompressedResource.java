@@ -0,0 +1,166 @@
+package org.easetech.easytest.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A {@link Resource} decorator for a compressed test data file. The data is decompressed while it is being read and
+ * compressed while it is being written, so any {@link org.easetech.easytest.loader.Loader} can load the data of, and
+ * write the data back to, a compressed file without it ever being stored uncompressed. The format of the compression
+ * is identified by the extension of the file : {@value #GZIP_EXTENSION} for a gzip file and
+ * {@value #DEFLATE_EXTENSION} for a zlib deflate stream. The loader is then chosen based on the extension preceding
+ * it, for example <code>orders.csv.gz</code> is loaded by the CSV loader.
+ *
+ */
+public class CompressedResource implements Resource {
+
+    /** The extension of a gzip compressed file */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    /** The extension of a deflate compressed file */
+    public static final String DEFLATE_EXTENSION = ".deflate";
+
+    /** The size of the buffer used to read the compressed data */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The resource holding the compressed data
+     */
+    private final Resource compressedResource;
+
+    /**
+     * Whether the data is gzip compressed, as opposed to deflate compressed
+     */
+    private final boolean gzip;
+
+    /**
+     *
+     * Construct a new CompressedResource
+     *
+     * @param compressedResource the resource holding the compressed data
+     * @param path the path of the resource, whose extension identifies the compression format
+     */
+    public CompressedResource(Resource compressedResource, String path) {
+        if (!isCompressed(path)) {
+            throw new IllegalArgumentException("The path " + path
+                + " does not have the extension of a supported compression format");
+        }
+        this.compressedResource = compressedResource;
+        this.gzip = path.endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * Identifies whether the given path is the path of a compressed file
+     *
+     * @param path the path of the file
+     * @return true if the path ends with the extension of a supported compression format
+     */
+    public static boolean isCompressed(String path) {
+        return path != null && (path.endsWith(GZIP_EXTENSION) || path.endsWith(DEFLATE_EXTENSION));
+    }
+
+    /**
+     * Get the path of the given file without the extension of its compression format, if any
+     *
+     * @param path the path of the file
+     * @return the path without the compression extension
+     */
+    public static String getUncompressedPath(String path) {
+        if (path != null && path.endsWith(GZIP_EXTENSION)) {
+            return path.substring(0, path.length() - GZIP_EXTENSION.length());
+        } else if (path != null && path.endsWith(DEFLATE_EXTENSION)) {
+            return path.substring(0, path.length() - DEFLATE_EXTENSION.length());
+        }
+        return path;
+    }
+
+    /**
+     * @return the resource holding the compressed data
+     */
+    public Resource getCompressedResource() {
+        return compressedResource;
+    }
+
+    /**
+     * Identifies whether the resource exists or not
+     *
+     * @return boolean
+     */
+    public boolean exists() {
+        return compressedResource.exists();
+    }
+
+    /**
+     * Get an {@link InputStream} that decompresses the data of the resource as it is being read
+     *
+     * @return {@link InputStream}
+     * @throws IOException if an IOException occurs
+     */
+    public InputStream getInputStream() throws IOException {
+        InputStream compressedData = compressedResource.getInputStream();
+        try {
+            return new BufferedInputStream(gzip ? new GZIPInputStream(compressedData, BUFFER_SIZE)
+                : new InflaterInputStream(compressedData), BUFFER_SIZE);
+        } catch (IOException e) {
+            compressedData.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get an {@link OutputStream} that compresses the data written to it. The compressed data is complete only once
+     * the stream is closed.
+     *
+     * @return {@link OutputStream}
+     * @throws IOException if an IOException occurs
+     */
+    public OutputStream getOutputStream() throws IOException {
+        OutputStream compressedData = compressedResource.getOutputStream();
+        return gzip ? new GZIPOutputStream(compressedData, BUFFER_SIZE) : new DeflaterOutputStream(compressedData);
+    }
+
+    /**
+     * Get the {@link URL} of the compressed data
+     *
+     * @return {@link URL}
+     */
+    public URL getURL() {
+        return compressedResource.getURL();
+    }
+
+    /**
+     * Get the {@link File} holding the compressed data
+     *
+     * @return {@link File}
+     * @throws Exception if the file can not be determined
+     */
+    public File getFile() throws Exception {
+        return compressedResource.getFile();
+    }
+
+    /**
+     * Get the resource name
+     *
+     * @return String
+     */
+    public String getResourceName() {
+        return compressedResource.getResourceName();
+    }
+
+    /**
+     * @return the overridden toString
+     */
+    @Override
+    public String toString() {
+        return "CompressedResource [compressedResource=" + compressedResource + "]";
+    }
+
+}
@@ -0,0 +1,154 @@
+package org.easetech.easytest.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.junit.Assert;
+
+/**
+ * A {@link Resource} implementation for the resources residing on the local file system, built on
+ * {@link java.nio.file.Path}. The data of the resource is read and written through a {@link FileChannel}, and the
+ * attributes of the file are read in a single call, so that whether the file changed can be determined using
+ * {@link #getVersion()} without querying the file system once per attribute.<br>
+ * The {@link ResourceLoaderStrategy} will auto instantiate this class if the {@link org.easetech.easytest.annotation.DataLoader}
+ * annotation specifies the filePaths attribute to contain a file system resource. For eg.
+ * <br><b>@DataLoader(filePaths={"/home/tests/testData.csv"})</b><br>
+ *
+ */
+public class PathResource implements Resource {
+
+    /**
+     * The path of the resource
+     */
+    private final Path path;
+
+    /**
+     *
+     * Construct a new PathResource from the provided path
+     *
+     * @param path the path of the resource
+     */
+    public PathResource(Path path) {
+        if (path == null) {
+            Assert.fail("The supplied path must be a Not Null value");
+        }
+        this.path = path.toAbsolutePath().normalize();
+    }
+
+    /**
+     *
+     * Construct a new PathResource from the provided simple path
+     *
+     * @param path the path where the file system resource resides
+     * @throws java.nio.file.InvalidPathException if the path is not a valid path on the file system
+     */
+    public PathResource(String path) {
+        this(path == null || path.length() <= 0 ? null : Paths.get(path));
+    }
+
+    /**
+     * @return the path of the resource
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Identifies whether the resource represented by this instance exists or not
+     *
+     * @return boolean
+     */
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Get the input stream represented by this resource, reading from a {@link FileChannel}
+     *
+     * @return {@link InputStream}
+     * @throws IOException if the file can not be opened
+     */
+    public InputStream getInputStream() throws IOException {
+        return Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Get the {@link OutputStream} for the given resource, writing to a {@link FileChannel}. The existing content of
+     * the file is replaced.
+     *
+     * @return {@link OutputStream}
+     * @throws IOException if the file can not be opened
+     */
+    public OutputStream getOutputStream() throws IOException {
+        return Channels.newOutputStream(FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Get the URL represented by this resource
+     *
+     * @return URL instance
+     */
+    public URL getURL() {
+        try {
+            return path.toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the File object instance represented by this Resource
+     *
+     * @return File instance
+     */
+    public File getFile() {
+        return path.toFile();
+    }
+
+    /**
+     * Return the name of the resource
+     *
+     * @return resource name
+     */
+    public String getResourceName() {
+        return path.toString();
+    }
+
+    /**
+     * Get the version of the file, derived from its attributes. Two versions of the same file are equal as long as
+     * the file did not change in between.
+     *
+     * @return the version of the file, consisting of its last modified time, its size and, if the file system
+     *         supports it, the key identifying the file
+     * @throws IOException if the attributes of the file can not be read
+     */
+    public String getVersion() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        StringBuilder version = new StringBuilder();
+        version.append(attributes.lastModifiedTime().toMillis()).append(':').append(attributes.size());
+        if (attributes.fileKey() != null) {
+            version.append(':').append(attributes.fileKey());
+        }
+        return version.toString();
+    }
+
+    /**
+     * @return the overridden toString
+     */
+    @Override
+    public String toString() {
+        return "PathResource [path=" + path + "]";
+    }
+
+}
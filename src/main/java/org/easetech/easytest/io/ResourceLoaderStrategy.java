@@ -1,7 +1,12 @@
 package org.easetech.easytest.io;
 
+import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.InvalidPathException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 import org.junit.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,8 +14,13 @@ import org.slf4j.LoggerFactory;
 /**
  * Implementation of the {@link ResourceLoader} that defines a strategy to load different types of resources based on
  * user provided values. It loads three different types of resources : <li> {@link ClasspathResource} - Resource
- * representing the Classpath based resources(prefixed with classpath:)</li> <li> {@link FileSystemResource} - Resource
- * based on FileSystem (for eg. in your C: drive)</li> <li> {@link UrlResource} - Resource based on URL (http for eg)
+ * representing the Classpath based resources(prefixed with classpath:)</li> <li> {@link PathResource} - Resource
+ * based on FileSystem (for eg. in your C: drive)</li> <li> {@link UrlResource} - Resource based on URL (http for eg)</li>
+ * Any of them can point to a compressed file ({@link CompressedResource}) or to an entry of a zip archive
+ * ({@link ArchiveEntryResource}).<br>
+ * A location is resolved only once per class loader, or per Class object used to load the resources. The resolved
+ * resource is cached and returned whenever the same location is looked up again, for example to write the data back
+ * once the tests have run.
  * 
  * @author Anuj Kumar
  * 
@@ -22,6 +32,12 @@ public class ResourceLoaderStrategy implements ResourceLoader {
      */
     protected static final Logger LOG = LoggerFactory.getLogger(ResourceLoaderStrategy.class);
 
+    /**
+     * The resources resolved so far, mapped by their location, per class loader or Class object that was used to
+     * resolve them
+     */
+    private static final Map<Object, Map<String, SoftReference<Resource>>> RESOLVED_RESOURCES = new WeakHashMap<Object, Map<String, SoftReference<Resource>>>();
+
     /** the class loader instance */
     private ClassLoader classLoader;
 
@@ -77,18 +93,98 @@ public class ResourceLoaderStrategy implements ResourceLoader {
      * resource path has a <i>classpath:</i> prefix. If it finds one, it creates a {@link ClasspathResource} instance
      * based on the provided location.</li> If it doesnt find one, it then tries to create a {@link UrlResource}. If the
      * {@link UrlResource} cannot be created due to {@link MalformedURLException} then we return a
-     * {@link FileSystemResource} instance and pray to God that it works :)
+     * {@link PathResource} instance and pray to God that it works :)<br>
+     * If the location points to an entry of a zip archive, for eg. <i>classpath:org/example/bundle.zip!/orders.csv</i>,
+     * the archive is resolved using the same strategy and an {@link ArchiveEntryResource} is returned. If the location
+     * ends with the extension of a compressed file, the resource is wrapped in a {@link CompressedResource}.<br>
+     * A location that was already resolved using the same class loader or Class object is not resolved again.
      * 
      * @param location the location of the resource
      * @return {@link Resource} instance.
      */
     public Resource getResource(String location) {
-        Resource resource;
-        
         if (location == null || location.length() <= 0) {
             Assert.fail("The location specified can not be Null or empty");
         }
-        
+        Object cacheOwner = getCacheOwner();
+        if (cacheOwner == null) {
+            return resolveResource(location);
+        }
+        synchronized (RESOLVED_RESOURCES) {
+            Map<String, SoftReference<Resource>> resources = RESOLVED_RESOURCES.get(cacheOwner);
+            SoftReference<Resource> resolved = resources == null ? null : resources.get(location);
+            Resource resource = resolved == null ? null : resolved.get();
+            if (resource != null) {
+                LOG.debug("Resource with path {} is already resolved to {}", location, resource);
+                return resource;
+            }
+        }
+        Resource resource = resolveResource(location);
+        synchronized (RESOLVED_RESOURCES) {
+            Map<String, SoftReference<Resource>> resources = RESOLVED_RESOURCES.get(cacheOwner);
+            if (resources == null) {
+                resources = new HashMap<String, SoftReference<Resource>>();
+                RESOLVED_RESOURCES.put(cacheOwner, resources);
+            }
+            resources.put(location, new SoftReference<Resource>(resource));
+        }
+        return resource;
+    }
+
+    /**
+     * Clear the cache of the resolved resources, so that every location is resolved again when it is next looked up
+     */
+    public static void clearResolvedResources() {
+        synchronized (RESOLVED_RESOURCES) {
+            RESOLVED_RESOURCES.clear();
+        }
+    }
+
+    /**
+     * Get the object the resources resolved by this strategy are cached against. The resources are resolved using the
+     * Class object if there is one, and using the class loader otherwise.
+     * 
+     * @return the Class object or the class loader, or null if the resources can not be cached
+     */
+    private Object getCacheOwner() {
+        if (this.classObj == null) {
+            return this.classLoader;
+        }
+        // the class loader of the strategy is used as a fall back of the Class object
+        return this.classLoader == null || this.classLoader == this.classObj.getClassLoader() ? this.classObj : null;
+    }
+
+    /**
+     * Resolve the resource based on the location
+     * 
+     * @param location the location of the resource
+     * @return {@link Resource} instance.
+     */
+    private Resource resolveResource(String location) {
+        Resource resource;
+        int entrySeparatorIndex = location.indexOf(ArchiveEntryResource.ENTRY_SEPARATOR);
+        if (entrySeparatorIndex > 0 && !location.startsWith("jar:")) {
+            resource = new ArchiveEntryResource(getResource(location.substring(0, entrySeparatorIndex)),
+                location.substring(entrySeparatorIndex + ArchiveEntryResource.ENTRY_SEPARATOR.length()));
+            if (!resource.exists()) {
+                LOG.error("Could not find the entry with path {} in its archive", location);
+                Assert.fail("Could not find the entry with path " + location
+                    + " in its archive. Please check the path and try again");
+            }
+        } else {
+            resource = getUncompressedResource(location);
+        }
+        return CompressedResource.isCompressed(location) ? new CompressedResource(resource, location) : resource;
+    }
+
+    /**
+     * Get the resource based on a location that does not point to an entry of an archive
+     * 
+     * @param location the location of the resource
+     * @return {@link Resource} instance.
+     */
+    private Resource getUncompressedResource(String location) {
+        Resource resource;
         String locationWithoutClasspathPrefix = location.startsWith(CLASSPATH_PREFIX) ? location.substring(CLASSPATH_PREFIX.length()): location;
         
         resource = new ClasspathResource(locationWithoutClasspathPrefix, getClassLoader(), this.classObj) ;
@@ -102,12 +198,12 @@ public class ResourceLoaderStrategy implements ResourceLoader {
                 resource = new UrlResource(url);
                 if(!resource.exists()){
                     LOG.debug(
-                        "Could not load the resource with path {} as a URL. Trying to load the resource as a FileSystemResource",
+                        "Could not load the resource with path {} as a URL. Trying to load the resource as a PathResource",
                         location);
-                    resource = new FileSystemResource(location);    
+                    resource = getFileSystemResource(location);
                 }
             } catch (MalformedURLException ex) {
-                resource = new FileSystemResource(location);
+                resource = getFileSystemResource(location);
             }
         }
         if(!resource.exists()){
@@ -120,6 +216,21 @@ public class ResourceLoaderStrategy implements ResourceLoader {
         
     }
 
+    /**
+     * Get the resource residing on the file system at the given location
+     * 
+     * @param location the location of the resource
+     * @return a {@link PathResource} or a {@link FileSystemResource} if the location is not a valid {@link java.nio.file.Path}
+     */
+    private Resource getFileSystemResource(String location) {
+        try {
+            return new PathResource(location);
+        } catch (InvalidPathException e) {
+            LOG.debug("Path {} is not a valid path on the file system", location, e);
+            return new FileSystemResource(location);
+        }
+    }
+
     /**
      * Get the associated ClassLoader
      * 
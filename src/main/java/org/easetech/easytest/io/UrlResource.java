@@ -69,11 +69,16 @@ public class UrlResource implements Resource {
 
 
     /**
-     * Checks whether the URL resource exists or not.
+     * Checks whether the URL resource exists or not. A resource of which a copy is cached exists, even when the server
+     * can not be reached, as the cached copy is then read instead.
      * 
      * @return true if exists, false otherwise
      */
     public boolean exists() {
+        UrlResourceCache cache = getCache();
+        if (cache != null && cache.isCached(url)) {
+            return true;
+        }
         try {
             HttpURLConnection.setFollowRedirects(false);
             HttpURLConnection con = (HttpURLConnection) url.openConnection();
@@ -86,11 +91,16 @@ public class UrlResource implements Resource {
     }
 
     /**
-     * Get the input stream associated with the resource
+     * Get the input stream associated with the resource. The data of an HTTP URL is read from the on disk cache, 
+     * if the cache is configured. See {@link UrlResourceCache}.
      * @return input stream associated with the resource
      * @throws IOException
      */
     public InputStream getInputStream() throws IOException{
+        UrlResourceCache cache = getCache();
+        if (cache != null) {
+            return cache.getInputStream(this.url);
+        }
         URLConnection con = this.url.openConnection();
         con.setUseCaches(false);
         return con.getInputStream();
@@ -143,6 +153,14 @@ public class UrlResource implements Resource {
         return con.getOutputStream();
     }
 
+    /**
+     * Get the cache of the data of the URL
+     * @return the cache or null if the URL is not cached
+     */
+    private UrlResourceCache getCache() {
+        return UrlResourceCache.isCacheable(this.url) ? UrlResourceCache.getConfiguredCache() : null;
+    }
+
     /**
      * @return
      */
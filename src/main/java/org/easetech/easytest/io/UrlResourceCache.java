@@ -0,0 +1,376 @@
+package org.easetech.easytest.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.util.CommonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on disk cache of the data of the HTTP {@link UrlResource}s. The data of a URL is downloaded once and stored in the
+ * directory given by the System Property <B>easytest.urlCacheDir</B>, along with the <code>ETag</code> and the
+ * <code>Last-Modified</code> headers the server returned for it. Once the copy is older than the time to live given
+ * by the System Property <B>easytest.urlCacheTtl</B>, it is revalidated using a conditional GET request, so the data
+ * is only downloaded again when it changed on the server. If the server can not be reached, the cached copy is used.<br>
+ * The total size of the cached data is limited by the System Property <B>easytest.urlCacheSize</B>. The least recently
+ * used copies are removed beyond it.<br>
+ * When several threads request the same URL at the same time, only one of them downloads it and the others wait for
+ * the download to complete. The copies are first written to a temporary file and then renamed, so that a copy is never
+ * read while it is being written, even by another process sharing the cache directory.
+ *
+ */
+final class UrlResourceCache {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(UrlResourceCache.class);
+
+    /** The default maximum size, in megabytes, of the cache */
+    private static final long DEFAULT_CACHE_SIZE = 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String DATA_EXTENSION = ".data";
+
+    private static final String METADATA_EXTENSION = ".properties";
+
+    private static final String ETAG = "etag";
+
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private static final String URL = "url";
+
+    /** The downloads in progress, mapped by the copy they are written to */
+    private static final ConcurrentMap<File, FutureTask<File>> DOWNLOADS = new ConcurrentHashMap<File, FutureTask<File>>();
+
+    /** The directory holding the cached copies */
+    private final File directory;
+
+    /** The time, in milliseconds, for which a copy is used without being revalidated */
+    private final long timeToLive;
+
+    /** The maximum total size, in bytes, of the copies. A value of 0 or less does not limit the size. */
+    private final long maximumSize;
+
+    /**
+     * Construct a new UrlResourceCache
+     *
+     * @param directory the directory holding the cached copies
+     * @param timeToLive the time, in milliseconds, for which a copy is used without being revalidated
+     * @param maximumSize the maximum total size, in bytes, of the copies. A value of 0 or less does not limit the size.
+     */
+    UrlResourceCache(File directory, long timeToLive, long maximumSize) {
+        this.directory = directory;
+        this.timeToLive = timeToLive;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Get the cache configured through the System Properties
+     *
+     * @return the cache or null if the System Property <B>easytest.urlCacheDir</B> is not set
+     */
+    static UrlResourceCache getConfiguredCache() {
+        String directory = System.getProperty(SystemProperties.URL_CACHE_DIRECTORY.getValue());
+        if (directory == null || directory.trim().length() == 0) {
+            return null;
+        }
+        return new UrlResourceCache(new File(directory.trim()), getLongProperty(SystemProperties.URL_CACHE_TTL, 0) * 1000,
+            getLongProperty(SystemProperties.URL_CACHE_SIZE, DEFAULT_CACHE_SIZE) * 1024 * 1024);
+    }
+
+    /**
+     * Whether the data of the given URL can be cached
+     *
+     * @param url the url
+     * @return true if the url is an HTTP or HTTPS url
+     */
+    static boolean isCacheable(URL url) {
+        return "http".equalsIgnoreCase(url.getProtocol()) || "https".equalsIgnoreCase(url.getProtocol());
+    }
+
+    /**
+     * Whether a copy of the data of the given URL is cached and does not need to be revalidated yet
+     *
+     * @param url the url
+     * @return true if a fresh copy is cached
+     */
+    boolean isFresh(URL url) {
+        File metadataFile = getMetadataFile(url);
+        return getDataFile(url).isFile() && metadataFile.isFile()
+            && System.currentTimeMillis() - metadataFile.lastModified() < timeToLive;
+    }
+
+    /**
+     * Whether a copy of the data of the given URL is cached, fresh or not. A copy that is not fresh is still used when
+     * it can not be revalidated, for eg. because the server is down.
+     *
+     * @param url the url
+     * @return true if a copy is cached
+     */
+    boolean isCached(URL url) {
+        return getDataFile(url).isFile() && getMetadataFile(url).isFile();
+    }
+
+    /**
+     * Get the {@link InputStream} of the cached copy of the data of the given URL, downloading or revalidating it first
+     * if needed
+     *
+     * @param url the url
+     * @return the {@link InputStream} of the cached copy
+     * @throws IOException if the data can not be downloaded and is not cached
+     */
+    InputStream getInputStream(final URL url) throws IOException {
+        File dataFile = getDataFile(url);
+        if (!isFresh(url)) {
+            FutureTask<File> download = new FutureTask<File>(new Callable<File>() {
+
+                public File call() throws IOException {
+                    return download(url);
+                }
+            });
+            FutureTask<File> inProgress = DOWNLOADS.putIfAbsent(dataFile, download);
+            if (inProgress == null) {
+                try {
+                    download.run();
+                } finally {
+                    DOWNLOADS.remove(dataFile, download);
+                }
+                inProgress = download;
+            } else {
+                LOG.debug("Waiting for the download of {} in progress", url);
+            }
+            try {
+                inProgress.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the download of " + url);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        // the modification time of the copy tracks its use, for the eviction of the least recently used copies
+        dataFile.setLastModified(System.currentTimeMillis());
+        return new BufferedInputStream(new FileInputStream(dataFile), BUFFER_SIZE);
+    }
+
+    /**
+     * Download the data of the given URL, unless the server reports that the cached copy is still valid
+     *
+     * @param url the url
+     * @return the cached copy
+     * @throws IOException if the data can not be downloaded and is not cached
+     */
+    private File download(URL url) throws IOException {
+        File dataFile = getDataFile(url);
+        File metadataFile = getMetadataFile(url);
+        Properties metadata = readMetadata(metadataFile);
+        boolean cached = dataFile.isFile() && metadata != null;
+        HttpURLConnection connection;
+        int responseCode;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            if (cached) {
+                if (metadata.getProperty(ETAG) != null) {
+                    connection.setRequestProperty("If-None-Match", metadata.getProperty(ETAG));
+                }
+                if (metadata.getProperty(LAST_MODIFIED) != null) {
+                    connection.setRequestProperty("If-Modified-Since", metadata.getProperty(LAST_MODIFIED));
+                }
+            }
+            responseCode = connection.getResponseCode();
+        } catch (IOException e) {
+            if (cached) {
+                LOG.warn("Could not revalidate the cached copy of {}. Using the cached copy instead.", url, e);
+                return dataFile;
+            }
+            throw e;
+        }
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached) {
+            LOG.debug("Cached copy of {} is still valid", url);
+            connection.disconnect();
+            metadataFile.setLastModified(System.currentTimeMillis());
+            return dataFile;
+        }
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new IOException("Server returned HTTP response code " + responseCode + " for URL " + url);
+        }
+        LOG.debug("Downloading {} in to the cache {}", url, directory);
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Could not create the cache directory " + directory);
+        }
+        File tempFile = File.createTempFile(dataFile.getName(), ".tmp", directory);
+        try {
+            InputStream inputStream = connection.getInputStream();
+            try {
+                OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE);
+                try {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        outputStream.write(buffer, 0, read);
+                    }
+                } finally {
+                    outputStream.close();
+                }
+            } finally {
+                inputStream.close();
+            }
+            Properties newMetadata = new Properties();
+            newMetadata.setProperty(URL, url.toExternalForm());
+            if (connection.getHeaderField("ETag") != null) {
+                newMetadata.setProperty(ETAG, connection.getHeaderField("ETag"));
+            }
+            if (connection.getHeaderField("Last-Modified") != null) {
+                newMetadata.setProperty(LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+            }
+            CommonUtils.replaceFile(tempFile, dataFile);
+            writeMetadata(newMetadata, metadataFile);
+        } finally {
+            tempFile.delete();
+        }
+        evict(dataFile);
+        return dataFile;
+    }
+
+    /**
+     * Remove the least recently used copies until the total size of the copies is within the maximum size
+     *
+     * @param retainedFile the copy that is about to be used and must not be removed
+     */
+    private void evict(File retainedFile) {
+        if (maximumSize <= 0) {
+            return;
+        }
+        File[] dataFiles = directory.listFiles();
+        if (dataFiles == null) {
+            return;
+        }
+        long size = 0;
+        for (File dataFile : dataFiles) {
+            if (dataFile.getName().endsWith(DATA_EXTENSION)) {
+                size += dataFile.length();
+            }
+        }
+        Arrays.sort(dataFiles, new Comparator<File>() {
+
+            public int compare(File first, File second) {
+                long difference = first.lastModified() - second.lastModified();
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+        for (File dataFile : dataFiles) {
+            if (size <= maximumSize) {
+                break;
+            }
+            if (!dataFile.getName().endsWith(DATA_EXTENSION) || dataFile.equals(retainedFile)) {
+                continue;
+            }
+            long length = dataFile.length();
+            String name = dataFile.getName();
+            new File(directory, name.substring(0, name.length() - DATA_EXTENSION.length()) + METADATA_EXTENSION)
+                .delete();
+            if (dataFile.delete()) {
+                LOG.debug("Removed the least recently used copy {} from the cache", dataFile);
+                size -= length;
+            }
+        }
+    }
+
+    private File getDataFile(URL url) {
+        return new File(directory, getKey(url) + DATA_EXTENSION);
+    }
+
+    private File getMetadataFile(URL url) {
+        return new File(directory, getKey(url) + METADATA_EXTENSION);
+    }
+
+    private static String getKey(URL url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.toExternalForm().getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder();
+            for (byte digestByte : digest) {
+                key.append(Character.forDigit((digestByte >> 4) & 0xF, 16)).append(Character.forDigit(digestByte & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Properties readMetadata(File metadataFile) {
+        if (!metadataFile.isFile()) {
+            return null;
+        }
+        Properties metadata = new Properties();
+        try {
+            InputStream inputStream = new FileInputStream(metadataFile);
+            try {
+                metadata.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+            return metadata;
+        } catch (IOException e) {
+            LOG.debug("Could not read the cache metadata {}", metadataFile, e);
+            return null;
+        }
+    }
+
+    private void writeMetadata(Properties metadata, File metadataFile) throws IOException {
+        File tempFile = File.createTempFile(metadataFile.getName(), ".tmp", directory);
+        try {
+            OutputStream outputStream = new FileOutputStream(tempFile);
+            try {
+                metadata.store(outputStream, null);
+            } finally {
+                outputStream.close();
+            }
+            CommonUtils.replaceFile(tempFile, metadataFile);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static long getLongProperty(SystemProperties property, long defaultValue) {
+        String value = System.getProperty(property.getValue());
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value {} for System Property {}. Using the default value {} instead.", new Object[] {
+                value, property.getValue(), defaultValue });
+            return defaultValue;
+        }
+    }
+
+}
@@ -3,17 +3,19 @@ package org.easetech.easytest.loader;
 
 import com.csvreader.CsvReader;
 import com.csvreader.CsvWriter;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Array;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.easetech.easytest.io.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,7 +53,7 @@ import org.slf4j.LoggerFactory;
  * @author Anuj Kumar
  * 
  */
-public class CSVDataLoader implements Loader {
+public class CSVDataLoader implements StreamingLoader {
 
     /**
      * An instance of logger associated with the test framework.
@@ -61,6 +63,9 @@ public class CSVDataLoader implements Loader {
     /** Separator between columns in a CSV file */
     private static final char COMMA_SEPARATOR = ',';
 
+    /** The charset of the CSV files, the same whether they are read as a stream, mapped or indexed */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     /**
      * 
      * Construct a new CSVDataLoader
@@ -94,7 +99,7 @@ public class CSVDataLoader implements Loader {
     public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
         Map<String, List<Map<String, Object>>> result = null;
         try {
-            result = loadFromSpreadsheet(resource.getInputStream());
+            result = DataLoaderUtil.readAll(openCursor(resource));
         } catch (IOException e) {
             LOG.error("IOException occured while trying to Load the resource {} . Moving to the next resource.", resource.getResourceName(), e);
         }
@@ -106,6 +111,28 @@ public class CSVDataLoader implements Loader {
         return result;
     }
     
+    /**
+     * Open a {@link DataCursor} that reads the CSV records of the given resource one at a time.
+     * CSV files residing on the local file system are memory mapped and parsed in parallel using {@link MappedCsvReader}.
+     * If the System Property <B>easytest.csvIndex</B> is set to true, such files are also indexed using a
+     * {@link CsvIndex}, so that only the selected method blocks, and only the rows of a block that may belong to the
+     * selected shard, are read. All other resources are read as a stream.
+     * @param resource the resource to read the data from
+     * @return an instance of {@link DataCursor}
+     * @throws IOException if an IO exception occurs
+     */
+    public DataCursor openCursor(Resource resource) throws IOException {
+        File csvFile = DataLoaderUtil.getLocalFile(resource);
+        if (csvFile != null) {
+            CsvIndex index = CsvIndex.open(csvFile);
+            if (index != null) {
+                return new CsvCursor(csvFile, index);
+            }
+            return new CsvCursor(new MappedCsvReader(csvFile));
+        }
+        return new CsvCursor(resource.getInputStream());
+    }
+    
     /**
      * Load data from SpreadSheet
      * 
@@ -115,44 +142,228 @@ public class CSVDataLoader implements Loader {
      */
     private static Map<String, List<Map<String, Object>>> loadFromSpreadsheet(final InputStream csvFile)
         throws IOException {
-        Map<String, List<Map<String, Object>>> data = new HashMap<String, List<Map<String, Object>>>();
-        CsvReader csvReader = new CsvReader(new InputStreamReader(csvFile), COMMA_SEPARATOR);
-        Boolean isKeyRow;
-        List<Map<String, Object>> dataValues = null;
-        Map<Integer, String> tempData = new HashMap<Integer, String>();
-        data = new HashMap<String, List<Map<String, Object>>>();
+        return DataLoaderUtil.readAll(new CsvCursor(csvFile));
+
+    }
+    
+    /**
+     * A {@link DataCursor} over the records of a CSV file. A record whose first column is not empty
+     * starts a new method block, while a record with an empty first column is a row of test data
+     * for the current method block.
+     */
+    private static class CsvCursor implements IndexedCursor {
         
-        while (csvReader.readRecord()) {
-            StringBuilder logBuffer = new StringBuilder("Record being read is :");
-            Map<String, Object> actualData = new HashMap<String, Object>();   
-            String[] splitValues = csvReader.getValues();
-            if (splitValues.length > 0 && "".equals(splitValues[0])) {
-                isKeyRow = false;
-            } else {
-                isKeyRow = true;
-            }
-            if (isKeyRow) {
-                dataValues = new ArrayList<Map<String, Object>>();
-                for (int i = 0; i < splitValues.length; i++) {
-                    tempData.put(i, splitValues[i]);
-                    logBuffer.append(":" + splitValues[i]);
-                }
+        /** The underlying CSV reader for streamed resources */
+        private final CsvReader csvReader;
+        
+        /** The underlying CSV reader for memory mapped files */
+        private final MappedCsvReader mappedReader;
+        
+        /** The indexed CSV file */
+        private final File csvFile;
+        
+        /** The index of the indexed CSV file */
+        private final CsvIndex index;
+        
+        /** The reader of the rows of the current method block of the indexed CSV file */
+        private MappedCsvReader blockReader;
+        
+        /** The filter of the rows of the current method block of the indexed CSV file */
+        private RowFilter rowFilter;
+        
+        /** The column index to parameter name mapping of the current method block */
+        private final Map<Integer, String> tempData = new HashMap<Integer, String>();
+        
+        /** A key record that was read while looking for the next row of the previous method block */
+        private String[] pendingKeyRecord;
+        
+        /** The pool of the names and values of the parameters read by this cursor */
+        private final StringPool stringPool = new StringPool();
+        
+        /** The names of the columns to retain in the rows of the current method block, or null to retain all */
+        private Set<String> retainedColumns;
+        
+        /** The name of the current method */
+        private String methodName;
+        
+        /** The table holding the rows of the current method block */
+        private TestDataTable table;
+        
+        /** The current row */
+        private Map<String, Object> actualData;
+        
+        /** Whether the reader, or the index, has been exhausted */
+        private boolean exhausted;
+        
+        CsvCursor(InputStream csvFile) {
+            this.csvReader = new CsvReader(new InputStreamReader(csvFile, UTF8), COMMA_SEPARATOR);
+            this.mappedReader = null;
+            this.csvFile = null;
+            this.index = null;
+        }
+        
+        CsvCursor(MappedCsvReader mappedReader) {
+            this.csvReader = null;
+            this.mappedReader = mappedReader;
+            this.csvFile = null;
+            this.index = null;
+        }
+        
+        CsvCursor(File csvFile, CsvIndex index) {
+            this.csvReader = null;
+            this.mappedReader = null;
+            this.csvFile = csvFile;
+            this.index = index;
+        }
 
-                data.put(tempData.get(0), dataValues);
+        public boolean nextMethod() throws IOException {
+            actualData = null;
+            String[] splitValues;
+            if (index != null) {
+                // seek to the next block, without reading the rows of the current one
+                closeBlockReader();
+                rowFilter = null;
+                if (!index.nextBlock()) {
+                    exhausted = true;
+                    return false;
+                }
+                splitValues = index.readHeader();
             } else {
-                for (int i = 1; i < splitValues.length; i++) {
-                    
-                    actualData.put(tempData.get(i), normalize(splitValues[i]));
-                    logBuffer.append(":" + splitValues[i]);
+                // skip the unread rows of the current block, without building them
+                while (readDataRecord() != null) {
+                    // do nothing
                 }
+                if (pendingKeyRecord == null) {
+                    return false;
+                }
+                splitValues = pendingKeyRecord;
+                pendingKeyRecord = null;
             }
-            if (!isKeyRow) {
-                dataValues.add(actualData);
+            StringBuilder logBuffer = new StringBuilder("Record being read is :");
+            for (int i = 0; i < splitValues.length; i++) {
+                tempData.put(i, stringPool.intern(splitValues[i]));
+                logBuffer.append(":" + splitValues[i]);
             }
+            methodName = tempData.get(0);
+            table = new TestDataTable(true);
+            retainedColumns = null;
             LOG.debug(logBuffer.toString());
+            return true;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public void retainColumns(Set<String> columnNames) {
+            retainedColumns = columnNames;
+        }
+
+        public void retainRows(RowFilter filter) {
+            rowFilter = filter;
+        }
+
+        public boolean nextRow() throws IOException {
+            actualData = null;
+            String[] splitValues = index != null ? readIndexedRecord() : readDataRecord();
+            if (splitValues == null) {
+                return false;
+            }
+            StringBuilder logBuffer = new StringBuilder("Record being read is :");
+            actualData = table.addRow();
+            fillRow(actualData, tempData, splitValues, retainedColumns, stringPool);
+            for (int i = 1; i < splitValues.length; i++) {
+                logBuffer.append(":" + splitValues[i]);
+            }
+            LOG.debug(logBuffer.toString());
+            return true;
+        }
+
+        /**
+         * Read the next record of the current method block of the indexed CSV file
+         * 
+         * @return the values of the record or null if the current method block has no more records
+         */
+        private String[] readIndexedRecord() throws IOException {
+            if (exhausted) {
+                return null;
+            }
+            if (rowFilter != null && retainedColumns == null) {
+                // the index holds the hashes of the whole rows, so they are of no use once the rows are projected
+                while (index.nextRow()) {
+                    if (!Boolean.FALSE.equals(rowFilter.acceptRowHash(index.getRowHash()))) {
+                        return index.readRow();
+                    }
+                }
+                return null;
+            }
+            if (blockReader == null) {
+                blockReader = new MappedCsvReader(csvFile, index.getRowsStart(), index.getRowsEnd());
+            }
+            return blockReader.readRecord() ? blockReader.getValues() : null;
+        }
+
+        private void closeBlockReader() {
+            if (blockReader != null) {
+                blockReader.close();
+                blockReader = null;
+            }
         }
-        return data;
 
+        /**
+         * Read the next record of the current method block
+         * 
+         * @return the values of the record or null if the current method block has no more records
+         */
+        private String[] readDataRecord() throws IOException {
+            if (pendingKeyRecord != null || exhausted) {
+                return null;
+            }
+            if (!(mappedReader != null ? mappedReader.readRecord() : csvReader.readRecord())) {
+                exhausted = true;
+                return null;
+            }
+            String[] splitValues = mappedReader != null ? mappedReader.getValues() : csvReader.getValues();
+            if (splitValues.length > 0 && "".equals(splitValues[0])) {
+                return splitValues;
+            }
+            pendingKeyRecord = splitValues;
+            return null;
+        }
+
+        public Map<String, Object> getRow() {
+            return actualData;
+        }
+
+        public void close() {
+            if (index != null) {
+                closeBlockReader();
+                index.close();
+            } else if (mappedReader != null) {
+                mappedReader.close();
+            } else {
+                csvReader.close();
+            }
+        }
+        
+    }
+    
+    /**
+     * Put the values of the given data record in to the given row
+     * @param row the row
+     * @param columnNames the column index to parameter name mapping of the method block of the record
+     * @param values the values of the record
+     * @param retainedColumns the names of the columns to retain, or null to retain all
+     * @param stringPool the pool of the names and values of the parameters
+     */
+    static void fillRow(Map<String, Object> row, Map<Integer, String> columnNames, String[] values,
+        Set<String> retainedColumns, StringPool stringPool) {
+        for (int i = 1; i < values.length; i++) {
+            String parameterName = columnNames.get(i);
+            if (retainedColumns == null || retainedColumns.contains(parameterName)) {
+                row.put(parameterName, stringPool.internValue(parameterName, normalize(values[i])));
+            }
+        }
     }
     
     /**
@@ -160,7 +371,7 @@ public class CSVDataLoader implements Loader {
      * @param value the string to normalize
      * @return the normalized string
      */
-    private static String normalize(String value){
+    static String normalize(String value){
         return value.replaceAll(SINGLE_QUOTE, DOUBLE_QUOTE).replaceAll(AMPERSAND, COMMA);
     }
     
@@ -173,6 +384,15 @@ public class CSVDataLoader implements Loader {
      * in the actualData parameter
      */
     public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
+        File csvFile = DataLoaderUtil.getLocalFile(resource);
+        if (csvFile != null && CsvResults.isEnabled() && methodNames != null && methodNames.length > 0) {
+            try {
+                CsvResults.append(csvFile, actualData, methodNames);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
         if (methodNames == null || methodNames.length == 0) {
     	    writeFullDataToCSV(resource, actualData);
 		} else {
@@ -184,6 +404,23 @@ public class CSVDataLoader implements Loader {
 
     }
     
+    /**
+     * Merge the output data appended to the result sidecar of the given CSV file, when the System Property
+     * <B>easytest.csvResults</B> is set to true, back into the CSV file. The output columns are added to the method
+     * blocks that have output data, or replaced when they are already present, and the sidecar is removed.
+     * @param resource the resource representing a CSV file on the local file system
+     * @return whether there was any output data to merge
+     * @throws IOException if the files can not be read or written
+     */
+    public boolean compactResults(Resource resource) throws IOException {
+        File csvFile = DataLoaderUtil.getLocalFile(resource);
+        if (csvFile == null) {
+            LOG.warn("Results can only be compacted into CSV files on the local file system : {}", resource.getResourceName());
+            return false;
+        }
+        return CsvResults.compact(csvFile);
+    }
+    
     private void writeFullDataToCSV(Resource resource,
 			Map<String, List<Map<String, Object>>> actualData) {
     	
@@ -200,22 +437,26 @@ public class CSVDataLoader implements Loader {
                     LOG.debug("methodData" + methodData);                    
 
                     if (!isHeaderWritten) {
+                        // the rows that did not run have no output data, so the columns are taken from all the rows
+                        Set<String> parameterNames = new LinkedHashSet<String>();
+                        for (Map<String, Object> rowData : actualData.get(methodName)) {
+                            parameterNames.addAll(rowData.keySet());
+                        }
+                        parameterNames.remove(DURATION);
                         int columnIndex = 0;
-                        noOfColumns = methodData.keySet().size()+1;
+                        noOfColumns = parameterNames.size() + 2;
                         String[] headerValues = new String[noOfColumns];
                         // Write the method name and parameter names in header.
-                        //writeDataToCell(sheet, rowNum, columnIndex++, methodName);
                         headerValues[columnIndex++] = methodName;
-                        for (String parameterName : methodData.keySet()) {
+                        for (String parameterName : parameterNames) {
                         	headerValues[columnIndex] = parameterName;                             
                          // capturing column index so that corresponding values will be placed at same column
                             parameterIndexMap.put(parameterName, columnIndex);
                             columnIndex++;
                         }
                         //Next write the Duration header
+                        headerValues[columnIndex] = DURATION;
                         parameterIndexMap.put(DURATION, columnIndex++);
-                        // incrementing row after writing header
-                        //rowNum++;
                         isHeaderWritten = true;
                         writableData.add(headerValues);
                     }
@@ -230,15 +471,13 @@ public class CSVDataLoader implements Loader {
                         for (String parameter : methodData.keySet()) {
                         	parameterValues[parameterIndexMap.get(parameter)] = methodData.get(parameter)!=null?methodData.get(parameter).toString():null;
                         }
-                        //Finally put the Duration value
-                        parameterValues[parameterIndexMap.get(DURATION)] = methodData.get(DURATION).toString();
                         writableData.add(parameterValues);
                     }
 
                 }
             }
   
-            CsvWriter csvWriter = new CsvWriter(resource.getOutputStream(), COMMA_SEPARATOR,Charset.defaultCharset());
+            CsvWriter csvWriter = new CsvWriter(resource.getOutputStream(), COMMA_SEPARATOR, UTF8);
             // finally we have the values in order to be written to the CSV file.
             for (String[] data : writableData) {
                 csvWriter.writeRecord(data);
@@ -256,99 +495,80 @@ public class CSVDataLoader implements Loader {
 	}
 
 	/**
-     * Write the Data to the given Resource
+     * Write the Data to the given Resource. The rows of the file are matched with the rows of data by their input
+     * data, using a {@link RowMatcher}, so that only the output data of the rows that ran is written and the rows
+     * that were filtered out or did not run are left as they are. The output columns that a method block already has,
+     * for example written by another shard, are reused.
      * @param resource the resource representing the CSV file to which teh data should be written
      * @param actualData the actual data to write back
      * @param methodNames the optional names of methods for which the data shouuld be written. If this varargs is empty,
      * then the data will be written back for all the methods.
      */
     private void writeDataToCSV(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
-        Boolean isKeyRow = true;
         List<String[]> writableData = new ArrayList<String[]>();
         try {
-            CsvReader csvReader = new CsvReader(new InputStreamReader(resource.getInputStream()), COMMA_SEPARATOR);
+            CsvReader csvReader = new CsvReader(new InputStreamReader(resource.getInputStream(), UTF8), COMMA_SEPARATOR);
             // use FileWriter constructor that specifies open for overriding
 
             String currentMethodName = "";
-            int dataRowIndex = 0;
+            String[] columnNames = null;
             String[] dataKeys = null;
+            Map<String, Integer> outputIndexes = null;
+            RowMatcher rowMatcher = null;
             while (csvReader.readRecord()) {
                 
                 String[] splitValues = csvReader.getValues();
-                String[] newSplitValues = (String[])Array.newInstance(String[].class.getComponentType(), splitValues.length);
-                System.arraycopy(splitValues, 0, newSplitValues, 0, Math.min(splitValues.length, newSplitValues.length));
                 if (splitValues.length > 0 && "".equals(splitValues[0])) {
-                    isKeyRow = false;
-
-                } else {
-                    dataKeys = splitValues;
-                    isKeyRow = true;
-                    currentMethodName = splitValues[0];
-                    if (!writeDataForMethod(currentMethodName, methodNames)) {
+                    if (rowMatcher == null) {
                         writableData.add(splitValues);
                         continue;
                     }
-                }
-
-                if (isKeyRow) {
-                    dataRowIndex = 0;
-                    List<Map<String, Object>> currentMethodData = actualData.get(currentMethodName);
-                    int length = splitValues.length;
-                    if (currentMethodData != null && !currentMethodData.isEmpty()) {
-                        
-                        if (currentMethodData.get(0).keySet().contains(Loader.TEST_STATUS)) {
-                            //This means we have to write 3 extra fields to the CSV file: ActualResult, TestStatus and Duration
-                            
-                            newSplitValues = (String[])Array.newInstance(String[].class.getComponentType(), length + 3);
-                            System.arraycopy(splitValues, 0, newSplitValues, 0, Math.min(splitValues.length, newSplitValues.length));
-                            newSplitValues[length] = Loader.ACTUAL_RESULT;
-                            newSplitValues[length + 1] = TEST_STATUS;
-                            newSplitValues[length + 2] = DURATION;
-                        }else if(currentMethodData.get(0).keySet().contains(ACTUAL_RESULT)){
-                            //This means that method is returning data but user has not specified expected result param.
-                            //Thus we only write back actual result and duration
-                            newSplitValues = (String[])Array.newInstance(String[].class.getComponentType(), length + 2);
-                            System.arraycopy(splitValues, 0, newSplitValues, 0, Math.min(splitValues.length, newSplitValues.length));
-                            newSplitValues[length] = Loader.ACTUAL_RESULT;
-                            newSplitValues[length + 1] = DURATION;
-                        }else{
-                            //Write only the Duration of the method
-                            newSplitValues = (String[])Array.newInstance(String[].class.getComponentType(), length + 1);
-                            System.arraycopy(splitValues, 0, newSplitValues, 0, Math.min(splitValues.length, newSplitValues.length));
-                            newSplitValues[length] = DURATION;
-                        }
-                        dataKeys = newSplitValues;
-                    }
-                    writableData.add(newSplitValues);
-                    if(length == 1 && !currentMethodData.isEmpty()){
-                        //implies that the test method does not take any input parameters
-                        //We should then handle writing the output data specific to easyTest here and now.
-                        Map<String, Object> currentRowData = currentMethodData.get(dataRowIndex++);
-                        String[] finalValues = new String[dataKeys.length];
-                        finalValues[0] = EMPTY_STRING;
-                        writeOutputData(currentRowData, finalValues, dataKeys);
-                        writableData.add(finalValues);
-                        
+                    Map<String, Object> fileRow = new HashMap<String, Object>();
+                    for (int i = 1; i < splitValues.length && i < columnNames.length; i++) {
+                        fileRow.put(columnNames[i], normalize(splitValues[i]));
                     }
-                } else {
-                    if (!writeDataForMethod(currentMethodName, methodNames)) {
+                    Map<String, Object> currentRowData = rowMatcher.match(fileRow);
+                    if (currentRowData == null) {
+                        // the row did not run, so it is kept as it is
                         writableData.add(splitValues);
                         continue;
                     }
-                    List<Map<String, Object>> currentMethodData = actualData.get(currentMethodName);
-                    Map<String, Object> currentRowData = currentMethodData.get(dataRowIndex++);
-                    String[] finalValues = new String[dataKeys.length];
+                    String[] finalValues = new String[Math.max(dataKeys.length, splitValues.length)];
                     finalValues[0] = EMPTY_STRING;
-                    for(int i=1 ;i<dataKeys.length ; i++){
-                        finalValues[i] = currentRowData.get(dataKeys[i]) == null ? "null" :currentRowData.get(dataKeys[i]).toString();
+                    for (int i = 1; i < finalValues.length; i++) {
+                        finalValues[i] = i < splitValues.length ? splitValues[i] : "";
                     }
-                    writeOutputData(currentRowData, finalValues, dataKeys);
+                    writeOutputData(currentRowData, finalValues, outputIndexes);
                     writableData.add(finalValues);
+                } else {
+                    currentMethodName = splitValues[0];
+                    columnNames = splitValues;
+                    dataKeys = splitValues;
+                    rowMatcher = null;
+                    List<Map<String, Object>> currentMethodData = actualData.get(currentMethodName);
+                    List<String> outputColumns = writeDataForMethod(currentMethodName, methodNames)
+                        && currentMethodData != null ? getOutputColumns(currentMethodData) : null;
+                    if (outputColumns != null) {
+                        List<String> header = new ArrayList<String>(Arrays.asList(splitValues));
+                        outputIndexes = new LinkedHashMap<String, Integer>();
+                        for (String outputColumn : outputColumns) {
+                            // the loader reads the last column of a name, so that is the one to write
+                            int index = header.lastIndexOf(outputColumn);
+                            if (index <= 0) {
+                                index = header.size();
+                                header.add(outputColumn);
+                            }
+                            outputIndexes.put(outputColumn, index);
+                        }
+                        dataKeys = header.toArray(new String[header.size()]);
+                        rowMatcher = new RowMatcher(currentMethodData);
+                    }
+                    writableData.add(dataKeys);
                 }
 
             }
-            FileWriter fileWriter = new FileWriter(resource.getFile(), false);
-            CsvWriter csvWriter = new CsvWriter(fileWriter, COMMA_SEPARATOR);
+            csvReader.close();
+            CsvWriter csvWriter = new CsvWriter(resource.getOutputStream(), COMMA_SEPARATOR, UTF8);
             // finally we have the values in order to be written to the CSV file.
             for (String[] data : writableData) {
                 csvWriter.writeRecord(data);
@@ -364,22 +584,46 @@ public class CSVDataLoader implements Loader {
 
     }
     
-    
-    private void writeOutputData(Map<String, Object> currentRowData, String[] finalValues , String[] dataKeys ){
-        if(currentRowData.get(TEST_STATUS) != null){
-            //Write Actual Result, Test Status and Duration fields
-            finalValues[dataKeys.length - 3] = currentRowData.get(ACTUAL_RESULT).toString();
-            finalValues[dataKeys.length - 2] = currentRowData.get(TEST_STATUS).toString();
-            finalValues[dataKeys.length - 1] = currentRowData.get(DURATION).toString();
-        }else if(currentRowData.get(ACTUAL_RESULT) != null){
-            //Write Actual Result and Duration
-            finalValues[dataKeys.length - 2] = currentRowData.get(ACTUAL_RESULT).toString();
-            finalValues[dataKeys.length - 1] = currentRowData.get(DURATION).toString();
-        }else{
-            //Write Only Duration
-            finalValues[dataKeys.length - 1] = currentRowData.get(DURATION).toString();
+    /**
+     * Get the output columns to write for a method. They are determined from all the rows of the method, as the rows
+     * that did not run, for example because they were filtered out or run by another shard, have no output data.
+     * @param methodData the rows of data of the method
+     * @return the output columns to write, or null if no row of the method has output data
+     */
+    private static List<String> getOutputColumns(List<Map<String, Object>> methodData) {
+        boolean hasActualResult = false;
+        boolean hasOutput = false;
+        for (Map<String, Object> row : methodData) {
+            if (row.containsKey(TEST_STATUS)) {
+                //This means we have to write 3 extra fields to the CSV file: ActualResult, TestStatus and Duration
+                return Arrays.asList(ACTUAL_RESULT, TEST_STATUS, DURATION);
+            }
+            hasActualResult |= row.containsKey(ACTUAL_RESULT);
+            hasOutput |= RowMatcher.hasOutput(row);
         }
+        if (hasActualResult) {
+            //This means that method is returning data but user has not specified expected result param.
+            //Thus we only write back actual result and duration
+            return Arrays.asList(ACTUAL_RESULT, DURATION);
+        }
+        //Write only the Duration of the method
+        return hasOutput ? Arrays.asList(DURATION) : null;
     }
+
+    /**
+     * Put the output data of the given row into the output columns of the given record
+     * @param currentRowData the row holding the output data
+     * @param finalValues the values of the record to write
+     * @param outputIndexes the index of every output column of the method block, keyed by its name
+     */
+    private void writeOutputData(Map<String, Object> currentRowData, String[] finalValues,
+        Map<String, Integer> outputIndexes) {
+        for (Map.Entry<String, Integer> outputIndex : outputIndexes.entrySet()) {
+            Object value = currentRowData.get(outputIndex.getKey());
+            finalValues[outputIndex.getValue()] = value == null ? "" : value.toString();
+        }
+    }
+
     /**
      * Method determining whether the data for a given method should be written or not
      * @param currentMethod
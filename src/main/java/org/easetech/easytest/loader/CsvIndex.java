@@ -0,0 +1,619 @@
+package org.easetech.easytest.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.util.CommonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the records of a CSV test data file, stored in a sidecar file with the extension
+ * {@value #INDEX_EXTENSION} next to it. The index is only used when the System Property <B>easytest.csvIndex</B> is
+ * set to true. It is built the first time the CSV file is loaded, and built again whenever the size or the last
+ * modification time of the CSV file no longer match the ones recorded in the index.<br>
+ * For every method block, the index records the byte offset of the header record and of the range of its rows, and
+ * for every row its byte offset, its length and its hash as given by {@link RowFilter#hashRow(String, Map)}. This lets
+ * the {@link CSVDataLoader} :
+ * <ul>
+ * <li>seek past the method blocks that are not selected, without reading them</li>
+ * <li>read only the rows of a method block that may belong to the shard being run, see
+ * {@link RowFilter#shard(String, int, int)}, with one targeted read per row instead of a scan of the whole block</li>
+ * </ul>
+ * The index is read forward only, along with the CSV file, so its memory use does not depend on the size of the file.
+ * The index is an optimization only : any failure to build it is logged and the file is then read as usual.
+ *
+ */
+final class CsvIndex {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(CsvIndex.class);
+
+    /** The extension of the index sidecar files */
+    static final String INDEX_EXTENSION = ".idx";
+
+    /** The magic number identifying an index file */
+    private static final int MAGIC = 0x45544958;
+
+    /** The version of the format of the index files */
+    private static final int VERSION = 1;
+
+    /** The position of the number of blocks within the index file */
+    private static final long BLOCK_COUNT_POSITION = 24;
+
+    /** The size of the buffers used to read and write the files */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The charset of the CSV files */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The states of the record boundary scanner, as in {@link MappedCsvReader} */
+    private static final int FIELD_START = 0;
+
+    private static final int UNQUOTED = 1;
+
+    private static final int IN_QUOTES = 2;
+
+    private static final int QUOTE_IN_QUOTES = 3;
+
+    private static final int AFTER_QUOTES = 4;
+
+    /** The entries of the index */
+    private final DataInputStream entries;
+
+    /** The CSV file, read at the offsets given by the index */
+    private final RandomAccessFile csv;
+
+    private final FileChannel channel;
+
+    /** The bytes of the CSV file last read */
+    private ByteBuffer window = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /** The position in the CSV file at which the {@link #window} starts */
+    private long windowStart = -1;
+
+    /** The number of blocks that are not read yet */
+    private int remainingBlocks;
+
+    /** The current block */
+    private String methodName;
+
+    private long headerOffset;
+
+    private int headerLength;
+
+    private long rowsStart;
+
+    private long rowsEnd;
+
+    /** The number of bytes of the entries of the rows of the current block that are not read yet */
+    private long remainingEntryBytes;
+
+    /** The current row */
+    private long rowOffset;
+
+    private int rowLength;
+
+    private long rowHash;
+
+    private CsvIndex(File csvFile, File indexFile) throws IOException {
+        this.entries = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), BUFFER_SIZE));
+        try {
+            readHeader(entries, csvFile);
+            remainingBlocks = entries.readInt();
+            this.csv = new RandomAccessFile(csvFile, "r");
+        } catch (IOException e) {
+            entries.close();
+            throw e;
+        }
+        this.channel = csv.getChannel();
+    }
+
+    /**
+     * Open the index of the given CSV file, building it first if it does not exist or is stale
+     *
+     * @param csvFile the CSV file
+     * @return the index or null if indexes are not enabled or the index could not be built
+     */
+    static CsvIndex open(File csvFile) {
+        if (!Boolean.getBoolean(SystemProperties.CSV_INDEX.getValue())) {
+            return null;
+        }
+        File indexFile = new File(csvFile.getPath() + INDEX_EXTENSION);
+        try {
+            if (!isFresh(csvFile, indexFile)) {
+                build(csvFile, indexFile);
+                LOG.debug("Index {} built for the CSV file {}", indexFile, csvFile);
+            }
+            return new CsvIndex(csvFile, indexFile);
+        } catch (IOException e) {
+            LOG.warn("Unable to use the index {} . The CSV file {} is read as a whole instead.", new Object[] {
+                indexFile, csvFile, e });
+            return null;
+        }
+    }
+
+    /**
+     * Check whether the given index exists and matches the current size and last modification time of the CSV file,
+     * and whether all the offsets it records fit within the CSV file
+     */
+    private static boolean isFresh(File csvFile, File indexFile) {
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile),
+                BUFFER_SIZE));
+            try {
+                readHeader(input, csvFile);
+                long csvLength = csvFile.length();
+                for (int blocks = input.readInt(); blocks > 0; blocks--) {
+                    skipFully(input, input.readInt());
+                    long headerEnd = input.readLong() + input.readInt();
+                    // the start of the rows lies between the end of the header and the end of the rows
+                    input.readLong();
+                    long blockRowsEnd = input.readLong();
+                    if (headerEnd > csvLength || blockRowsEnd > csvLength) {
+                        return false;
+                    }
+                    skipFully(input, input.readLong());
+                }
+                return true;
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void skipFully(DataInputStream input, long bytes) throws IOException {
+        while (bytes > 0) {
+            int skipped = input.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                throw new EOFException("The index is truncated");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private static void readHeader(DataInputStream input, File csvFile) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Not an index of the current version");
+        }
+        if (input.readLong() != csvFile.length() || input.readLong() != csvFile.lastModified()) {
+            throw new IOException("The index is stale");
+        }
+    }
+
+    /**
+     * Move to the next method block
+     *
+     * @return true if there is a next method block
+     * @throws IOException if the index can not be read
+     */
+    boolean nextBlock() throws IOException {
+        skipFully(entries, remainingEntryBytes);
+        remainingEntryBytes = 0;
+        if (remainingBlocks <= 0) {
+            return false;
+        }
+        remainingBlocks--;
+        byte[] name = new byte[entries.readInt()];
+        entries.readFully(name);
+        methodName = new String(name, UTF8);
+        headerOffset = entries.readLong();
+        headerLength = entries.readInt();
+        rowsStart = entries.readLong();
+        rowsEnd = entries.readLong();
+        remainingEntryBytes = entries.readLong();
+        rowOffset = rowsStart;
+        rowLength = 0;
+        return true;
+    }
+
+    /**
+     * @return the name of the method of the current block
+     */
+    String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return the values of the header record of the current block
+     * @throws IOException if the CSV file can not be read
+     */
+    String[] readHeader() throws IOException {
+        return readRecord(headerOffset, headerLength);
+    }
+
+    /**
+     * @return the position of the first row of the current block
+     */
+    long getRowsStart() {
+        return rowsStart;
+    }
+
+    /**
+     * @return the position right after the last row of the current block
+     */
+    long getRowsEnd() {
+        return rowsEnd;
+    }
+
+    /**
+     * Move to the next row of the current block
+     *
+     * @return true if the current block has a next row
+     * @throws IOException if the index can not be read
+     */
+    boolean nextRow() throws IOException {
+        if (remainingEntryBytes <= 0) {
+            return false;
+        }
+        // the rows are recorded as the distance from the end of the previous row, followed by the length and the hash
+        long before = remainingEntryBytes;
+        long gap = readVarLong();
+        rowOffset += rowLength + gap;
+        rowLength = (int) readVarLong();
+        rowHash = entries.readLong();
+        remainingEntryBytes = before - (varLongSize(gap) + varLongSize(rowLength) + 8);
+        return true;
+    }
+
+    /**
+     * @return the hash of the current row
+     */
+    long getRowHash() {
+        return rowHash;
+    }
+
+    /**
+     * @return the values of the current row
+     * @throws IOException if the CSV file can not be read
+     */
+    String[] readRow() throws IOException {
+        return readRecord(rowOffset, rowLength);
+    }
+
+    /**
+     * Close the index and the CSV file
+     */
+    void close() {
+        try {
+            entries.close();
+        } catch (IOException e) {
+            LOG.debug("IOException occured while closing the index", e);
+        }
+        try {
+            csv.close();
+        } catch (IOException e) {
+            LOG.debug("IOException occured while closing the CSV file", e);
+        }
+    }
+
+    /**
+     * Read the record of the CSV file at the given position
+     */
+    private String[] readRecord(long offset, int length) throws IOException {
+        if (windowStart < 0 || offset < windowStart || offset + length > windowStart + window.limit()) {
+            if (length > window.capacity()) {
+                window = ByteBuffer.allocate(length);
+            }
+            window.clear();
+            windowStart = offset;
+            while (window.hasRemaining()) {
+                if (channel.read(window, windowStart + window.position()) < 0) {
+                    break;
+                }
+            }
+            window.flip();
+            if (window.limit() < length) {
+                throw new EOFException("The CSV file is shorter than its index");
+            }
+        }
+        char[] text = new String(window.array(), (int) (offset - windowStart), length, UTF8).toCharArray();
+        List<String[]> records = MappedCsvReader.ChunkParser.parse(text, 0, text.length);
+        return records.isEmpty() ? new String[0] : records.get(0);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int current;
+        do {
+            current = entries.readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Build the index of the given CSV file in a single sequential pass over it. The records are delimited the same
+     * way as by {@link MappedCsvReader}, and the rows are hashed from the same values as the ones the
+     * {@link CSVDataLoader} reads. The index is written to a temporary file of its own that then atomically replaces
+     * the given index file.
+     *
+     * @param csvFile the CSV file
+     * @param indexFile the index file
+     * @throws IOException if an I/O exception occurs
+     */
+    static void build(File csvFile, File indexFile) throws IOException {
+        long csvSize = csvFile.length();
+        long csvLastModified = csvFile.lastModified();
+        // every build writes to a file of its own, so that concurrent builds never write to the same file
+        File temporary = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+        IndexWriter writer;
+        try {
+            writer = new IndexWriter(temporary);
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+        InputStream in = new BufferedInputStream(new FileInputStream(csvFile), BUFFER_SIZE);
+        try {
+            writer.writeHeader(csvSize, csvLastModified);
+            long position = 0;
+            in.mark(3);
+            if (in.read() == 0xEF && in.read() == 0xBB && in.read() == 0xBF) {
+                position = 3;
+            } else {
+                in.reset();
+            }
+            byte[] record = new byte[1024];
+            int recordLength = 0;
+            long recordStart = position;
+            int state = FIELD_START;
+            int current;
+            while ((current = in.read()) >= 0) {
+                position++;
+                if (state == IN_QUOTES) {
+                    if (current == '"') {
+                        state = QUOTE_IN_QUOTES;
+                    }
+                } else {
+                    if (state == QUOTE_IN_QUOTES) {
+                        state = current == '"' ? IN_QUOTES : AFTER_QUOTES;
+                    }
+                    if (state != IN_QUOTES && (current == '\r' || current == '\n')) {
+                        if (current == '\r') {
+                            in.mark(1);
+                            if (in.read() == '\n') {
+                                position++;
+                            } else {
+                                in.reset();
+                            }
+                        }
+                        writer.addRecord(record, recordStart, recordLength, position);
+                        recordLength = 0;
+                        recordStart = position;
+                        state = FIELD_START;
+                        continue;
+                    }
+                    if (current == ',') {
+                        state = FIELD_START;
+                    } else if (state == FIELD_START && current != ' ' && current != '\t') {
+                        state = current == '"' ? IN_QUOTES : UNQUOTED;
+                    }
+                }
+                if (recordLength == record.length) {
+                    byte[] larger = new byte[record.length * 2];
+                    System.arraycopy(record, 0, larger, 0, recordLength);
+                    record = larger;
+                }
+                record[recordLength++] = (byte) current;
+            }
+            writer.addRecord(record, recordStart, recordLength, position);
+            writer.finish();
+        } catch (IOException e) {
+            writer.close();
+            temporary.delete();
+            throw e;
+        } finally {
+            in.close();
+        }
+        if (csvFile.length() != csvSize || csvFile.lastModified() != csvLastModified) {
+            temporary.delete();
+            throw new IOException("The CSV file changed while its index was being built");
+        }
+        try {
+            CommonUtils.replaceFile(temporary, indexFile);
+        } finally {
+            temporary.delete();
+        }
+    }
+
+    /**
+     * Writes the entries of an index file, one record of the CSV file at a time
+     */
+    private static final class IndexWriter {
+
+        private final File indexFile;
+
+        private final CountingOutputStream counter;
+
+        private final DataOutputStream out;
+
+        /** The column index to parameter name mapping, kept across the method blocks like the CSV cursor does */
+        private final Map<Integer, String> columnNames = new HashMap<Integer, String>();
+
+        private final StringPool stringPool = new StringPool(0);
+
+        /**
+         * For every block, the position of its fields that are only known once all its rows are written, the end of
+         * its rows and the number of bytes of the entries of its rows
+         */
+        private final List<long[]> blocks = new ArrayList<long[]>();
+
+        private String methodName;
+
+        /** The position in the index file at which the entries of the rows of the current block start */
+        private long entriesStart;
+
+        /** The position in the CSV file right after the previous row, or the header, of the current block */
+        private long previousEnd;
+
+        IndexWriter(File indexFile) throws IOException {
+            this.indexFile = indexFile;
+            this.counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile),
+                BUFFER_SIZE));
+            this.out = new DataOutputStream(counter);
+        }
+
+        void writeHeader(long csvSize, long csvLastModified) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(csvSize);
+            out.writeLong(csvLastModified);
+            // the number of blocks
+            out.writeInt(0);
+        }
+
+        /**
+         * Add a record of the CSV file to the index
+         *
+         * @param record the bytes of the record, without its separator
+         * @param recordStart the position of the record in the CSV file
+         * @param recordLength the length of the record
+         * @param recordEnd the position right after the separator of the record
+         */
+        void addRecord(byte[] record, long recordStart, int recordLength, long recordEnd) throws IOException {
+            if (recordLength == 0) {
+                return;
+            }
+            char[] text = new String(record, 0, recordLength, UTF8).toCharArray();
+            List<String[]> records = MappedCsvReader.ChunkParser.parse(text, 0, text.length);
+            if (records.isEmpty()) {
+                return;
+            }
+            String[] values = records.get(0);
+            if (values.length > 0 && !"".equals(values[0])) {
+                // a header record starts a new method block
+                finishBlock();
+                for (int i = 0; i < values.length; i++) {
+                    columnNames.put(i, values[i]);
+                }
+                methodName = values[0];
+                byte[] name = methodName.getBytes(UTF8);
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeLong(recordStart);
+                out.writeInt(recordLength);
+                out.writeLong(recordEnd);
+                blocks.add(new long[] { counter.getCount(), recordEnd, 0 });
+                out.writeLong(0);
+                out.writeLong(0);
+                entriesStart = counter.getCount();
+                previousEnd = recordEnd;
+            } else if (methodName != null) {
+                Map<String, Object> row = new HashMap<String, Object>();
+                CSVDataLoader.fillRow(row, columnNames, values, null, stringPool);
+                writeVarLong(out, recordStart - previousEnd);
+                writeVarLong(out, recordLength);
+                out.writeLong(RowFilter.hashRow(methodName, row));
+                previousEnd = recordStart + recordLength;
+                blocks.get(blocks.size() - 1)[1] = recordEnd;
+            }
+        }
+
+        private void finishBlock() {
+            if (!blocks.isEmpty()) {
+                blocks.get(blocks.size() - 1)[2] = counter.getCount() - entriesStart;
+            }
+        }
+
+        /**
+         * Write the fields that are only known once all the records are added
+         */
+        void finish() throws IOException {
+            finishBlock();
+            out.close();
+            RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+            try {
+                file.seek(BLOCK_COUNT_POSITION);
+                file.writeInt(blocks.size());
+                for (long[] block : blocks) {
+                    file.seek(block[0]);
+                    file.writeLong(block[1]);
+                    file.writeLong(block[2]);
+                }
+            } finally {
+                file.close();
+            }
+        }
+
+        void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                LOG.debug("IOException occured while closing the index", e);
+            }
+        }
+    }
+
+    /**
+     * An {@link OutputStream} counting the bytes written to it
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,357 @@
+package org.easetech.easytest.loader;
+
+import com.csvreader.CsvReader;
+import com.csvreader.CsvWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only log of the output data of the tests run with the data of a CSV file, stored in a sidecar file with
+ * the extension {@value #RESULTS_EXTENSION} next to it. The log is only written when the System Property
+ * <B>easytest.csvResults</B> is set to true, in which case the CSV file itself is no longer rewritten by
+ * {@link CSVDataLoader#writeData(org.easetech.easytest.io.Resource, Map, String...)}.<br>
+ * Every record of the log holds the output data of a single row of test data : the name of its test method, the hash
+ * of its input data, its {@link Loader#ACTUAL_RESULT}, {@link Loader#TEST_STATUS} and {@link Loader#DURATION},
+ * followed by the names of the input columns that were hashed. A row is thus identified by its content and not by
+ * its position, so that the rows that were filtered out or run by another shard do not shift the results. Rows of a
+ * test method with the same input data share their output data.<br>
+ * The records are only ever appended, each batch with a single write, so the output data can be written while the
+ * tests are still running. The log is merged back into the CSV file, adding or replacing its output columns, by
+ * {@link CSVDataLoader#compactResults(org.easetech.easytest.io.Resource)}. The last record written for a row wins.
+ *
+ */
+final class CsvResults {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(CsvResults.class);
+
+    /** The extension of the result sidecar files */
+    static final String RESULTS_EXTENSION = ".results";
+
+    /** The charset of the sidecar files and of the compacted CSV files */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The separator between the columns of the files */
+    private static final char COMMA_SEPARATOR = ',';
+
+    /** The columns holding the output data, in the order in which they are added to the CSV file */
+    private static final List<String> OUTPUT_COLUMNS = Arrays.asList(Loader.ACTUAL_RESULT, Loader.TEST_STATUS,
+        Loader.DURATION);
+
+    /** The number of fields of a record of the log preceding the names of the hashed columns */
+    private static final int IDENTITY_COLUMNS_START = 2 + OUTPUT_COLUMNS.size();
+
+    /** The lock serializing the writes to the sidecar files of this process */
+    private static final Object WRITE_LOCK = new Object();
+
+    private CsvResults() {
+        // static helper
+    }
+
+    /**
+     * @return whether the output data should be appended to the sidecar files instead of rewriting the CSV files
+     */
+    static boolean isEnabled() {
+        return Boolean.getBoolean(SystemProperties.CSV_RESULTS.getValue());
+    }
+
+    /**
+     * Get the result sidecar file of the given CSV file
+     *
+     * @param csvFile the CSV file
+     * @return the sidecar file, which may not exist
+     */
+    static File getResultsFile(File csvFile) {
+        return new File(csvFile.getPath() + RESULTS_EXTENSION);
+    }
+
+    /**
+     * Append the output data of the rows of the given methods to the sidecar file of the given CSV file
+     *
+     * @param csvFile the CSV file the data was loaded from
+     * @param actualData the data containing the output data
+     * @param methodNames the names of the methods to write the output data of, or none for all the methods
+     * @throws IOException if the sidecar file can not be written
+     */
+    static void append(File csvFile, Map<String, List<Map<String, Object>>> actualData, String... methodNames)
+        throws IOException {
+        Iterable<String> methodsToWriteDataFor = methodNames == null || methodNames.length == 0 ? actualData.keySet()
+            : new LinkedHashSet<String>(Arrays.asList(methodNames));
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        CsvWriter csvWriter = new CsvWriter(batch, COMMA_SEPARATOR, UTF8);
+        int recordCount = 0;
+        for (String methodName : methodsToWriteDataFor) {
+            List<Map<String, Object>> rows = methodName == null ? null : actualData.get(methodName);
+            if (rows == null) {
+                continue;
+            }
+            for (Map<String, Object> row : rows) {
+                Map<String, Object> identity = getIdentity(row);
+                List<String> record = new ArrayList<String>();
+                record.add(methodName);
+                record.add(Long.toHexString(RowFilter.hashRow(methodName, identity)));
+                boolean hasOutput = false;
+                for (String outputColumn : OUTPUT_COLUMNS) {
+                    Object value = row.get(outputColumn);
+                    hasOutput |= value != null;
+                    record.add(value == null ? "" : value.toString());
+                }
+                if (!hasOutput) {
+                    continue;
+                }
+                record.addAll(identity.keySet());
+                csvWriter.writeRecord(record.toArray(new String[record.size()]));
+                recordCount++;
+            }
+        }
+        csvWriter.close();
+        if (recordCount == 0) {
+            return;
+        }
+        File resultsFile = getResultsFile(csvFile);
+        synchronized (WRITE_LOCK) {
+            OutputStream output = new FileOutputStream(resultsFile, true);
+            try {
+                output.write(batch.toByteArray());
+            } finally {
+                output.close();
+            }
+        }
+        LOG.debug("Appended the output data of {} rows to {}", recordCount, resultsFile);
+    }
+
+    /**
+     * Merge the output data of the sidecar file of the given CSV file back into the CSV file and remove the sidecar.
+     * The output columns are added to the header records of the methods that have output data, or replaced when the
+     * header already contains them.
+     *
+     * @param csvFile the CSV file
+     * @return whether there was any output data to merge
+     * @throws IOException if a file can not be read or written
+     */
+    static boolean compact(File csvFile) throws IOException {
+        File resultsFile = getResultsFile(csvFile);
+        synchronized (WRITE_LOCK) {
+            if (!resultsFile.isFile()) {
+                return false;
+            }
+            Map<String, MethodResults> results = readResults(resultsFile);
+            File tempFile = File.createTempFile(csvFile.getName(), ".tmp", csvFile.getAbsoluteFile().getParentFile());
+            try {
+                CsvReader csvReader = new CsvReader(new InputStreamReader(new FileInputStream(csvFile), UTF8),
+                    COMMA_SEPARATOR);
+                CsvWriter csvWriter = new CsvWriter(new FileOutputStream(tempFile), COMMA_SEPARATOR, UTF8);
+                try {
+                    merge(csvReader, csvWriter, results);
+                } finally {
+                    csvReader.close();
+                    csvWriter.close();
+                }
+                Files.move(tempFile.toPath(), csvFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                tempFile.delete();
+            }
+            resultsFile.delete();
+            return true;
+        }
+    }
+
+    /**
+     * Get the input data of the given row, keyed by the column names in their natural order
+     */
+    private static Map<String, Object> getIdentity(Map<String, Object> row) {
+        List<String> columnNames = new ArrayList<String>(row.keySet());
+        columnNames.removeAll(OUTPUT_COLUMNS);
+        String[] sortedNames = columnNames.toArray(new String[columnNames.size()]);
+        Arrays.sort(sortedNames);
+        Map<String, Object> identity = new LinkedHashMap<String, Object>();
+        for (String columnName : sortedNames) {
+            identity.put(columnName, row.get(columnName));
+        }
+        return identity;
+    }
+
+    /**
+     * Read the records of a sidecar file, keeping the last one written for every row
+     */
+    private static Map<String, MethodResults> readResults(File resultsFile) throws IOException {
+        Map<String, MethodResults> results = new HashMap<String, MethodResults>();
+        CsvReader csvReader = new CsvReader(new InputStreamReader(new FileInputStream(resultsFile), UTF8),
+            COMMA_SEPARATOR);
+        try {
+            while (csvReader.readRecord()) {
+                String[] record = csvReader.getValues();
+                if (record.length < IDENTITY_COLUMNS_START) {
+                    LOG.warn("Ignoring the incomplete record {} of {}", Arrays.toString(record), resultsFile);
+                    continue;
+                }
+                MethodResults methodResults = results.get(record[0]);
+                if (methodResults == null) {
+                    methodResults = new MethodResults();
+                    results.put(record[0], methodResults);
+                }
+                methodResults.add(record);
+            }
+        } finally {
+            csvReader.close();
+        }
+        return results;
+    }
+
+    /**
+     * Copy the records of a CSV file, adding the output data of the rows that have any
+     */
+    private static void merge(CsvReader csvReader, CsvWriter csvWriter, Map<String, MethodResults> results)
+        throws IOException {
+        String methodName = null;
+        String[] columnNames = null;
+        MethodResults methodResults = null;
+        int[] outputIndexes = null;
+        while (csvReader.readRecord()) {
+            String[] values = csvReader.getValues();
+            if (values.length > 0 && !"".equals(values[0])) {
+                // the header record of a method block
+                methodName = values[0].charAt(0) == '\uFEFF' ? values[0].substring(1) : values[0];
+                columnNames = values;
+                methodResults = results.get(methodName);
+                if (methodResults == null) {
+                    csvWriter.writeRecord(values);
+                    continue;
+                }
+                outputIndexes = methodResults.getOutputIndexes(values);
+                String[] header = Arrays.copyOf(values, Math.max(values.length, max(outputIndexes) + 1));
+                for (int i = 0; i < OUTPUT_COLUMNS.size(); i++) {
+                    if (outputIndexes[i] >= 0) {
+                        header[outputIndexes[i]] = OUTPUT_COLUMNS.get(i);
+                    }
+                }
+                csvWriter.writeRecord(header);
+                if (values.length == 1) {
+                    // a method without any parameters has its output data right after its header
+                    String[] output = methodResults.getOutput(methodName, new String[] {""}, columnNames);
+                    if (output != null) {
+                        csvWriter.writeRecord(withOutput(new String[] {""}, output, outputIndexes));
+                    }
+                }
+            } else if (methodResults == null) {
+                csvWriter.writeRecord(values);
+            } else {
+                String[] output = methodResults.getOutput(methodName, values, columnNames);
+                csvWriter.writeRecord(output == null ? values : withOutput(values, output, outputIndexes));
+            }
+        }
+    }
+
+    private static String[] withOutput(String[] values, String[] output, int[] outputIndexes) {
+        String[] record = Arrays.copyOf(values, Math.max(values.length, max(outputIndexes) + 1));
+        for (int i = 0; i < record.length; i++) {
+            if (record[i] == null) {
+                record[i] = "";
+            }
+        }
+        for (int i = 0; i < outputIndexes.length; i++) {
+            if (outputIndexes[i] >= 0) {
+                record[outputIndexes[i]] = output[i];
+            }
+        }
+        return record;
+    }
+
+    private static int max(int[] values) {
+        int max = -1;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * The output data of the rows of a single test method, keyed by the names of the hashed columns and the hash of
+     * the rows
+     */
+    private static class MethodResults {
+
+        private final Map<List<String>, Map<String, String[]>> outputs = new LinkedHashMap<List<String>, Map<String, String[]>>();
+
+        /** Whether any row of the method has a value for each of the output columns */
+        private final boolean[] hasOutputColumn = new boolean[OUTPUT_COLUMNS.size()];
+
+        void add(String[] record) {
+            List<String> identityColumns = Arrays.asList(Arrays.copyOfRange(record, IDENTITY_COLUMNS_START,
+                record.length));
+            Map<String, String[]> rowOutputs = outputs.get(identityColumns);
+            if (rowOutputs == null) {
+                rowOutputs = new HashMap<String, String[]>();
+                outputs.put(identityColumns, rowOutputs);
+            }
+            String[] output = Arrays.copyOfRange(record, 2, IDENTITY_COLUMNS_START);
+            for (int i = 0; i < output.length; i++) {
+                hasOutputColumn[i] |= output[i].length() > 0;
+            }
+            rowOutputs.put(record[1], output);
+        }
+
+        /**
+         * Get the indexes of the output columns in the records of the method, reusing the columns of the header that
+         * already hold output data, or -1 for the output columns that no row has a value for
+         */
+        int[] getOutputIndexes(String[] header) {
+            int[] outputIndexes = new int[OUTPUT_COLUMNS.size()];
+            int nextIndex = header.length;
+            for (int i = 0; i < outputIndexes.length; i++) {
+                int index = Arrays.asList(header).indexOf(OUTPUT_COLUMNS.get(i));
+                outputIndexes[i] = index > 0 ? index : hasOutputColumn[i] ? nextIndex++ : -1;
+            }
+            return outputIndexes;
+        }
+
+        /**
+         * Get the output data of the given row of the CSV file, or null if it has none
+         */
+        String[] getOutput(String methodName, String[] values, String[] columnNames) {
+            Map<String, Object> row = new HashMap<String, Object>();
+            for (int i = 1; i < values.length && i < columnNames.length; i++) {
+                row.put(columnNames[i], CSVDataLoader.normalize(values[i]));
+            }
+            for (Map.Entry<List<String>, Map<String, String[]>> rowOutputs : outputs.entrySet()) {
+                Map<String, Object> identity = new HashMap<String, Object>();
+                for (String columnName : rowOutputs.getKey()) {
+                    if (!row.containsKey(columnName)) {
+                        identity = null;
+                        break;
+                    }
+                    identity.put(columnName, row.get(columnName));
+                }
+                if (identity != null) {
+                    String[] output = rowOutputs.getValue().get(
+                        Long.toHexString(RowFilter.hashRow(methodName, identity)));
+                    if (output != null) {
+                        return output;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+}
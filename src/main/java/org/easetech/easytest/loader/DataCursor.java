@@ -0,0 +1,88 @@
+package org.easetech.easytest.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A forward only cursor over the test data contained in a single resource. The data in every resource supported by
+ * EasyTest is organized as a sequence of method blocks, each block consisting of the name of a test method followed by
+ * the rows of test data for that method. The cursor walks over this structure in exactly the order in which it appears
+ * in the resource :
+ * <ul>
+ * <li>{@link #nextMethod()} moves the cursor to the next method block. Any rows of the current block that were not
+ * read are skipped.</li>
+ * <li>{@link #nextRow()} moves the cursor to the next row within the current method block.</li>
+ * </ul>
+ * A cursor is opened by a {@link StreamingLoader} and is positioned before the first method block. A typical usage of
+ * the cursor looks like this :<br>
+ * <code>
+ * DataCursor cursor = loader.openCursor(resource);<br>
+ * try {<br>
+ * &nbsp;&nbsp;while (cursor.nextMethod()) {<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;String methodName = cursor.getMethodName();<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;while (cursor.nextRow()) {<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;consume(methodName, cursor.getRow());<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;}<br>
+ * &nbsp;&nbsp;}<br>
+ * } finally {<br>
+ * &nbsp;&nbsp;cursor.close();<br>
+ * }<br>
+ * </code>
+ * Note that the same method name may appear in more than one block of a resource. It is up to the consumer to decide
+ * whether a later block replaces or extends an earlier one.
+ *
+ */
+public interface DataCursor extends Closeable {
+
+    /**
+     * Move the cursor to the next method block. Once there are no more blocks, this method and {@link #nextRow()}
+     * keep returning false.
+     *
+     * @return true if the cursor is positioned on a method block, false if there are no more blocks.
+     * @throws IOException if an I/O exception occurs while reading the underlying resource
+     */
+    boolean nextMethod() throws IOException;
+
+    /**
+     * Get the name of the test method of the current method block
+     *
+     * @return the name of the test method
+     */
+    String getMethodName();
+
+    /**
+     * Restrict the rows of the current method block to the given columns. The cells of the other columns are skipped
+     * while the rows are read. It has to be called before the first row of the block is read. A cursor that can not
+     * skip cells may ignore it, so the rows may still contain other columns.
+     *
+     * @param columnNames the names of the columns to retain
+     */
+    void retainColumns(Set<String> columnNames);
+
+    /**
+     * Move the cursor to the next row of the current method block. Once the block has no more rows, this method keeps
+     * returning false until the cursor is moved to the next block.
+     *
+     * @return true if the cursor is positioned on a row, false if the current method block has no more rows.
+     * @throws IOException if an I/O exception occurs while reading the underlying resource
+     */
+    boolean nextRow() throws IOException;
+
+    /**
+     * Get the test data of the current row. Each call to {@link #nextRow()} produces a new Map instance, so the
+     * returned row can safely be retained by the caller.
+     *
+     * @return the parameter name to parameter value mapping of the current row
+     */
+    Map<String, Object> getRow();
+
+    /**
+     * Release any resource held by the cursor. Calling this method more than once has no effect.
+     *
+     * @throws IOException if an I/O exception occurs while closing the underlying resource
+     */
+    void close() throws IOException;
+
+}
@@ -1,16 +1,34 @@
 
 package org.easetech.easytest.loader;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.easetech.easytest.annotation.DataLoader;
 import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.CompressedResource;
 import org.easetech.easytest.io.EmptyResource;
+import org.easetech.easytest.io.FileSystemResource;
+import org.easetech.easytest.io.PathResource;
 import org.easetech.easytest.io.Resource;
 import org.easetech.easytest.io.ResourceLoader;
 import org.easetech.easytest.io.ResourceLoaderStrategy;
@@ -39,6 +57,15 @@ public final class DataLoaderUtil {
     /** Pattern for runtime expression */
     private static final Pattern RUNTIME_EXPR_PATTERN = Pattern.compile("\\$\\{.*\\}");
 
+    /** The number of threads parsing the test data in parallel */
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /** The number of seconds after which an idle thread of the {@link #executor} ends */
+    private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 30;
+
+    /** The executor parsing the resources and the chunks of the CSV files in parallel, created on first use */
+    private static ThreadPoolExecutor executor;
+
 
     /**
      * Method that determines the right Loader and the right Data Files for the "write output data" functionality
@@ -68,12 +95,49 @@ public final class DataLoaderUtil {
             }
 
         }
+        if (dataLoader != null && !(dataLoader instanceof SnapshotDataLoader) && isDataOfResource(dataLoader)
+            && hasFreshSnapshot(dataFiles, testClass)) {
+            LOG.debug("Fresh snapshots exist for the data files. They are loaded instead of the data files.");
+            dataLoader = new SnapshotDataLoader(dataLoader);
+        }
         result.setDataLoader(dataLoader);
         result.setFilePaths(dataFiles);
         result.setWriteData(testData.writeData());
         return result;
     }
 
+    /**
+     * Check whether the data loaded by the given loader is the content of the resource itself, so that it only changes
+     * when the resource changes. This is not the case of the {@link DatabaseDataLoader}, whose resource only defines
+     * the queries run against the database. Its data is thus never cached nor snapshotted.
+     * 
+     * @param dataLoader the loader
+     * @return true if the data loaded by the loader depends only on the resource
+     */
+    static boolean isDataOfResource(Loader dataLoader) {
+        return !(dataLoader instanceof DatabaseDataLoader);
+    }
+
+    /**
+     * Check whether any of the given data files has a snapshot sidecar that is newer than the data file itself.
+     * 
+     * @param dataFiles the data files
+     * @param testClass the test class the data files are resolved against
+     * @return true if a fresh snapshot exists for any of the data files
+     */
+    private static boolean hasFreshSnapshot(String[] dataFiles, TestClass testClass) {
+        if (dataFiles == null || dataFiles.length == 0) {
+            return false;
+        }
+        ResourceLoader resourceLoader = new ResourceLoaderStrategy(testClass.getJavaClass());
+        for (String filePath : dataFiles) {
+            if (SnapshotDataLoader.getFreshSnapshot(resourceLoader.getResource(filePath)) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Determine the Path of the test data files
      * 
@@ -169,17 +233,50 @@ public final class DataLoaderUtil {
         if (filePath == null || filePath == "") {
             return LoaderType.CUSTOM;
         }
+        // a compressed file is loaded by the loader of the file it was compressed from
+        filePath = CompressedResource.getUncompressedPath(filePath);
         if (filePath.endsWith("csv")) {
             return LoaderType.CSV;
-        } else if (filePath.endsWith("xls")) {
+        } else if (filePath.endsWith("xls") || filePath.endsWith("xlsx")) {
             return LoaderType.EXCEL;
         } else if (filePath.endsWith("xml")) {
             return LoaderType.XML;
+        } else if (filePath.endsWith(SnapshotDataLoader.SNAPSHOT_EXTENSION)) {
+            return LoaderType.SNAPSHOT;
+        } else if (filePath.endsWith("json") || filePath.endsWith("jsonl")) {
+            return LoaderType.JSON;
+        } else if (filePath.endsWith(GeneratorDataLoader.SPEC_EXTENSION)) {
+            return LoaderType.GENERATOR;
         }
         return LoaderType.CUSTOM;
 
     }
 
+    /**
+     * Get the local file backing the given resource, if any. Only the {@link FileSystemResource}, the
+     * {@link PathResource} and the {@link ClasspathResource} that is not packaged in an archive are backed by a local
+     * file.
+     * 
+     * @param resource the resource
+     * @return the file backing the resource or null if the resource does not reside on the local file system
+     */
+    static File getLocalFile(Resource resource) {
+        if (!(resource instanceof FileSystemResource) && !(resource instanceof PathResource)
+            && !(resource instanceof ClasspathResource)) {
+            return null;
+        }
+        try {
+            if (!"file".equals(resource.getURL().getProtocol())) {
+                return null;
+            }
+            File file = resource.getFile();
+            return file != null && file.isFile() ? file : null;
+        } catch (Exception e) {
+            LOG.debug("Resource {} is not backed by a local file", resource.getResourceName(), e);
+            return null;
+        }
+    }
+
     private static Loader getCustomLoaderInstance(DataLoader testData) {
         Loader dataLoader = null;
         LOG.info("User specified to use custom Loader. Trying to get the custom loader.");
@@ -217,6 +314,22 @@ public final class DataLoaderUtil {
 
     public static void loadData(Class<?> testClass, FrameworkMethod method, TestClass currentTestClass,
         Map<String, List<Map<String, Object>>> writableData) {
+        loadData(testClass, method, currentTestClass, writableData, DataSelection.ALL);
+    }
+
+    /**
+     * Load only the selected part of the Data for the given class or method. The data of the methods that are not
+     * selected is skipped while it is being read and is neither converted nor stored.
+     * 
+     * @param testClass the class object, if any.
+     * @param method current executing method, if any.
+     * @param currentTestClass the currently executing test class.
+     * @param writableData The writable data that is used internally for reporting purposes
+     * @param selection the part of the data to load
+     * @see #loadData(Class, FrameworkMethod, TestClass, Map)
+     */
+    public static void loadData(Class<?> testClass, FrameworkMethod method, TestClass currentTestClass,
+        Map<String, List<Map<String, Object>>> writableData, DataSelection selection) {
         if (testClass == null && method == null) {
             Assert
                 .fail("The framework should provide either the testClass parameter or the method parameter in order to load the test data.");
@@ -238,38 +351,309 @@ public final class DataLoaderUtil {
             } else {
                 if (testInfo.getFilePaths() == null || testInfo.getFilePaths().length == 0) {
                     // implies that there exists a CUSTOM loader that loads the data using Java classes
-                    Map<String, List<Map<String, Object>>> data = dataLoader.loadData(new EmptyResource());
-                    // We also maintain the copy of the actual data for our write functionality.
-                    fillWritableData(writableData , data , testData.appendData());
-                    DataContext.setData(DataConverter.appendClassName(data, currentTestClass.getJavaClass()), testData.appendData());
-                    DataContext.setConvertedData(DataConverter.convert(data, currentTestClass.getJavaClass()) , testData.appendData());
+                    mergeResource(parseResource(dataLoader, new EmptyResource(), currentTestClass.getJavaClass(),
+                        selection), writableData, testData.appendData());
                 } else {
                     ResourceLoader resourceLoader = new ResourceLoaderStrategy(currentTestClass.getJavaClass());
+                    List<Resource> resources = new ArrayList<Resource>();
                     for (String filePath : testInfo.getFilePaths()) {
                         Resource resource = resourceLoader.getResource(filePath);
-                        try {
-                            if (resource.exists()) {
-                                Map<String, List<Map<String, Object>>> data = dataLoader.loadData(resource);
-                                // We also maintain the copy of the actual data for our write functionality.
-                                fillWritableData(writableData , data , testData.appendData());
-                                DataContext
-                                    .setData(DataConverter.appendClassName(data, currentTestClass.getJavaClass()), testData.appendData());
-                                DataContext.setConvertedData(DataConverter.convert(data,
-                                    currentTestClass.getJavaClass()), testData.appendData());
-                            } else {
-                                LOG.warn(
-                                    "Resource {} does not exists in the specified path. If it is a classpath resource, use 'classpath:' "
-                                        + "before the path name, else check the path.", resource);
+                        if (resource.exists()) {
+                            resources.add(resource);
+                        } else {
+                            LOG.warn(
+                                "Resource {} does not exists in the specified path. If it is a classpath resource, use 'classpath:' "
+                                    + "before the path name, else check the path.", resource);
+                        }
+                    }
+                    loadResources(dataLoader, resources, currentTestClass.getJavaClass(), writableData,
+                        testData.appendData(), selection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Load the data of the given resources and store it in the {@link DataContext} as well as in the writable data.
+     * When there is more than one resource and the loader is a {@link StreamingLoader}, the resources are parsed in
+     * parallel on a bounded pool of threads. The parsed data is always merged in the order in which the resources are
+     * declared, on the calling thread, so that the appendData semantics are the same as with a sequential load.
+     * 
+     * @param dataLoader the loader to load the data with
+     * @param resources the resources to load the data from, in their declared order
+     * @param testClass the currently executing test class
+     * @param writableData The writable data that is used internally for reporting purposes
+     * @param appendData whether the data should be appended to the already loaded data or should replace it
+     * @param selection the part of the data to load
+     */
+    private static void loadResources(final Loader dataLoader, List<Resource> resources, final Class<?> testClass,
+        Map<String, List<Map<String, Object>>> writableData, boolean appendData, final DataSelection selection) {
+        if (resources.size() < 2 || !(dataLoader instanceof StreamingLoader)) {
+            for (Resource resource : resources) {
+                try {
+                    mergeResource(parseResource(dataLoader, resource, testClass, selection), writableData, appendData);
+                } catch (Exception e) {
+                    LOG.error("Exception occured while trying to load the data for resource {}", resource, e);
+                    throw new RuntimeException(e);
+                }
+            }
+            return;
+        }
+        List<Future<ParsedResource>> parsedResources = new ArrayList<Future<ParsedResource>>(resources.size());
+        for (final Resource resource : resources) {
+            parsedResources.add(getExecutor().submit(new Callable<ParsedResource>() {
+                public ParsedResource call() {
+                    return parseResource(dataLoader, resource, testClass, selection);
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < resources.size(); i++) {
+                ParsedResource parsedResource;
+                try {
+                    parsedResource = parsedResources.get(i).get();
+                } catch (ExecutionException e) {
+                    LOG.error("Exception occured while trying to load the data for resource {}", resources.get(i),
+                        e.getCause());
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while loading the data for resource "
+                        + resources.get(i), e);
+                }
+                mergeResource(parsedResource, writableData, appendData);
+            }
+        } finally {
+            for (Future<ParsedResource> parsedResource : parsedResources) {
+                parsedResource.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Get the executor shared by all the tasks parsing test data in parallel, such as the resources of a test class or
+     * the chunks of a CSV file. Its threads are daemon threads that end once they have been idle for
+     * {@link #EXECUTOR_KEEP_ALIVE_SECONDS}, so that the executor never needs to be shut down. A task running on the
+     * executor must not wait for another task it submitted to it without running that task itself if it has not been
+     * started yet, see {@link java.util.concurrent.FutureTask#run()}, as all the threads may be waiting otherwise.
+     * 
+     * @return the shared executor
+     */
+    static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "easytest-data-loader-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Parse the selected data of a single resource. The data is taken from the {@link ParsedDataCache} if the resource
+     * was already parsed. In case the loader is a {@link StreamingLoader}, the rows are consumed from its
+     * {@link DataCursor} as they are being read, and the class name prefixed data as well as the converted data are
+     * built in the same pass. The rows of the method blocks that are not selected are never read from the cursor, and
+     * the cells of the columns that are not selected are skipped by the cursor. The rows that are not selected are
+     * dropped as soon as they are read.
+     * Otherwise the data is loaded using {@link Loader#loadData(Resource)} and then converted using
+     * {@link DataConverter}. Only the complete data of a resource is cached. This method does not touch the
+     * {@link DataContext} and can be called from any thread.
+     * 
+     * @param dataLoader the loader to load the data with
+     * @param resource the resource to load the data from
+     * @param testClass the currently executing test class
+     * @param selection the part of the data to load
+     * @return the parsed data of the resource
+     */
+    private static ParsedResource parseResource(Loader dataLoader, Resource resource, Class<?> testClass,
+        DataSelection selection) {
+        String cacheKey = ParsedDataCache.getCacheKey(dataLoader, resource);
+        Map<String, List<Map<String, Object>>> cachedData = cacheKey != null ? ParsedDataCache.get(cacheKey) : null;
+        if (cachedData != null) {
+            LOG.debug("Data of resource {} is already parsed and is taken from the cache", resource.getResourceName());
+            Map<String, List<Map<String, Object>>> data = select(cachedData, selection);
+            project(data, selection);
+            return new ParsedResource(data, DataConverter.appendClassName(data, testClass), DataConverter.convert(
+                data, testClass));
+        } else if (dataLoader instanceof StreamingLoader) {
+            Map<String, List<Map<String, Object>>> data = new HashMap<String, List<Map<String, Object>>>();
+            Map<String, List<Map<String, Object>>> qualifiedData = new HashMap<String, List<Map<String, Object>>>();
+            Map<String, List<Map<String, Object>>> convertedData = new HashMap<String, List<Map<String, Object>>>();
+            try {
+                DataCursor cursor = ((StreamingLoader) dataLoader).openCursor(resource);
+                try {
+                    while (cursor.nextMethod()) {
+                        String methodName = cursor.getMethodName();
+                        if (!selection.isMethodSelected(methodName)) {
+                            continue;
+                        }
+                        Set<String> columnNames = selection.getColumnNames(methodName);
+                        if (columnNames != null) {
+                            cursor.retainColumns(columnNames);
+                        }
+                        RowFilter rowFilter = selection.getRowFilter(methodName);
+                        if (rowFilter != null && cursor instanceof IndexedCursor) {
+                            ((IndexedCursor) cursor).retainRows(rowFilter);
+                        }
+                        String qualifiedName = DataConverter.getFullyQualifiedTestName(methodName, testClass);
+                        List<Map<String, Object>> previousBlock = data.get(methodName);
+                        if (previousBlock != null) {
+                            // a later block for the same method replaces the earlier one
+                            for (Map<String, Object> row : previousBlock) {
+                                convertedData.remove(qualifiedName.concat(row.toString()));
                             }
-                        } catch (Exception e) {
-                            LOG.error("Exception occured while trying to load the data for resource {}", resource, e);
-                            throw new RuntimeException(e);
+                        }
+                        List<Map<String, Object>> methodData = new ArrayList<Map<String, Object>>();
+                        data.put(methodName, methodData);
+                        qualifiedData.put(qualifiedName, methodData);
+                        while (cursor.nextRow()) {
+                            Map<String, Object> row = cursor.getRow();
+                            if (rowFilter != null && !rowFilter.accept(row)) {
+                                TestDataTable table = TestDataTable.tableOf(row);
+                                if (table != null) {
+                                    table.discardLastRow(row);
+                                }
+                                continue;
+                            }
+                            methodData.add(row);
+                            convertedData.put(qualifiedName.concat(row.toString()), Collections.singletonList(row));
+                        }
+                        TestDataTable.publishTablesOf(methodData);
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } catch (IOException e) {
+                LOG.error("IOException occured while trying to read the data from resource {}", resource, e);
+                throw new RuntimeException(e);
+            }
+            LOG.debug("Loading data from resource {} succedded and the data loaded is {}", resource.getResourceName(),
+                data);
+            if (selection.isAll() && isDataOfResource(dataLoader)) {
+                if (cacheKey != null) {
+                    ParsedDataCache.put(cacheKey, data);
+                }
+                SnapshotDataLoader.createSnapshot(resource, data);
+            }
+            return new ParsedResource(data, qualifiedData, convertedData);
+        } else {
+            Map<String, List<Map<String, Object>>> data = dataLoader.loadData(resource);
+            SnapshotDataLoader.createSnapshot(resource, data);
+            data = select(data, selection);
+            return new ParsedResource(data, DataConverter.appendClassName(data, testClass), DataConverter.convert(
+                data, testClass));
+        }
+    }
+
+    /**
+     * Get the data of only the selected methods, and of only their selected rows, from the given data
+     * 
+     * @param data the data
+     * @param selection the selection
+     * @return the selected data
+     */
+    private static Map<String, List<Map<String, Object>>> select(Map<String, List<Map<String, Object>>> data,
+        DataSelection selection) {
+        if (data == null || selection.isAll()) {
+            return data;
+        }
+        Map<String, List<Map<String, Object>>> selectedData = new HashMap<String, List<Map<String, Object>>>();
+        for (Map.Entry<String, List<Map<String, Object>>> methodData : data.entrySet()) {
+            if (!selection.isMethodSelected(methodData.getKey())) {
+                continue;
+            }
+            RowFilter rowFilter = selection.getRowFilter(methodData.getKey());
+            if (rowFilter == null || methodData.getValue() == null) {
+                selectedData.put(methodData.getKey(), methodData.getValue());
+            } else {
+                List<Map<String, Object>> selectedRows = new ArrayList<Map<String, Object>>();
+                for (Map<String, Object> row : methodData.getValue()) {
+                    if (rowFilter.accept(row)) {
+                        selectedRows.add(row);
+                    }
+                }
+                selectedData.put(methodData.getKey(), selectedRows);
+            }
+        }
+        return selectedData;
+    }
+
+    /**
+     * Replace the rows of the given data with copies holding only the selected columns. The rows themselves are read
+     * only, as they are shared with the {@link ParsedDataCache}, and are left as they are.
+     * 
+     * @param data the data
+     * @param selection the selection
+     */
+    private static void project(Map<String, List<Map<String, Object>>> data, DataSelection selection) {
+        for (Map.Entry<String, List<Map<String, Object>>> methodData : data.entrySet()) {
+            Set<String> columnNames = selection.getColumnNames(methodData.getKey());
+            if (columnNames != null) {
+                ListIterator<Map<String, Object>> rows = methodData.getValue().listIterator();
+                while (rows.hasNext()) {
+                    Map<String, Object> row = rows.next();
+                    Map<String, Object> projectedRow = new HashMap<String, Object>();
+                    for (String columnName : columnNames) {
+                        if (row.containsKey(columnName)) {
+                            projectedRow.put(columnName, row.get(columnName));
                         }
                     }
+                    rows.set(projectedRow);
                 }
             }
         }
     }
+
+    /**
+     * Store the parsed data of a single resource in the {@link DataContext} as well as in the writable data.
+     * 
+     * @param parsedResource the parsed data of the resource
+     * @param writableData The writable data that is used internally for reporting purposes
+     * @param appendData whether the data should be appended to the already loaded data or should replace it
+     */
+    private static void mergeResource(ParsedResource parsedResource,
+        Map<String, List<Map<String, Object>>> writableData, boolean appendData) {
+        // We also maintain the copy of the actual data for our write functionality.
+        fillWritableData(writableData, parsedResource.data, appendData);
+        DataContext.setData(parsedResource.qualifiedData, appendData);
+        DataContext.setConvertedData(parsedResource.convertedData, appendData);
+    }
+
+    /**
+     * Read all the data from the given cursor in to a Map consisting of the methodName as key and a List of Key/value
+     * pairs as the value of the Map. The cursor is closed once all the data is read. The rows read in to a
+     * {@link TestDataTable} are read only, as their table is published once the rows of its method are read. This is
+     * useful for {@link StreamingLoader}s to implement {@link Loader#loadData(Resource)} on top of their
+     * {@link DataCursor}.
+     * 
+     * @param cursor the cursor to read the data from
+     * @return the data read from the cursor
+     * @throws IOException if an I/O exception occurs while reading the data
+     */
+    public static Map<String, List<Map<String, Object>>> readAll(DataCursor cursor) throws IOException {
+        Map<String, List<Map<String, Object>>> data = new HashMap<String, List<Map<String, Object>>>();
+        try {
+            while (cursor.nextMethod()) {
+                List<Map<String, Object>> methodData = new ArrayList<Map<String, Object>>();
+                data.put(cursor.getMethodName(), methodData);
+                while (cursor.nextRow()) {
+                    methodData.add(cursor.getRow());
+                }
+                TestDataTable.publishTablesOf(methodData);
+            }
+        } finally {
+            cursor.close();
+        }
+        return data;
+    }
     
     private static void fillWritableData(Map<String, List<Map<String, Object>>> writableData , Map<String, List<Map<String, Object>>> availableData, boolean appendData) {
         if(!appendData) {
@@ -312,4 +696,26 @@ public final class DataLoaderUtil {
         return result;
     }
 
+    /**
+     * The data parsed from a single resource, in the three forms in which it is stored
+     */
+    private static class ParsedResource {
+
+        /** The data mapped by the method names */
+        private final Map<String, List<Map<String, Object>>> data;
+
+        /** The data mapped by the class name prefixed method names */
+        private final Map<String, List<Map<String, Object>>> qualifiedData;
+
+        /** The rows of data mapped by the class name prefixed method names followed by the row */
+        private final Map<String, List<Map<String, Object>>> convertedData;
+
+        ParsedResource(Map<String, List<Map<String, Object>>> data,
+            Map<String, List<Map<String, Object>>> qualifiedData, Map<String, List<Map<String, Object>>> convertedData) {
+            this.data = data;
+            this.qualifiedData = qualifiedData;
+            this.convertedData = convertedData;
+        }
+    }
+
 }
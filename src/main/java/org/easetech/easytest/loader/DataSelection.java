@@ -0,0 +1,169 @@
+package org.easetech.easytest.loader;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Identifies the part of the test data that actually needs to be loaded. When only some of the test methods of a class
+ * are run, for example because the runner was filtered to a single method by an IDE, only the method blocks of those
+ * methods are loaded. The rows of the other method blocks are skipped by the {@link DataCursor} of a
+ * {@link StreamingLoader} without being built, and are never converted.<br>
+ * A selection can also project the rows of a method on to the columns, i.e. the parameters, that the method actually
+ * references. The cells of the other columns are skipped by the {@link DataCursor} while the rows are being built.
+ * Finally a selection can restrict the rows of a method to those accepted by a {@link RowFilter}.<br>
+ * A {@link DataSelection} is immutable.
+ *
+ */
+public final class DataSelection {
+
+    /** The selection of all the test data */
+    public static final DataSelection ALL = new DataSelection(null, Collections.<String, Set<String>> emptyMap(),
+        Collections.<String, RowFilter> emptyMap());
+
+    /**
+     * The names of the columns that a loader keeps in the rows for its own use, such as the position of an XML test
+     * record that its output data is written back to. They are retained by every projection of the rows, whether the
+     * rows are projected by a {@link DataCursor} or taken from the {@link ParsedDataCache} and projected afterwards.
+     */
+    private static final Set<String> LOADER_COLUMNS = Collections.singleton(XMLDataLoader.RECORD_POSITION);
+
+    /** The names of the selected methods, or null if all the methods are selected */
+    private final Set<String> methodNames;
+
+    /** The names of the columns to retain, mapped by the name of the method whose rows are projected */
+    private final Map<String, Set<String>> methodColumns;
+
+    /** The filters of the rows, mapped by the name of the method whose rows are filtered */
+    private final Map<String, RowFilter> methodFilters;
+
+    /**
+     * Construct a new DataSelection
+     *
+     * @param methodNames the names of the selected methods, or null if all the methods are selected
+     * @param methodColumns the names of the columns to retain, mapped by the name of the method whose rows are
+     *            projected
+     * @param methodFilters the filters of the rows, mapped by the name of the method whose rows are filtered
+     */
+    private DataSelection(Set<String> methodNames, Map<String, Set<String>> methodColumns,
+        Map<String, RowFilter> methodFilters) {
+        this.methodNames = methodNames;
+        this.methodColumns = methodColumns;
+        this.methodFilters = methodFilters;
+    }
+
+    /**
+     * Get a selection of the data of only those methods that are selected by both this selection and the given
+     * method names.
+     *
+     * @param selectedMethodNames the names of the methods to retain
+     * @return the narrowed selection
+     */
+    public DataSelection retainMethods(Collection<String> selectedMethodNames) {
+        Set<String> retainedMethodNames = new HashSet<String>(selectedMethodNames);
+        if (methodNames != null) {
+            retainedMethodNames.retainAll(methodNames);
+        }
+        return new DataSelection(Collections.unmodifiableSet(retainedMethodNames), methodColumns, methodFilters);
+    }
+
+    /**
+     * Get a selection that, in addition to this selection, projects the rows of the given method on to the given
+     * columns. The columns a loader keeps for its own use are always retained.
+     *
+     * @param methodName the name of the method
+     * @param columnNames the names of the columns to retain in the rows of the method
+     * @return the narrowed selection
+     */
+    public DataSelection retainColumns(String methodName, Collection<String> columnNames) {
+        Set<String> retainedColumnNames = new HashSet<String>(columnNames);
+        retainedColumnNames.addAll(LOADER_COLUMNS);
+        Set<String> currentColumnNames = methodColumns.get(methodName);
+        if (currentColumnNames != null) {
+            retainedColumnNames.retainAll(currentColumnNames);
+        }
+        Map<String, Set<String>> retainedMethodColumns = new HashMap<String, Set<String>>(methodColumns);
+        retainedMethodColumns.put(methodName, Collections.unmodifiableSet(retainedColumnNames));
+        return new DataSelection(methodNames, Collections.unmodifiableMap(retainedMethodColumns), methodFilters);
+    }
+
+    /**
+     * Get a selection that, in addition to this selection, retains only the rows of the given method that are
+     * accepted by the given filter
+     *
+     * @param methodName the name of the method
+     * @param rowFilter the filter of the rows of the method
+     * @return the narrowed selection
+     */
+    public DataSelection retainRows(String methodName, RowFilter rowFilter) {
+        Map<String, RowFilter> retainedMethodFilters = new HashMap<String, RowFilter>(methodFilters);
+        retainedMethodFilters.put(methodName, RowFilter.and(methodFilters.get(methodName), rowFilter));
+        return new DataSelection(methodNames, methodColumns, Collections.unmodifiableMap(retainedMethodFilters));
+    }
+
+    /**
+     * Whether all the test data is selected
+     *
+     * @return true if all the test data is selected
+     */
+    public boolean isAll() {
+        return methodNames == null && methodColumns.isEmpty() && methodFilters.isEmpty();
+    }
+
+    /**
+     * Whether the data of the given method is selected
+     *
+     * @param methodName the name of the method
+     * @return true if the data of the method should be loaded
+     */
+    public boolean isMethodSelected(String methodName) {
+        return methodNames == null || methodNames.contains(methodName);
+    }
+
+    /**
+     * Get the names of the selected methods
+     *
+     * @return the names of the selected methods, or null if all the methods are selected
+     */
+    public Set<String> getMethodNames() {
+        return methodNames;
+    }
+
+    /**
+     * Get the names of the columns to retain in the rows of the given method. The rows of a method whose rows are
+     * split in to shards are not projected, as the shard of a row is decided by all of its input columns.
+     *
+     * @param methodName the name of the method
+     * @return the names of the columns to retain, or null if all the columns are retained
+     */
+    public Set<String> getColumnNames(String methodName) {
+        RowFilter rowFilter = methodFilters.get(methodName);
+        if (rowFilter != null && rowFilter.isSharding()) {
+            return null;
+        }
+        return methodColumns.get(methodName);
+    }
+
+    /**
+     * Get the filter of the rows of the given method
+     *
+     * @param methodName the name of the method
+     * @return the filter of the rows, or null if all the rows are selected
+     */
+    public RowFilter getRowFilter(String methodName) {
+        return methodFilters.get(methodName);
+    }
+
+    /**
+     * @return the overridden toString
+     */
+    @Override
+    public String toString() {
+        return "DataSelection [methodNames=" + (methodNames == null ? "ALL" : methodNames) + ", methodColumns="
+            + methodColumns + ", methodFilters=" + methodFilters + "]";
+    }
+
+}
@@ -0,0 +1,494 @@
+package org.easetech.easytest.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.easetech.easytest.io.Resource;
+import org.easetech.easytest.util.ConfigContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of {@link Loader} that loads the test data from a relational database using JDBC. The resource
+ * given to the loader is a properties file that defines how to connect to the database and the query returning the
+ * rows of test data of every test method :<br>
+ * <code>
+ * jdbc.url=jdbc:h2:mem:goldenData<br>
+ * jdbc.user=sa<br>
+ * jdbc.password=<br>
+ * jdbc.fetchSize=500<br>
+ * query.getItems=SELECT library_id AS "libraryId", item_type AS "itemType" FROM items WHERE region = ${test.region}<br>
+ * </code>
+ * Every <B>query.&lt;test method name&gt;</B> entry defines a method block. Every row of the result of its query is a
+ * row of test data, whose parameter names are the labels of the columns. The values are loaded as strings, like the
+ * values of the other loaders. A <B>${name}</B> placeholder in a query is bound as a parameter of the query to the
+ * System Property of that name. A default value, bound when the System Property is not set, can be given as
+ * <B>${name:default}</B>.<br>
+ * Instead of a JDBC URL, the connections can be obtained from a {@link DataSource} declared as a bean of a
+ * {@link org.easetech.easytest.annotation.TestConfigProvider}. The entry <B>jdbc.dataSource</B> gives the name of the
+ * bean. If neither <B>jdbc.url</B> nor <B>jdbc.dataSource</B> is given, the {@link DataSource} bean is looked up by
+ * its type.<br>
+ * The rows are fetched from the database <B>jdbc.fetchSize</B> rows at a time and handed over to the framework as they
+ * arrive. The queries of the different test methods are independent, so they are run concurrently, on up to
+ * <B>jdbc.threads</B> connections, while the framework consumes the rows of the test methods in order.<br>
+ * The data is read from the database every time it is loaded, so it is neither cached nor snapshotted. Writing the
+ * output data back to the database is not supported.<br>
+ * The loader is chosen using the loaderType attribute of the {@link org.easetech.easytest.annotation.DataLoader}
+ * annotation :<br>
+ * <B>@DataLoader(filePaths={"goldenData.properties"}, loaderType=LoaderType.DATABASE, writeData=false)</B>
+ *
+ */
+public class DatabaseDataLoader implements StreamingLoader {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(DatabaseDataLoader.class);
+
+    /** The prefix of the entries defining the query of a test method */
+    public static final String QUERY_PREFIX = "query.";
+
+    /** The entry giving the JDBC URL of the database */
+    public static final String URL = "jdbc.url";
+
+    /** The entry giving the user connecting to the database */
+    public static final String USER = "jdbc.user";
+
+    /** The entry giving the password of the user */
+    public static final String PASSWORD = "jdbc.password";
+
+    /** The entry giving the class name of the JDBC driver, for the drivers that do not register themselves */
+    public static final String DRIVER = "jdbc.driver";
+
+    /** The entry giving the name of the {@link DataSource} bean */
+    public static final String DATA_SOURCE = "jdbc.dataSource";
+
+    /** The entry giving the number of rows fetched from the database at a time */
+    public static final String FETCH_SIZE = "jdbc.fetchSize";
+
+    /** The entry giving the maximum number of queries run concurrently */
+    public static final String THREADS = "jdbc.threads";
+
+    private static final int DEFAULT_FETCH_SIZE = 500;
+
+    /** The pattern of a placeholder bound to a System Property */
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}:]+)(?::([^}]*))?\\}");
+
+    /** Marks the end of the rows of a query */
+    private static final Object END_OF_ROWS = new Object();
+
+    /**
+     *
+     * Construct a new DatabaseDataLoader
+     */
+    public DatabaseDataLoader() {
+        super();
+    }
+
+    /**
+     * Load the data for the given Resource
+     *
+     * @param resource the properties file defining the queries
+     * @return the loaded data
+     */
+    public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
+        Map<String, List<Map<String, Object>>> result = null;
+        try {
+            result = DataLoaderUtil.readAll(openCursor(resource));
+        } catch (IOException e) {
+            LOG.error("IOException occured while trying to Load the resource {} . Moving to the next resource.",
+                resource.getResourceName(), e);
+        }
+        if (result != null) {
+            LOG.debug("Loading data from resource {} succedded and the data loaded is {}", resource.getResourceName(),
+                result);
+        }
+        return result;
+    }
+
+    /**
+     * Open a {@link DataCursor} over the results of the queries defined by the given resource. The queries start
+     * running as soon as the cursor is opened.
+     *
+     * @param resource the properties file defining the queries
+     * @return an instance of {@link DataCursor}
+     * @throws IOException if the resource can not be read
+     */
+    public DataCursor openCursor(Resource resource) throws IOException {
+        final List<String> keys = new ArrayList<String>();
+        Properties properties = new Properties() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                // keep the order of the entries, so that the method blocks are in the order of the file
+                if (!containsKey(key)) {
+                    keys.add((String) key);
+                }
+                return super.put(key, value);
+            }
+        };
+        InputStream inputStream = resource.getInputStream();
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        List<MethodQuery> queries = new ArrayList<MethodQuery>();
+        int fetchSize = getIntProperty(properties, FETCH_SIZE, DEFAULT_FETCH_SIZE);
+        ConnectionFactory connectionFactory = new ConnectionFactory(properties);
+        for (String key : keys) {
+            if (key.startsWith(QUERY_PREFIX)) {
+                queries.add(new MethodQuery(key.substring(QUERY_PREFIX.length()), properties.getProperty(key),
+                    connectionFactory, fetchSize));
+            }
+        }
+        int threads = getIntProperty(properties, THREADS, Runtime.getRuntime().availableProcessors());
+        return new DatabaseCursor(queries, Math.max(1, Math.min(threads, queries.size())));
+    }
+
+    /**
+     * Writing the data back to the database is not supported, so the data is not written
+     *
+     * @param resource the resource
+     * @param actualData the actual data
+     * @param methodNames the names of the methods
+     */
+    public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
+        LOG.info("The output data of the tests is not written back to the database of resource {}",
+            resource.getResourceName());
+    }
+
+    private static int getIntProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value {} for {}. Using the default value {} instead.", new Object[] { value, key,
+                defaultValue });
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Opens the connections to the database, either through the {@link DriverManager} or through a
+     * {@link DataSource} bean
+     */
+    private static final class ConnectionFactory {
+
+        private final String url;
+
+        private final String user;
+
+        private final String password;
+
+        private final DataSource dataSource;
+
+        ConnectionFactory(Properties properties) throws IOException {
+            url = properties.getProperty(URL);
+            user = properties.getProperty(USER);
+            password = properties.getProperty(PASSWORD);
+            String driver = properties.getProperty(DRIVER);
+            if (driver != null) {
+                try {
+                    Class.forName(driver.trim());
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("The JDBC driver " + driver + " can not be found");
+                }
+            }
+            if (url != null) {
+                dataSource = null;
+            } else if (properties.getProperty(DATA_SOURCE) != null) {
+                Object bean = ConfigContext.getBeanByName(properties.getProperty(DATA_SOURCE).trim());
+                if (!(bean instanceof DataSource)) {
+                    throw new IOException("No DataSource bean named " + properties.getProperty(DATA_SOURCE)
+                        + " is provided by the TestConfigProvider of the test");
+                }
+                dataSource = (DataSource) bean;
+            } else {
+                dataSource = (DataSource) ConfigContext.getBeanByType(DataSource.class);
+                if (dataSource == null) {
+                    throw new IOException("Neither " + URL + " nor " + DATA_SOURCE
+                        + " is specified and no DataSource bean is provided by the TestConfigProvider of the test");
+                }
+            }
+        }
+
+        Connection getConnection() throws SQLException {
+            if (dataSource != null) {
+                return user != null ? dataSource.getConnection(user, password) : dataSource.getConnection();
+            }
+            return user != null ? DriverManager.getConnection(url, user, password) : DriverManager.getConnection(url);
+        }
+    }
+
+    /**
+     * The query of a single test method. When it is run, it hands the labels of the columns and then the values of
+     * every row over to the cursor, through a bounded queue, so that the rows are not fetched much ahead of the
+     * cursor.
+     */
+    private static final class MethodQuery implements Runnable {
+
+        private final String methodName;
+
+        private final String sql;
+
+        private final List<String> parameterNames = new ArrayList<String>();
+
+        private final List<String> defaultValues = new ArrayList<String>();
+
+        private final ConnectionFactory connectionFactory;
+
+        private final int fetchSize;
+
+        /** The labels of the columns, followed by the values of the rows and then the end marker or the failure */
+        private final BlockingQueue<Object> results;
+
+        /** Whether the cursor does not need the rows anymore */
+        private volatile boolean cancelled;
+
+        MethodQuery(String methodName, String query, ConnectionFactory connectionFactory, int fetchSize) {
+            this.methodName = methodName;
+            this.connectionFactory = connectionFactory;
+            this.fetchSize = fetchSize;
+            this.results = new ArrayBlockingQueue<Object>(Math.max(fetchSize, 1));
+            StringBuffer sql = new StringBuffer();
+            Matcher placeholder = PLACEHOLDER.matcher(query);
+            while (placeholder.find()) {
+                parameterNames.add(placeholder.group(1).trim());
+                defaultValues.add(placeholder.group(2));
+                placeholder.appendReplacement(sql, "?");
+            }
+            placeholder.appendTail(sql);
+            this.sql = sql.toString();
+        }
+
+        public void run() {
+            Connection connection = null;
+            try {
+                if (cancelled) {
+                    return;
+                }
+                connection = connectionFactory.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+                try {
+                    statement.setFetchSize(fetchSize);
+                    for (int i = 0; i < parameterNames.size(); i++) {
+                        statement.setString(i + 1, System.getProperty(parameterNames.get(i), defaultValues.get(i)));
+                    }
+                    ResultSet resultSet = statement.executeQuery();
+                    try {
+                        ResultSetMetaData metaData = resultSet.getMetaData();
+                        String[] labels = new String[metaData.getColumnCount()];
+                        for (int i = 0; i < labels.length; i++) {
+                            labels[i] = metaData.getColumnLabel(i + 1);
+                        }
+                        hand(labels);
+                        while (!cancelled && resultSet.next()) {
+                            String[] values = new String[labels.length];
+                            for (int i = 0; i < values.length; i++) {
+                                values[i] = resultSet.getString(i + 1);
+                            }
+                            hand(values);
+                        }
+                        hand(END_OF_ROWS);
+                    } finally {
+                        resultSet.close();
+                    }
+                } finally {
+                    statement.close();
+                }
+            } catch (InterruptedException e) {
+                cancelled = true;
+            } catch (Exception e) {
+                try {
+                    hand(e);
+                } catch (InterruptedException ie) {
+                    cancelled = true;
+                }
+            } finally {
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        LOG.debug("Could not close the connection of the query of method {}", methodName, e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Hand the given result over to the cursor, waiting for room in the queue unless the query is cancelled
+         */
+        private void hand(Object result) throws InterruptedException {
+            while (!cancelled) {
+                if (results.offer(result, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Take the next result handed over by the query
+         *
+         * @return the labels of the columns, the values of a row or the end marker
+         * @throws IOException if the query failed
+         */
+        Object take() throws IOException {
+            Object result;
+            try {
+                result = results.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the rows of method " + methodName);
+            }
+            if (result instanceof Exception) {
+                IOException exception = new IOException("The query of method " + methodName + " failed : " + sql);
+                exception.initCause((Exception) result);
+                throw exception;
+            }
+            return result;
+        }
+
+        void cancel() {
+            cancelled = true;
+            results.clear();
+        }
+    }
+
+    /**
+     * A {@link DataCursor} over the results of the queries of the test methods
+     */
+    private static final class DatabaseCursor implements DataCursor {
+
+        private final List<MethodQuery> queries;
+
+        private final ExecutorService executor;
+
+        /** The pool of the names and values of the parameters read by this cursor */
+        private final StringPool stringPool = new StringPool();
+
+        /** The index of the current query */
+        private int current = -1;
+
+        /** The parameter names of the current method block */
+        private String[] labels;
+
+        /** The names of the columns to retain in the rows of the current method block, or null to retain all */
+        private Set<String> retainedColumns;
+
+        /** The table holding the rows of the current method block */
+        private TestDataTable table;
+
+        /** The current row */
+        private Map<String, Object> actualData;
+
+        /** Whether all the rows of the current method block have been read */
+        private boolean endOfRows;
+
+        DatabaseCursor(List<MethodQuery> queries, int threads) {
+            this.queries = queries;
+            this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "easytest-database-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // the queries are started in the order in which their rows are consumed
+            for (MethodQuery query : queries) {
+                executor.execute(query);
+            }
+        }
+
+        public boolean nextMethod() throws IOException {
+            actualData = null;
+            if (current >= 0 && !endOfRows) {
+                // the unread rows of the current block are not needed anymore
+                queries.get(current).cancel();
+            }
+            if (++current >= queries.size()) {
+                return false;
+            }
+            Object result = queries.get(current).take();
+            if (result == END_OF_ROWS) {
+                throw new IOException("The query of method " + getMethodName() + " returned no columns");
+            }
+            String[] columnLabels = (String[]) result;
+            labels = new String[columnLabels.length];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = stringPool.intern(columnLabels[i]);
+            }
+            table = new TestDataTable(false);
+            retainedColumns = null;
+            endOfRows = false;
+            LOG.debug("Method block being read is : {}", getMethodName());
+            return true;
+        }
+
+        public String getMethodName() {
+            return current >= 0 && current < queries.size() ? queries.get(current).methodName : null;
+        }
+
+        public void retainColumns(Set<String> columnNames) {
+            retainedColumns = columnNames;
+        }
+
+        public boolean nextRow() throws IOException {
+            actualData = null;
+            if (endOfRows || current < 0 || current >= queries.size()) {
+                return false;
+            }
+            Object result = queries.get(current).take();
+            if (result == END_OF_ROWS) {
+                endOfRows = true;
+                return false;
+            }
+            String[] values = (String[]) result;
+            actualData = table.addRow();
+            for (int i = 0; i < labels.length; i++) {
+                if (retainedColumns == null || retainedColumns.contains(labels[i])) {
+                    actualData.put(labels[i], stringPool.internValue(labels[i], values[i]));
+                }
+            }
+            return true;
+        }
+
+        public Map<String, Object> getRow() {
+            return actualData;
+        }
+
+        public void close() {
+            for (MethodQuery query : queries) {
+                query.cancel();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+}
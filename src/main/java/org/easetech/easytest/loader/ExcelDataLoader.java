@@ -1,33 +1,39 @@
 
 package org.easetech.easytest.loader;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.io.PushbackInputStream;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import org.apache.poi.POIXMLDocument;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.easetech.easytest.io.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * An implementation of {@link Loader} for the EXCEL(xls) based files. This Loader is responsible for reading a list of
- * xls based files and converting them into a data structure which is understandable by the EasyTest framework. It
+ * An implementation of {@link Loader} for the EXCEL(xls and xlsx) based files. This Loader is responsible for reading a list of
+ * xls and xlsx based files and converting them into a data structure which is understandable by the EasyTest framework. It
  * expects the format of the Excel file to be like this :<br>
  * <code>
  * <B>testGetItems LibraryId itemType searchText</B>
@@ -45,6 +51,7 @@ import org.slf4j.LoggerFactory;
  * framework that testGetItems is just a method name and does not have any value.<br>
  * 
  * An Excel cannot have a blank line in between test data whether it is for a single test or for multiple tests.
+ * The rows of all the sheets of the workbook are read, in the order in which the sheets appear in the workbook.
  * The framework is capable of handling multiple test data for multiple test methods in a single Excel file. 
  * Although a user can choose to define the test data in multiple files as well.
  * 
@@ -55,13 +62,16 @@ import org.slf4j.LoggerFactory;
  * @author Anuj Kumar
  * 
  */
-public class ExcelDataLoader implements Loader {
+public class ExcelDataLoader implements StreamingLoader {
 
     /**
      * An instance of logger associated with the test framework.
      */
     protected static final Logger LOG = LoggerFactory.getLogger(ExcelDataLoader.class);
 
+    /** The extension of the Office Open XML workbooks */
+    private static final String XLSX_EXTENSION = "xlsx";
+
     /**
      * The data structure that will ultimately contain the data provided by the Excel sheet.
      */
@@ -105,7 +115,7 @@ public class ExcelDataLoader implements Loader {
         LOG.debug("Trying to load the data for resource :" + resource.getResourceName());
         Map<String, List<Map<String, Object>>> result = null;
         try {
-            result = loadFromSpreadsheet(resource.getInputStream());
+            result = DataLoaderUtil.readAll(openCursor(resource));
 
         } catch (IOException e) {
             LOG.error("IOException occured while trying to Load the resource {} . Moving to the next resource.", resource.getResourceName() , e);
@@ -118,6 +128,27 @@ public class ExcelDataLoader implements Loader {
         return result;
     }
 
+    /**
+     * Open a {@link DataCursor} over the rows of all the sheets of the Excel workbook represented by the given
+     * resource. The workbook is read as a stream of rows and is never completely built in memory.
+     * 
+     * @param resource The resource to load the data from
+     * @return an instance of {@link DataCursor}
+     * @throws IOException if an exception occurs while opening the workbook
+     */
+    public DataCursor openCursor(Resource resource) throws IOException {
+        File excelFile = DataLoaderUtil.getLocalFile(resource);
+        if (excelFile != null && isOfficeOpenXml(excelFile)) {
+            try {
+                // opening the package from a file avoids reading all of its parts in memory
+                return new ExcelCursor(new XSSFRowReader(OPCPackage.open(excelFile.getPath(), PackageAccess.READ)));
+            } catch (InvalidFormatException e) {
+                throw new IOException("The file " + excelFile + " is not a valid Excel workbook : " + e.getMessage());
+            }
+        }
+        return new ExcelCursor(openRowReader(resource.getInputStream()));
+    }
+
     /**
      * Load the Data from Excel spreadsheet.It uses Apache POI classes to load the data.
      * 
@@ -126,162 +157,185 @@ public class ExcelDataLoader implements Loader {
      * @throws IOException if an exception occurs while loading the data
      */
     private Map<String, List<Map<String, Object>>> loadFromSpreadsheet(final InputStream excelFile) throws IOException {
-        HSSFWorkbook workbook = new HSSFWorkbook(excelFile);
+        return DataLoaderUtil.readAll(new ExcelCursor(openRowReader(excelFile)));
+    }
+
+    /**
+     * Open a {@link SpreadsheetRowReader} suitable for the format of the given Excel workbook
+     * 
+     * @param excelFile the excel file input stream
+     * @return an instance of {@link SpreadsheetRowReader}
+     * @throws IOException if an exception occurs while opening the workbook
+     */
+    private static SpreadsheetRowReader openRowReader(final InputStream excelFile) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(excelFile, 8);
+        if (POIXMLDocument.hasOOXMLHeader(input)) {
+            try {
+                return new XSSFRowReader(OPCPackage.open(input));
+            } catch (InvalidFormatException e) {
+                throw new IOException("The supplied stream is not a valid Excel workbook : " + e.getMessage());
+            }
+        }
+        return new HSSFRowReader(input);
+    }
 
-        data = new HashMap<String, List<Map<String, Object>>>();
-        Sheet sheet = workbook.getSheetAt(0);
-        LOG.debug("Sheet {} is being read" , sheet);
+    /**
+     * Identifies whether the given file is an Office Open XML (xlsx) workbook
+     * 
+     * @param excelFile the excel file
+     * @return true if the file is an xlsx workbook
+     * @throws IOException if an exception occurs while reading the file
+     */
+    private static boolean isOfficeOpenXml(File excelFile) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(new FileInputStream(excelFile), 8);
+        try {
+            return POIXMLDocument.hasOOXMLHeader(input);
+        } finally {
+            input.close();
+        }
+    }
 
-        Map<String, List<Map<String, Object>>> finalData = new HashMap<String, List<Map<String, Object>>>();
+    /**
+     * A {@link DataCursor} over the rows of all the sheets of a workbook. A row whose first cell is not empty starts a
+     * new method block, while a row with an empty first cell is a row of test data for the current method block.
+     */
+    private static class ExcelCursor implements DataCursor {
 
-        Map<Integer, Object> tempData = new HashMap<Integer, Object>();
-        List<Map<String, Object>> dataValues = null;
-        LinkedHashMap<String , Object> actualData = new LinkedHashMap<String, Object>();
-        for (Row row : sheet) {
-            boolean keyRow = isKeyRow(row, workbook);
-            actualData = initializeRowData(row , workbook , actualData);
-            
-            //Map<String, Object> actualData = new LinkedHashMap<String, Object>();
+        /** The reader of the rows of the workbook */
+        private final SpreadsheetRowReader rowReader;
+
+        /** The column index to parameter name mapping of the current method block */
+        private final Map<Integer, String> tempData = new HashMap<Integer, String>();
+
+        /** A key row that was read while looking for the next row of the previous method block */
+        private SortedMap<Integer, Object> pendingKeyRow;
+
+        /** The pool of the names and values of the parameters read by this cursor */
+        private final StringPool stringPool = new StringPool();
+
+        /** The names of the columns to retain in the rows of the current method block, or null to retain all */
+        private Set<String> retainedColumns;
+
+        /** The name of the current method */
+        private String methodName;
+
+        /** The table holding the rows of the current method block. Its columns act as the template for the next row. */
+        private TestDataTable table;
+
+        /** The row data of the last row read */
+        private Map<String, Object> actualData;
+
+        /** Whether the cursor is positioned on a valid row */
+        private boolean onRow;
+
+        ExcelCursor(SpreadsheetRowReader rowReader) {
+            this.rowReader = rowReader;
+        }
+
+        public boolean nextMethod() throws IOException {
+            // skip the unread rows of the current block, without building them
+            onRow = false;
+            while (readDataRow() != null) {
+                // do nothing
+            }
+            if (pendingKeyRow == null) {
+                return false;
+            }
+            SortedMap<Integer, Object> row = pendingKeyRow;
+            pendingKeyRow = null;
+            table = new TestDataTable(false);
+            retainedColumns = null;
             StringBuilder debugInfo = new StringBuilder("Row data being read is ");
-            for (Cell cell : row) {
-                Object cellData = objectFrom(workbook, cell);
+            for (Map.Entry<Integer, Object> cell : row.entrySet()) {
+                Object cellData = cell.getValue();
                 debugInfo.append(":" + cellData);
-                if ((cell.getColumnIndex() == 0) && keyRow) {
+                if (cell.getKey() == 0) {
                     // Indicates that this is a new set of test data.
-                    dataValues = new ArrayList<Map<String, Object>>();
-                    finalData.put(cellData.toString().trim(), dataValues);
+                    methodName = cellData.toString().trim();
                 } else {
-                    if (keyRow) {
-                        tempData.put(cell.getColumnIndex(), cellData);
-                    } else {
-                    	if(tempData.get(cell.getColumnIndex()) != null) {
-                    		actualData.put(tempData.get(cell.getColumnIndex()).toString(), cellData);
-                    	}
+                    String parameterName = cellData == null ? null : stringPool.intern(cellData.toString());
+                    tempData.put(cell.getKey(), parameterName);
+                    if (parameterName != null) {
+                        table.addColumn(parameterName);
                     }
                 }
             }
             LOG.debug(debugInfo.toString());
-            if (!keyRow) {
-                dataValues.add(actualData);
-            }
+            return true;
         }
-        return finalData;
-    }
-    
-    private LinkedHashMap<String, Object> initializeRowData(Row row , HSSFWorkbook workbook , LinkedHashMap<String, Object> actualData){      
-        LinkedHashMap<String, Object> result = new LinkedHashMap<String, Object>();
-        if(isKeyRow(row, workbook)){
-            //reset the actualData
-            actualData = new LinkedHashMap<String, Object>();
-            for(Cell cell : row){
-                if(cell.getColumnIndex() != 0){
-                    Object cellData = objectFrom(workbook, cell);
-                    if(cellData != null)
-                    	actualData.put(cellData.toString(), null);
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public void retainColumns(Set<String> columnNames) {
+            retainedColumns = columnNames;
+            // the columns of the table act as the template of the rows, so only the retained ones are kept
+            TestDataTable header = table;
+            table = new TestDataTable(false);
+            for (int column = 0; column < header.getColumnCount(); column++) {
+                if (columnNames.contains(header.getColumnName(column))) {
+                    table.addColumn(header.getColumnName(column));
                 }
             }
-        }else{
-            
-            //not a key row, so reinitialize each key to null
-            for(String key : actualData.keySet()){
-                result.put(key ,null);
+        }
 
+        public boolean nextRow() throws IOException {
+            onRow = false;
+            SortedMap<Integer, Object> row = readDataRow();
+            if (row == null) {
+                return false;
             }
-            return result;
-        }
-        return actualData;
-        
-    }
-    
-    private Boolean isKeyRow(Row row , HSSFWorkbook workbook){
-        Boolean result = false;
-        Cell cell = row.getCell(0);
-        Object cellData = objectFrom(workbook, cell);
-        if(cellData != null && !"".equals(cellData)){
-            result = true;
-        }
-        return result;
-    }
-    private Map<String,Object> nullValueMap(Map<Integer , Object> tempObject){
-        Map<String , Object> result = new LinkedHashMap<String, Object>();
-        if(tempObject.isEmpty()){
-            return result;
-        }else{
-            Iterator<Integer> tempObjItr = tempObject.keySet().iterator();
-            while(tempObjItr.hasNext()){
-                result.put(tempObject.get(tempObjItr.next()).toString(), null);
+            // not a key row, so initialize each key known so far to null
+            actualData = table.addRowWithNullValues();
+            StringBuilder debugInfo = new StringBuilder("Row data being read is ");
+            for (Map.Entry<Integer, Object> cell : row.entrySet()) {
+                Object cellData = cell.getValue();
+                debugInfo.append(":" + cellData);
+                String parameterName = tempData.get(cell.getKey());
+                if (parameterName != null && (retainedColumns == null || retainedColumns.contains(parameterName))) {
+                    actualData.put(parameterName, cellData instanceof String ? stringPool.internValue(parameterName,
+                        (String) cellData) : cellData);
+                }
             }
+            LOG.debug(debugInfo.toString());
+            onRow = true;
+            return true;
         }
-        return result;
-    }
 
-    /**
-     * Get the cell value from the workbook and the specified cell within the workbook.
-     * 
-     * @param workbook the workbook containing the cells
-     * @param cell the cell containing the data
-     * @return the object representation of the data
-     */
-    private Object objectFrom(final HSSFWorkbook workbook, final Cell cell) {
-        Object cellValue = null;
-
-        if (cell == null || cell.getCellType() == Cell.CELL_TYPE_BLANK) {
-            cellValue = null;
-        } else if (cell.getCellType() == Cell.CELL_TYPE_STRING) {
-            cellValue = cell.getRichStringCellValue().getString();
-        } else if (cell.getCellType() == Cell.CELL_TYPE_NUMERIC) {
-            cellValue = getNumericCellValue(cell);
-        } else if (cell.getCellType() == Cell.CELL_TYPE_BOOLEAN) {
-            cellValue = cell.getBooleanCellValue();
-        } else if (cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
-            cellValue = evaluateCellFormula(workbook, cell);
+        public Map<String, Object> getRow() {
+            return onRow ? actualData : null;
         }
 
-        return cellValue;
-
-    }
+        public void close() throws IOException {
+            rowReader.close();
+        }
 
-    /**
-     * Get numeric cell value
-     * 
-     * @param cell the cell to get the data from
-     * @return the object representation of numeric cell value.
-     */
-    private Object getNumericCellValue(final Cell cell) {
-        Object cellValue;
-        if (DateUtil.isCellDateFormatted(cell)) {
-            cellValue = new Date(cell.getDateCellValue().getTime());
-        } else {
-            cellValue = cell.getNumericCellValue();
-            // below is the work around to remove suffix .0 from numeric fields
-            if (cellValue != null && cellValue.toString().endsWith(".0")) {
-                cellValue = cellValue.toString().replace(".0", "");
+        /**
+         * Read the next row of the current method block
+         * 
+         * @return the cells of the row or null if the current method block has no more rows
+         */
+        private SortedMap<Integer, Object> readDataRow() throws IOException {
+            if (pendingKeyRow != null) {
+                return null;
+            }
+            SortedMap<Integer, Object> row = rowReader.nextRow();
+            if (row == null) {
+                return null;
             }
+            if (isKeyRow(row)) {
+                pendingKeyRow = row;
+                return null;
+            }
+            return row;
         }
-        return cellValue;
-    }
 
-    /**
-     * Evaluate if the cell contains the formula
-     * 
-     * @param workbook the workbook that contains the cell
-     * @param cell the cell that contains the formula
-     * @return the object representation of formula cell value.
-     */
-    private Object evaluateCellFormula(final HSSFWorkbook workbook, final Cell cell) {
-        FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-        CellValue cellValue = evaluator.evaluate(cell);
-        Object result = null;
-
-        if (cellValue.getCellType() == Cell.CELL_TYPE_BOOLEAN) {
-            result = cellValue.getBooleanValue();
-        } else if (cellValue.getCellType() == Cell.CELL_TYPE_NUMERIC) {
-            result = cellValue.getNumberValue();
-        } else if (cellValue.getCellType() == Cell.CELL_TYPE_STRING) {
-            result = cellValue.getStringValue();
+        private static boolean isKeyRow(SortedMap<Integer, Object> row) {
+            Object cellData = row.get(0);
+            return cellData != null && !"".equals(cellData);
         }
 
-        return result;
     }
 
     /**
@@ -295,12 +349,11 @@ public class ExcelDataLoader implements Loader {
     public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
         try {
             if (methodNames == null || methodNames.length == 0) {
-                writeFullDataToSpreadsheet(resource.getOutputStream(), actualData);
+                Workbook workbook = resource.getResourceName().endsWith(XLSX_EXTENSION) ? new XSSFWorkbook()
+                    : new HSSFWorkbook();
+                writeFullDataToSpreadsheet(workbook, resource.getOutputStream(), actualData);
             } else {
-                for (String methodName : methodNames) {
-                    writeDataToSpreadsheet(resource, methodName, actualData);
-                }
-
+                writeDataToSpreadsheet(resource, actualData, methodNames);
             }
         } catch (IOException e) {
             LOG.warn("Unable to write data to file {} . An I/O Exception occured.", resource.getResourceName(), e);
@@ -309,105 +362,207 @@ public class ExcelDataLoader implements Loader {
     }
 
     /**
-     * Write the data for the given method to the excel sheet
-     * @param resource
-     * @param methodNameForDataLoad
-     * @param data
+     * Write the data for all the given methods to the excel workbook in a single pass. The workbook is read once, the
+     * rows of the methods are located with a single scan of all its sheets and the workbook is written back once,
+     * irrespective of the number of methods. The data of every method is written to the sheet it was loaded from.
+     * @param resource the resource to write the data to
+     * @param data the actual data that needs to be written
+     * @param methodNames the names of the methods whose data needs to be written
      * @throws IOException
      */
-    private void writeDataToSpreadsheet(Resource resource, String methodNameForDataLoad,
-        Map<String, List<Map<String, Object>>> data) throws IOException {
+    private void writeDataToSpreadsheet(Resource resource, Map<String, List<Map<String, Object>>> data,
+        String... methodNames) throws IOException {
 
         LOG.debug("writeDataToSpreadsheet started" + resource.toString() + data);
-       
+
         Workbook workbook;
+        InputStream excelInputStream = resource.getInputStream();
         try {
 
-            workbook = WorkbookFactory.create(new POIFSFileSystem(resource.getInputStream()));
+            workbook = WorkbookFactory.create(excelInputStream);
 
         } catch (Exception e) {
             LOG.error("Error creating WorkbookFactory for resource " + resource.toString(), e);
             throw new IOException();
+        } finally {
+            excelInputStream.close();
         }
 
-        Sheet sheet = workbook.getSheetAt(0);
+        Map<String, Row> methodRows = getMethodRowsFromExcel(workbook);
+        boolean isDataWritten = false;
+        Set<String> writtenMethods = new HashSet<String>();
+        for (String methodName : methodNames) {
+            if (methodName == null || !writtenMethods.add(methodName)) {
+                continue;
+            }
+            Row methodRow = methodRows.get(methodName);
+            // if record doesn't exist then move on without writing any thing
+            if (methodRow == null) {
+                LOG.error("Method doesn't exist in the excel:" + methodName);
+                continue;
+            }
+            List<Map<String, Object>> methodData = data.get(methodName);
+            if (methodData == null) {
+                LOG.debug("No data to write for method:" + methodName);
+                continue;
+            }
+            writeMethodDataToSheet(methodRow.getSheet(), methodRow.getRowNum(), methodData);
+            isDataWritten = true;
+        }
 
-        Integer recordNum = getMethodRowNumFromExcel(sheet, methodNameForDataLoad);
-        // if record doesn't exist then return without writing any thing
-        if (recordNum == null) {
-            LOG.error("Method doesn't exist in the excel:" + methodNameForDataLoad);
-            return;
+        // Write the output to a file, once for all the methods
+        if (isDataWritten) {
+            OutputStream excelOutputStream = resource.getOutputStream();
+            try {
+                workbook.write(excelOutputStream);
+            } finally {
+                excelOutputStream.close();
+            }
         }
-        int columnNum = sheet.getRow(recordNum).getLastCellNum();
-        int rowNum = 0;
+        LOG.debug("writeDataToSpreadsheet finished");
+
+    }
+
+    /**
+     * Write the data of a single method to the sheet, next to the existing columns of the method's records. The rows
+     * of the sheet are matched with the rows of data by their input data, using a {@link RowMatcher}, so that only the
+     * output data of the rows that ran is written, each on the row it was loaded from. The output columns that the
+     * method already has, for example written by another shard, are reused.
+     * @param sheet the sheet to write the data to
+     * @param recordNum the number of the row holding the method name and the column headers
+     * @param data the data of the method
+     */
+    private void writeMethodDataToSheet(Sheet sheet, int recordNum, List<Map<String, Object>> data) {
+        Row headerRow = sheet.getRow(recordNum);
+        int columnNum = headerRow.getLastCellNum();
+        Map<Integer, String> columnNames = new HashMap<Integer, String>();
+        for (int column = 1; column < columnNum; column++) {
+            Object columnName = cellValue(headerRow.getCell(column));
+            if (columnName != null) {
+                columnNames.put(column, columnName.toString());
+            }
+        }
+        int durationColumn = outputColumn(columnNames, DURATION, columnNum);
+        int actualResultColumn = outputColumn(columnNames, ACTUAL_RESULT, columnNum + 1);
+        int testStatusColumn = outputColumn(columnNames, TEST_STATUS, columnNum + 2);
+        RowMatcher rowMatcher = new RowMatcher(data);
         boolean isActualResultHeaderWritten = false;
         boolean isTestDurationHeaderWritten = false;
-        boolean isHeaderRowNumIncremented = false;
 
-        for (Map<String, Object> methodData : data.get(methodNameForDataLoad)) {
-            // rowNum increment by one to proceed with next record of the method.
-            rowNum++;
+        for (int rowNum = recordNum + 1; rowNum <= sheet.getLastRowNum() && !rowMatcher.isEmpty(); rowNum++) {
+            Row row = sheet.getRow(rowNum);
+            if (row == null) {
+                continue;
+            }
+            Object firstCell = cellValue(row.getCell(0));
+            if (firstCell != null && !"".equals(firstCell)) {
+                // the rows of the next method start here
+                break;
+            }
+            Map<String, Object> fileRow = new HashMap<String, Object>();
+            for (Map.Entry<Integer, String> columnName : columnNames.entrySet()) {
+                fileRow.put(columnName.getValue(), cellValue(row.getCell(columnName.getKey())));
+            }
+            Map<String, Object> methodData = rowMatcher.match(fileRow);
+            if (methodData == null) {
+                // the row did not run, so it is left as it is
+                continue;
+            }
             
             Object testDuration = methodData.get(DURATION);
             if(testDuration != null) {
             	
-            	if (!isTestDurationHeaderWritten && recordNum != null) {
+            	if (!isTestDurationHeaderWritten) {
             	    // Write the test duration header.
-                    writeDataToCell(sheet, recordNum, columnNum, DURATION);
-                    //increment the rowNum
-                    rowNum = rowNum + recordNum;
+                    writeDataToCell(sheet, recordNum, durationColumn, DURATION);
                     isTestDurationHeaderWritten = true;
                 }
             	
             	// Write the actual result and test status values.
-                if (isTestDurationHeaderWritten) {                
-                    LOG.debug("testDuration:" + testDuration.toString());                                       
-                    writeDataToCell(sheet, rowNum, columnNum, testDuration.toString());
-                }
-            }
-            if(!isHeaderRowNumIncremented && (isTestDurationHeaderWritten || isActualResultHeaderWritten)){
-            	
-            	isHeaderRowNumIncremented = true;
+                LOG.debug("testDuration:" + testDuration.toString());
+                writeDataToCell(sheet, rowNum, durationColumn, testDuration.toString());
             }
             
             Object actualResult = methodData.get(ACTUAL_RESULT);
             Object testStatus = methodData.get(TEST_STATUS);
             if (actualResult != null) {
                 
-                if (!isActualResultHeaderWritten && recordNum != null) {
+                if (!isActualResultHeaderWritten) {
                     // Write the actual result and test status headers.
-                    writeDataToCell(sheet, recordNum, columnNum+1, ACTUAL_RESULT);
+                    writeDataToCell(sheet, recordNum, actualResultColumn, ACTUAL_RESULT);
                     if (testStatus != null)
-                        writeDataToCell(sheet, recordNum, columnNum + 2, TEST_STATUS);
-                    //rowNum = rowNum + recordNum;
+                        writeDataToCell(sheet, recordNum, testStatusColumn, TEST_STATUS);
                     isActualResultHeaderWritten = true;
                 }
                 LOG.debug("rowNum:" + rowNum);
 
                 // Write the actual result and test status values.
-                if (isActualResultHeaderWritten) {
-                    LOG.debug("actualResult:" + actualResult.toString());
-                    //trim actual result to 30KB if it is more than that
-                    actualResult = trimActualResult(actualResult.toString());                    
-                    writeDataToCell(sheet, rowNum, columnNum +1, actualResult.toString());
-
-                    if (testStatus != null) {
-                        // Check against trimmed actual result
-                    	Object expectedResult = methodData.get(EXPECTED_RESULT);
-                    	testStatus = expectedResult.toString().equals(actualResult.toString()) ? Loader.TEST_PASSED : Loader.TEST_FAILED ;
-                        LOG.debug("testStatus:" + testStatus.toString());
-                        writeDataToCell(sheet, rowNum, columnNum + 2, testStatus.toString());
-                    }
+                LOG.debug("actualResult:" + actualResult.toString());
+                //trim actual result to 30KB if it is more than that
+                actualResult = trimActualResult(actualResult.toString());                    
+                writeDataToCell(sheet, rowNum, actualResultColumn, actualResult.toString());
+
+                if (testStatus != null) {
+                    // Check against trimmed actual result
+                	Object expectedResult = methodData.get(EXPECTED_RESULT);
+                	testStatus = expectedResult.toString().equals(actualResult.toString()) ? Loader.TEST_PASSED : Loader.TEST_FAILED ;
+                    LOG.debug("testStatus:" + testStatus.toString());
+                    writeDataToCell(sheet, rowNum, testStatusColumn, testStatus.toString());
                 }
 
             }
             
         }
+    }
 
-        // Write the output to a file
-        workbook.write(resource.getOutputStream());
-        LOG.debug("writeDataToSpreadsheet finished");
+    /**
+     * Get the index of the given output column of a method, reusing the column of the header that already holds it.
+     * If the header holds it more than once, the last one is used, as it is the one the loader reads.
+     * @param columnNames the names of the columns of the header of the method, keyed by their index
+     * @param outputColumn the name of the output column
+     * @param newColumn the index of the column to use if the header does not hold the output column yet
+     * @return the index of the output column
+     */
+    private static int outputColumn(Map<Integer, String> columnNames, String outputColumn, int newColumn) {
+        int column = -1;
+        for (Map.Entry<Integer, String> columnName : columnNames.entrySet()) {
+            if (outputColumn.equals(columnName.getValue())) {
+                column = Math.max(column, columnName.getKey());
+            }
+        }
+        return column < 0 ? newColumn : column;
+    }
 
+    /**
+     * Get the value of a cell the way the {@link SpreadsheetRowReader}s load it, so that the rows of the sheet can be
+     * compared with the loaded rows
+     * @param cell the cell or null
+     * @return the value of the cell
+     */
+    private static Object cellValue(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
+        int cellType = cell.getCellType();
+        if (cellType == Cell.CELL_TYPE_FORMULA) {
+            cellType = cell.getCachedFormulaResultType();
+            if (cellType == Cell.CELL_TYPE_NUMERIC) {
+                // the cached result of a formula is loaded as it is
+                return cell.getNumericCellValue();
+            }
+        } else if (cellType == Cell.CELL_TYPE_NUMERIC) {
+            if (DateUtil.isCellDateFormatted(cell)) {
+                return new Date(cell.getDateCellValue().getTime());
+            }
+            return SpreadsheetRowReader.numericCellValue(cell.getNumericCellValue(), cell.getCellStyle()
+                .getDataFormat(), cell.getCellStyle().getDataFormatString(), false);
+        }
+        if (cellType == Cell.CELL_TYPE_STRING) {
+            return cell.getStringCellValue();
+        } else if (cellType == Cell.CELL_TYPE_BOOLEAN) {
+            return cell.getBooleanCellValue();
+        }
+        return null;
     }
 
     private Object trimActualResult(String stringValue) {
@@ -419,21 +574,28 @@ public class ExcelDataLoader implements Loader {
 		return stringValue;
 	}
 
-	private Integer getMethodRowNumFromExcel(Sheet sheet, String methodName) {
-        Integer rowNum = null;
-        for (Row row : sheet) {
-            // getting first cell value as method name is available in first column
-            Cell cell = row.getCell(0);
-            if (cell != null) {
-                String cellData = cell.getStringCellValue();
-                if (cellData != null && methodName.equals(cellData.trim())) {
-                    rowNum = cell.getRow().getRowNum();
-                    break;
+    /**
+     * Index the rows of all the sheets of the workbook holding a method name in their first cell, with a single scan
+     * of the sheets. As when the data is loaded, a later block of rows of a method replaces an earlier one.
+     * @param workbook the workbook to index
+     * @return the row holding the method name and the column headers of each method, keyed by the method name
+     */
+    private Map<String, Row> getMethodRowsFromExcel(Workbook workbook) {
+        Map<String, Row> methodRows = new HashMap<String, Row>();
+        for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
+            for (Row row : workbook.getSheetAt(sheetIndex)) {
+                // getting first cell value as method name is available in first column
+                Cell cell = row.getCell(0);
+                if (cell != null && cell.getCellType() == Cell.CELL_TYPE_STRING) {
+                    String cellData = cell.getStringCellValue();
+                    if (cellData != null && cellData.trim().length() > 0) {
+                        methodRows.put(cellData.trim(), row);
+                    }
                 }
             }
         }
-        LOG.debug("getMethodRowNumFromExcel finished:" + methodName + rowNum);
-        return rowNum;
+        LOG.debug("getMethodRowsFromExcel finished:" + methodRows.keySet());
+        return methodRows;
     }
 
     private void writeDataToCell(Sheet sheet, int rowNum, int columnNum, Object value) {
@@ -480,11 +642,10 @@ public class ExcelDataLoader implements Loader {
         }
     }
 
-    private void writeFullDataToSpreadsheet(OutputStream fos, Map<String, List<Map<String, Object>>> data)
-        throws IOException {
+    private void writeFullDataToSpreadsheet(Workbook workbook, OutputStream fos,
+        Map<String, List<Map<String, Object>>> data) throws IOException {
         LOG.debug("writeFullDataToSpreadsheet started" + data);
 
-        Workbook workbook = new HSSFWorkbook();
         Sheet sheet = workbook.createSheet();
         // Sheet sheet = workbook.getSheetAt(0);
 
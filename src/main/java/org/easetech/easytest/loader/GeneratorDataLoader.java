@@ -0,0 +1,578 @@
+package org.easetech.easytest.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import org.easetech.easytest.io.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of {@link Loader} that generates synthetic test data from a declarative specification, so that load
+ * and scale tests can run with any number of realistic rows without a huge test data file being checked in. The
+ * specification is a properties file, with the extension {@value #SPEC_EXTENSION}, that gives the number of rows and
+ * the distribution of every column of every test method :<br>
+ * <code>
+ * seed=20121101<br>
+ * getItems.rows=1000000<br>
+ * getItems.column.row=index<br>
+ * getItems.column.itemId=unique(100000,9999999)<br>
+ * getItems.column.libraryId=uniform(1,500)<br>
+ * getItems.column.itemType=oneOf(book:5,journal:3,ebook:1)<br>
+ * getItems.column.price=gaussian(40,8,2)<br>
+ * </code>
+ * Every <B>&lt;test method name&gt;.rows</B> entry defines a method block, in the order of the file, and the
+ * <B>&lt;test method name&gt;.column.&lt;parameter name&gt;</B> entries define its columns. The supported
+ * distributions are :
+ * <ul>
+ * <li><B>index</B> : the index of the row, starting at 0</li>
+ * <li><B>sequence(start[,step])</B> : start, start + step, start + 2 * step, ...</li>
+ * <li><B>uniform(min,max)</B> : a whole number between min and max, both included</li>
+ * <li><B>unique(min,max)</B> : a whole number between min and max, both included, that is different in every row.
+ * The range must be at least as large as the number of rows.</li>
+ * <li><B>decimal(min,max[,scale])</B> : a decimal number between min and max, with scale digits after the point</li>
+ * <li><B>gaussian(mean,deviation[,scale])</B> : a normally distributed decimal number</li>
+ * <li><B>oneOf(value[:weight],...)</B> : one of the values, chosen according to their weights, that default to 1</li>
+ * <li><B>text(length)</B> : a string of letters and digits of the given length</li>
+ * <li><B>date(from,to[,pattern])</B> : a date between from and to, both included, formatted using the pattern that
+ * defaults to {@value #DEFAULT_DATE_PATTERN}</li>
+ * <li><B>constant(value)</B> : the same value in every row</li>
+ * </ul>
+ * Like the values of the other loaders, the generated values are strings that are converted to the types of the
+ * parameters of the test methods.<br>
+ * The rows are generated one at a time, as the {@link DataCursor} moves over them, and the columns that are not
+ * retained are not generated at all. The value of every cell is derived only from the seed, the name of its column and
+ * the index of its row. The same specification thus always generates the same rows, and a single row, for eg. the row
+ * a test failed with, can be generated again from its index using {@link #generateRow(Resource, String, long)}. The
+ * seed of a method block can be given as <B>&lt;test method name&gt;.seed</B>. It otherwise defaults to the
+ * <B>seed</B> entry, and then to 0.<br>
+ * Writing the output data back to the specification is not supported.
+ *
+ */
+public class GeneratorDataLoader implements StreamingLoader {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(GeneratorDataLoader.class);
+
+    /** The extension of the files specifying the data to generate */
+    public static final String SPEC_EXTENSION = ".datagen";
+
+    /** The entry giving the default seed of all the method blocks */
+    public static final String SEED = "seed";
+
+    /** The suffix of the entries giving the number of rows of a method block */
+    public static final String ROWS_SUFFIX = ".rows";
+
+    /** The suffix of the entries giving the seed of a method block */
+    public static final String SEED_SUFFIX = ".seed";
+
+    /** The infix of the entries giving the distribution of a column of a method block */
+    public static final String COLUMN_INFIX = ".column.";
+
+    /** The pattern of the dates generated by the date distribution, unless another pattern is given */
+    public static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
+
+    /** The characters of the strings generated by the text distribution */
+    private static final char[] TEXT_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+        .toCharArray();
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /**
+     *
+     * Construct a new GeneratorDataLoader
+     */
+    public GeneratorDataLoader() {
+        super();
+    }
+
+    /**
+     * Load the data for the given Resource
+     *
+     * @param resource the specification of the data to generate
+     * @return the generated data
+     */
+    public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
+        Map<String, List<Map<String, Object>>> result = null;
+        try {
+            result = DataLoaderUtil.readAll(openCursor(resource));
+        } catch (IOException e) {
+            LOG.error("IOException occured while trying to Load the resource {} . Moving to the next resource.",
+                resource.getResourceName(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Open a {@link DataCursor} over the data specified by the given resource. The rows are generated as the cursor
+     * moves over them.
+     *
+     * @param resource the specification of the data to generate
+     * @return an instance of {@link DataCursor}
+     * @throws IOException if the specification can not be read or is invalid
+     */
+    public DataCursor openCursor(Resource resource) throws IOException {
+        return new GeneratorCursor(readSpecification(resource));
+    }
+
+    /**
+     * Generate again a single row of a method block, for eg. the row a test failed with
+     *
+     * @param resource the specification of the data to generate
+     * @param methodName the name of the test method
+     * @param index the index of the row within the method block, starting at 0
+     * @return the row, or null if the specification has no such row
+     * @throws IOException if the specification can not be read or is invalid
+     */
+    public Map<String, Object> generateRow(Resource resource, String methodName, long index) throws IOException {
+        for (MethodSpecification method : readSpecification(resource)) {
+            if (method.name.equals(methodName)) {
+                if (index < 0 || index >= method.rows) {
+                    return null;
+                }
+                Map<String, Object> row = new LinkedHashMap<String, Object>();
+                for (ColumnSpecification column : method.columns) {
+                    row.put(column.name, column.generate(index));
+                }
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writing the data back to a specification is not supported, so the data is not written
+     *
+     * @param resource the resource
+     * @param actualData the actual data
+     * @param methodNames the names of the methods
+     */
+    public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
+        LOG.info("The output data of the tests is not written back to the generated data of resource {}",
+            resource.getResourceName());
+    }
+
+    /**
+     * Read the specification of the method blocks from the given resource
+     *
+     * @param resource the resource
+     * @return the specification of every method block, in the order of the resource
+     * @throws IOException if the specification can not be read or is invalid
+     */
+    private List<MethodSpecification> readSpecification(Resource resource) throws IOException {
+        final List<String> keys = new ArrayList<String>();
+        Properties properties = new Properties() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                // keep the order of the entries, so that the method blocks and the columns are in the order of the file
+                if (!containsKey(key)) {
+                    keys.add((String) key);
+                }
+                return super.put(key, value);
+            }
+        };
+        InputStream inputStream = resource.getInputStream();
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        long defaultSeed = parseLong(properties.getProperty(SEED, "0"), SEED);
+        Map<String, MethodSpecification> methods = new LinkedHashMap<String, MethodSpecification>();
+        for (String key : keys) {
+            if (key.endsWith(ROWS_SUFFIX)) {
+                String methodName = key.substring(0, key.length() - ROWS_SUFFIX.length());
+                String seed = properties.getProperty(methodName + SEED_SUFFIX);
+                methods.put(methodName, new MethodSpecification(methodName, parseLong(properties.getProperty(key),
+                    key), seed == null ? defaultSeed : parseLong(seed, methodName + SEED_SUFFIX)));
+            }
+        }
+        for (String key : keys) {
+            int columnStart = key.indexOf(COLUMN_INFIX);
+            if (columnStart > 0) {
+                MethodSpecification method = methods.get(key.substring(0, columnStart));
+                if (method == null) {
+                    throw new IOException("The column " + key + " belongs to a method without a number of rows");
+                }
+                method.columns.add(new ColumnSpecification(key.substring(columnStart + COLUMN_INFIX.length()),
+                    properties.getProperty(key).trim(), method));
+            }
+        }
+        return new ArrayList<MethodSpecification>(methods.values());
+    }
+
+    private static long parseLong(String value, String key) throws IOException {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("The value " + value + " of " + key + " is not a whole number");
+        }
+    }
+
+    /**
+     * Mix the bits of the given value, so that close values give unrelated results. This is the finalizer of the
+     * SplitMix64 generator.
+     *
+     * @param value the value
+     * @return the mixed value
+     */
+    static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Get a uniformly distributed number in [0, 1) from the given random bits
+     */
+    private static double toDouble(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Get a uniformly distributed number in [0, bound) from the given random bits
+     */
+    private static long toBounded(long random, long bound) {
+        return (random >>> 1) % bound;
+    }
+
+    /**
+     * The specification of the data of a single method block
+     */
+    private static final class MethodSpecification {
+
+        private final String name;
+
+        private final long rows;
+
+        private final long seed;
+
+        private final List<ColumnSpecification> columns = new ArrayList<ColumnSpecification>();
+
+        MethodSpecification(String name, long rows, long seed) throws IOException {
+            if (rows < 0 || rows > Integer.MAX_VALUE) {
+                throw new IOException("The number of rows of method " + name + " must be between 0 and "
+                    + Integer.MAX_VALUE);
+            }
+            this.name = name;
+            this.rows = rows;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * The distribution of the values of a single column
+     */
+    private static final class ColumnSpecification {
+
+        private final String name;
+
+        private final String distribution;
+
+        private final String[] arguments;
+
+        /** The seed of the column, derived from the seed of the method and the name of the column */
+        private final long seed;
+
+        /** The decimal distributions : the scale of the generated numbers */
+        private int scale;
+
+        /** The numeric distributions : the lower bound or the start of the generated numbers */
+        private long start;
+
+        /** The numeric distributions : the number of possible values or the step of a sequence */
+        private long range;
+
+        /** The unique distribution : the multiplier and the offset of the permutation of the row indexes */
+        private long multiplier;
+
+        private long offset;
+
+        /** The decimal distributions : the bounds, the mean and the deviation */
+        private double first;
+
+        private double second;
+
+        /** The oneOf distribution : the values and the cumulative weights */
+        private String[] values;
+
+        private long[] cumulativeWeights;
+
+        /** The date distribution */
+        private SimpleDateFormat dateFormat;
+
+        ColumnSpecification(String name, String specification, MethodSpecification method) throws IOException {
+            this.name = name;
+            this.seed = mix(method.seed ^ mix(name.hashCode()));
+            int open = specification.indexOf('(');
+            if (open < 0) {
+                distribution = specification;
+                arguments = new String[0];
+            } else {
+                if (!specification.endsWith(")")) {
+                    throw invalid(specification);
+                }
+                distribution = specification.substring(0, open).trim();
+                String[] parts = specification.substring(open + 1, specification.length() - 1).split(",");
+                arguments = new String[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    arguments[i] = parts[i].trim();
+                }
+            }
+            try {
+                prepare(method.rows);
+            } catch (RuntimeException e) {
+                IOException exception = invalid(specification);
+                exception.initCause(e);
+                throw exception;
+            }
+        }
+
+        private IOException invalid(String specification) {
+            return new IOException("Invalid distribution " + specification + " of column " + name);
+        }
+
+        private void checkArguments(int minimum, int maximum) {
+            if (arguments.length < minimum || arguments.length > maximum) {
+                throw new IllegalArgumentException("The " + distribution + " distribution takes between " + minimum
+                    + " and " + maximum + " arguments");
+            }
+        }
+
+        private void prepare(long rows) throws IOException {
+            if ("index".equals(distribution)) {
+                checkArguments(0, 0);
+            } else if ("sequence".equals(distribution)) {
+                checkArguments(1, 2);
+                start = Long.parseLong(arguments[0]);
+                range = arguments.length > 1 ? Long.parseLong(arguments[1]) : 1;
+            } else if ("uniform".equals(distribution) || "unique".equals(distribution)) {
+                checkArguments(2, 2);
+                start = Long.parseLong(arguments[0]);
+                range = Long.parseLong(arguments[1]) - start + 1;
+                if (range <= 0) {
+                    throw new IllegalArgumentException("The range is empty or too large");
+                }
+                if ("unique".equals(distribution)) {
+                    if (range < rows) {
+                        throw new IOException("The range of the unique column " + name + " is smaller than the "
+                            + rows + " rows");
+                    }
+                    // the values are the row indexes, permuted by an affine function, which is a bijection as long
+                    // as the multiplier is coprime with the range
+                    multiplier = toBounded(mix(seed), range) | 1;
+                    while (BigInteger.valueOf(multiplier).gcd(BigInteger.valueOf(range)).longValue() != 1) {
+                        multiplier = (multiplier + 2) % range;
+                    }
+                    offset = toBounded(mix(seed + 1), range);
+                }
+            } else if ("decimal".equals(distribution) || "gaussian".equals(distribution)) {
+                checkArguments(2, 3);
+                first = Double.parseDouble(arguments[0]);
+                second = Double.parseDouble(arguments[1]);
+                scale = arguments.length > 2 ? Integer.parseInt(arguments[2]) : 2;
+            } else if ("oneOf".equals(distribution)) {
+                checkArguments(1, Integer.MAX_VALUE);
+                values = new String[arguments.length];
+                cumulativeWeights = new long[arguments.length];
+                long total = 0;
+                for (int i = 0; i < arguments.length; i++) {
+                    int separator = arguments[i].lastIndexOf(':');
+                    long weight = 1;
+                    values[i] = arguments[i];
+                    if (separator > 0) {
+                        weight = Long.parseLong(arguments[i].substring(separator + 1).trim());
+                        values[i] = arguments[i].substring(0, separator).trim();
+                    }
+                    if (weight <= 0) {
+                        throw new IllegalArgumentException("The weights must be positive");
+                    }
+                    total += weight;
+                    cumulativeWeights[i] = total;
+                }
+            } else if ("text".equals(distribution)) {
+                checkArguments(1, 1);
+                range = Integer.parseInt(arguments[0]);
+            } else if ("date".equals(distribution)) {
+                checkArguments(2, 3);
+                dateFormat = new SimpleDateFormat(arguments.length > 2 ? arguments[2] : DEFAULT_DATE_PATTERN);
+                dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                SimpleDateFormat boundFormat = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
+                boundFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                try {
+                    start = boundFormat.parse(arguments[0]).getTime() / MILLIS_PER_DAY;
+                    range = boundFormat.parse(arguments[1]).getTime() / MILLIS_PER_DAY - start + 1;
+                } catch (ParseException e) {
+                    throw new IllegalArgumentException("The bounds must be dates formatted as "
+                        + DEFAULT_DATE_PATTERN);
+                }
+                if (range <= 0) {
+                    throw new IllegalArgumentException("The range of dates is empty");
+                }
+            } else if ("constant".equals(distribution)) {
+                checkArguments(1, 1);
+            } else {
+                throw new IllegalArgumentException("Unknown distribution " + distribution);
+            }
+        }
+
+        /**
+         * Generate the value of the column in the given row
+         *
+         * @param row the index of the row
+         * @return the value
+         */
+        String generate(long row) {
+            long random = mix(seed + row);
+            if ("index".equals(distribution)) {
+                return String.valueOf(row);
+            } else if ("sequence".equals(distribution)) {
+                return String.valueOf(start + row * range);
+            } else if ("uniform".equals(distribution)) {
+                return String.valueOf(start + toBounded(random, range));
+            } else if ("unique".equals(distribution)) {
+                long permuted;
+                if (range <= Integer.MAX_VALUE) {
+                    permuted = (multiplier * row + offset) % range;
+                } else {
+                    permuted = BigInteger.valueOf(multiplier).multiply(BigInteger.valueOf(row)).add(
+                        BigInteger.valueOf(offset)).mod(BigInteger.valueOf(range)).longValue();
+                }
+                return String.valueOf(start + permuted);
+            } else if ("decimal".equals(distribution)) {
+                return format(first + toDouble(random) * (second - first));
+            } else if ("gaussian".equals(distribution)) {
+                // Box-Muller transform of two uniformly distributed numbers
+                double u1 = 1.0 - toDouble(random);
+                double u2 = toDouble(mix(random));
+                return format(first + second * Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2));
+            } else if ("oneOf".equals(distribution)) {
+                long weight = toBounded(random, cumulativeWeights[cumulativeWeights.length - 1]);
+                int i = 0;
+                while (cumulativeWeights[i] <= weight) {
+                    i++;
+                }
+                return values[i];
+            } else if ("text".equals(distribution)) {
+                char[] text = new char[(int) range];
+                for (int i = 0; i < text.length; i++) {
+                    random = mix(random);
+                    text[i] = TEXT_CHARACTERS[(int) toBounded(random, TEXT_CHARACTERS.length)];
+                }
+                return new String(text);
+            } else if ("date".equals(distribution)) {
+                return dateFormat.format(new Date((start + toBounded(random, range)) * MILLIS_PER_DAY));
+            }
+            return arguments[0];
+        }
+
+        private String format(double value) {
+            return new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP).toPlainString();
+        }
+    }
+
+    /**
+     * A {@link DataCursor} generating the rows of the method blocks as it moves over them
+     */
+    private static final class GeneratorCursor implements DataCursor {
+
+        private final List<MethodSpecification> methods;
+
+        /** The pool of the names and values of the parameters generated by this cursor */
+        private final StringPool stringPool = new StringPool();
+
+        /** The index of the current method block */
+        private int current = -1;
+
+        /** The columns of the current method block that are generated */
+        private List<ColumnSpecification> columns;
+
+        /** The names of the generated columns */
+        private String[] columnNames;
+
+        /** The table holding the rows of the current method block */
+        private TestDataTable table;
+
+        /** The index of the next row of the current method block */
+        private long nextRow;
+
+        /** The current row */
+        private Map<String, Object> actualData;
+
+        GeneratorCursor(List<MethodSpecification> methods) {
+            this.methods = methods;
+        }
+
+        public boolean nextMethod() {
+            actualData = null;
+            if (++current >= methods.size()) {
+                return false;
+            }
+            retainColumns(null);
+            table = new TestDataTable(false);
+            nextRow = 0;
+            LOG.debug("Method block being generated is : {}", getMethodName());
+            return true;
+        }
+
+        public String getMethodName() {
+            return current >= 0 && current < methods.size() ? methods.get(current).name : null;
+        }
+
+        public void retainColumns(Set<String> retainedColumns) {
+            columns = new ArrayList<ColumnSpecification>();
+            for (ColumnSpecification column : methods.get(current).columns) {
+                // the columns that are not retained are not generated at all
+                if (retainedColumns == null || retainedColumns.contains(column.name)) {
+                    columns.add(column);
+                }
+            }
+            columnNames = new String[columns.size()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = stringPool.intern(columns.get(i).name);
+            }
+        }
+
+        public boolean nextRow() {
+            actualData = null;
+            if (current < 0 || current >= methods.size() || nextRow >= methods.get(current).rows) {
+                return false;
+            }
+            actualData = table.addRow();
+            for (int i = 0; i < columnNames.length; i++) {
+                actualData.put(columnNames[i], stringPool.internValue(columnNames[i], columns.get(i).generate(
+                    nextRow)));
+            }
+            nextRow++;
+            return true;
+        }
+
+        public Map<String, Object> getRow() {
+            return actualData;
+        }
+
+        public void close() {
+            actualData = null;
+            table = null;
+        }
+    }
+
+}
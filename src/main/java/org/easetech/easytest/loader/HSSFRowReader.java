@@ -0,0 +1,222 @@
+package org.easetech.easytest.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SpreadsheetRowReader} for the Excel 97-2003 (xls) format. It pulls the low level records of the workbook
+ * stream one at a time using POI's event API and assembles the rows from the cell records, so the workbook is never
+ * built in memory. Only the rows of the row block currently being read are held by the reader.
+ *
+ */
+final class HSSFRowReader extends SpreadsheetRowReader {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(HSSFRowReader.class);
+
+    /** The names under which the workbook stream can be stored */
+    private static final String[] WORKBOOK_ENTRY_NAMES = { "Workbook", "WORKBOOK" };
+
+    /** The workbook stream */
+    private final InputStream workbookStream;
+
+    /** The records of the workbook stream */
+    private final RecordFactoryInputStream records;
+
+    /** Keeps track of the number formats of the workbook */
+    private final FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(new HSSFListener() {
+        public void processRecord(Record record) {
+            // the records are processed by the reader itself
+        }
+    });
+
+    /** The types of the substreams currently being read, innermost first */
+    private final LinkedList<Integer> substreamTypes = new LinkedList<Integer>();
+
+    /** The rows of the current row block, mapped by their row number */
+    private final TreeMap<Integer, SortedMap<Integer, Object>> pendingRows = new TreeMap<Integer, SortedMap<Integer, Object>>();
+
+    /** The rows that are completely read and not yet returned */
+    private final LinkedList<SortedMap<Integer, Object>> completedRows = new LinkedList<SortedMap<Integer, Object>>();
+
+    /** The shared strings of the workbook */
+    private SSTRecord sharedStrings;
+
+    /** Whether the workbook uses the 1904 date windowing */
+    private boolean date1904;
+
+    /** The number of worksheets read so far */
+    private int sheetCount;
+
+    /** The row of the formula cell whose string result is expected next, or null */
+    private SortedMap<Integer, Object> stringFormulaRow;
+
+    /** The column of the formula cell whose string result is expected next */
+    private int stringFormulaColumn;
+
+    /** Whether all the records have been read */
+    private boolean exhausted;
+
+    /**
+     * Construct a new HSSFRowReader
+     *
+     * @param excelFile the input stream of the xls file
+     * @throws IOException if an I/O exception occurs while opening the file
+     */
+    HSSFRowReader(InputStream excelFile) throws IOException {
+        DirectoryNode root = new POIFSFileSystem(excelFile).getRoot();
+        String workbookEntryName = null;
+        for (String entryName : WORKBOOK_ENTRY_NAMES) {
+            if (root.hasEntry(entryName)) {
+                workbookEntryName = entryName;
+                break;
+            }
+        }
+        if (workbookEntryName == null) {
+            throw new IOException("The supplied file does not contain an Excel 97-2003 workbook");
+        }
+        this.workbookStream = root.createDocumentInputStream(workbookEntryName);
+        this.records = new RecordFactoryInputStream(workbookStream, false);
+    }
+
+    SortedMap<Integer, Object> nextRow() throws IOException {
+        while (completedRows.isEmpty() && !exhausted) {
+            Record record = records.nextRecord();
+            if (record == null) {
+                exhausted = true;
+                completeRows();
+            } else {
+                processRecord(record);
+            }
+        }
+        return completedRows.poll();
+    }
+
+    void close() throws IOException {
+        workbookStream.close();
+    }
+
+    private void processRecord(Record record) {
+        formats.processRecordInternally(record);
+        switch (record.getSid()) {
+            case BOFRecord.sid:
+                substreamTypes.addFirst(((BOFRecord) record).getType());
+                if (isInWorksheet()) {
+                    LOG.debug("Sheet {} is being read", sheetCount++);
+                }
+                break;
+            case EOFRecord.sid:
+                if (isInWorksheet()) {
+                    completeRows();
+                }
+                substreamTypes.poll();
+                break;
+            case DBCellRecord.sid:
+                // marks the end of a row block
+                if (isInWorksheet()) {
+                    completeRows();
+                }
+                break;
+            case SSTRecord.sid:
+                sharedStrings = (SSTRecord) record;
+                break;
+            case DateWindow1904Record.sid:
+                date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                break;
+            case RowRecord.sid:
+                if (isInWorksheet()) {
+                    getRow(((RowRecord) record).getRowNumber());
+                }
+                break;
+            case StringRecord.sid:
+                if (stringFormulaRow != null) {
+                    stringFormulaRow.put(stringFormulaColumn, ((StringRecord) record).getString());
+                    stringFormulaRow = null;
+                }
+                break;
+            default:
+                if (record instanceof CellValueRecordInterface && isInWorksheet()) {
+                    CellValueRecordInterface cell = (CellValueRecordInterface) record;
+                    SortedMap<Integer, Object> row = getRow(cell.getRow());
+                    stringFormulaRow = null;
+                    row.put((int) cell.getColumn(), cellValue(cell));
+                    if (cell instanceof FormulaRecord && ((FormulaRecord) cell).hasCachedResultString()) {
+                        stringFormulaRow = row;
+                        stringFormulaColumn = cell.getColumn();
+                    }
+                }
+        }
+    }
+
+    private Object cellValue(CellValueRecordInterface cell) {
+        Object cellValue = null;
+        if (cell instanceof LabelSSTRecord) {
+            cellValue = sharedStrings.getString(((LabelSSTRecord) cell).getSSTIndex()).getString();
+        } else if (cell instanceof LabelRecord) {
+            cellValue = ((LabelRecord) cell).getValue();
+        } else if (cell instanceof NumberRecord) {
+            cellValue = numericCellValue(((NumberRecord) cell).getValue(), formats.getFormatIndex(cell),
+                formats.getFormatString(cell), date1904);
+        } else if (cell instanceof BoolErrRecord) {
+            BoolErrRecord boolErr = (BoolErrRecord) cell;
+            cellValue = boolErr.isBoolean() ? boolErr.getBooleanValue() : null;
+        } else if (cell instanceof FormulaRecord) {
+            FormulaRecord formula = (FormulaRecord) cell;
+            if (formula.getCachedResultType() == Cell.CELL_TYPE_NUMERIC) {
+                cellValue = formula.getValue();
+            } else if (formula.getCachedResultType() == Cell.CELL_TYPE_BOOLEAN) {
+                cellValue = formula.getCachedBooleanValue();
+            } else if (formula.getCachedResultType() == Cell.CELL_TYPE_STRING) {
+                // the actual string, if any, follows in a separate record
+                cellValue = "";
+            }
+        }
+        return cellValue;
+    }
+
+    private boolean isInWorksheet() {
+        return !substreamTypes.isEmpty() && substreamTypes.getFirst() == BOFRecord.TYPE_WORKSHEET;
+    }
+
+    private SortedMap<Integer, Object> getRow(int rowNumber) {
+        SortedMap<Integer, Object> row = pendingRows.get(rowNumber);
+        if (row == null) {
+            row = new TreeMap<Integer, Object>();
+            pendingRows.put(rowNumber, row);
+        }
+        return row;
+    }
+
+    private void completeRows() {
+        completedRows.addAll(pendingRows.values());
+        pendingRows.clear();
+    }
+
+}
@@ -0,0 +1,19 @@
+package org.easetech.easytest.loader;
+
+/**
+ * A {@link DataCursor} over a resource that has an index of its rows. Such a cursor can skip the rows of the current
+ * method block that a {@link RowFilter} rejects based on their entry in the index alone, for eg. the rows of the other
+ * shards, without reading them from the resource.
+ *
+ */
+interface IndexedCursor extends DataCursor {
+
+    /**
+     * Skip the rows of the current method block that the given filter rejects based on their entry in the index alone.
+     * The rows that are not skipped still have to be checked against the filter. It has to be called before the first
+     * row of the block is read.
+     *
+     * @param rowFilter the filter of the rows of the current method block
+     */
+    void retainRows(RowFilter rowFilter);
+}
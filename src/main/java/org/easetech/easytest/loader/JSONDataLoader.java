@@ -0,0 +1,489 @@
+package org.easetech.easytest.loader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.MappingJsonFactory;
+import org.codehaus.jackson.node.ObjectNode;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
+import org.easetech.easytest.io.CompressedResource;
+import org.easetech.easytest.io.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of {@link Loader} for the JSON based files. The data is read using the streaming
+ * {@link JsonParser} of Jackson, so the rows are produced one at a time without first building a tree of the whole
+ * document. Two formats are supported :
+ * <ul>
+ * <li>A JSON document, with the extension <B>.json</B>, holding an object whose fields are the names of the test
+ * methods and whose values are the arrays of rows of test data of the methods :<br>
+ * <code>
+ * {<br>
+ * &nbsp;&nbsp;"getItems" : [<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;{ "libraryId" : 1, "itemType" : "book", "item" : { "itemId" : 2 } },<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;{ "libraryId" : 3, "itemType" : "ebook", "item" : { "itemId" : 4 } }<br>
+ * &nbsp;&nbsp;]<br>
+ * }<br>
+ * </code></li>
+ * <li>Newline delimited JSON, with the extension <B>.ndjson</B> or <B>.jsonl</B>, holding one row of test data per
+ * line. The name of the test method of the row is given by its {@value #METHOD_FIELD} field :<br>
+ * <code>
+ * { "testMethod" : "getItems", "libraryId" : 1, "itemType" : "book" }<br>
+ * { "testMethod" : "getItems", "libraryId" : 3, "itemType" : "ebook" }<br>
+ * </code>
+ * The consecutive rows of the same test method form a method block. As with the other loaders, a later block of the
+ * same test method replaces an earlier one, so the rows of a test method have to be next to each other.</li>
+ * </ul>
+ * The numbers, booleans and strings of a row are loaded as strings, exactly as they appear in the file, like the
+ * values of the other loaders. The nested objects and arrays are loaded as pre-parsed {@link JsonNode}s, that the
+ * {@link org.easetech.easytest.converter.JSONDataConverter} converts to the type of the parameter without having to
+ * parse them again.<br>
+ * This {@link Loader} can also write the output data back to the file. The rows of the file are matched with the rows
+ * of data by their input data, so only the rows that ran are updated, and only with their output data. The output
+ * values that did not change keep their original JSON type.
+ *
+ */
+public class JSONDataLoader implements StreamingLoader {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(JSONDataLoader.class);
+
+    /** The field of a row of newline delimited JSON holding the name of its test method */
+    public static final String METHOD_FIELD = "testMethod";
+
+    /** The factory of the parsers, whose parsers can read the nested values as trees */
+    private static final JsonFactory JSON_FACTORY = new MappingJsonFactory();
+
+    /**
+     *
+     * Construct a new JSONDataLoader
+     */
+    public JSONDataLoader() {
+        super();
+    }
+
+    /**
+     * Load the data for the given Resource
+     *
+     * @param resource the resource to load the data from
+     * @return the loaded data
+     */
+    public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
+        Map<String, List<Map<String, Object>>> result = null;
+        try {
+            result = DataLoaderUtil.readAll(openCursor(resource));
+        } catch (IOException e) {
+            LOG.error("IOException occured while trying to Load the resource {} . Moving to the next resource.",
+                resource.getResourceName(), e);
+        }
+        if (result != null) {
+            LOG.debug("Loading data from resource {} succedded and the data loaded is {}", resource.getResourceName(),
+                result);
+        }
+        return result;
+    }
+
+    /**
+     * Open a {@link DataCursor} that reads the rows of the given resource one at a time
+     *
+     * @param resource the resource to read the data from
+     * @return an instance of {@link DataCursor}
+     * @throws IOException if an IO exception occurs
+     */
+    public DataCursor openCursor(Resource resource) throws IOException {
+        JsonParser parser = JSON_FACTORY.createJsonParser(resource.getInputStream());
+        return isNewlineDelimited(resource) ? new NewlineDelimitedCursor(parser) : new DocumentCursor(parser);
+    }
+
+    /**
+     * Write the data back to the file that is represented by the Resource instance
+     *
+     * @param resource the resource instance to which the data needs to be written
+     * @param actualData the actual data that needs to be written
+     * @param methodNames OPTIONAL names of methods for which the data needs to be written. If the method names are
+     *            not provided, then the data is written for all the test methods for which the data is present in the
+     *            actualData parameter
+     */
+    public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
+        try {
+            List<JsonNode> documents = new ArrayList<JsonNode>();
+            JsonParser parser = JSON_FACTORY.createJsonParser(resource.getInputStream());
+            try {
+                while (parser.nextToken() != null) {
+                    documents.add(parser.readValueAsTree());
+                }
+            } finally {
+                parser.close();
+            }
+            List<JsonNode> rowNodes = new ArrayList<JsonNode>();
+            if (isNewlineDelimited(resource)) {
+                rowNodes.addAll(documents);
+            } else if (!documents.isEmpty()) {
+                Iterator<Map.Entry<String, JsonNode>> methods = documents.get(0).getFields();
+                while (methods.hasNext()) {
+                    for (JsonNode rowNode : methods.next().getValue()) {
+                        rowNodes.add(rowNode);
+                    }
+                }
+            }
+            // the rows are read again the way they are loaded, in the same order, so that they can be matched with
+            // the rows of data by their input data
+            Map<String, RowMatcher> rowMatchers = new HashMap<String, RowMatcher>();
+            DataCursor cursor = openCursor(resource);
+            try {
+                Iterator<JsonNode> rowNodeIterator = rowNodes.iterator();
+                while (cursor.nextMethod()) {
+                    String methodName = cursor.getMethodName();
+                    RowMatcher rowMatcher = rowMatchers.get(methodName);
+                    if (rowMatcher == null && writeDataForMethod(methodName, methodNames)) {
+                        rowMatcher = new RowMatcher(actualData.get(methodName));
+                        rowMatchers.put(methodName, rowMatcher);
+                    }
+                    while (cursor.nextRow() && rowNodeIterator.hasNext()) {
+                        JsonNode rowNode = rowNodeIterator.next();
+                        if (rowMatcher != null) {
+                            updateRow(rowNode, rowMatcher.match(cursor.getRow()));
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            OutputStream outputStream = resource.getOutputStream();
+            JsonGenerator generator = JSON_FACTORY.createJsonGenerator(outputStream, JsonEncoding.UTF8);
+            try {
+                if (isNewlineDelimited(resource)) {
+                    // every row on a line of its own
+                    generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                    for (JsonNode document : documents) {
+                        generator.writeTree(document);
+                    }
+                    generator.writeRaw('\n');
+                } else {
+                    generator.useDefaultPrettyPrinter();
+                    for (JsonNode document : documents) {
+                        generator.writeTree(document);
+                    }
+                }
+            } finally {
+                generator.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to write data to file {} . An I/O Exception occured.", resource.getResourceName(), e);
+        }
+    }
+
+    /**
+     * Whether the given resource holds newline delimited JSON
+     *
+     * @param resource the resource
+     * @return true if the name of the resource ends with .ndjson or .jsonl
+     */
+    private static boolean isNewlineDelimited(Resource resource) {
+        String name = CompressedResource.getUncompressedPath(resource.getResourceName());
+        return name != null && (name.endsWith(".ndjson") || name.endsWith(".jsonl"));
+    }
+
+    private static boolean writeDataForMethod(String methodName, String... methodNames) {
+        if (methodNames == null || methodNames.length == 0) {
+            return true;
+        }
+        for (String name : methodNames) {
+            if (name.equals(methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update the given JSON row with the output data of the given row of data. The input data of the JSON row is left
+     * as it is, and the output values that did not change keep their JSON type.
+     *
+     * @param node the JSON row
+     * @param row the row of data or null if the JSON row should not be updated
+     */
+    private static void updateRow(JsonNode node, Map<String, Object> row) {
+        if (row == null || !(node instanceof ObjectNode)) {
+            return;
+        }
+        ObjectNode objectNode = (ObjectNode) node;
+        for (String key : RowMatcher.OUTPUT_COLUMNS) {
+            Object value = row.get(key);
+            JsonNode existing = objectNode.get(key);
+            if (value == null || existing == value) {
+                continue;
+            }
+            if (value instanceof JsonNode) {
+                objectNode.put(key, (JsonNode) value);
+            } else if (existing != null && existing.isValueNode() && existing.asText().equals(value.toString())) {
+                // the value did not change, so it keeps its JSON type
+                continue;
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+                objectNode.put(key, ((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                objectNode.put(key, ((Number) value).doubleValue());
+            } else if (value instanceof BigDecimal) {
+                objectNode.put(key, (BigDecimal) value);
+            } else if (value instanceof Boolean) {
+                objectNode.put(key, ((Boolean) value).booleanValue());
+            } else {
+                objectNode.put(key, value.toString());
+            }
+        }
+    }
+
+    /**
+     * The functionality common to the cursors over the JSON formats
+     */
+    private abstract static class JsonCursor implements DataCursor {
+
+        /** The parser of the resource */
+        protected final JsonParser parser;
+
+        /** The pool of the names and values of the parameters read by this cursor */
+        protected final StringPool stringPool = new StringPool();
+
+        /** The names of the columns to retain in the rows of the current method block, or null to retain all */
+        protected Set<String> retainedColumns;
+
+        /** The name of the current method */
+        protected String methodName;
+
+        /** The table holding the rows of the current method block */
+        protected TestDataTable table;
+
+        /** The current row */
+        protected Map<String, Object> actualData;
+
+        JsonCursor(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public void retainColumns(Set<String> columnNames) {
+            retainedColumns = columnNames;
+        }
+
+        public Map<String, Object> getRow() {
+            return actualData;
+        }
+
+        public void close() throws IOException {
+            parser.close();
+        }
+
+        /**
+         * Start a new method block
+         *
+         * @param name the name of the test method
+         */
+        protected void startMethod(String name) {
+            methodName = name;
+            table = new TestDataTable(false);
+            retainedColumns = null;
+            actualData = null;
+        }
+
+        protected boolean isRetained(String parameterName) {
+            return retainedColumns == null || retainedColumns.contains(parameterName);
+        }
+
+        /**
+         * Read the value the parser is positioned at. The nested objects and arrays are read as trees.
+         *
+         * @param parameterName the name of the parameter the value belongs to
+         * @param token the current token
+         * @return the value
+         * @throws IOException if an IO exception occurs
+         */
+        protected Object readValue(String parameterName, JsonToken token) throws IOException {
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                return parser.readValueAsTree();
+            } else if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            return stringPool.internValue(parameterName, parser.getText());
+        }
+
+        protected JsonParseException error(String message) {
+            return new JsonParseException(message, parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * A {@link DataCursor} over a JSON document holding the arrays of rows of the test methods
+     */
+    private static class DocumentCursor extends JsonCursor {
+
+        /** Whether the start of the document has been read */
+        private boolean started;
+
+        /** Whether the parser is within the array of rows of the current method block */
+        private boolean inBlock;
+
+        DocumentCursor(JsonParser parser) {
+            super(parser);
+        }
+
+        public boolean nextMethod() throws IOException {
+            // skip the unread rows of the current block, without building them
+            while (inBlock) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY || token == null) {
+                    inBlock = false;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!started) {
+                started = true;
+                JsonToken token = parser.nextToken();
+                if (token == null) {
+                    return false;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw error("Expected an object holding the test data of the test methods but found " + token);
+                }
+            }
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.FIELD_NAME) {
+                return false;
+            }
+            String name = stringPool.intern(parser.getCurrentName());
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw error("Expected an array of rows of test data for the test method " + name);
+            }
+            startMethod(name);
+            inBlock = true;
+            LOG.debug("Method block being read is : {}", name);
+            return true;
+        }
+
+        public boolean nextRow() throws IOException {
+            actualData = null;
+            if (!inBlock) {
+                return false;
+            }
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                inBlock = false;
+                return false;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw error("Expected a row of test data for the test method " + methodName + " but found " + token);
+            }
+            actualData = table.addRow();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String parameterName = stringPool.intern(parser.getCurrentName());
+                JsonToken valueToken = parser.nextToken();
+                if (isRetained(parameterName)) {
+                    actualData.put(parameterName, readValue(parameterName, valueToken));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A {@link DataCursor} over newline delimited JSON holding a row of test data per line. As the name of the test
+     * method of a row can be given by any of its fields, every row is read ahead of time.
+     */
+    private static class NewlineDelimitedCursor extends JsonCursor {
+
+        /** The name of the test method of the row read ahead of time */
+        private String pendingMethodName;
+
+        /** The row read ahead of time or null if there are no more rows */
+        private Map<String, Object> pendingRow;
+
+        /** Whether the first row has been read ahead of time */
+        private boolean started;
+
+        NewlineDelimitedCursor(JsonParser parser) {
+            super(parser);
+        }
+
+        public boolean nextMethod() throws IOException {
+            if (!started) {
+                started = true;
+                readPendingRow();
+            }
+            // skip the unread rows of the current block, without building them
+            while (pendingRow != null && pendingMethodName.equals(methodName)) {
+                readPendingRow();
+            }
+            if (pendingRow == null) {
+                return false;
+            }
+            startMethod(pendingMethodName);
+            LOG.debug("Method block being read is : {}", methodName);
+            return true;
+        }
+
+        public boolean nextRow() throws IOException {
+            actualData = null;
+            if (pendingRow == null || !pendingMethodName.equals(methodName)) {
+                return false;
+            }
+            actualData = table.addRow();
+            for (Map.Entry<String, Object> cell : pendingRow.entrySet()) {
+                if (isRetained(cell.getKey())) {
+                    actualData.put(cell.getKey(), cell.getValue());
+                }
+            }
+            readPendingRow();
+            return true;
+        }
+
+        private void readPendingRow() throws IOException {
+            pendingRow = null;
+            pendingMethodName = null;
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw error("Expected a row of test data but found " + token);
+            }
+            Map<String, Object> row = new LinkedHashMap<String, Object>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String parameterName = stringPool.intern(parser.getCurrentName());
+                JsonToken valueToken = parser.nextToken();
+                if (METHOD_FIELD.equals(parameterName)) {
+                    pendingMethodName = stringPool.intern(parser.getText());
+                } else {
+                    row.put(parameterName, readValue(parameterName, valueToken));
+                }
+            }
+            if (pendingMethodName == null) {
+                throw error("Expected the field " + METHOD_FIELD + " naming the test method of the row");
+            }
+            pendingRow = row;
+        }
+    }
+
+}
@@ -23,6 +23,14 @@ public class LoaderFactory {
         	loader = new ExcelDataLoader();
         }else if(LoaderType.XML.equals(loaderType)){
         	loader = new XMLDataLoader();
+        }else if(LoaderType.SNAPSHOT.equals(loaderType)){
+            loader = new SnapshotDataLoader();
+        }else if(LoaderType.JSON.equals(loaderType)){
+            loader = new JSONDataLoader();
+        }else if(LoaderType.DATABASE.equals(loaderType)){
+            loader = new DatabaseDataLoader();
+        }else if(LoaderType.GENERATOR.equals(loaderType)){
+            loader = new GeneratorDataLoader();
         }else{
             Assert.fail("The framework currently does not support the specified Loader type. " +
                 "You can provide the custom Loader by choosing LoaderType.CUSTOM in TestData " +
@@ -29,6 +29,26 @@ public enum LoaderType {
      * This is currently just a place holder and will be supported in future.
      */
     EXCEL,
+    /**
+     * Identifies that the type of file is a framework based binary snapshot of the test data.
+     * This file should be created using {@link SnapshotDataLoader}
+     */
+    SNAPSHOT,
+    /**
+     * Identifies that the type of file is a framework based JSON file, either a JSON document or newline delimited JSON.
+     * This file should support the structure as identified in {@link JSONDataLoader}
+     */
+    JSON,
+    /**
+     * Identifies that the test data is queried from a database. The file is a properties file defining the
+     * connection to the database and the query of every test method, as identified in {@link DatabaseDataLoader}
+     */
+    DATABASE,
+    /**
+     * Identifies that the type of file is a framework based specification of synthetic test data.
+     * This file should support the structure as identified in {@link GeneratorDataLoader}
+     */
+    GENERATOR,
     /**
      * Identifies that the type of file is a user defined custom type. 
      * This option is used in conjunction with {@link DataLoader} annotation.
@@ -0,0 +1,422 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A CSV reader that memory maps the CSV file and parses it in chunks on multiple threads. It is used by the
+ * {@link CSVDataLoader} for all the CSV files that reside on the local file system and gives the same records as the
+ * <code>com.csvreader.CsvReader</code> configured with its default settings, i.e.:
+ * <ul>
+ * <li>Columns are separated by a "," and may be quoted using a '"'. A '"' inside a quoted column is escaped by
+ * doubling it.</li>
+ * <li>Whitespace surrounding a column value is trimmed.</li>
+ * <li>Records are separated by "\r", "\n" or "\r\n" and empty lines are skipped.</li>
+ * </ul>
+ * The file is split into chunks of roughly {@link #DEFAULT_CHUNK_SIZE} bytes, each ending at a record boundary. The
+ * chunks are decoded as UTF-8 directly from the mapped buffer and parsed in parallel, while the records are handed out
+ * in the order in which they appear in the file. Only a limited number of chunks is parsed ahead of the consumer, so
+ * the memory used by the reader does not depend on the size of the file.
+ *
+ */
+final class MappedCsvReader {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(MappedCsvReader.class);
+
+    /** The default size in bytes of a single chunk of the file */
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /** The size in bytes of the window used to look for the end of a chunk */
+    private static final int SCAN_WINDOW_SIZE = 1024 * 1024;
+
+    /** The number of threads of the shared executor parsing the chunks */
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /** The maximum number of chunks that are parsed ahead of the consumer */
+    private static final int MAX_CHUNKS_IN_FLIGHT = PARALLELISM * 2;
+
+    /** The charset of the CSV files */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The states of the record boundary scanner */
+    private static final int FIELD_START = 0;
+
+    private static final int UNQUOTED = 1;
+
+    private static final int IN_QUOTES = 2;
+
+    private static final int QUOTE_IN_QUOTES = 3;
+
+    private static final int AFTER_QUOTES = 4;
+
+    /** The file being read */
+    private final RandomAccessFile file;
+
+    /** The channel of the file being read */
+    private final FileChannel channel;
+
+    /** The position at which the reading stops, which is the size of the file unless only a range of it is read */
+    private final long size;
+
+    /** The size of a single chunk */
+    private final int chunkSize;
+
+    /** The position at which the next chunk starts */
+    private long nextChunkStart;
+
+    /** The chunks that are being parsed, in the order in which they appear in the file */
+    private final LinkedList<FutureTask<List<String[]>>> pendingChunks = new LinkedList<FutureTask<List<String[]>>>();
+
+    /** The records of the chunk currently being consumed */
+    private Iterator<String[]> currentChunk;
+
+    /** The values of the current record */
+    private String[] values;
+
+    /** The mapped window used to look for the end of a chunk */
+    private MappedByteBuffer scanWindow;
+
+    /** The position in the file at which the {@link #scanWindow} starts */
+    private long scanWindowStart;
+
+    /**
+     * Construct a new MappedCsvReader using the {@link #DEFAULT_CHUNK_SIZE}
+     *
+     * @param csvFile the CSV file to read
+     * @throws IOException if an IO exception occurs while opening the file
+     */
+    MappedCsvReader(File csvFile) throws IOException {
+        this(csvFile, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Construct a new MappedCsvReader
+     *
+     * @param csvFile the CSV file to read
+     * @param chunkSize the approximate size in bytes of a single chunk of the file
+     * @throws IOException if an IO exception occurs while opening the file
+     */
+    MappedCsvReader(File csvFile, int chunkSize) throws IOException {
+        this.file = new RandomAccessFile(csvFile, "r");
+        this.channel = file.getChannel();
+        this.size = channel.size();
+        this.chunkSize = chunkSize;
+        this.nextChunkStart = skipByteOrderMark();
+    }
+
+    /**
+     * Construct a new MappedCsvReader that reads only the records within the given range of the file, using the
+     * {@link #DEFAULT_CHUNK_SIZE}
+     *
+     * @param csvFile the CSV file to read
+     * @param start the position of the start of the range. This has to be the start of a record
+     * @param end the position right after the end of the range. This has to be the end of a record
+     * @throws IOException if an IO exception occurs while opening the file
+     */
+    MappedCsvReader(File csvFile, long start, long end) throws IOException {
+        this.file = new RandomAccessFile(csvFile, "r");
+        this.channel = file.getChannel();
+        this.size = Math.min(end, channel.size());
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+        this.nextChunkStart = start;
+    }
+
+    /**
+     * Read the next record of the file
+     *
+     * @return true if a record was read, false if there are no more records
+     * @throws IOException if an IO exception occurs while reading the file
+     */
+    boolean readRecord() throws IOException {
+        while (currentChunk == null || !currentChunk.hasNext()) {
+            currentChunk = null;
+            if (!nextChunk()) {
+                values = null;
+                return false;
+            }
+        }
+        values = currentChunk.next();
+        return true;
+    }
+
+    /**
+     * Get the values of the current record
+     *
+     * @return the values of the current record
+     */
+    String[] getValues() {
+        return values;
+    }
+
+    /**
+     * Close the reader and release the file
+     */
+    void close() {
+        for (FutureTask<List<String[]>> chunk : pendingChunks) {
+            chunk.cancel(false);
+        }
+        pendingChunks.clear();
+        currentChunk = null;
+        unmap(scanWindow);
+        scanWindow = null;
+        try {
+            file.close();
+        } catch (IOException e) {
+            LOG.warn("IOException occured while closing the file", e);
+        }
+    }
+
+    private boolean nextChunk() throws IOException {
+        scheduleChunks();
+        if (pendingChunks.isEmpty()) {
+            return false;
+        }
+        FutureTask<List<String[]>> chunk = pendingChunks.removeFirst();
+        // parse the chunk on this thread if no thread of the executor has started parsing it yet, as this thread may
+        // itself be a thread of the executor
+        chunk.run();
+        try {
+            currentChunk = chunk.get().iterator();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a chunk of the CSV file to be parsed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            IOException ioException = new IOException("Exception occured while parsing a chunk of the CSV file");
+            ioException.initCause(e.getCause());
+            throw ioException;
+        }
+        scheduleChunks();
+        return true;
+    }
+
+    /**
+     * Schedule the parsing of the next chunks of the file until either {@link #MAX_CHUNKS_IN_FLIGHT} chunks are pending
+     * or the end of the file is reached. A file that fits in a single chunk is parsed on the calling thread.
+     */
+    private void scheduleChunks() throws IOException {
+        while (nextChunkStart < size && pendingChunks.size() < MAX_CHUNKS_IN_FLIGHT) {
+            long start = nextChunkStart;
+            long end = findChunkEnd(start);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("A single record of the CSV file exceeds " + Integer.MAX_VALUE + " bytes");
+            }
+            nextChunkStart = end;
+            FutureTask<List<String[]>> chunk = new FutureTask<List<String[]>>(new ChunkParser(channel.map(
+                FileChannel.MapMode.READ_ONLY, start, end - start)));
+            if (pendingChunks.isEmpty() && end == size) {
+                chunk.run();
+            } else {
+                DataLoaderUtil.getExecutor().execute(chunk);
+            }
+            pendingChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Find the end of the chunk starting at the given position, which is the end of the first record that ends at
+     * least {@link #chunkSize} bytes after the start of the chunk. Record separators that appear inside quoted columns
+     * do not end a record.
+     *
+     * @param start the position of the start of the chunk. This is always the start of a record
+     * @return the position right after the end of the chunk
+     */
+    private long findChunkEnd(long start) throws IOException {
+        long target = start + chunkSize;
+        if (target >= size) {
+            return size;
+        }
+        int state = FIELD_START;
+        long position = start;
+        while (position < size) {
+            byte current = byteAt(position++);
+            if (state == IN_QUOTES) {
+                if (current == '"') {
+                    state = QUOTE_IN_QUOTES;
+                }
+                continue;
+            }
+            if (state == QUOTE_IN_QUOTES) {
+                if (current == '"') {
+                    state = IN_QUOTES;
+                    continue;
+                }
+                state = AFTER_QUOTES;
+            }
+            if (current == '\r' || current == '\n') {
+                if (current == '\r' && position < size && byteAt(position) == '\n') {
+                    position++;
+                }
+                if (position >= target) {
+                    return position;
+                }
+                state = FIELD_START;
+            } else if (current == ',') {
+                state = FIELD_START;
+            } else if (state == FIELD_START && current != ' ' && current != '\t') {
+                state = current == '"' ? IN_QUOTES : UNQUOTED;
+            }
+        }
+        return size;
+    }
+
+    private byte byteAt(long position) throws IOException {
+        if (scanWindow == null || position < scanWindowStart || position >= scanWindowStart + scanWindow.limit()) {
+            unmap(scanWindow);
+            scanWindowStart = position;
+            scanWindow = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SCAN_WINDOW_SIZE, size
+                - position));
+        }
+        return scanWindow.get((int) (position - scanWindowStart));
+    }
+
+    private long skipByteOrderMark() throws IOException {
+        if (size >= 3) {
+            ByteBuffer bom = ByteBuffer.allocate(3);
+            channel.read(bom, 0);
+            if (bom.get(0) == (byte) 0xEF && bom.get(1) == (byte) 0xBB && bom.get(2) == (byte) 0xBF) {
+                return 3;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Release the given mapped buffer eagerly instead of waiting for it to be garbage collected, so that the file can
+     * be written back to on platforms that lock mapped files. This is done on a best effort basis.
+     *
+     * @param buffer the buffer to release
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            LOG.debug("Could not release the mapped buffer, leaving it to the garbage collector", e);
+        }
+    }
+
+    /**
+     * Parses the records of a single mapped chunk of the file.
+     */
+    static class ChunkParser implements Callable<List<String[]>> {
+
+        /** The mapped chunk */
+        private final MappedByteBuffer buffer;
+
+        ChunkParser(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public List<String[]> call() throws IOException {
+            CharBuffer chars;
+            try {
+                chars = UTF8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE).decode(buffer);
+            } finally {
+                unmap(buffer);
+            }
+            return parse(chars.array(), chars.arrayOffset() + chars.position(), chars.arrayOffset() + chars.limit());
+        }
+
+        /**
+         * Parse the records of the given text
+         *
+         * @param text the text
+         * @param from the index of the first character of the text to parse
+         * @param to the index right after the last character of the text to parse
+         * @return the values of the records
+         */
+        static List<String[]> parse(char[] text, int from, int to) {
+            List<String[]> records = new ArrayList<String[]>();
+            List<String> columns = new ArrayList<String>();
+            StringBuilder quotedValue = new StringBuilder();
+            int recordStart = from;
+            int i = from;
+            while (i < to) {
+                while (i < to && (text[i] == ' ' || text[i] == '\t')) {
+                    i++;
+                }
+                if (i < to && text[i] == '"') {
+                    quotedValue.setLength(0);
+                    i++;
+                    while (i < to) {
+                        char current = text[i++];
+                        if (current != '"') {
+                            quotedValue.append(current);
+                        } else if (i < to && text[i] == '"') {
+                            quotedValue.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    // anything between the closing quote and the end of the column is ignored
+                    while (i < to && text[i] != ',' && text[i] != '\r' && text[i] != '\n') {
+                        i++;
+                    }
+                    columns.add(quotedValue.toString());
+                } else {
+                    int begin = i;
+                    while (i < to && text[i] != ',' && text[i] != '\r' && text[i] != '\n') {
+                        i++;
+                    }
+                    int end = i;
+                    while (end > begin && (text[end - 1] == ' ' || text[end - 1] == '\t')) {
+                        end--;
+                    }
+                    columns.add(new String(text, begin, end - begin));
+                }
+                if (i < to && text[i] == ',') {
+                    i++;
+                    continue;
+                }
+                if (i > recordStart) {
+                    records.add(columns.toArray(new String[columns.size()]));
+                }
+                columns.clear();
+                if (i < to) {
+                    i += text[i] == '\r' && i + 1 < to && text[i + 1] == '\n' ? 2 : 1;
+                }
+                recordStart = i;
+            }
+            if (!columns.isEmpty()) {
+                // the chunk ends right after a separator
+                columns.add("");
+                records.add(columns.toArray(new String[columns.size()]));
+            }
+            return records;
+        }
+    }
+
+}
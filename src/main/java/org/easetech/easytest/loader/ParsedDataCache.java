@@ -0,0 +1,231 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.io.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A process wide cache of the data parsed from the test data files. The same data file is very often used by many test
+ * classes, as well as by a suite and its child test classes. This cache makes sure that such a file is parsed only once
+ * per process, as long as it does not change.<br>
+ * The data is cached against the identity of the resolved resource, i.e. its URL, along with its last modification
+ * time and size, and the {@link Loader} that parsed it. Only the data loaded by a {@link StreamingLoader} from a local
+ * file or from a file packaged in a jar is cached.<br>
+ * The rows of the cached data are shared, read only, by all the lookups : the output of the tests is collected apart
+ * from the rows of test data, see {@link org.easetech.easytest.util.OutputDataCollector}, so the rows are never
+ * modified once they are parsed. Every lookup only gets lists of its own, so that the rows can be selected and
+ * appended to other data without copying them.<br>
+ * The size of the cache is bounded using the System Property <B>easytest.dataCacheSize</B>, giving the approximate
+ * maximum amount of memory, in megabytes, that the cached data can occupy. It defaults to {@value #DEFAULT_CACHE_SIZE}
+ * megabytes. A value of 0 disables the cache. When the bound is exceeded, the least recently used data is evicted.
+ *
+ */
+public final class ParsedDataCache {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(ParsedDataCache.class);
+
+    /** The default maximum size of the cache in megabytes */
+    public static final int DEFAULT_CACHE_SIZE = 64;
+
+    /** The approximate size in bytes of the bookkeeping of a single row and of a single cell */
+    private static final int ROW_OVERHEAD = 64;
+
+    private static final int CELL_OVERHEAD = 48;
+
+    /** The cached data, in least recently used order */
+    private static final LinkedHashMap<String, CachedData> CACHE = new LinkedHashMap<String, CachedData>(16, 0.75f,
+        true);
+
+    /** The approximate size in bytes of all the cached data */
+    private static long cacheSize;
+
+    /**
+     * Private constructor
+     */
+    private ParsedDataCache() {
+        // do nothing
+    }
+
+    /**
+     * Get the key against which the data of the given resource, loaded by the given loader, can be cached.
+     *
+     * @param loader the loader loading the data
+     * @param resource the resource the data is loaded from
+     * @return the cache key or null if the data can not be cached
+     */
+    static String getCacheKey(Loader loader, Resource resource) {
+        if (!(loader instanceof StreamingLoader) || !DataLoaderUtil.isDataOfResource(loader) || getMaximumSize() <= 0) {
+            return null;
+        }
+        if (loader instanceof SnapshotDataLoader && ((SnapshotDataLoader) loader).getSourceLoader() != null
+            && !(((SnapshotDataLoader) loader).getSourceLoader() instanceof StreamingLoader)) {
+            return null;
+        }
+        try {
+            URL url = resource.getURL();
+            long lastModified;
+            long length;
+            if (resource instanceof PathResource) {
+                // the attributes of the file are read at once
+                return loader.getClass().getName() + "|" + url.toExternalForm() + "|"
+                    + ((PathResource) resource).getVersion();
+            } else if ("file".equals(url.getProtocol())) {
+                File file = resource.getFile();
+                lastModified = file.lastModified();
+                length = file.length();
+            } else if ("jar".equals(url.getProtocol())) {
+                URLConnection connection = url.openConnection();
+                connection.setUseCaches(false);
+                lastModified = connection.getLastModified();
+                length = connection.getContentLength();
+                connection.getInputStream().close();
+            } else {
+                return null;
+            }
+            if (lastModified <= 0) {
+                return null;
+            }
+            return loader.getClass().getName() + "|" + url.toExternalForm() + "|" + lastModified + "|" + length;
+        } catch (Exception e) {
+            LOG.debug("Data of resource {} can not be cached", resource.getResourceName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the data cached against the given key. The rows are shared with the cache and can not be modified.
+     *
+     * @param cacheKey the cache key, as returned by {@link #getCacheKey(Loader, Resource)}
+     * @return the cached data or null if no data is cached against the key
+     */
+    static Map<String, List<Map<String, Object>>> get(String cacheKey) {
+        CachedData cachedData;
+        synchronized (CACHE) {
+            cachedData = CACHE.get(cacheKey);
+        }
+        if (cachedData == null) {
+            return null;
+        }
+        Map<String, List<Map<String, Object>>> result = new HashMap<String, List<Map<String, Object>>>();
+        for (Map.Entry<String, List<Map<String, Object>>> methodData : cachedData.data.entrySet()) {
+            result.put(methodData.getKey(), new ArrayList<Map<String, Object>>(methodData.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Cache the given data against the given key, evicting the least recently used data if required. The cache keeps
+     * read only views of the rows of the data, so the rows must not be modified afterwards.
+     *
+     * @param cacheKey the cache key, as returned by {@link #getCacheKey(Loader, Resource)}
+     * @param data the data to cache
+     */
+    static void put(String cacheKey, Map<String, List<Map<String, Object>>> data) {
+        long maximumSize = getMaximumSize() * 1024L * 1024L;
+        long size = sizeOf(data);
+        if (size > maximumSize) {
+            LOG.debug("Data for key {} is too large to be cached", cacheKey);
+            return;
+        }
+        CachedData cachedData = new CachedData(readOnlyViewOf(data), size);
+        synchronized (CACHE) {
+            CachedData previous = CACHE.put(cacheKey, cachedData);
+            if (previous != null) {
+                cacheSize -= previous.size;
+            }
+            cacheSize += size;
+            Iterator<CachedData> leastRecentlyUsed = CACHE.values().iterator();
+            while (cacheSize > maximumSize && leastRecentlyUsed.hasNext()) {
+                cacheSize -= leastRecentlyUsed.next().size;
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all the data from the cache
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            cacheSize = 0;
+        }
+    }
+
+    private static int getMaximumSize() {
+        String cacheSizeProperty = System.getProperty(SystemProperties.DATA_CACHE_SIZE.getValue());
+        if (cacheSizeProperty == null) {
+            return DEFAULT_CACHE_SIZE;
+        }
+        try {
+            return Integer.parseInt(cacheSizeProperty.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value {} for System Property {}. Using the default cache size instead.",
+                cacheSizeProperty, SystemProperties.DATA_CACHE_SIZE.getValue());
+            return DEFAULT_CACHE_SIZE;
+        }
+    }
+
+    /**
+     * Get a read only view of the given data, whose lists and rows can not be modified. The rows are not copied.
+     */
+    private static Map<String, List<Map<String, Object>>> readOnlyViewOf(Map<String, List<Map<String, Object>>> data) {
+        Map<String, List<Map<String, Object>>> result = new HashMap<String, List<Map<String, Object>>>();
+        for (Map.Entry<String, List<Map<String, Object>>> methodData : data.entrySet()) {
+            List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>(methodData.getValue().size());
+            for (Map<String, Object> row : methodData.getValue()) {
+                rows.add(Collections.unmodifiableMap(row));
+            }
+            result.put(methodData.getKey(), Collections.unmodifiableList(rows));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static long sizeOf(Map<String, List<Map<String, Object>>> data) {
+        long size = 0;
+        for (Map.Entry<String, List<Map<String, Object>>> methodData : data.entrySet()) {
+            size += ROW_OVERHEAD + 2 * methodData.getKey().length();
+            for (Map<String, Object> row : methodData.getValue()) {
+                size += ROW_OVERHEAD;
+                for (Map.Entry<String, Object> cell : row.entrySet()) {
+                    size += CELL_OVERHEAD + 2 * String.valueOf(cell.getKey()).length();
+                    size += cell.getValue() == null ? 0 : 2 * cell.getValue().toString().length();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The data cached against a single key
+     */
+    private static class CachedData {
+
+        /** The cached data. It is never modified. */
+        private final Map<String, List<Map<String, Object>>> data;
+
+        /** The approximate size in bytes of the cached data */
+        private final long size;
+
+        CachedData(Map<String, List<Map<String, Object>>> data, long size) {
+            this.data = data;
+            this.size = size;
+        }
+    }
+
+}
@@ -0,0 +1,569 @@
+package org.easetech.easytest.loader;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A predicate on the rows of test data, compiled from the expression of a
+ * {@link org.easetech.easytest.annotation.DataFilter}. The expression is parsed once by {@link #compile(String)} in to
+ * a tree of comparisons, that is then evaluated against every row as it is being loaded.<br>
+ * The grammar of an expression is :
+ *
+ * <pre>
+ * expression := term ( ( 'or' | '||' ) term )*
+ * term       := factor ( ( 'and' | '&amp;&amp;' ) factor )*
+ * factor     := ( 'not' | '!' ) factor | '(' expression ')' | column operator literal
+ * operator   := '=' | '==' | '!=' | '&lt;&gt;' | '&lt;' | '&lt;=' | '&gt;' | '&gt;='
+ * literal    := number | 'quoted string' | "quoted string" | null
+ * </pre>
+ *
+ * The keywords are case insensitive. A filter can also select the rows belonging to a shard, see
+ * {@link #shard(String, int, int)}. A {@link RowFilter} is immutable and can be shared between threads.
+ *
+ */
+public final class RowFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** The expression the filter was compiled from */
+    private final String expression;
+
+    /** The root of the compiled expression */
+    private final Node root;
+
+    /** The names of the columns referenced by the expression */
+    private final Set<String> columnNames;
+
+    /** Whether the filter selects the rows of a shard, see {@link #shard(String, int, int)} */
+    private final boolean sharding;
+
+    private RowFilter(String expression, Node root, Set<String> columnNames, boolean sharding) {
+        this.expression = expression;
+        this.root = root;
+        this.columnNames = Collections.unmodifiableSet(columnNames);
+        this.sharding = sharding;
+    }
+
+    /**
+     * Compile the given expression in to a {@link RowFilter}
+     *
+     * @param expression the expression
+     * @return the compiled filter
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static RowFilter compile(String expression) {
+        Parser parser = new Parser(expression);
+        Node root = parser.parseExpression();
+        if (parser.peek() != null) {
+            throw parser.error("Unexpected token " + parser.peek());
+        }
+        return new RowFilter(expression, root, parser.columnNames, false);
+    }
+
+    /**
+     * Get a filter that accepts the rows accepted by both the given filters
+     *
+     * @param first the first filter, may be null
+     * @param second the second filter, may be null
+     * @return the combined filter or null if both the filters are null
+     */
+    public static RowFilter and(RowFilter first, RowFilter second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        Set<String> columnNames = new HashSet<String>(first.columnNames);
+        columnNames.addAll(second.columnNames);
+        return new RowFilter("(" + first.expression + ") and (" + second.expression + ")", new And(first.root,
+            second.root), columnNames, first.sharding || second.sharding);
+    }
+
+    /**
+     * Get a filter that accepts only the rows of the given test method that belong to the given shard. The rows of a
+     * method are split in to shards by a hash of the name of the method and the input columns of the row as it is
+     * loaded from the test data file, so that every process running the same tests over the same test data assigns
+     * every row to the same shard, whatever the order in which the rows are loaded. The rows of a method that is
+     * sharded are never projected on to the columns the method references (see
+     * {@link DataSelection#getColumnNames(String)}), so the assignment does not change when a parameter is added to
+     * the method or the projection of the columns is switched on or off. Dates are hashed by the instant they
+     * represent, so the assignment does not depend on the time zone either. Equal rows of a method belong to the same
+     * shard.
+     *
+     * @param methodName the name of the test method
+     * @param shardIndex the index of the shard, between 1 and shardCount
+     * @param shardCount the number of shards
+     * @return the filter
+     */
+    public static RowFilter shard(String methodName, int shardIndex, int shardCount) {
+        if (shardCount < 1 || shardIndex < 1 || shardIndex > shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shardIndex + "/" + shardCount
+                + ". The index of the shard must be between 1 and the number of shards.");
+        }
+        return new RowFilter("shard " + shardIndex + "/" + shardCount, new Shard(methodName, shardIndex - 1,
+            shardCount), new HashSet<String>(), true);
+    }
+
+    /**
+     * Whether the given row matches the expression of this filter
+     *
+     * @param row the row of test data
+     * @return true if the row matches
+     */
+    public boolean accept(Map<String, Object> row) {
+        return root.accept(row);
+    }
+
+    /**
+     * Whether this filter selects the rows of a shard, on its own or combined with other filters
+     *
+     * @return true if the filter selects the rows of a shard
+     */
+    boolean isSharding() {
+        return sharding;
+    }
+
+    /**
+     * Whether the row with the given hash matches the expression of this filter, as far as it can be decided from the
+     * hash alone. This is the case of a filter selecting a shard, so that the rows of the other shards can be skipped
+     * without being read.
+     *
+     * @param rowHash the hash of the row, as given by {@link #hashRow(String, Map)}
+     * @return whether the row matches, or null if it can not be decided from the hash alone
+     */
+    Boolean acceptRowHash(long rowHash) {
+        return root.acceptRowHash(rowHash);
+    }
+
+    /**
+     * Get the stable hash of the given row of the given test method, that decides the shard the row belongs to. The
+     * output columns are not hashed, so that writing the output data of a shard back to the file does not move its
+     * rows to another shard.
+     *
+     * @param methodName the name of the test method
+     * @param row the row of test data
+     * @return the hash of the row
+     */
+    static long hashRow(String methodName, Map<String, Object> row) {
+        return hashRow(hash(FNV_OFFSET_BASIS, methodName), row);
+    }
+
+    private static long hashRow(long methodHash, Map<String, Object> row) {
+        // the columns are hashed in the order of their names, as the rows of the different loaders do not iterate over
+        // their columns in the same order
+        String[] columnNames = row.keySet().toArray(new String[row.size()]);
+        Arrays.sort(columnNames);
+        long hash = methodHash;
+        for (String columnName : columnNames) {
+            if (RowMatcher.OUTPUT_COLUMNS.contains(columnName)) {
+                continue;
+            }
+            hash = hash(hash(hash, columnName), hashedValue(row.get(columnName)));
+        }
+        // mix the bits of the hash, so that the shard does not depend only on its lowest bits
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Get the string the given value of a column is hashed as. A date is hashed as the instant it represents, as its
+     * string depends on the default time zone.
+     */
+    private static String hashedValue(Object value) {
+        if (value == null) {
+            return "\0";
+        }
+        if (value instanceof Date) {
+            return String.valueOf(((Date) value).getTime());
+        }
+        return value.toString();
+    }
+
+    /**
+     * Hash the characters of the given string, followed by a separator, in to the given FNV-1a hash
+     */
+    private static long hash(long hash, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ 0xFFFF) * FNV_PRIME;
+    }
+
+    /**
+     * Get the names of the columns referenced by the expression
+     *
+     * @return the names of the columns
+     */
+    public Set<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return the overridden toString
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * A node of a compiled expression
+     */
+    private interface Node {
+
+        boolean accept(Map<String, Object> row);
+
+        /**
+         * Whether the row with the given hash matches this node, as far as it can be decided from the hash alone
+         *
+         * @param rowHash the hash of the row, as given by {@link RowFilter#hashRow(String, Map)}
+         * @return whether the row matches, or null if it can not be decided from the hash alone
+         */
+        Boolean acceptRowHash(long rowHash);
+    }
+
+    private static final class And implements Node {
+
+        private final Node left;
+
+        private final Node right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public boolean accept(Map<String, Object> row) {
+            return left.accept(row) && right.accept(row);
+        }
+
+        public Boolean acceptRowHash(long rowHash) {
+            Boolean first = left.acceptRowHash(rowHash);
+            if (Boolean.FALSE.equals(first)) {
+                return first;
+            }
+            Boolean second = right.acceptRowHash(rowHash);
+            if (Boolean.FALSE.equals(second)) {
+                return second;
+            }
+            return first != null && second != null ? Boolean.TRUE : null;
+        }
+    }
+
+    private static final class Or implements Node {
+
+        private final Node left;
+
+        private final Node right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public boolean accept(Map<String, Object> row) {
+            return left.accept(row) || right.accept(row);
+        }
+
+        public Boolean acceptRowHash(long rowHash) {
+            Boolean first = left.acceptRowHash(rowHash);
+            if (Boolean.TRUE.equals(first)) {
+                return first;
+            }
+            Boolean second = right.acceptRowHash(rowHash);
+            if (Boolean.TRUE.equals(second)) {
+                return second;
+            }
+            return first != null && second != null ? Boolean.FALSE : null;
+        }
+    }
+
+    private static final class Not implements Node {
+
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        public boolean accept(Map<String, Object> row) {
+            return !operand.accept(row);
+        }
+
+        public Boolean acceptRowHash(long rowHash) {
+            Boolean operandResult = operand.acceptRowHash(rowHash);
+            return operandResult == null ? null : Boolean.valueOf(!operandResult);
+        }
+    }
+
+    /**
+     * The membership of a row in a shard
+     */
+    private static final class Shard implements Node {
+
+        /** The index of the shard, starting at 0 */
+        private final int shardIndex;
+
+        private final int shardCount;
+
+        /** The hash of the name of the method, that the hash of every row starts from */
+        private final long methodHash;
+
+        Shard(String methodName, int shardIndex, int shardCount) {
+            this.shardIndex = shardIndex;
+            this.shardCount = shardCount;
+            this.methodHash = hash(FNV_OFFSET_BASIS, methodName);
+        }
+
+        public boolean accept(Map<String, Object> row) {
+            return shardCount == 1 || acceptRowHash(hashRow(methodHash, row));
+        }
+
+        public Boolean acceptRowHash(long rowHash) {
+            return (rowHash >>> 1) % shardCount == shardIndex;
+        }
+    }
+
+    /**
+     * The comparison of the value of a column with a literal
+     */
+    private static final class Comparison implements Node {
+
+        private final String columnName;
+
+        private final String operator;
+
+        /** The literal, either a {@link BigDecimal}, a {@link String} or null */
+        private final Object literal;
+
+        Comparison(String columnName, String operator, Object literal) {
+            this.columnName = columnName;
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        public boolean accept(Map<String, Object> row) {
+            Object value = row.get(columnName);
+            if (literal == null || value == null) {
+                boolean equal = literal == value;
+                return "=".equals(operator) ? equal : "!=".equals(operator) ? !equal : false;
+            }
+            int comparison;
+            if (literal instanceof BigDecimal) {
+                BigDecimal number = toNumber(value);
+                if (number == null) {
+                    return "!=".equals(operator);
+                }
+                comparison = number.compareTo((BigDecimal) literal);
+            } else {
+                comparison = value.toString().compareTo((String) literal);
+            }
+            if ("=".equals(operator)) {
+                return comparison == 0;
+            } else if ("!=".equals(operator)) {
+                return comparison != 0;
+            } else if ("<".equals(operator)) {
+                return comparison < 0;
+            } else if ("<=".equals(operator)) {
+                return comparison <= 0;
+            } else if (">".equals(operator)) {
+                return comparison > 0;
+            } else {
+                return comparison >= 0;
+            }
+        }
+
+        public Boolean acceptRowHash(long rowHash) {
+            // the value of the column is needed
+            return null;
+        }
+
+        private static BigDecimal toNumber(Object value) {
+            try {
+                return new BigDecimal(value.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A recursive descent parser of the expressions
+     */
+    private static final class Parser {
+
+        private final String expression;
+
+        private final List<String> tokens = new ArrayList<String>();
+
+        private final List<Integer> positions = new ArrayList<Integer>();
+
+        private int current;
+
+        private final Set<String> columnNames = new HashSet<String>();
+
+        Parser(String expression) {
+            if (expression == null) {
+                throw new IllegalArgumentException("The data filter expression is null");
+            }
+            this.expression = expression;
+            tokenize();
+        }
+
+        Node parseExpression() {
+            Node node = parseTerm();
+            while (isKeyword(peek(), "or", "||")) {
+                current++;
+                node = new Or(node, parseTerm());
+            }
+            return node;
+        }
+
+        private Node parseTerm() {
+            Node node = parseFactor();
+            while (isKeyword(peek(), "and", "&&")) {
+                current++;
+                node = new And(node, parseFactor());
+            }
+            return node;
+        }
+
+        private Node parseFactor() {
+            String token = next("a comparison");
+            if (isKeyword(token, "not", "!")) {
+                return new Not(parseFactor());
+            }
+            if ("(".equals(token)) {
+                Node node = parseExpression();
+                if (!")".equals(next("')'"))) {
+                    current--;
+                    throw error("Expected ')' but found " + peek());
+                }
+                return node;
+            }
+            if (!isIdentifier(token)) {
+                current--;
+                throw error("Expected the name of a column but found " + token);
+            }
+            String operator = next("an operator");
+            if ("==".equals(operator)) {
+                operator = "=";
+            } else if ("<>".equals(operator)) {
+                operator = "!=";
+            } else if (!"=".equals(operator) && !"!=".equals(operator) && !"<".equals(operator)
+                && !"<=".equals(operator) && !">".equals(operator) && !">=".equals(operator)) {
+                current--;
+                throw error("Expected an operator but found " + operator);
+            }
+            columnNames.add(token);
+            return new Comparison(token, operator, parseLiteral(next("a literal")));
+        }
+
+        private Object parseLiteral(String token) {
+            char first = token.charAt(0);
+            if (first == '\'' || first == '"') {
+                return token.substring(1, token.length() - 1).replace(String.valueOf(first) + first,
+                    String.valueOf(first));
+            }
+            if ("null".equalsIgnoreCase(token)) {
+                return null;
+            }
+            try {
+                return new BigDecimal(token);
+            } catch (NumberFormatException e) {
+                current--;
+                throw error("Expected a literal but found " + token);
+            }
+        }
+
+        String peek() {
+            return current < tokens.size() ? tokens.get(current) : null;
+        }
+
+        private String next(String expected) {
+            if (current >= tokens.size()) {
+                throw error("Expected " + expected + " but reached the end of the expression");
+            }
+            return tokens.get(current++);
+        }
+
+        IllegalArgumentException error(String message) {
+            int position = current < positions.size() ? positions.get(current) : expression.length();
+            return new IllegalArgumentException(message + " at position " + position + " of the data filter "
+                + expression);
+        }
+
+        private static boolean isKeyword(String token, String keyword, String symbol) {
+            return token != null && (keyword.equalsIgnoreCase(token) || symbol.equals(token));
+        }
+
+        private static boolean isIdentifier(String token) {
+            return Character.isJavaIdentifierStart(token.charAt(0)) && !isKeyword(token, "and", "&&")
+                && !isKeyword(token, "or", "||") && !isKeyword(token, "not", "!") && !"null".equalsIgnoreCase(token);
+        }
+
+        private void tokenize() {
+            int index = 0;
+            while (index < expression.length()) {
+                char character = expression.charAt(index);
+                int start = index;
+                if (Character.isWhitespace(character)) {
+                    index++;
+                    continue;
+                } else if (character == '\'' || character == '"') {
+                    index++;
+                    while (true) {
+                        if (index >= expression.length()) {
+                            throw new IllegalArgumentException("Unterminated string starting at position " + start
+                                + " of the data filter " + expression);
+                        }
+                        if (expression.charAt(index) == character) {
+                            // a doubled quote stands for the quote itself
+                            if (index + 1 < expression.length() && expression.charAt(index + 1) == character) {
+                                index += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        index++;
+                    }
+                    index++;
+                } else if (Character.isJavaIdentifierStart(character)) {
+                    while (index < expression.length()
+                        && (Character.isJavaIdentifierPart(expression.charAt(index)) || expression.charAt(index) == '.')) {
+                        index++;
+                    }
+                } else if (Character.isDigit(character) || character == '-' || character == '+' || character == '.') {
+                    index++;
+                    while (index < expression.length()
+                        && (Character.isLetterOrDigit(expression.charAt(index)) || expression.charAt(index) == '.')) {
+                        index++;
+                    }
+                } else if (expression.startsWith("&&", index) || expression.startsWith("||", index)
+                    || expression.startsWith("==", index) || expression.startsWith("!=", index)
+                    || expression.startsWith("<>", index) || expression.startsWith("<=", index)
+                    || expression.startsWith(">=", index)) {
+                    index += 2;
+                } else if ("()=<>!".indexOf(character) >= 0) {
+                    index++;
+                } else {
+                    throw new IllegalArgumentException("Unexpected character '" + character + "' at position "
+                        + start + " of the data filter " + expression);
+                }
+                tokens.add(expression.substring(start, index));
+                positions.add(start);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package org.easetech.easytest.loader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches the rows of a test data file with the rows of data of a test method that hold output data, when the output
+ * data is written back to the file. A row is identified by its input data, that is all its columns except the output
+ * columns, and not by its position. The rows that were filtered out, run by another shard or that did not run at all
+ * thus do not shift the output data of the other rows. Rows of a test method with the same input data are matched in
+ * the order in which they appear.<br>
+ * The rows of the file are expected to hold the values the way the {@link Loader} loads them. As the columns of the
+ * loaded rows may have been projected, only the columns of the loaded rows are compared.
+ *
+ */
+final class RowMatcher {
+
+    /** The columns holding the output data, in the order in which they are added to the files */
+    static final List<String> OUTPUT_COLUMNS = Arrays.asList(Loader.ACTUAL_RESULT, Loader.TEST_STATUS,
+        Loader.DURATION);
+
+    /** The rows holding output data, keyed by the names of their input columns and then by their input data */
+    private final Map<Set<String>, Map<Map<String, String>, LinkedList<Map<String, Object>>>> rows = new LinkedHashMap<Set<String>, Map<Map<String, String>, LinkedList<Map<String, Object>>>>();
+
+    /**
+     * Construct a new RowMatcher
+     *
+     * @param methodData the rows of data of a test method, or null if there are none
+     */
+    RowMatcher(List<Map<String, Object>> methodData) {
+        if (methodData == null) {
+            return;
+        }
+        for (Map<String, Object> row : methodData) {
+            if (!hasOutput(row)) {
+                continue;
+            }
+            Map<String, Object> identity = getIdentity(row);
+            Map<Map<String, String>, LinkedList<Map<String, Object>>> rowsByInput = rows.get(identity.keySet());
+            if (rowsByInput == null) {
+                rowsByInput = new HashMap<Map<String, String>, LinkedList<Map<String, Object>>>();
+                rows.put(new HashSet<String>(identity.keySet()), rowsByInput);
+            }
+            Map<String, String> key = toKey(identity);
+            LinkedList<Map<String, Object>> sameRows = rowsByInput.get(key);
+            if (sameRows == null) {
+                sameRows = new LinkedList<Map<String, Object>>();
+                rowsByInput.put(key, sameRows);
+            }
+            sameRows.add(row);
+        }
+    }
+
+    /**
+     * Whether the given row holds any output data
+     *
+     * @param row the row
+     * @return true if the row has a value for any of the output columns
+     */
+    static boolean hasOutput(Map<String, Object> row) {
+        for (String outputColumn : OUTPUT_COLUMNS) {
+            if (row.get(outputColumn) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the input data of the given row, keyed by the column names in their natural order
+     *
+     * @param row the row
+     * @return the values of all the named columns of the row but the output columns
+     */
+    static Map<String, Object> getIdentity(Map<String, Object> row) {
+        List<String> columnNames = new ArrayList<String>();
+        for (String columnName : row.keySet()) {
+            if (columnName != null && !OUTPUT_COLUMNS.contains(columnName)) {
+                columnNames.add(columnName);
+            }
+        }
+        String[] sortedNames = columnNames.toArray(new String[columnNames.size()]);
+        Arrays.sort(sortedNames);
+        Map<String, Object> identity = new LinkedHashMap<String, Object>();
+        for (String columnName : sortedNames) {
+            identity.put(columnName, row.get(columnName));
+        }
+        return identity;
+    }
+
+    /**
+     * Whether there is no row left to match
+     *
+     * @return true if all the rows holding output data have been matched
+     */
+    boolean isEmpty() {
+        for (Map<Map<String, String>, LinkedList<Map<String, Object>>> rowsByInput : rows.values()) {
+            if (!rowsByInput.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the row holding the output data of the given row of the file. A row is only matched once.
+     *
+     * @param fileRow the values of the row of the file, keyed by their column names
+     * @return the matching row or null if the row of the file has no output data to write
+     */
+    Map<String, Object> match(Map<String, Object> fileRow) {
+        for (Map.Entry<Set<String>, Map<Map<String, String>, LinkedList<Map<String, Object>>>> rowsByInput : rows
+            .entrySet()) {
+            if (!fileRow.keySet().containsAll(rowsByInput.getKey())) {
+                continue;
+            }
+            Map<String, Object> identity = new HashMap<String, Object>();
+            for (String columnName : rowsByInput.getKey()) {
+                identity.put(columnName, fileRow.get(columnName));
+            }
+            Map<String, String> key = toKey(identity);
+            LinkedList<Map<String, Object>> sameRows = rowsByInput.getValue().get(key);
+            if (sameRows != null) {
+                Map<String, Object> row = sameRows.removeFirst();
+                if (sameRows.isEmpty()) {
+                    rowsByInput.getValue().remove(key);
+                }
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The values are compared through their string representation, as the file and the loaded rows may hold equal
+     * values of different types
+     */
+    private static Map<String, String> toKey(Map<String, Object> identity) {
+        Map<String, String> key = new HashMap<String, String>();
+        for (Map.Entry<String, Object> cell : identity.entrySet()) {
+            key.put(cell.getKey(), cell.getValue() == null ? null : cell.getValue().toString());
+        }
+        return key;
+    }
+
+}
@@ -0,0 +1,622 @@
+package org.easetech.easytest.loader;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of {@link Loader} for the compact binary snapshots of test data. A snapshot holds the already
+ * parsed output of any other {@link Loader}, so loading it costs neither text parsing nor type conversion. A local
+ * snapshot file is memory mapped and its method blocks are decoded one at a time, as their rows are read.<br>
+ * A snapshot can be used in two ways :
+ * <ul>
+ * <li>directly, by specifying a file with the extension <B>.snapshot</B> in the filePaths attribute of the
+ * {@link org.easetech.easytest.annotation.DataLoader} annotation. Such a snapshot is read only.</li>
+ * <li>as a sidecar of a test data file of any format. When a file named <B>&lt;data file&gt;.snapshot</B> exists next
+ * to a test data file and is newer than it, {@link DataLoaderUtil} wraps the loader of the data file in a
+ * {@link SnapshotDataLoader} that reads the sidecar instead of the data file. The data is still written back to the
+ * original data file, which in turn makes the sidecar stale until it is created again.</li>
+ * </ul>
+ * A sidecar is created by {@link #writeSnapshot(Map, File)}, or automatically for every local data file that is parsed
+ * when the System Property <B>easytest.createSnapshots</B> is set to true.<br>
+ * The format of a snapshot is, using big endian encoding :
+ * <ul>
+ * <li>a header consisting of the magic number and the version of the format</li>
+ * <li>the string table, holding every method name, column name and string value exactly once</li>
+ * <li>the method directory, holding the name, the number of rows and the offset of the block of every method</li>
+ * <li>the method blocks. Each block holds the names of its columns followed by the typed values of each column, one
+ * column after the other.</li>
+ * </ul>
+ * The values of type {@link String}, {@link Double}, {@link Float}, {@link Long}, {@link Integer}, {@link Boolean},
+ * {@link BigDecimal} and {@link Date} are supported. The rows of a method block are read in to a {@link TestDataTable}.
+ *
+ */
+public class SnapshotDataLoader implements StreamingLoader {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(SnapshotDataLoader.class);
+
+    /** The extension of the snapshot files */
+    public static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    /** The magic number identifying a snapshot file, "EZTS" */
+    private static final int MAGIC = 0x455A5453;
+
+    private static final int VERSION = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The kinds of row maps */
+    private static final byte HASH_ROW = 0;
+
+    private static final byte LINKED_HASH_ROW = 1;
+
+    /** The tags of the cell values */
+    private static final byte ABSENT = 0;
+
+    private static final byte NULL = 1;
+
+    private static final byte STRING = 2;
+
+    private static final byte DOUBLE = 3;
+
+    private static final byte FLOAT = 4;
+
+    private static final byte LONG = 5;
+
+    private static final byte INTEGER = 6;
+
+    private static final byte FALSE = 7;
+
+    private static final byte TRUE = 8;
+
+    private static final byte DATE = 9;
+
+    private static final byte BIG_DECIMAL = 10;
+
+    /** The loader of the source data files, or null if the snapshots are read directly */
+    private final Loader sourceLoader;
+
+    /**
+     * Construct a new SnapshotDataLoader reading the snapshot files directly
+     */
+    public SnapshotDataLoader() {
+        this(null);
+    }
+
+    /**
+     * Construct a new SnapshotDataLoader that reads the fresh snapshot sidecar of a data file, if any, and falls back to
+     * the given loader otherwise.
+     *
+     * @param sourceLoader the loader of the data files
+     */
+    public SnapshotDataLoader(Loader sourceLoader) {
+        this.sourceLoader = sourceLoader;
+    }
+
+    /**
+     * Get the loader of the data files
+     *
+     * @return the loader of the data files, or null if the snapshots are read directly
+     */
+    public Loader getSourceLoader() {
+        return sourceLoader;
+    }
+
+    /**
+     * Load the data from the snapshot represented by the given resource, or from its fresh snapshot sidecar.
+     *
+     * @param resource the resource to load the data from
+     * @return Map of method name and the list of rows of data
+     */
+    public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
+        LOG.debug("Trying to load the data for resource :" + resource.getResourceName());
+        Map<String, List<Map<String, Object>>> result = null;
+        try {
+            result = DataLoaderUtil.readAll(openCursor(resource));
+        } catch (IOException e) {
+            LOG.error("IOException occured while trying to Load the resource {} . Moving to the next resource.",
+                resource.getResourceName(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Open a {@link DataCursor} over the method blocks of the snapshot represented by the given resource. When this
+     * loader wraps the loader of a data file, the fresh snapshot sidecar of the data file is read instead, and in
+     * case there is none, the data file itself is read using the wrapped loader.
+     *
+     * @param resource the resource to read the data from
+     * @return an instance of {@link DataCursor}
+     * @throws IOException if an I/O exception occurs while reading the resource
+     */
+    public DataCursor openCursor(Resource resource) throws IOException {
+        if (sourceLoader == null) {
+            File file = DataLoaderUtil.getLocalFile(resource);
+            if (file != null) {
+                return mapSnapshot(file);
+            }
+            return new SnapshotCursor(ByteBuffer.wrap(readFully(resource.getInputStream())), null);
+        }
+        File snapshot = getFreshSnapshot(resource);
+        if (snapshot != null) {
+            LOG.debug("Data of resource {} is read from the snapshot {}", resource.getResourceName(), snapshot);
+            return mapSnapshot(snapshot);
+        }
+        if (sourceLoader instanceof StreamingLoader) {
+            return ((StreamingLoader) sourceLoader).openCursor(resource);
+        }
+        return new MapCursor(sourceLoader.loadData(resource));
+    }
+
+    /**
+     * Write the data back to the data file using the wrapped loader. Snapshots read directly are never written to.
+     *
+     * @param resource the resource to write the data to
+     * @param actualData the data to write
+     * @param methodNames the names of the methods whose data should be written
+     */
+    public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
+        if (sourceLoader == null) {
+            LOG.info("Snapshot {} is read only. The output data is not written to it.", resource.getResourceName());
+        } else {
+            sourceLoader.writeData(resource, actualData, methodNames);
+        }
+    }
+
+    /**
+     * Get the snapshot sidecar of the given resource, if it exists and is newer than the resource.
+     *
+     * @param resource the resource
+     * @return the sidecar file, or null if the resource has no fresh sidecar
+     */
+    static File getFreshSnapshot(Resource resource) {
+        File file = DataLoaderUtil.getLocalFile(resource);
+        if (file == null || file.getName().endsWith(SNAPSHOT_EXTENSION)) {
+            return null;
+        }
+        File snapshot = new File(file.getPath() + SNAPSHOT_EXTENSION);
+        return snapshot.isFile() && snapshot.lastModified() > file.lastModified() ? snapshot : null;
+    }
+
+    /**
+     * Create the snapshot sidecar of the given resource from the data just parsed from it, if the System Property
+     * <B>easytest.createSnapshots</B> is set to true and the resource is a local file without a fresh sidecar. Any
+     * failure is logged and otherwise ignored, as the snapshot is only an optimization.
+     *
+     * @param resource the resource the data was parsed from
+     * @param data the data parsed from the resource
+     */
+    static void createSnapshot(Resource resource, Map<String, List<Map<String, Object>>> data) {
+        if (data == null || !Boolean.getBoolean(SystemProperties.CREATE_SNAPSHOTS.getValue())) {
+            return;
+        }
+        File file = DataLoaderUtil.getLocalFile(resource);
+        if (file == null || file.getName().endsWith(SNAPSHOT_EXTENSION) || getFreshSnapshot(resource) != null) {
+            return;
+        }
+        File snapshot = new File(file.getPath() + SNAPSHOT_EXTENSION);
+        try {
+            writeSnapshot(data, snapshot);
+            LOG.debug("Snapshot {} created for resource {}", snapshot, resource.getResourceName());
+        } catch (Exception e) {
+            LOG.warn("Unable to create the snapshot {} . The data will be parsed again the next time.", snapshot, e);
+        }
+    }
+
+    /**
+     * Write the given data, as returned by any {@link Loader}, to the given snapshot file. The snapshot is first
+     * written to a temporary file that then replaces the given file.
+     *
+     * @param data the data to write
+     * @param snapshot the snapshot file to write to
+     * @throws IOException if an I/O exception occurs while writing the file
+     * @throws IllegalArgumentException if the data contains a value of an unsupported type
+     */
+    public static void writeSnapshot(Map<String, List<Map<String, Object>>> data, File snapshot) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        DataOutputStream blocksOut = new DataOutputStream(blocks);
+        int[] methodNames = new int[data.size()];
+        int[] rowCounts = new int[data.size()];
+        int[] offsets = new int[data.size()];
+        int method = 0;
+        for (Map.Entry<String, List<Map<String, Object>>> methodData : data.entrySet()) {
+            List<Map<String, Object>> rows = methodData.getValue() == null ? new ArrayList<Map<String, Object>>()
+                : methodData.getValue();
+            methodNames[method] = stringIndex(strings, methodData.getKey());
+            rowCounts[method] = rows.size();
+            offsets[method] = blocksOut.size();
+            writeBlock(blocksOut, strings, rows);
+            method++;
+        }
+        blocksOut.flush();
+
+        ByteArrayOutputStream stringTable = new ByteArrayOutputStream();
+        DataOutputStream stringTableOut = new DataOutputStream(stringTable);
+        stringTableOut.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(UTF8);
+            stringTableOut.writeInt(bytes.length);
+            stringTableOut.write(bytes);
+        }
+        stringTableOut.flush();
+
+        long blocksStart = 8L + stringTable.size() + 4 + 12L * methodNames.length;
+        if (blocksStart + blocks.size() > Integer.MAX_VALUE) {
+            throw new IOException("The data is too large to be written to a snapshot");
+        }
+        File temporary = new File(snapshot.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            stringTable.writeTo(out);
+            out.writeInt(methodNames.length);
+            for (int i = 0; i < methodNames.length; i++) {
+                out.writeInt(methodNames[i]);
+                out.writeInt(rowCounts[i]);
+                out.writeInt((int) blocksStart + offsets[i]);
+            }
+            blocks.writeTo(out);
+        } finally {
+            out.close();
+        }
+        if ((snapshot.exists() && !snapshot.delete()) || !temporary.renameTo(snapshot)) {
+            temporary.delete();
+            throw new IOException("Unable to replace the snapshot " + snapshot);
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, Map<String, Integer> strings, List<Map<String, Object>> rows)
+        throws IOException {
+        // the columns of the block are the union of the keys of its rows, in the order they are first seen
+        Map<String, Integer> columns = new LinkedHashMap<String, Integer>();
+        for (Map<String, Object> row : rows) {
+            for (String key : row.keySet()) {
+                if (!columns.containsKey(key)) {
+                    columns.put(key, stringIndex(strings, key));
+                }
+            }
+        }
+        boolean linked = false;
+        if (!rows.isEmpty()) {
+            TestDataTable table = TestDataTable.tableOf(rows.get(0));
+            linked = table != null ? !table.isHashOrdered() : rows.get(0) instanceof LinkedHashMap;
+        }
+        out.writeByte(linked ? LINKED_HASH_ROW : HASH_ROW);
+        out.writeInt(columns.size());
+        for (Integer column : columns.values()) {
+            out.writeInt(column);
+        }
+        for (String column : columns.keySet()) {
+            for (Map<String, Object> row : rows) {
+                if (!row.containsKey(column)) {
+                    out.writeByte(ABSENT);
+                } else {
+                    writeValue(out, strings, row.get(column));
+                }
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Map<String, Integer> strings, Object value)
+        throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeInt(stringIndex(strings, (String) value));
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeInt(stringIndex(strings, value.toString()));
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            throw new IllegalArgumentException("Values of type " + value.getClass().getName()
+                + " can not be written to a snapshot");
+        }
+    }
+
+    private static int stringIndex(Map<String, Integer> strings, String string) {
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    private static DataCursor mapSnapshot(File file) throws IOException {
+        RandomAccessFile snapshot = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = snapshot.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The snapshot " + file + " is too large to be read");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SnapshotCursor(buffer, buffer);
+        } finally {
+            // the mapping stays valid once the file is closed
+            snapshot.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * A {@link DataCursor} over the method blocks of a snapshot. The string table and the method directory are read
+     * when the cursor is opened, while the rows of a method block are only decoded once the first of them is read.
+     */
+    private static class SnapshotCursor implements DataCursor {
+
+        /** The content of the snapshot */
+        private final ByteBuffer buffer;
+
+        /** The mapped buffer to release on close, if any */
+        private MappedByteBuffer mappedBuffer;
+
+        /** The string table of the snapshot */
+        private final String[] strings;
+
+        /** The method directory of the snapshot */
+        private final int[] methodNames;
+
+        private final int[] rowCounts;
+
+        private final int[] offsets;
+
+        /** The index of the current method block */
+        private int method = -1;
+
+        /** The rows of the current method block */
+        private List<Map<String, Object>> rows;
+
+        /** The index of the current row */
+        private int row;
+
+        /** The names of the columns to retain in the rows of the current method block, or null to retain all */
+        private Set<String> retainedColumns;
+        SnapshotCursor(ByteBuffer buffer, MappedByteBuffer mappedBuffer) throws IOException {
+            this.buffer = buffer;
+            this.mappedBuffer = mappedBuffer;
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                close();
+                throw new IOException("The resource is not an EasyTest snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                close();
+                throw new IOException("Version " + version + " of the snapshot format is not supported");
+            }
+            strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, UTF8);
+            }
+            int methodCount = buffer.getInt();
+            methodNames = new int[methodCount];
+            rowCounts = new int[methodCount];
+            offsets = new int[methodCount];
+            for (int i = 0; i < methodCount; i++) {
+                methodNames[i] = buffer.getInt();
+                rowCounts[i] = buffer.getInt();
+                offsets[i] = buffer.getInt();
+            }
+        }
+
+        public boolean nextMethod() throws IOException {
+            rows = null;
+            retainedColumns = null;
+            if (method + 1 >= methodNames.length) {
+                method = methodNames.length;
+                return false;
+            }
+            method++;
+            row = -1;
+            return true;
+        }
+
+        public String getMethodName() {
+            return strings[methodNames[method]];
+        }
+
+        public void retainColumns(Set<String> columnNames) {
+            retainedColumns = columnNames;
+        }
+
+        public boolean nextRow() throws IOException {
+            if (method < 0 || method >= methodNames.length) {
+                return false;
+            }
+            if (rows == null) {
+                // the block is only decoded once its first row is asked for
+                rows = readBlock(offsets[method], rowCounts[method]);
+            }
+            if (row + 1 >= rows.size()) {
+                return false;
+            }
+            row++;
+            return true;
+        }
+
+        public Map<String, Object> getRow() {
+            return rows.get(row);
+        }
+
+        public void close() {
+            MappedCsvReader.unmap(mappedBuffer);
+            mappedBuffer = null;
+        }
+
+        private List<Map<String, Object>> readBlock(int offset, int rowCount) throws IOException {
+            try {
+                buffer.position(offset);
+                boolean linked = buffer.get() == LINKED_HASH_ROW;
+                int[] columns = new int[buffer.getInt()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = buffer.getInt();
+                }
+                TestDataTable table = new TestDataTable(!linked);
+                for (int i = 0; i < rowCount; i++) {
+                    table.addRow();
+                }
+                for (int column : columns) {
+                    boolean retained = retainedColumns == null || retainedColumns.contains(strings[column]);
+                    int tableColumn = retained ? table.addColumn(strings[column]) : -1;
+                    for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                        byte tag = buffer.get();
+                        if (tag != ABSENT) {
+                            // the cells of the columns that are not retained are read only to be skipped
+                            Object value = readValue(tag);
+                            if (retained) {
+                                table.setValue(tableColumn, rowIndex, value);
+                            }
+                        }
+                    }
+                }
+                return table.getRows();
+            } catch (RuntimeException e) {
+                IOException exception = new IOException("The snapshot is corrupt");
+                exception.initCause(e);
+                throw exception;
+            }
+        }
+
+        private Object readValue(byte tag) throws IOException {
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return strings[buffer.getInt()];
+                case DOUBLE:
+                    return buffer.getDouble();
+                case FLOAT:
+                    return buffer.getFloat();
+                case LONG:
+                    return buffer.getLong();
+                case INTEGER:
+                    return buffer.getInt();
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case DATE:
+                    return new Date(buffer.getLong());
+                case BIG_DECIMAL:
+                    return new BigDecimal(strings[buffer.getInt()]);
+                default:
+                    throw new IOException("Unknown value tag " + tag + " in the snapshot");
+            }
+        }
+    }
+
+    /**
+     * A {@link DataCursor} over the data already loaded by a {@link Loader} that does not support streaming.
+     */
+    private static class MapCursor implements DataCursor {
+
+        private final Iterator<Map.Entry<String, List<Map<String, Object>>>> methods;
+
+        private Map.Entry<String, List<Map<String, Object>>> method;
+
+        private Iterator<Map<String, Object>> rows;
+
+        private Map<String, Object> row;
+
+        MapCursor(Map<String, List<Map<String, Object>>> data) {
+            Map<String, List<Map<String, Object>>> methodData = data == null ? new HashMap<String, List<Map<String, Object>>>()
+                : data;
+            this.methods = methodData.entrySet().iterator();
+        }
+
+        public boolean nextMethod() {
+            if (!methods.hasNext()) {
+                rows = null;
+                return false;
+            }
+            method = methods.next();
+            List<Map<String, Object>> methodRows = method.getValue() == null ? new ArrayList<Map<String, Object>>()
+                : method.getValue();
+            rows = methodRows.iterator();
+            return true;
+        }
+
+        public String getMethodName() {
+            return method.getKey();
+        }
+
+        public void retainColumns(Set<String> columnNames) {
+            // the rows are already loaded
+        }
+
+        public boolean nextRow() {
+            if (rows == null || !rows.hasNext()) {
+                return false;
+            }
+            row = rows.next();
+            return true;
+        }
+
+        public Map<String, Object> getRow() {
+            return row;
+        }
+
+        public void close() {
+            // nothing to release
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.easetech.easytest.loader;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.SortedMap;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Reads the rows of all the sheets of a spreadsheet one at a time, without building the complete workbook in memory.
+ * The sheets are read in the order in which they appear in the workbook and the rows of each sheet in ascending order.
+ * The cell values are converted the same way for all the supported spreadsheet formats :
+ * <ul>
+ * <li>A string cell is returned as a {@link String}</li>
+ * <li>A boolean cell is returned as a {@link Boolean}</li>
+ * <li>A date formatted numeric cell is returned as a {@link Date}</li>
+ * <li>Any other numeric cell is returned as a {@link Double}, or as a {@link String} without the suffix ".0" if the
+ * value is a whole number</li>
+ * <li>A formula cell is returned as the cached result of the formula</li>
+ * <li>A blank or an error cell is returned as null</li>
+ * </ul>
+ *
+ */
+abstract class SpreadsheetRowReader {
+
+    /**
+     * Read the next row of the spreadsheet
+     *
+     * @return the values of the cells of the next row mapped by their column index, or null if there are no more rows
+     * @throws IOException if an I/O exception occurs while reading the spreadsheet
+     */
+    abstract SortedMap<Integer, Object> nextRow() throws IOException;
+
+    /**
+     * Release any resource held by the reader
+     *
+     * @throws IOException if an I/O exception occurs while closing the spreadsheet
+     */
+    abstract void close() throws IOException;
+
+    /**
+     * Get the value of a numeric cell
+     *
+     * @param value the numeric value of the cell
+     * @param formatIndex the index of the number format of the cell
+     * @param formatString the number format of the cell
+     * @param date1904 whether the workbook uses the 1904 date windowing
+     * @return the object representation of the numeric cell value
+     */
+    static Object numericCellValue(double value, int formatIndex, String formatString, boolean date1904) {
+        if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+            return new Date(DateUtil.getJavaDate(value, date1904).getTime());
+        }
+        Object cellValue = value;
+        // below is the work around to remove suffix .0 from numeric fields
+        if (cellValue.toString().endsWith(".0")) {
+            cellValue = cellValue.toString().replace(".0", "");
+        }
+        return cellValue;
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.easetech.easytest.loader;
+
+import java.io.IOException;
+import org.easetech.easytest.io.Resource;
+
+/**
+ * A streaming counterpart of the {@link Loader} interface. Instead of returning the fully built test data, a
+ * {@link StreamingLoader} returns a {@link DataCursor} that reads the rows of the resource one at a time. This allows
+ * the EasyTest framework to consume the rows as they are being parsed, without first building an intermediate copy of
+ * the complete data file in memory.<br>
+ * All the Loaders provided by the framework ({@link CSVDataLoader}, {@link ExcelDataLoader} and {@link XMLDataLoader})
+ * implement this interface. A custom loader can implement it as well, in which case {@link DataLoaderUtil} will
+ * automatically prefer the cursor over {@link Loader#loadData(Resource)}.<br>
+ * The data read by a {@link StreamingLoader} is expected to depend only on the content of the resource, so that it can
+ * be shared between test classes through the {@link ParsedDataCache}. When a test class declares more than one data
+ * file, the framework may open the cursors of the files concurrently, from different threads.
+ *
+ */
+public interface StreamingLoader extends Loader {
+
+    /**
+     * Open a cursor over the rows of test data contained in the given resource. The caller is responsible for closing
+     * the returned cursor.
+     *
+     * @param resource the resource to read the test data from
+     * @return an instance of {@link DataCursor} positioned before the first method block
+     * @throws IOException if an I/O exception occurs while opening the resource
+     */
+    DataCursor openCursor(Resource resource) throws IOException;
+
+}
@@ -0,0 +1,120 @@
+package org.easetech.easytest.loader;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.easetech.easytest.internal.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of strings scoped to the loading of a single resource. The {@link DataCursor}s of the loaders use it to make
+ * sure that equal strings read from a test data file, such as the names of the parameters repeated in the header of
+ * every method block, share a single instance instead of every cell holding its own copy.<br>
+ * The names of the parameters are always pooled. The values of the parameters are only pooled when the System Property
+ * <B>easytest.internValueCardinality</B> is set to a value greater than 0. Its value gives the maximum number of
+ * distinct values a parameter can have for its values to be pooled. This way low cardinality values, such as codes or
+ * country names, share a single instance, while the pool does not fill up with the values of parameters, like
+ * identifiers, that are unique to every row.<br>
+ * Unlike {@link String#intern()}, the pool is released along with the cursor that uses it. A {@link StringPool} is not
+ * thread safe, as every cursor has its own pool.
+ *
+ */
+public final class StringPool {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(StringPool.class);
+
+    /** The pooled strings, each mapped to itself */
+    private final Map<String, String> strings = new HashMap<String, String>();
+
+    /** The maximum number of distinct values of a parameter for its values to be pooled. 0 disables it. */
+    private final int valueCardinalityThreshold;
+
+    /** The distinct values of the parameters whose values are pooled so far */
+    private final Map<String, Set<String>> parameterValues = new HashMap<String, Set<String>>();
+
+    /** The parameters that have too many distinct values for their values to be pooled */
+    private final Set<String> highCardinalityParameters = new HashSet<String>();
+
+    /**
+     * Construct a new StringPool, pooling the values of the parameters as specified by the System Property
+     * <B>easytest.internValueCardinality</B>
+     */
+    public StringPool() {
+        this(getValueCardinalityThreshold());
+    }
+
+    /**
+     * Construct a new StringPool
+     *
+     * @param valueCardinalityThreshold the maximum number of distinct values of a parameter for its values to be
+     *            pooled. A value of 0 pools only the names of the parameters.
+     */
+    public StringPool(int valueCardinalityThreshold) {
+        this.valueCardinalityThreshold = valueCardinalityThreshold;
+    }
+
+    /**
+     * Get the pooled instance of the given string, adding it to the pool if it is not pooled yet
+     *
+     * @param string the string
+     * @return the pooled instance equal to the string, or null if the string is null
+     */
+    public String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+        String pooled = strings.get(string);
+        if (pooled == null) {
+            strings.put(string, string);
+            pooled = string;
+        }
+        return pooled;
+    }
+
+    /**
+     * Get the pooled instance of a value of the given parameter, if the values of the parameter are pooled
+     *
+     * @param parameterName the name of the parameter
+     * @param value the value
+     * @return the pooled instance equal to the value, or the value itself if the values of the parameter are not
+     *         pooled
+     */
+    public String internValue(String parameterName, String value) {
+        if (value == null || valueCardinalityThreshold <= 0 || highCardinalityParameters.contains(parameterName)) {
+            return value;
+        }
+        Set<String> values = parameterValues.get(parameterName);
+        if (values == null) {
+            values = new HashSet<String>();
+            parameterValues.put(parameterName, values);
+        }
+        if (values.add(value) && values.size() > valueCardinalityThreshold) {
+            // the values already pooled stay pooled, the following ones are not
+            LOG.debug("Values of parameter {} have too many distinct values to be pooled", parameterName);
+            parameterValues.remove(parameterName);
+            highCardinalityParameters.add(parameterName);
+            return value;
+        }
+        return intern(value);
+    }
+
+    private static int getValueCardinalityThreshold() {
+        String thresholdProperty = System.getProperty(SystemProperties.INTERN_VALUE_CARDINALITY.getValue());
+        if (thresholdProperty == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(thresholdProperty.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value {} for System Property {}. The values of the parameters will not be pooled.",
+                thresholdProperty, SystemProperties.INTERN_VALUE_CARDINALITY.getValue());
+            return 0;
+        }
+    }
+
+}
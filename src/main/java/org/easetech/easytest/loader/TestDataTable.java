@@ -0,0 +1,498 @@
+package org.easetech.easytest.loader;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A columnar, in memory representation of the rows of test data of a single method block. Instead of storing every row
+ * as its own {@link Map}, with its own copy of every key and a map entry for every cell, the table holds one shared
+ * header of column names and one array of values per column. The rows of the table are lightweight views that
+ * implement the complete {@link Map} contract, so they can be passed to the converters and written to by the framework
+ * like any other row of test data.<br>
+ * A row view iterates over its keys either in the order in which the columns were added to the table, like a
+ * {@link java.util.LinkedHashMap}, or in the order in which a {@link HashMap} holding the same keys would iterate over
+ * them. The latter keeps the string representation of the rows, that the framework uses to identify them, close to
+ * that of the rows that the loaders used to build as {@link HashMap}s.<br>
+ * A row does not necessarily contain a value for every column of the table. A column added through one row, for
+ * example the output of a test method, is absent from the other rows until a value is put in them.<br>
+ * A table is built by the single thread reading its test data. Once its rows are handed out, the table is
+ * {@link #publish() published} : the table and its rows are read only from then on, so that they can be read by any
+ * number of threads without any locking. The output data of a row is collected separately, by the
+ * {@link org.easetech.easytest.util.OutputDataCollector}.
+ *
+ */
+public final class TestDataTable {
+
+    /** Marks a cell whose row does not contain the column */
+    private static final Object ABSENT = new Object();
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** Whether the rows iterate over their keys in the order of a {@link HashMap} */
+    private final boolean hashOrdered;
+
+    /** The index of every column mapped by its name */
+    private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+
+    /** The names of the columns, in the order they were added */
+    private String[] columns = new String[INITIAL_CAPACITY];
+
+    private int columnCount;
+
+    /** The values of the cells, one array per column, indexed by the row */
+    private Object[][] values = new Object[INITIAL_CAPACITY][];
+
+    private int rowCount;
+
+    private int rowCapacity = INITIAL_CAPACITY;
+
+    /** The row views, indexed by the row */
+    private final List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+
+    /** The indexes of the columns in the order the rows iterate over them, or null if it needs to be computed */
+    private int[] iterationOrder;
+
+    /** Whether the table is published, and thus read only */
+    private volatile boolean published;
+
+    /**
+     * Construct a new TestDataTable
+     *
+     * @param hashOrdered whether the rows should iterate over their keys in the order of a {@link HashMap} instead of
+     *            the order in which the columns were added
+     */
+    public TestDataTable(boolean hashOrdered) {
+        this.hashOrdered = hashOrdered;
+    }
+
+    /**
+     * Get the table the given row belongs to
+     *
+     * @param row the row
+     * @return the table of the row or null if the row is not a view of a {@link TestDataTable}
+     */
+    public static TestDataTable tableOf(Map<String, Object> row) {
+        return row instanceof Row ? ((Row) row).getTable() : null;
+    }
+
+    /**
+     * Publish the tables of the given rows, see {@link #publish()}
+     *
+     * @param rows the rows, that may or may not be views of a {@link TestDataTable}
+     */
+    static void publishTablesOf(List<Map<String, Object>> rows) {
+        TestDataTable previous = null;
+        for (Map<String, Object> row : rows) {
+            TestDataTable table = tableOf(row);
+            if (table != null && table != previous) {
+                table.publish();
+                previous = table;
+            }
+        }
+    }
+
+    /**
+     * Publish the table, once all its rows are built. The table and its rows are read only from then on, any attempt
+     * to change them throws an {@link UnsupportedOperationException}. Nothing is done if the table is already
+     * published.
+     */
+    public void publish() {
+        if (!published) {
+            getIterationOrder();
+            published = true;
+        }
+    }
+
+    /**
+     * Whether the table is published, and thus read only
+     *
+     * @return true if the table is published
+     */
+    public boolean isPublished() {
+        return published;
+    }
+
+    /**
+     * Whether the rows iterate over their keys in the order of a {@link HashMap}
+     *
+     * @return true if the rows iterate in the order of a {@link HashMap}, false if they iterate in the order in which
+     *         the columns were added
+     */
+    public boolean isHashOrdered() {
+        return hashOrdered;
+    }
+
+    /**
+     * Add a column to the table, absent from all the existing rows. Nothing is done if the column already exists.
+     *
+     * @param name the name of the column
+     * @return the index of the column
+     * @throws UnsupportedOperationException if the table is published and the column does not exist
+     */
+    public int addColumn(String name) {
+        Integer index = columnIndexes.get(name);
+        if (index != null) {
+            return index;
+        }
+        checkWritable();
+        if (columnCount == columns.length) {
+            columns = Arrays.copyOf(columns, columnCount * 2);
+            values = Arrays.copyOf(values, columnCount * 2);
+        }
+        Object[] columnValues = new Object[rowCapacity];
+        Arrays.fill(columnValues, ABSENT);
+        columns[columnCount] = name;
+        values[columnCount] = columnValues;
+        columnIndexes.put(name, columnCount);
+        iterationOrder = null;
+        return columnCount++;
+    }
+
+    /**
+     * Add a new row to the table, that does not contain any of the columns yet
+     *
+     * @return the view of the new row
+     * @throws UnsupportedOperationException if the table is published
+     */
+    public Map<String, Object> addRow() {
+        return newRow(ABSENT);
+    }
+
+    /**
+     * Add a new row to the table, that contains all the existing columns with a null value
+     *
+     * @return the view of the new row
+     * @throws UnsupportedOperationException if the table is published
+     */
+    public Map<String, Object> addRowWithNullValues() {
+        return newRow(null);
+    }
+
+    /**
+     * Get the number of columns of the table
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Get the name of a column
+     *
+     * @param column the index of the column
+     * @return the name of the column
+     */
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Get the number of rows of the table
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the view of a row
+     *
+     * @param row the index of the row
+     * @return the view of the row
+     */
+    public Map<String, Object> getRow(int row) {
+        return rows.get(row);
+    }
+
+    /**
+     * Get the views of all the rows of the table, in the order they were added
+     *
+     * @return the views of the rows
+     */
+    public List<Map<String, Object>> getRows() {
+        return new ArrayList<Map<String, Object>>(rows);
+    }
+
+    /**
+     * Create a copy of this table whose rows do not share any state with the rows of this table. The values themselves
+     * are not copied. The copy is not published, even if this table is.
+     *
+     * @return the copy of this table
+     */
+    public TestDataTable copy() {
+        TestDataTable copy = new TestDataTable(hashOrdered);
+        copy.columnIndexes.putAll(columnIndexes);
+        copy.columns = columns.clone();
+        copy.columnCount = columnCount;
+        copy.values = new Object[values.length][];
+        for (int column = 0; column < columnCount; column++) {
+            copy.values[column] = values[column].clone();
+        }
+        copy.rowCapacity = rowCapacity;
+        for (int row = 0; row < rowCount; row++) {
+            copy.rows.add(copy.new Row(row));
+        }
+        copy.rowCount = rowCount;
+        return copy;
+    }
+
+    /**
+     * Remove the given row from the table, if it is the last row of the table. This allows a row that was read but
+     * is then rejected to not take up any space in the table.
+     *
+     * @param row the view of the row
+     * @return true if the row was removed
+     */
+    boolean discardLastRow(Map<String, Object> row) {
+        if (!(row instanceof Row) || ((Row) row).getTable() != this || ((Row) row).getIndex() != rowCount - 1) {
+            return false;
+        }
+        checkWritable();
+        rowCount--;
+        for (int column = 0; column < columnCount; column++) {
+            values[column][rowCount] = ABSENT;
+        }
+        rows.remove(rowCount);
+        return true;
+    }
+
+    /**
+     * Set the value of a cell directly, without going through the row view
+     *
+     * @param column the index of the column
+     * @param row the index of the row
+     * @param value the value
+     */
+    void setValue(int column, int row, Object value) {
+        checkWritable();
+        values[column][row] = value;
+    }
+
+    private void checkWritable() {
+        if (published) {
+            throw new UnsupportedOperationException("The table is published, its rows are read only");
+        }
+    }
+
+    private Map<String, Object> newRow(Object initialValue) {
+        checkWritable();
+        if (rowCount == rowCapacity) {
+            rowCapacity *= 2;
+            for (int column = 0; column < columnCount; column++) {
+                Object[] columnValues = Arrays.copyOf(values[column], rowCapacity);
+                Arrays.fill(columnValues, rowCount, rowCapacity, ABSENT);
+                values[column] = columnValues;
+            }
+        }
+        for (int column = 0; column < columnCount; column++) {
+            values[column][rowCount] = initialValue;
+        }
+        Row row = new Row(rowCount++);
+        rows.add(row);
+        return row;
+    }
+
+    private int[] getIterationOrder() {
+        if (iterationOrder == null) {
+            iterationOrder = new int[columnCount];
+            if (hashOrdered) {
+                // a HashMap holding the same keys determines the order
+                Map<String, Integer> template = new HashMap<String, Integer>();
+                for (int column = 0; column < columnCount; column++) {
+                    template.put(columns[column], column);
+                }
+                int position = 0;
+                for (Integer column : template.values()) {
+                    iterationOrder[position++] = column;
+                }
+            } else {
+                for (int column = 0; column < columnCount; column++) {
+                    iterationOrder[column] = column;
+                }
+            }
+        }
+        return iterationOrder;
+    }
+
+    /**
+     * A view of a single row of the table
+     */
+    final class Row extends AbstractMap<String, Object> {
+
+        /** The index of the row */
+        private final int row;
+
+        Row(int row) {
+            this.row = row;
+        }
+
+        TestDataTable getTable() {
+            return TestDataTable.this;
+        }
+
+        int getIndex() {
+            return row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer column = columnIndexes.get(key);
+            Object value = column == null ? null : values[column][row];
+            return value == ABSENT ? null : value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Integer column = columnIndexes.get(key);
+            return column != null && values[column][row] != ABSENT;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            checkWritable();
+            int column = addColumn(key);
+            Object previous = values[column][row];
+            values[column][row] = value;
+            return previous == ABSENT ? null : previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            checkWritable();
+            Integer column = columnIndexes.get(key);
+            if (column == null) {
+                return null;
+            }
+            Object previous = values[column][row];
+            values[column][row] = ABSENT;
+            return previous == ABSENT ? null : previous;
+        }
+
+        @Override
+        public void clear() {
+            checkWritable();
+            for (int column = 0; column < columnCount; column++) {
+                values[column][row] = ABSENT;
+            }
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int column = 0; column < columnCount; column++) {
+                if (values[column][row] != ABSENT) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    // iterate over a snapshot of the present columns, so that the row can be written to meanwhile
+                    final List<Map.Entry<String, Object>> entries = new ArrayList<Map.Entry<String, Object>>();
+                    for (int column : getIterationOrder()) {
+                        if (values[column][row] != ABSENT) {
+                            entries.add(new RowEntry(column, values[column][row]));
+                        }
+                    }
+                    final Iterator<Map.Entry<String, Object>> iterator = entries.iterator();
+                    return new Iterator<Map.Entry<String, Object>>() {
+
+                        private Map.Entry<String, Object> current;
+
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        public Map.Entry<String, Object> next() {
+                            current = iterator.next();
+                            return current;
+                        }
+
+                        public void remove() {
+                            if (current == null) {
+                                throw new IllegalStateException();
+                            }
+                            Row.this.remove(current.getKey());
+                            current = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Row.this.size();
+                }
+            };
+        }
+
+        /**
+         * An entry of the row that writes through to the table
+         */
+        private final class RowEntry implements Map.Entry<String, Object> {
+
+            private final int column;
+
+            private Object value;
+
+            RowEntry(int column, Object value) {
+                this.column = column;
+                this.value = value;
+            }
+
+            public String getKey() {
+                return getColumnName(column);
+            }
+
+            public Object getValue() {
+                return value;
+            }
+
+            public Object setValue(Object newValue) {
+                Object previous = value;
+                TestDataTable.this.setValue(column, row, newValue);
+                value = newValue;
+                return previous;
+            }
+
+            @Override
+            public boolean equals(Object other) {
+                if (!(other instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) other;
+                return eq(getKey(), entry.getKey()) && eq(value, entry.getValue());
+            }
+
+            @Override
+            public int hashCode() {
+                String key = getKey();
+                return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+            }
+
+            @Override
+            public String toString() {
+                return getKey() + "=" + value;
+            }
+
+            private boolean eq(Object first, Object second) {
+                return first == null ? second == null : first.equals(second);
+            }
+        }
+    }
+
+}
@@ -1,38 +1,42 @@
 
 package org.easetech.easytest.loader;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import javax.xml.bind.Binder;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.util.Set;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
 import org.easetech.easytest._1.Entry;
 import org.easetech.easytest._1.InputData;
 import org.easetech.easytest._1.InputTestData;
-import org.easetech.easytest._1.ObjectFactory;
 import org.easetech.easytest._1.OutputData;
 import org.easetech.easytest._1.TestMethod;
 import org.easetech.easytest._1.TestRecord;
 import org.easetech.easytest.io.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
 /**
  * An implementation of {@link Loader} for the XML based files. This Loader is responsible for reading a list of XML
@@ -91,7 +95,7 @@ import org.xml.sax.SAXException;
  * @author Anuj Kumar
  * 
  */
-public class XMLDataLoader implements Loader {
+public class XMLDataLoader implements StreamingLoader {
 
     /**
      * An instance of logger associated with the test framework.
@@ -101,9 +105,41 @@ public class XMLDataLoader implements Loader {
     /**
      * A record Position identifier that identifies the exact position of a given test record. It is useful in cases
      * where we want to compare and identify the exact test record from two different sources of data. In this case, it
-     * will be used to identify the record for which an output test data needs to be written.
+     * will be used to identify the record for which an output test data needs to be written. It is retained by every
+     * {@link DataSelection}.
      */
-    private static final String RECORD_POSITION = "recordPosition";
+    static final String RECORD_POSITION = "recordPosition";
+
+    /** The names of the elements and attributes read by the Loader */
+    private static final String TEST_METHOD = "TestMethod";
+
+    private static final String TEST_RECORD = "TestRecord";
+
+    private static final String INPUT_DATA = "InputData";
+
+    private static final String ENTRY = "Entry";
+
+    private static final String OUTPUT_DATA = "OutputData";
+
+    private static final String NAME = "name";
+
+    private static final String ID = "id";
+
+    private static final String KEY = "key";
+
+    private static final String VALUE = "value";
+
+    /** The factory used to create the readers of the XML files */
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    /** The factory used to create the writers of the XML files */
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    /** The factory used to create the output data written to the XML files */
+    private static final XMLEventFactory XML_EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    /** The indentation of the entries of an output data element, relative to the element */
+    private static final String ENTRY_INDENT = "    ";
 
     /**
      * Load the data from the given resource
@@ -113,7 +149,7 @@ public class XMLDataLoader implements Loader {
     public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
         Map<String, List<Map<String, Object>>> result = null;
         try {
-            result = load(resource.getInputStream());
+            result = DataLoaderUtil.readAll(openCursor(resource));
         } catch (IOException e) {
             LOG.error("IOException occured while trying to Load the resource {} . Moving to the next resource.", resource.getResourceName(), e);
         }
@@ -126,229 +162,476 @@ public class XMLDataLoader implements Loader {
     }
 
     /**
-     * Load the XML data.
+     * Open a {@link DataCursor} over the test methods and test records of the given XML resource. The XML is read
+     * incrementally using StAX : each {@link TestRecord} is converted to a Map representation, with the default
+     * {@link InputData} of its {@link TestMethod} applied, only when the cursor moves to it.
      * 
-     * @param xmlFile inputStream representation of user provided XML file.
-     * @return a Map of method name and the list of associated test data with that method name
+     * @param resource the instance of the resource from which to load the data
+     * @return an instance of {@link DataCursor}
      * @throws IOException if an IO Exception occurs
      */
-    private Map<String, List<Map<String, Object>>> load(final InputStream xmlFile) throws IOException {
-        Map<String, List<Map<String, Object>>> data = new HashMap<String, List<Map<String, Object>>>();
-        JAXBContext context = getJAXBContext();
+    public DataCursor openCursor(Resource resource) throws IOException {
+        InputStream xmlFile = resource.getInputStream();
         try {
-            if (context != null) {
-                Unmarshaller unmarshaller = context.createUnmarshaller();
-                InputTestData testData = (InputTestData) unmarshaller.unmarshal(xmlFile);
-                convertFromInputTestData(testData, data);
-            }
-        } catch (JAXBException e) {
-            LOG.error("JAXBException occured while trying to unmarshal the data.", e);
-            throw new RuntimeException("JAXBException occured while trying to unmarshal the data.", e);
+            return new InputTestDataCursor(xmlFile, XML_INPUT_FACTORY.createXMLStreamReader(xmlFile));
+        } catch (XMLStreamException e) {
+            xmlFile.close();
+            throw xmlException(e);
         }
-
-        return data;
-
     }
 
     /**
-     * Convert the data from {@link InputTestData} to a Map representation as understood by the EasyTest Framework
-     * 
-     * @param source an instance of {@link InputTestData}
-     * @param destination an instance of {@link Map}
+     * A {@link DataCursor} that walks over the {@link TestMethod}, {@link TestRecord} and {@link Entry} elements of an
+     * XML file as they are being parsed.
      */
-    private void convertFromInputTestData(InputTestData source, Map<String, List<Map<String, Object>>> destination) {
-        List<TestMethod> testMethods = source.getTestMethod();
-        for (TestMethod method : testMethods) {
-	        InputData defaultInputData = method.getInputData();
+    private static class InputTestDataCursor implements DataCursor {
+
+        /** The XML file being read */
+        private final InputStream xmlFile;
+
+        /** The reader of the XML file */
+        private final XMLStreamReader reader;
+
+        /** The name of the current test method */
+        private String methodName;
+
+        /** The default input data of the current test method */
+        private Map<String, Object> defaultInputData;
+
+        /** The table holding the records of the current test method */
+        private TestDataTable table;
+
+        /** The pool of the names and values of the parameters read by this cursor */
+        private final StringPool stringPool = new StringPool();
 
-            List<Map<String, Object>> testMethodData = convertFromLIstOfTestRecords(method.getTestRecord(), defaultInputData);
-            LOG.debug("Read record for method {} and the data read is {}", method.getName(),testMethodData);
-            destination.put(method.getName(), testMethodData);
+        /** The names of the columns to retain in the rows of the current method block, or null to retain all */
+        private Set<String> retainedColumns;
 
+        /** Whether the reader is positioned within the current test method */
+        private boolean inTestMethod;
+
+        /** Whether the reader is positioned on a test record that has not been read yet */
+        private boolean pendingTestRecord;
+
+        /** The current row */
+        private Map<String, Object> singleTestData;
+
+        InputTestDataCursor(InputStream xmlFile, XMLStreamReader reader) {
+            this.xmlFile = xmlFile;
+            this.reader = reader;
         }
-    }
-    /**
-     * Convert the data from List of {@link TestRecord} to a List of map representation. The LIst of map represents the
-     * list of test data for a single test method.
-     * 
-     * @param dataRecords an instance of List of {@link TestRecord}
-     * @return an instance of {@link List} of Map
-     */
-    private List<Map<String, Object>> convertFromLIstOfTestRecords(List<TestRecord> dataRecords, InputData defaultInputData) {
-        List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
-        if (dataRecords != null) {
-            for (TestRecord record : dataRecords) {              
-                Map<String, Object> singleTestData = convertFromListOfEntry(record.getInputData().getEntry(), (defaultInputData != null ? defaultInputData.getEntry() : null));
-                singleTestData.put(RECORD_POSITION, record.getId());
-                result.add(singleTestData);
+
+        public boolean nextMethod() throws IOException {
+            singleTestData = null;
+            try {
+                // skip the unread records of the current method, without reading their entries
+                while (inTestMethod) {
+                    if (!pendingTestRecord && !moveToNextTestRecord()) {
+                        inTestMethod = false;
+                    } else {
+                        pendingTestRecord = false;
+                        skipElement();
+                    }
+                }
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && TEST_METHOD.equals(reader.getLocalName())) {
+                        readTestMethodHeader();
+                        LOG.debug("Reading records for method {}", methodName);
+                        return true;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                throw xmlException(e);
             }
+            methodName = null;
+            return false;
         }
-        return result;
-    }
 
-    /**
-     * Returns a Map representation of a Single data set for a given method. This data is used to run the test method
-     * once.
-     * 
-     * @param testEntry a list of {@link Entry} objects
-     * @return a Map
-     */
-    Map<String, Object> convertFromListOfEntry(List<Entry> testEntries, List<Entry> defaultEntries) {
-        Map<String, Object> testData = new HashMap<String, Object>();
+        public String getMethodName() {
+            return methodName;
+        }
 
-	    // use default test entries as defaults, when present
+        public void retainColumns(Set<String> columnNames) {
+            retainedColumns = columnNames;
+        }
 
-	    if (defaultEntries != null) {
-		    for (Entry defaultEntry : defaultEntries) {
-			    testData.put(defaultEntry.getKey(), defaultEntry.getValue());
-		    }
-	    }
+        public boolean nextRow() throws IOException {
+            singleTestData = null;
+            if (!inTestMethod) {
+                return false;
+            }
+            try {
+                if (!pendingTestRecord && !moveToNextTestRecord()) {
+                    inTestMethod = false;
+                    return false;
+                }
+                pendingTestRecord = false;
+                String id = reader.getAttributeValue(null, ID);
+                // use default test entries as defaults, when present, and the actual test entries on top
+                Map<String, Object> testData = table.addRow();
+                for (Map.Entry<String, Object> defaultEntry : defaultInputData.entrySet()) {
+                    if (isRetained(defaultEntry.getKey())) {
+                        testData.put(defaultEntry.getKey(), defaultEntry.getValue());
+                    }
+                }
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (INPUT_DATA.equals(reader.getLocalName())) {
+                            readEntries(testData);
+                        } else {
+                            skipElement();
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        break;
+                    }
+                }
+                testData.put(RECORD_POSITION, id);
+                singleTestData = testData;
+                return true;
+            } catch (XMLStreamException e) {
+                throw xmlException(e);
+            }
+        }
 
-	    // use actual test entries on top
+        public Map<String, Object> getRow() {
+            return singleTestData;
+        }
 
-        if (testEntries != null) {
-            for (Entry entry : testEntries) {
-                testData.put(entry.getKey(), entry.getValue());
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                LOG.warn("XMLStreamException occured while closing the XML reader", e);
+            } finally {
+                xmlFile.close();
             }
         }
-        return testData;
-    }
 
-    /**
-     * Get the JAXBContext
-     * 
-     * @return an instance of {@link JAXBContext}
-     */
-    private JAXBContext getJAXBContext() {
-        JAXBContext context = null;
-        try {
-            context = JAXBContext.newInstance(ObjectFactory.class);
-        } catch (JAXBException e) {
-            LOG.error("Error occured while creating JAXB COntext.", e);
-            throw new RuntimeException("Error occurred while creating JAXB Context.", e);
+        /**
+         * Read the name and the default input data of the test method the reader is positioned on. The reader is left
+         * on the first {@link TestRecord} of the method, or at its end if the method has no records.
+         */
+        private void readTestMethodHeader() throws XMLStreamException {
+            methodName = reader.getAttributeValue(null, NAME);
+            defaultInputData = new HashMap<String, Object>();
+            table = new TestDataTable(true);
+            retainedColumns = null;
+            inTestMethod = true;
+            pendingTestRecord = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (TEST_RECORD.equals(reader.getLocalName())) {
+                        pendingTestRecord = true;
+                        return;
+                    } else if (INPUT_DATA.equals(reader.getLocalName())) {
+                        readEntries(defaultInputData);
+                    } else {
+                        skipElement();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    inTestMethod = false;
+                    return;
+                }
+            }
         }
-        return context;
+
+        /**
+         * Move the reader to the start of the next {@link TestRecord} of the current test method
+         * 
+         * @return false if the end of the test method was reached instead
+         */
+        private boolean moveToNextTestRecord() throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (TEST_RECORD.equals(reader.getLocalName())) {
+                        return true;
+                    }
+                    skipElement();
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Read the {@link Entry} elements of the {@link InputData} element the reader is positioned on.
+         * 
+         * @param testData the Map to put the entries in
+         */
+        private void readEntries(Map<String, Object> testData) throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (ENTRY.equals(reader.getLocalName())) {
+                        String key = stringPool.intern(reader.getAttributeValue(null, KEY));
+                        if (isRetained(key)) {
+                            testData.put(key, stringPool.internValue(key, reader.getAttributeValue(null, VALUE)));
+                        }
+                    }
+                    skipElement();
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    return;
+                }
+            }
+        }
+
+        private boolean isRetained(String key) {
+            return retainedColumns == null || retainedColumns.contains(key);
+        }
+
+        /**
+         * Skip the element the reader is positioned on, including all its children.
+         */
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+
+    private static IOException xmlException(XMLStreamException e) {
+        LOG.error("XMLStreamException occured while trying to read the XML data.", e);
+        IOException exception = new IOException("XMLStreamException occured while trying to read the XML data : "
+            + e.getMessage());
+        exception.initCause(e);
+        return exception;
     }
 
     /**
-     * Write Data to the existing XML File.
+     * Write Data to the existing XML File. The output data of the records is first indexed by the id of the records,
+     * then the file is streamed through StAX : all the events are copied as they are, except for the
+     * {@link TestRecord}s that have output data, whose {@link OutputData} element is replaced, or added when absent.
+     * The file is written to a temporary file first and copied back to the resource only once it is complete.
      * @param resource to which the data needs to be written
      * @param methodNames the name of the methods to write data for
      * @param actualData the actual data that needs to be written to the file.
      */
     public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData, String... methodNames) {
+        Map<String, Map<String, String>> outputData = indexOutputData(actualData, methodNames);
+        if (outputData.isEmpty()) {
+            LOG.debug("No output data to write to the file : {}", resource.getResourceName());
+            return;
+        }
+        File tempFile = null;
         try {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setNamespaceAware(true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document document = db.parse(resource.getInputStream());
-            Binder<Node> binder = getJAXBContext().createBinder(Node.class);
-            binder.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            InputTestData testData = (InputTestData) binder.unmarshal(document);
-            if(methodNames == null || methodNames.length == 0){
-                updateTestMethods(testData, null, actualData);
-            }else{
-                for(String methodName : methodNames){
-                    updateTestMethods(testData, methodName, actualData);
-                }
+            tempFile = File.createTempFile("easytest", ".xml");
+            InputStream xmlFile = resource.getInputStream();
+            OutputStream tempOutput = new BufferedOutputStream(new FileOutputStream(tempFile));
+            try {
+                updateOutputData(xmlFile, tempOutput, outputData);
+            } finally {
+                tempOutput.close();
+                xmlFile.close();
             }
-            
-            binder.updateXML(testData);
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer t = tf.newTransformer();
-            t.transform(new DOMSource(document), new StreamResult(resource.getOutputStream()));
-        } catch (ParserConfigurationException e) {
-            LOG.error("Ignoring the write operation as ParserConfigurationException occured while parsing the file : " + resource.getResourceName(), e);
-        } catch (SAXException e) {
-            LOG.error("Ignoring the write operation as SAXException occured while parsing the file : " + resource.getResourceName(), e);
+            copy(tempFile, resource.getOutputStream());
+        } catch (XMLStreamException e) {
+            LOG.error("Ignoring the write operation as XMLStreamException occured while parsing the file : " + resource.getResourceName(), e);
         } catch (IOException e) {
             LOG.error("Ignoring the write operation as IOException occured while parsing the file : " + resource.getResourceName(), e);
-        } catch (JAXBException e) {
-            LOG.error("Ignoring the write operation as JAXBException occured while parsing the file : " + resource.getResourceName(), e);
-        } catch (TransformerException e) {
-            LOG.error("Ignoring the write operation as TransformerException occured while parsing the file : " + resource.getResourceName(), e);
+        } finally {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
         }
 
     }
 
     /**
-     * This method is responsible for adding the {@link OutputData} element to the existing file.
-     * This method determines the right position of the test record based on the id attribute 
-     * {@link TestRecord#getId()} of the {@link TestRecord}.
+     * Index the output data that needs to be written to the file by the id of the test records, identified by the
+     * key {@link #RECORD_POSITION}. The output of a record is its {@link Loader#ACTUAL_RESULT}, its
+     * {@link Loader#DURATION} and its {@link Loader#TEST_STATUS}, for the values that are present. The test status
+     * is written only along with an actual result.
      * 
-     * @param inputTestData an Object representation of the XML data
-     * @param actualData the data structure that contains the output data that needs to be written to the file. 
-     * @param methodToWriteDataFor the method for which data needs to be written
-     * The output data is identified by the key {@link Loader#ACTUAL_RESULT}
+     * @param actualData the data structure that contains the output data that needs to be written to the file.
+     * @param methodNames the methods for which data needs to be written, or none for all the methods
+     * @return the entries of the output data of each record, keyed by the id of the record
      */
-    private void updateTestMethods(InputTestData inputTestData, String methodToWriteDataFor , Map<String, List<Map<String, Object>>> actualData) {
-        Boolean isMethodNameAbsent = methodToWriteDataFor == null || methodToWriteDataFor.length() <= 0;
-        for (String methodName : actualData.keySet()) {
-            if(!isMethodNameAbsent && !methodName.equals(methodToWriteDataFor)){
+    private static Map<String, Map<String, String>> indexOutputData(Map<String, List<Map<String, Object>>> actualData,
+        String... methodNames) {
+        Collection<String> methodsToWriteDataFor = methodNames == null || methodNames.length == 0 ? actualData
+            .keySet() : Arrays.asList(methodNames);
+        Map<String, Map<String, String>> outputData = new HashMap<String, Map<String, String>>();
+        for (String methodName : new LinkedHashSet<String>(methodsToWriteDataFor)) {
+            List<Map<String, Object>> testRecords = methodName == null ? null : actualData.get(methodName);
+            if (testRecords == null) {
                 continue;
             }
-            List<Map<String, Object>> testRecords = actualData.get(methodName);
             for (Map<String, Object> testRecord : testRecords) {
-                Boolean outputDataAdded = false;
-                if (testRecord.containsKey(ACTUAL_RESULT)) {
-                    // The data needs to be written to the XML file.
-                    // Find the right place to put the data.
-                    for (TestMethod testMethod : inputTestData.getTestMethod()) {
-                        List<TestRecord> originalTestRecords = testMethod.getTestRecord();
-                        for (TestRecord originalTestRecord : originalTestRecords) {
-                            if (originalTestRecord.getId().equals(testRecord.get(RECORD_POSITION))) {
-                                OutputData outputData = new OutputData();
-                                Entry outputEntry = new Entry();
-                                outputEntry.setKey(ACTUAL_RESULT);
-                                outputEntry.setValue(testRecord.get(ACTUAL_RESULT).toString());
-                                Entry durationEntry = new Entry();
-                                durationEntry.setKey(DURATION);
-                                durationEntry.setValue(testRecord.get(DURATION).toString());
-                                outputData.getEntry().add(outputEntry);
-                                outputData.getEntry().add(durationEntry);
-                                if(testRecord.get(TEST_STATUS) != null){
-                                    Entry statusEntry = new Entry();
-                                    statusEntry.setKey(TEST_STATUS);
-                                    statusEntry.setValue(testRecord.get(TEST_STATUS).toString());
-                                    outputData.getEntry().add(statusEntry);
-                                }
-                                
-                                
-                                originalTestRecord.setOutputData(outputData);
-                                outputDataAdded = true;
-                                break;
-                            }
-                        }
-                        if (outputDataAdded) {
-                            break;
-                        }
+                Object id = testRecord.get(RECORD_POSITION);
+                if (id == null) {
+                    continue;
+                }
+                Map<String, String> outputEntries = new LinkedHashMap<String, String>();
+                Object actualResult = testRecord.get(ACTUAL_RESULT);
+                if (actualResult != null) {
+                    outputEntries.put(ACTUAL_RESULT, actualResult.toString());
+                }
+                if (testRecord.get(DURATION) != null) {
+                    outputEntries.put(DURATION, testRecord.get(DURATION).toString());
+                }
+                if (actualResult != null && testRecord.get(TEST_STATUS) != null) {
+                    outputEntries.put(TEST_STATUS, testRecord.get(TEST_STATUS).toString());
+                }
+                if (!outputEntries.isEmpty()) {
+                    outputData.put(id.toString(), outputEntries);
+                }
+            }
+        }
+        return outputData;
+    }
+
+    /**
+     * Copy the XML read from the given input to the given output, replacing the {@link OutputData} element of the
+     * {@link TestRecord}s that have output data.
+     * 
+     * @param xmlFile the XML to read
+     * @param output the stream to write the updated XML to
+     * @param outputData the entries of the output data of each record, keyed by the id of the record
+     * @throws XMLStreamException if the XML can not be read or written
+     */
+    private static void updateOutputData(InputStream xmlFile, OutputStream output,
+        Map<String, Map<String, String>> outputData) throws XMLStreamException {
+        XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(xmlFile);
+        XMLEventWriter writer = null;
+        try {
+            XMLEvent firstEvent = reader.nextEvent();
+            String encoding = firstEvent.isStartDocument() && ((StartDocument) firstEvent).encodingSet() ? ((StartDocument) firstEvent)
+                .getCharacterEncodingScheme() : "UTF-8";
+            writer = XML_OUTPUT_FACTORY.createXMLEventWriter(output, encoding);
+            writer.add(firstEvent);
+            // the output entries and the name of the record being copied, when it has output data
+            Map<String, String> recordOutput = null;
+            QName recordName = null;
+            // the depth within the record being copied, the indentation of its children and the whitespace held back
+            int depth = 0;
+            String childIndent = null;
+            XMLEvent pendingWhitespace = null;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (recordOutput == null) {
+                    writer.add(event);
+                    if (event.isStartElement() && TEST_RECORD.equals(event.asStartElement().getName().getLocalPart())) {
+                        Attribute id = event.asStartElement().getAttributeByName(new QName(ID));
+                        recordOutput = id == null ? null : outputData.get(id.getValue());
+                        recordName = event.asStartElement().getName();
+                        depth = 0;
+                        childIndent = null;
+                        pendingWhitespace = null;
                     }
-                }else{
-                    //Method did not return any data. So only write the duration as output
-                    for (TestMethod testMethod : inputTestData.getTestMethod()) {
-                        List<TestRecord> originalTestRecords = testMethod.getTestRecord();
-                        for (TestRecord originalTestRecord : originalTestRecords) {
-                            if (originalTestRecord.getId().equals(testRecord.get(RECORD_POSITION))) {
-                                OutputData outputData = new OutputData();
-                                Entry durationEntry = new Entry();
-                                durationEntry.setKey(DURATION);
-                                durationEntry.setValue(testRecord.get(DURATION).toString());
-                                outputData.getEntry().add(durationEntry);
-                                originalTestRecord.setOutputData(outputData);
-                                outputDataAdded = true;
-                                break;
-                            }
-                        }
-                        
+                    continue;
+                }
+                if (depth == 0 && event.isCharacters() && event.asCharacters().getData().trim().length() == 0) {
+                    // hold the whitespace back until it is known whether it precedes an OutputData element
+                    if (pendingWhitespace != null) {
+                        writer.add(pendingWhitespace);
+                    }
+                    if (childIndent == null) {
+                        childIndent = event.asCharacters().getData();
+                    }
+                    pendingWhitespace = event;
+                } else if (depth == 0 && event.isStartElement()
+                    && OUTPUT_DATA.equals(event.asStartElement().getName().getLocalPart())) {
+                    // the existing output data is replaced by the new one
+                    pendingWhitespace = null;
+                    skipElement(reader);
+                } else if (depth == 0 && event.isEndElement()) {
+                    writeOutputData(writer, recordName, recordOutput, childIndent == null ? "" : childIndent);
+                    if (pendingWhitespace != null) {
+                        writer.add(pendingWhitespace);
+                        pendingWhitespace = null;
+                    }
+                    writer.add(event);
+                    recordOutput = null;
+                } else {
+                    if (pendingWhitespace != null) {
+                        writer.add(pendingWhitespace);
+                        pendingWhitespace = null;
                     }
-                    
+                    if (event.isStartElement()) {
+                        depth++;
+                    } else if (event.isEndElement()) {
+                        depth--;
+                    }
+                    writer.add(event);
                 }
             }
+            writer.flush();
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+            reader.close();
         }
+    }
 
+    /**
+     * Write an {@link OutputData} element with the given entries, in the namespace of its {@link TestRecord}.
+     * 
+     * @param writer the writer to write the element to
+     * @param recordName the name of the test record element the output data belongs to
+     * @param outputEntries the keys and the values of the entries
+     * @param indent the whitespace preceding the children of the test record
+     * @throws XMLStreamException if the element can not be written
+     */
+    private static void writeOutputData(XMLEventWriter writer, QName recordName, Map<String, String> outputEntries,
+        String indent) throws XMLStreamException {
+        String prefix = recordName.getPrefix();
+        String namespaceURI = recordName.getNamespaceURI();
+        // a record written without any indentation gets its output data without any either
+        String entryIndent = indent.length() == 0 ? indent : indent + ENTRY_INDENT;
+        writer.add(XML_EVENT_FACTORY.createCharacters(indent));
+        writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespaceURI, OUTPUT_DATA));
+        for (Map.Entry<String, String> outputEntry : outputEntries.entrySet()) {
+            writer.add(XML_EVENT_FACTORY.createCharacters(entryIndent));
+            writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespaceURI, ENTRY, Arrays.asList(
+                XML_EVENT_FACTORY.createAttribute(KEY, outputEntry.getKey()),
+                XML_EVENT_FACTORY.createAttribute(VALUE, outputEntry.getValue())).iterator(), null));
+            writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespaceURI, ENTRY));
+        }
+        writer.add(XML_EVENT_FACTORY.createCharacters(indent));
+        writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespaceURI, OUTPUT_DATA));
     }
 
-    
+    /**
+     * Skip the element whose start has just been read, including all its children.
+     */
+    private static void skipElement(XMLEventReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+        }
+    }
 
+    private static void copy(File file, OutputStream output) throws IOException {
+        try {
+            InputStream input = new FileInputStream(file);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+            } finally {
+                input.close();
+            }
+        } finally {
+            output.close();
+        }
+    }
 
 }
@@ -0,0 +1,214 @@
+package org.easetech.easytest.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+/**
+ * A {@link SpreadsheetRowReader} for the Office Open XML (xlsx) format. The package parts are located using POI's
+ * {@link XSSFReader} and the XML of each sheet is then pulled one row at a time, so neither the workbook nor a complete
+ * sheet is ever built in memory. Only the shared strings and the cell styles of the workbook are kept by the reader.
+ *
+ */
+final class XSSFRowReader extends SpreadsheetRowReader {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(XSSFRowReader.class);
+
+    /** The factory used to create the readers of the sheets */
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    /** The package containing the workbook */
+    private final OPCPackage container;
+
+    /** The shared strings of the workbook */
+    private final ReadOnlySharedStringsTable sharedStrings;
+
+    /** The cell styles of the workbook */
+    private final StylesTable styles;
+
+    /** Whether the workbook uses the 1904 date windowing */
+    private final boolean date1904;
+
+    /** The XML streams of the sheets of the workbook */
+    private final Iterator<InputStream> sheets;
+
+    /** The XML stream of the sheet currently being read */
+    private InputStream sheetStream;
+
+    /** The reader of the sheet currently being read */
+    private XMLStreamReader sheetReader;
+
+    /** The number of sheets read so far */
+    private int sheetCount;
+
+    /**
+     * Construct a new XSSFRowReader
+     *
+     * @param container the package containing the workbook
+     * @throws IOException if an I/O exception occurs while opening the workbook
+     */
+    XSSFRowReader(OPCPackage container) throws IOException {
+        this.container = container;
+        try {
+            XSSFReader reader = new XSSFReader(container);
+            this.sharedStrings = new ReadOnlySharedStringsTable(container);
+            this.styles = reader.getStylesTable();
+            this.date1904 = isDate1904(reader.getWorkbookData());
+            this.sheets = reader.getSheetsData();
+        } catch (OpenXML4JException e) {
+            throw ioException("Exception occured while opening the workbook", e);
+        } catch (SAXException e) {
+            throw ioException("Exception occured while reading the shared strings of the workbook", e);
+        } catch (XMLStreamException e) {
+            throw ioException("Exception occured while reading the workbook", e);
+        }
+    }
+
+    SortedMap<Integer, Object> nextRow() throws IOException {
+        try {
+            while (true) {
+                if (sheetReader == null) {
+                    if (!sheets.hasNext()) {
+                        return null;
+                    }
+                    LOG.debug("Sheet {} is being read", sheetCount++);
+                    sheetStream = sheets.next();
+                    sheetReader = XML_INPUT_FACTORY.createXMLStreamReader(sheetStream);
+                }
+                while (sheetReader.hasNext()) {
+                    if (sheetReader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheetReader.getLocalName())) {
+                        return readRow();
+                    }
+                }
+                closeSheet();
+            }
+        } catch (XMLStreamException e) {
+            throw ioException("Exception occured while reading the sheet " + sheetCount, e);
+        }
+    }
+
+    void close() throws IOException {
+        try {
+            closeSheet();
+        } catch (XMLStreamException e) {
+            throw ioException("Exception occured while closing the sheet " + sheetCount, e);
+        } finally {
+            container.revert();
+        }
+    }
+
+    private SortedMap<Integer, Object> readRow() throws XMLStreamException {
+        SortedMap<Integer, Object> row = new TreeMap<Integer, Object>();
+        int column = -1;
+        while (sheetReader.hasNext()) {
+            int event = sheetReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(sheetReader.getLocalName())) {
+                String reference = sheetReader.getAttributeValue(null, "r");
+                column = reference != null ? new CellReference(reference).getCol() : column + 1;
+                String type = sheetReader.getAttributeValue(null, "t");
+                String style = sheetReader.getAttributeValue(null, "s");
+                row.put(column, readCell(type, style));
+            } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheetReader.getLocalName())) {
+                break;
+            }
+        }
+        return row;
+    }
+
+    private Object readCell(String type, String style) throws XMLStreamException {
+        String value = null;
+        StringBuilder inlineString = null;
+        boolean formula = false;
+        while (sheetReader.hasNext()) {
+            int event = sheetReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String element = sheetReader.getLocalName();
+                if ("v".equals(element)) {
+                    value = sheetReader.getElementText();
+                } else if ("f".equals(element)) {
+                    formula = true;
+                } else if ("t".equals(element)) {
+                    // a run of an inline string
+                    inlineString = inlineString == null ? new StringBuilder() : inlineString;
+                    inlineString.append(sheetReader.getElementText());
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(sheetReader.getLocalName())) {
+                break;
+            }
+        }
+        Object cellValue = null;
+        if ("s".equals(type)) {
+            cellValue = value == null ? null : sharedStrings.getEntryAt(Integer.parseInt(value));
+        } else if ("inlineStr".equals(type)) {
+            cellValue = inlineString == null ? null : inlineString.toString();
+        } else if ("str".equals(type)) {
+            cellValue = value == null ? "" : value;
+        } else if ("b".equals(type)) {
+            cellValue = value == null ? null : Boolean.valueOf("1".equals(value) || "true".equals(value));
+        } else if (value != null && !"e".equals(type)) {
+            double number = Double.parseDouble(value);
+            if (formula) {
+                cellValue = number;
+            } else {
+                XSSFCellStyle cellStyle = styles.getStyleAt(style == null ? 0 : Integer.parseInt(style));
+                cellValue = cellStyle == null ? numericCellValue(number, 0, null, date1904) : numericCellValue(number,
+                    cellStyle.getDataFormat(), cellStyle.getDataFormatString(), date1904);
+            }
+        }
+        return cellValue;
+    }
+
+    private void closeSheet() throws XMLStreamException {
+        if (sheetReader != null) {
+            sheetReader.close();
+            sheetReader = null;
+            try {
+                sheetStream.close();
+            } catch (IOException e) {
+                LOG.warn("IOException occured while closing the sheet {}", sheetCount, e);
+            }
+        }
+    }
+
+    private static boolean isDate1904(InputStream workbookData) throws XMLStreamException, IOException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(workbookData);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "workbookPr".equals(reader.getLocalName())) {
+                    String date1904 = reader.getAttributeValue(null, "date1904");
+                    return "1".equals(date1904) || "true".equals(date1904);
+                }
+            }
+            return false;
+        } finally {
+            reader.close();
+            workbookData.close();
+        }
+    }
+
+    private static IOException ioException(String message, Exception cause) {
+        IOException exception = new IOException(message);
+        exception.initCause(cause);
+        return exception;
+    }
+
+}
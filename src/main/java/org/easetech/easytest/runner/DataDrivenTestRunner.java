@@ -27,11 +27,15 @@ import org.easetech.easytest.interceptor.Empty;
 import org.easetech.easytest.interceptor.InternalInterceptor;
 import org.easetech.easytest.interceptor.InternalInvocationhandler;
 import org.easetech.easytest.interceptor.MethodIntercepter;
+import org.easetech.easytest.internal.SystemProperties;
 import org.easetech.easytest.loader.DataLoaderUtil;
+import org.easetech.easytest.loader.DataSelection;
 import org.easetech.easytest.reports.data.DurationObserver;
 import org.easetech.easytest.reports.data.ReportDataContainer;
 import org.easetech.easytest.reports.data.TestResultBean;
 import org.easetech.easytest.strategy.SchedulerStrategy;
+import org.easetech.easytest.util.OutputDataCollector;
+import org.easetech.easytest.util.OutputDataWriter;
 import org.easetech.easytest.util.RunAftersWithOutputData;
 import org.easetech.easytest.util.TestInfo;
 import org.junit.After;
@@ -63,7 +67,9 @@ import org.slf4j.LoggerFactory;
  * (For details on how he test bean is loaded look at {@link TestConfigUtil#loadTestBeanConfig(Class)}) method.</li>
  * <li>Next, load the input test data, if any, at the class level. We mention if any because the input test data can be
  * loaded per method as well instead of loading it at the class level.<br>
- * (For details on how the input test data is loaded, look at {@link DataLoaderUtil#loadData}) method.</li>
+ * (For details on how the input test data is loaded, look at {@link DataLoaderUtil#loadData}) method.<br>
+ * The input test data is only loaded once the test methods are first needed, so that when the runner is filtered,
+ * for example to run a single method from an IDE, only the test data of the methods that pass the filter is loaded.</li>
  * <li>Next, we registers the converters, if any, declared at the class level using {@link Converters} annotation</li>
  * <li>We then move to inject the fields in the test class marked with {@link Provided} or {@link Inject} annotation
  * with the test beans that were loaded in step 1 above.</li>
@@ -90,9 +96,16 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
     private Map<String, List<Map<String, Object>>> writableData = new HashMap<String, List<Map<String, Object>>>();
 
     /**
-     * Convenient class member to get the list of {@link FrameworkMethod} that this runner will execute.
+     * Convenient class member to get the list of {@link FrameworkMethod} that this runner will execute. It is computed,
+     * along with the loading of the class level test data, the first time it is needed, so that any {@link Filter}
+     * applied to the runner before that restricts the test data that is loaded.
      */
-    private final List<FrameworkMethod> frameworkMethods;
+    private List<FrameworkMethod> frameworkMethods;
+
+    /**
+     * The part of the test data that needs to be loaded for the test methods that this runner will execute
+     */
+    private DataSelection dataSelection = DataSelection.ALL;
 
     /**
      * The report container which holds all the reporting data
@@ -104,6 +117,16 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
      */
     private final DurationObserver durationObserver = new DurationObserver();
 
+    /**
+     * The writer of the output data of the test methods, notified as the rows of test data complete
+     */
+    private volatile OutputDataWriter outputDataWriter;
+
+    /**
+     * The collector of the output data of the test methods, that keeps it apart from the shared rows of test data
+     */
+    private final OutputDataCollector outputDataCollector = new OutputDataCollector();
+
     /**
      * Look at {@link DataDrivenTestRunner} for details.
      * 
@@ -116,13 +139,11 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
         super(klass);
         setSchedulingStrategy();
         RunnerUtil.loadBeanConfiguration(getTestClass().getJavaClass());
-        RunnerUtil.loadClassLevelData(klass, getTestClass(), writableData);
         try {
             // initialize report container class
             // TODO add condition whether reports must be switched on or off
             testReportContainer = new ReportDataContainer(getTestClass().getJavaClass());
             testReportContainer.setDurationList(durationObserver.getDurationList());
-            frameworkMethods = computeMethodsForTest();
 
         } catch (Exception e) {
             LOG.error("Exception occured while instantiating the DataDrivenTestRunner. Exception is : ", e);
@@ -153,7 +174,8 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
 
     protected List<FrameworkMethod> computeMethodsForTest() {
 
-        List<FrameworkMethod> finalList = RunnerUtil.testMethods(getTestClass(), testReportContainer, writableData);
+        List<FrameworkMethod> finalList = RunnerUtil.testMethods(getTestClass(), testReportContainer, writableData,
+            dataSelection);
         if (finalList.isEmpty()) {
             Assert.fail("No method exists for the Test Runner");
         }
@@ -194,6 +216,25 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
      * @return a list of {@link FrameworkMethod}s
      */
     protected List<FrameworkMethod> computeTestMethods() {
+        return getFrameworkMethods();
+    }
+
+    /**
+     * Get the list of {@link FrameworkMethod} that this runner will execute. The first call loads the selected class
+     * level test data and computes the list.
+     * 
+     * @return list of {@link FrameworkMethod}
+     */
+    private synchronized List<FrameworkMethod> getFrameworkMethods() {
+        if (frameworkMethods == null) {
+            dataSelection = RunnerUtil.retainFilteredRows(getTestClass(), dataSelection);
+            dataSelection = RunnerUtil.retainShardRows(getTestClass(), dataSelection);
+            if (Boolean.getBoolean(SystemProperties.PROJECT_COLUMNS.getValue())) {
+                dataSelection = RunnerUtil.retainReferencedColumns(getTestClass(), dataSelection);
+            }
+            RunnerUtil.loadClassLevelData(getTestClass().getJavaClass(), getTestClass(), writableData, dataSelection);
+            frameworkMethods = computeMethodsForTest();
+        }
         return frameworkMethods;
     }
 
@@ -203,8 +244,22 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
      * @param filter
      * @throws NoTestsRemainException
      */
-    public void filter(Filter filter) throws NoTestsRemainException {
-
+    public synchronized void filter(Filter filter) throws NoTestsRemainException {
+        if (frameworkMethods == null) {
+            // The test data is not loaded yet. Only narrow down the selected methods, so that only their data gets
+            // loaded once the methods are computed.
+            List<String> selectedMethods = new ArrayList<String>();
+            for (FrameworkMethod each : getTestClass().getAnnotatedMethods(Test.class)) {
+                if (shouldRun(filter, each)) {
+                    selectedMethods.add(each.getName());
+                }
+            }
+            dataSelection = dataSelection.retainMethods(selectedMethods);
+            if (dataSelection.getMethodNames().isEmpty()) {
+                throw new NoTestsRemainException();
+            }
+            return;
+        }
         for (Iterator<FrameworkMethod> iter = frameworkMethods.iterator(); iter.hasNext();) {
             FrameworkMethod each = iter.next();
             if (shouldRun(filter, each))
@@ -363,6 +418,10 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
 
                     }
 
+                } finally {
+                    if (outputDataWriter != null) {
+                        outputDataWriter.rowCompleted(method.getMethod().getName());
+                    }
                 }
 
             }
@@ -401,7 +460,8 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
                 throw new RuntimeException(e);
             }
         }
-        Statement statement = new InternalParameterizedStatement(null, (EasyFrameworkMethod) method, getTestClass(), testInstance);
+        Statement statement = new InternalParameterizedStatement(null, (EasyFrameworkMethod) method, getTestClass(),
+            testInstance, outputDataCollector);
         
         if(((EasyFrameworkMethod)method).getChildMethods()!= null && !((EasyFrameworkMethod)method).getChildMethods().isEmpty()) {
             for(EasyFrameworkMethod childMethod : ((EasyFrameworkMethod)method).getChildMethods()) {
@@ -414,7 +474,8 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
                 } catch (InstantiationException e) {
                     throw new RuntimeException(e);
                 }
-                statement = new InternalParameterizedStatement(statement, childMethod, getTestClass(), testInstance);
+                statement = new InternalParameterizedStatement(statement, childMethod, getTestClass(), testInstance,
+                    outputDataCollector);
             }
         }
         return statement;
@@ -540,6 +601,10 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
         // populateTestInfo(testInfo);
         // THere would always be atleast one method associated with the Runner, else validation would fail.
         for (FrameworkMethod method : testMethods) {
+            if (!dataSelection.isMethodSelected(method.getName())) {
+                // the data of the method was never loaded
+                continue;
+            }
             TestInfo testInfo = null;
 
             // Only if the return type of the Method is not VOID, we try to determine the right loader and data
@@ -561,8 +626,10 @@ public class DataDrivenTestRunner extends BlockJUnit4ClassRunner {
 
         }
         
+        outputDataWriter = new OutputDataWriter(testInfoList, writableData, outputDataCollector,
+            getFrameworkMethods());
         RunAftersWithOutputData runAftersWithOutputData = new RunAftersWithOutputData(statement, afters, null,
-            testInfoList, writableData, testReportContainer);
+            outputDataWriter, testReportContainer);
         return runAftersWithOutputData;
     }
 
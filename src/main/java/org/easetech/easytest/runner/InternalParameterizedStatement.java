@@ -3,6 +3,7 @@ package org.easetech.easytest.runner;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.easetech.easytest.exceptions.ParamAssertionError;
@@ -11,6 +12,7 @@ import org.easetech.easytest.loader.Loader;
 import org.easetech.easytest.reports.data.TestMethodDuration;
 import org.easetech.easytest.reports.data.TestResultBean;
 import org.easetech.easytest.util.CommonUtils;
+import org.easetech.easytest.util.OutputDataCollector;
 import org.junit.Assert;
 import org.junit.experimental.theories.PotentialAssignment;
 import org.junit.experimental.theories.internal.Assignments;
@@ -77,14 +79,26 @@ public class InternalParameterizedStatement extends Statement {
      */
     private Object testInstance;
 
+    /**
+     * The collector of the output data of the test method. If there is none, the output data is put into the row of
+     * test data of the test method.
+     */
+    private final OutputDataCollector outputDataCollector;
+
     public InternalParameterizedStatement(Statement originalStatement, EasyFrameworkMethod fTestMethod,
         
         TestClass testClass, Object testInstance) {
+        this(originalStatement, fTestMethod, testClass, testInstance, null);
+    }
+
+    public InternalParameterizedStatement(Statement originalStatement, EasyFrameworkMethod fTestMethod,
+        TestClass testClass, Object testInstance, OutputDataCollector outputDataCollector) {
         this.fTestMethod = fTestMethod;
         this.listOfAssignments = new ArrayList<EasyAssignments>();
         this.fTestClass = testClass;
         this.testInstance = testInstance;
         this.originalStatement = originalStatement;
+        this.outputDataCollector = outputDataCollector;
 
     }
 
@@ -165,13 +179,14 @@ public class InternalParameterizedStatement extends Statement {
      * After the method has been invoked explosively, the returned value is checked. If there is a return value:
      * <li>We get the name of the method that is currently executing,
      * <li>We find the exact place in the test input data for which this method was executed,
-     * <li>We put the returned result in the map of input test data. The entry in the map has the key :
+     * <li>We put the returned result in the map of output data of that input test data. The entry in the map has the key :
      * {@link Loader#ACTUAL_RESULT} and the value is the returned value by the test method.
      * <li>If expected result{@link Loader#EXPECTED_RESULT} exist in user input data then we compare it with actual
      * result and put the test status either passed/failed. The entry in the map has the key :
      * {@link Loader#TEST_STATUS} and the value is the either PASSED or FAILED.
      * 
-     * We finally write the test data to the file.
+     * The output data is handed over to the {@link OutputDataCollector}, if any, that keeps it apart from the input
+     * test data. Otherwise it is put into the map of input test data. We finally write the test data to the file.
      * 
      * @param method an instance of {@link FrameworkMethod} that needs to be executed
      * @param complete an instance of {@link Assignments} that contains the input test data values
@@ -189,6 +204,7 @@ public class InternalParameterizedStatement extends Statement {
         String currentMethodName = method.getMethod().getName();
         TestResultBean testResult = method.getTestResult();
         Map<String, Object> writableRow = method.getTestData();
+        Map<String, Object> output = new LinkedHashMap<String, Object>();
         Object returnObj = null;
         try {
             final Object[] values = complete.getMethodArguments(true);
@@ -209,7 +225,7 @@ public class InternalParameterizedStatement extends Statement {
             if (writableRow != null) {
                 if (returnObj != null) {
                     LOG.debug("Data returned by method {} is {} :", method.getName(), returnObj);
-                    writableRow.put(Loader.ACTUAL_RESULT, returnObj); 
+                    output.put(Loader.ACTUAL_RESULT, returnObj);
                     Object expectedResult = writableRow.get(Loader.EXPECTED_RESULT);
                     // if expected result exist in user input test data,
                     // then compare that with actual output result
@@ -217,9 +233,9 @@ public class InternalParameterizedStatement extends Statement {
                     if (expectedResult != null) {
                         LOG.debug("Expected result exists");
                         if (expectedResult.toString().equals(returnObj.toString())) {
-                            writableRow.put(Loader.TEST_STATUS, Loader.TEST_PASSED);
+                            output.put(Loader.TEST_STATUS, Loader.TEST_PASSED);
                         } else {
-                            writableRow.put(Loader.TEST_STATUS, Loader.TEST_FAILED);
+                            output.put(Loader.TEST_STATUS, Loader.TEST_FAILED);
 
                         }
                     }
@@ -230,7 +246,13 @@ public class InternalParameterizedStatement extends Statement {
                     Double testDuration = CommonUtils.getRounded(testItemDurationBean.getRoundedMsDifference()
                         .doubleValue(), 3);
                     LOG.debug("testItemDurationBean.getRoundedMsDifference():" + testDuration);
-                    writableRow.put(Loader.DURATION, testDuration);
+                    output.put(Loader.DURATION, testDuration);
+                }
+                // the row of test data may be shared, so the output data is kept apart from it if possible
+                if (outputDataCollector != null) {
+                    outputDataCollector.collect(writableRow, output);
+                } else {
+                    writableRow.putAll(output);
                 }
             }
         } catch (AssumptionViolatedException e) {
@@ -254,8 +276,7 @@ public class InternalParameterizedStatement extends Statement {
         }
         //The test should fail in case the Actual Result returned by the test method did
         //not match the Expected result specified for the method in the test data file.
-        if (writableRow != null && writableRow.get(Loader.TEST_STATUS) != null
-            && writableRow.get(Loader.TEST_STATUS).equals(Loader.TEST_FAILED)) {
+        if (writableRow != null && Loader.TEST_FAILED.equals(output.get(Loader.TEST_STATUS))) {
             Assert.fail("Actual Result returned by the method : [" + returnObj
                 + "] did not match the expected result : [" + writableRow.get(Loader.EXPECTED_RESULT) + "]");
         }
@@ -4,16 +4,27 @@ package org.easetech.easytest.runner;
 import org.easetech.easytest.annotation.PreserveContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.easetech.easytest.annotation.DataFilter;
 import org.easetech.easytest.annotation.DataLoader;
 import org.easetech.easytest.annotation.Display;
+import org.easetech.easytest.annotation.Param;
 import org.easetech.easytest.annotation.Repeat;
 import org.easetech.easytest.annotation.TestPolicy;
+import org.easetech.easytest.internal.EasyParamSignature;
 import org.easetech.easytest.internal.SystemProperties;
 import org.easetech.easytest.loader.DataConverter;
 import org.easetech.easytest.loader.DataLoaderUtil;
+import org.easetech.easytest.loader.DataSelection;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.loader.RowFilter;
+import org.easetech.easytest.util.GeneralUtil;
 import org.easetech.easytest.reports.data.ReportDataContainer;
 import org.easetech.easytest.reports.data.TestResultBean;
 import org.easetech.easytest.strategy.SchedulerStrategy;
@@ -69,23 +80,207 @@ public class RunnerUtil {
      */
     public static void loadClassLevelData(Class<?> klass, TestClass testClass,
         Map<String, List<Map<String, Object>>> writableData) {
+        loadClassLevelData(klass, testClass, writableData, DataSelection.ALL);
+    }
+
+    /**
+     * Load the selected part of any class level test data
+     * 
+     * @see DataLoaderUtil#loadData(Class, FrameworkMethod, org.junit.runners.model.TestClass, Map, DataSelection)
+     * @param klass
+     * @param testClass
+     * @param writableData
+     * @param selection the part of the test data to load
+     */
+    public static void loadClassLevelData(Class<?> klass, TestClass testClass,
+        Map<String, List<Map<String, Object>>> writableData, DataSelection selection) {
         TestPolicy testPolicy = testClass.getJavaClass().getAnnotation(TestPolicy.class);
         if (testPolicy != null) {
-            DataLoaderUtil.loadData(testPolicy.value(), null, testClass, writableData);
+            DataLoaderUtil.loadData(testPolicy.value(), null, testClass, writableData, selection);
+        }
+        DataLoaderUtil.loadData(klass, null, testClass, writableData, selection);
+    }
+
+    /**
+     * Narrow the given selection such that only the rows of every selected test method that match its
+     * {@link DataFilter}s are loaded. The filters of a method are those given on the method, on the test class, on its
+     * {@link TestPolicy} and through the System Property <B>easytest.dataFilter</B>. Every filter expression is compiled
+     * only once.
+     * 
+     * @param testClazz the test class
+     * @param selection the selection to narrow
+     * @return the narrowed selection
+     */
+    public static DataSelection retainFilteredRows(TestClass testClazz, DataSelection selection) {
+        RowFilter classFilter = null;
+        String systemFilter = System.getProperty(SystemProperties.DATA_FILTER.getValue());
+        if (systemFilter != null && systemFilter.trim().length() > 0) {
+            classFilter = RowFilter.compile(systemFilter);
+        }
+        TestPolicy testPolicy = testClazz.getJavaClass().getAnnotation(TestPolicy.class);
+        if (testPolicy != null) {
+            classFilter = RowFilter.and(classFilter, compileDataFilter(testPolicy.value().getAnnotation(
+                DataFilter.class)));
+        }
+        classFilter = RowFilter.and(classFilter, compileDataFilter(testClazz.getJavaClass().getAnnotation(
+            DataFilter.class)));
+        DataSelection result = selection;
+        for (FrameworkMethod method : testClazz.getAnnotatedMethods(Test.class)) {
+            if (!selection.isMethodSelected(method.getName())) {
+                continue;
+            }
+            RowFilter methodFilter = RowFilter.and(classFilter, compileDataFilter(method.getAnnotation(
+                DataFilter.class)));
+            if (methodFilter != null && result.getRowFilter(method.getName()) == null) {
+                result = result.retainRows(method.getName(), methodFilter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Narrow the given selection such that only the rows of every selected test method that belong to the shard given
+     * by the System Property <B>easytest.shard</B> are loaded, for eg. <B>-Deasytest.shard=3/16</B>. The rows outside
+     * the shard are skipped while the data is loaded, before they are converted.
+     * 
+     * @param testClazz the test class
+     * @param selection the selection to narrow
+     * @return the narrowed selection, or the given selection if no shard is specified
+     */
+    public static DataSelection retainShardRows(TestClass testClazz, DataSelection selection) {
+        int[] shard = getShard();
+        if (shard == null) {
+            return selection;
+        }
+        DataSelection result = selection;
+        Set<String> shardedMethods = new HashSet<String>();
+        for (FrameworkMethod method : testClazz.getAnnotatedMethods(Test.class)) {
+            if (selection.isMethodSelected(method.getName()) && shardedMethods.add(method.getName())) {
+                result = result.retainRows(method.getName(), RowFilter.shard(method.getName(), shard[0], shard[1]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the shard of the rows of test data to run, as given by the System Property <B>easytest.shard</B>
+     * 
+     * @return the index of the shard, starting at 1, and the number of shards, or null if no shard is specified
+     */
+    public static int[] getShard() {
+        String shard = System.getProperty(SystemProperties.SHARD.getValue());
+        if (shard == null || shard.trim().length() == 0) {
+            return null;
+        }
+        int separator = shard.indexOf('/');
+        try {
+            int[] result = new int[] { Integer.parseInt(shard.substring(0, separator).trim()),
+                Integer.parseInt(shard.substring(separator + 1).trim()) };
+            if (result[1] >= 1 && result[0] >= 1 && result[0] <= result[1]) {
+                return result;
+            }
+        } catch (RuntimeException e) {
+            // reported below
+        }
+        Assert.fail("Invalid value " + shard + " of the System Property " + SystemProperties.SHARD.getValue()
+            + ". It should be the index of the shard, starting at 1, followed by the number of shards, for eg. 3/16");
+        return null;
+    }
+
+    private static RowFilter compileDataFilter(DataFilter dataFilter) {
+        if (dataFilter == null) {
+            return null;
+        }
+        try {
+            return RowFilter.compile(dataFilter.value());
+        } catch (IllegalArgumentException e) {
+            Assert.fail(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Narrow the given selection such that the rows of every selected test method are projected on to the columns that
+     * the method references : the names of its {@link Param} parameters, the {@link Loader#EXPECTED_RESULT}, the
+     * fields of its {@link Display} annotation and the columns its row filter, if any, is evaluated on. The rows of a method having a parameter whose value may be converted
+     * from any column of the row, i.e. a parameter without {@link Param} annotation or of a type that is not a standard
+     * type like a Map or a type with a user defined converter, are not projected.
+     * 
+     * @param testClazz the test class
+     * @param selection the selection to narrow
+     * @return the narrowed selection
+     */
+    public static DataSelection retainReferencedColumns(TestClass testClazz, DataSelection selection) {
+        Map<String, Set<String>> methodColumns = new HashMap<String, Set<String>>();
+        Set<String> unprojectedMethods = new HashSet<String>();
+        for (FrameworkMethod method : testClazz.getAnnotatedMethods(Test.class)) {
+            if (!selection.isMethodSelected(method.getName()) || unprojectedMethods.contains(method.getName())) {
+                continue;
+            }
+            Set<String> columns = getReferencedColumns(testClazz, method);
+            if (columns != null && selection.getRowFilter(method.getName()) != null) {
+                columns.addAll(selection.getRowFilter(method.getName()).getColumnNames());
+            }
+            if (columns == null) {
+                unprojectedMethods.add(method.getName());
+                methodColumns.remove(method.getName());
+            } else if (methodColumns.containsKey(method.getName())) {
+                // an overloaded method references the columns of all its variants
+                methodColumns.get(method.getName()).addAll(columns);
+            } else {
+                methodColumns.put(method.getName(), columns);
+            }
+        }
+        DataSelection result = selection;
+        for (Map.Entry<String, Set<String>> columns : methodColumns.entrySet()) {
+            result = result.retainColumns(columns.getKey(), columns.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Get the names of the columns referenced by the given test method
+     * 
+     * @param testClass the test class
+     * @param method the test method
+     * @return the names of the referenced columns or null if the method may reference any column
+     */
+    private static Set<String> getReferencedColumns(TestClass testClass, FrameworkMethod method) {
+        Set<String> columns = new HashSet<String>();
+        for (EasyParamSignature signature : EasyParamSignature.signatures(method.getMethod())) {
+            Param param = signature.getAnnotation(Param.class);
+            if (param == null || !GeneralUtil.isStandardObjectInstance(signature.getParameterType())) {
+                return null;
+            }
+            columns.add(param.name());
+        }
+        columns.add(Loader.EXPECTED_RESULT);
+        Display display = getDisplay(testClass, method);
+        if (display != null) {
+            columns.addAll(Arrays.asList(display.fields()));
         }
-        DataLoaderUtil.loadData(klass, null, testClass, writableData);
+        return columns;
     }
 
     public static void categorizeTestMethods(List<FrameworkMethod> methodsWithNoData,
         List<FrameworkMethod> methodsWithData, TestClass testClazz, Map<String, List<Map<String, Object>>> writableData) {
+        categorizeTestMethods(methodsWithNoData, methodsWithData, testClazz, writableData, DataSelection.ALL);
+    }
+
+    public static void categorizeTestMethods(List<FrameworkMethod> methodsWithNoData,
+        List<FrameworkMethod> methodsWithData, TestClass testClazz,
+        Map<String, List<Map<String, Object>>> writableData, DataSelection selection) {
         List<FrameworkMethod> availableMethods = testClazz.getAnnotatedMethods(Test.class);
 
         Class<?> testClass = testClazz.getJavaClass();
         for (FrameworkMethod method : availableMethods) {
+            if (!selection.isMethodSelected(method.getName())) {
+                continue;
+            }
 
             // Try loading the data if any at the method level
             if (method.getAnnotation(DataLoader.class) != null) {
-                DataLoaderUtil.loadData(null, method, testClazz, writableData);
+                DataLoaderUtil.loadData(null, method, testClazz, writableData, selection);
                 methodsWithData.add(method);
             } else {
 
@@ -110,6 +305,7 @@ public class RunnerUtil {
         TestClass testClazz, ReportDataContainer testReportContainer) {
         Class<?> testClass = testClazz.getJavaClass();
         List<FrameworkMethod> availableMethods = testClazz.getAnnotatedMethods(Test.class);
+        int[] shard = getShard();
         for (FrameworkMethod methodWithData : methodsWithData) {
             String superMethodName = DataConverter.getFullyQualifiedTestName(methodWithData.getName(), testClass);
             for (FrameworkMethod method : availableMethods) {
@@ -119,6 +315,23 @@ public class RunnerUtil {
                     if (DataContext.getData() != null) {
                         methodData = DataContext.getData().get(superMethodName);
                     }
+                    // The data loaded by a suite is not narrowed to the shard while it is loaded, so the rows
+                    // outside the shard are skipped here before any test method is created for them
+                    RowFilter shardFilter = shard == null ? null : RowFilter.shard(method.getName(), shard[0],
+                        shard[1]);
+                    if (shardFilter != null && methodData != null) {
+                        List<Map<String, Object>> shardData = new ArrayList<Map<String, Object>>();
+                        for (Map<String, Object> testData : methodData) {
+                            if (shardFilter.accept(testData)) {
+                                shardData.add(testData);
+                            }
+                        }
+                        if (shardData.isEmpty()) {
+                            // none of the rows of the method belong to this shard
+                            break;
+                        }
+                        methodData = shardData;
+                    }
                     if (methodData == null || methodData.isEmpty()) {
 
                         Assert.fail("Method with name : " + superMethodName
@@ -258,10 +471,15 @@ public class RunnerUtil {
 
     public static List<FrameworkMethod> testMethods(TestClass testClazz, ReportDataContainer testReportContainer,
         Map<String, List<Map<String, Object>>> writableData) {
+        return testMethods(testClazz, testReportContainer, writableData, DataSelection.ALL);
+    }
+
+    public static List<FrameworkMethod> testMethods(TestClass testClazz, ReportDataContainer testReportContainer,
+        Map<String, List<Map<String, Object>>> writableData, DataSelection selection) {
         List<FrameworkMethod> finalList = new ArrayList<FrameworkMethod>();
         List<FrameworkMethod> methodsWithNoData = new ArrayList<FrameworkMethod>();
         List<FrameworkMethod> methodsWithData = new ArrayList<FrameworkMethod>();
-        categorizeTestMethods(methodsWithNoData, methodsWithData, testClazz, writableData);
+        categorizeTestMethods(methodsWithNoData, methodsWithData, testClazz, writableData, selection);
         handleMethodsWithData(methodsWithData, finalList, testClazz, testReportContainer);
         handleMethodsWithNoData(methodsWithNoData, finalList, testReportContainer);
         return finalList;
@@ -294,16 +512,7 @@ public class RunnerUtil {
 
     public static String getTestName(final TestClass testClass, final FrameworkMethod method) {
         String testName = method.getName();
-        Display methodDisplay = method.getMethod().getAnnotation(Display.class);
-        Display classDisplay = testClass.getJavaClass().getAnnotation(Display.class);
-        Display policyDisplay = null;
-        TestPolicy testPolicy = testClass.getJavaClass().getAnnotation(TestPolicy.class);
-        if (testPolicy != null) {
-            Class<?> policyClass = testPolicy.value();
-            policyDisplay = policyClass.getAnnotation(Display.class);
-        }
-        Display displayAnnotation = methodDisplay != null ? methodDisplay : classDisplay != null ? classDisplay
-            : policyDisplay;
+        Display displayAnnotation = getDisplay(testClass, method);
 
         if (displayAnnotation != null) {
             StringBuilder fieldsToConcatenate = new StringBuilder("");
@@ -333,4 +542,24 @@ public class RunnerUtil {
 
         return String.format("%s", testName);
     }
+
+    /**
+     * Get the {@link Display} annotation that applies to the given method, looking at the method, the test class and
+     * the test policy in that order
+     * 
+     * @param testClass the test class
+     * @param method the test method
+     * @return the {@link Display} annotation or null if there is none
+     */
+    private static Display getDisplay(final TestClass testClass, final FrameworkMethod method) {
+        Display methodDisplay = method.getMethod().getAnnotation(Display.class);
+        Display classDisplay = testClass.getJavaClass().getAnnotation(Display.class);
+        Display policyDisplay = null;
+        TestPolicy testPolicy = testClass.getJavaClass().getAnnotation(TestPolicy.class);
+        if (testPolicy != null) {
+            Class<?> policyClass = testPolicy.value();
+            policyDisplay = policyClass.getAnnotation(Display.class);
+        }
+        return methodDisplay != null ? methodDisplay : classDisplay != null ? classDisplay : policyDisplay;
+    }
 }
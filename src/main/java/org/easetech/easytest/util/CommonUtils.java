@@ -8,6 +8,9 @@ import java.math.RoundingMode;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -472,6 +475,24 @@ public class CommonUtils {
         return new URI(replace(location, " ", "%20"));
     }
 
+    /**
+     * Replace the target file with the source file in a single atomic move, so that a reader of the target file sees
+     * either its old or its new content. The source file should be in the same directory as the target file. On a file
+     * system that does not support atomic moves, the target file is replaced by a plain move instead.
+     * @param source the file to move
+     * @param target the file to replace
+     * @throws IOException if the file can not be moved
+     */
+    public static void replaceFile(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.debug("Atomic moves are not supported, {} is replaced by a plain move", target);
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     /**
      * Paramterized method to sort Map e.g. HashMap or Hashtable in Java
      * throw NullPointerException if Map contains null key
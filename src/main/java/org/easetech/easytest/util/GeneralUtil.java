@@ -27,6 +27,7 @@ import java.util.regex.Pattern;
 import junit.framework.Assert;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.time.DateUtils;
+import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
@@ -57,6 +58,9 @@ public class GeneralUtil {
 
     private static final Pattern ARRAY_PATTERN = Pattern.compile("\\[.*\\]");
 
+    /** The mapper converting the JSON data. It is thread safe once configured. */
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
     /**
      * Rounds a value with number of decimals
      * 
@@ -629,16 +633,16 @@ public class GeneralUtil {
         for (Map<String, Object> object : convertFrom) {
             if (paramName != null && !EMPTY_STRING.equals(paramName)){
                 value = object.get(paramName);
-                if(value != null && isJSON(value.toString())){
-                    handleJSONData(value.toString(),idClass , potentialAssignments);
-                    result = true;
-                }
             }else{
                 value = object.get(idClass.getSimpleName());
-                if(value != null && isJSON(value.toString())){
-                    handleJSONData(value.toString(),idClass , potentialAssignments);
-                    result = true;
-                }
+            }
+            if (value instanceof JsonNode) {
+                // the value was already parsed by the loader
+                handleJSONData((JsonNode) value, idClass, potentialAssignments);
+                result = true;
+            } else if (value != null && isJSON(value.toString())) {
+                handleJSONData(value.toString(), idClass, potentialAssignments);
+                result = true;
             }
         }
         return result;
@@ -646,9 +650,8 @@ public class GeneralUtil {
     }
 
     public static <T> void handleJSONData(String expr, Class<T> idClass, List<PotentialAssignment> potentialAssignments) {
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            T value = mapper.readValue(expr, idClass);
+            T value = JSON_MAPPER.readValue(expr, idClass);
             potentialAssignments.add(PotentialAssignment.forValue(EMPTY_STRING, value));
         } catch (JsonParseException e) {
             throw new RuntimeException(e);
@@ -660,6 +663,25 @@ public class GeneralUtil {
 
     }
 
+    /**
+     * Convert the given JSON tree, as loaded by the {@link org.easetech.easytest.loader.JSONDataLoader}, to an
+     * instance of the given class
+     * 
+     * @param node the JSON tree
+     * @param idClass the class to convert to
+     * @param potentialAssignments the list to add the converted value to
+     */
+    public static <T> void handleJSONData(JsonNode node, Class<T> idClass, List<PotentialAssignment> potentialAssignments) {
+        try {
+            T value = JSON_MAPPER.readValue(node, idClass);
+            potentialAssignments.add(PotentialAssignment.forValue(EMPTY_STRING, value));
+        } catch (JsonMappingException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static Boolean isJSON(String expression) {
         if (expression == null || "".equals(expression)) {
             return false;
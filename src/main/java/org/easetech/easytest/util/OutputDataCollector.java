@@ -0,0 +1,114 @@
+package org.easetech.easytest.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the output data of the test methods, that is the {@link org.easetech.easytest.loader.Loader#ACTUAL_RESULT},
+ * {@link org.easetech.easytest.loader.Loader#TEST_STATUS} and {@link org.easetech.easytest.loader.Loader#DURATION} of
+ * every row of test data that ran, separately from the input data.<br>
+ * The rows of input data are shared between the test methods, and possibly between test classes through the cache of
+ * parsed test data. Instead of putting the output data into these rows, every thread running the tests appends its
+ * output data to a buffer of its own, so that tests running in parallel never contend for a lock. The output data is
+ * only merged with the input data when it is written, see {@link #merge(Map, Collection)}.
+ *
+ */
+public class OutputDataCollector {
+
+    /** The buffer of output data of every thread that collected some */
+    private final Queue<Queue<CollectedOutput>> buffers = new ConcurrentLinkedQueue<Queue<CollectedOutput>>();
+
+    /** The buffer of output data of the current thread */
+    private final ThreadLocal<Queue<CollectedOutput>> threadBuffer = new ThreadLocal<Queue<CollectedOutput>>() {
+
+        @Override
+        protected Queue<CollectedOutput> initialValue() {
+            Queue<CollectedOutput> buffer = new ConcurrentLinkedQueue<CollectedOutput>();
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+
+    /** The order in which the output data was collected, across all the threads */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Collect the output data of a row of test data that ran
+     *
+     * @param inputRow the row of input data, as held by the writable data
+     * @param output the output data of the row. It is not modified afterwards.
+     */
+    public void collect(Map<String, Object> inputRow, Map<String, Object> output) {
+        threadBuffer.get().add(new CollectedOutput(inputRow, output, sequence.incrementAndGet()));
+    }
+
+    /**
+     * Merge the output data collected so far with the input data of the given test methods. The merged data holds
+     * the rows of the test methods in the order of the writable data. A row that ran holds a copy of its input data
+     * along with its output data, while a row that did not run is the row of input data itself. If a row ran more
+     * than once, for example because the test method is repeated, the output data collected last wins.
+     *
+     * @param writableData the input data of the test methods
+     * @param methodNames the names of the test methods whose data is merged
+     * @return the merged data of the given test methods
+     */
+    public Map<String, List<Map<String, Object>>> merge(Map<String, List<Map<String, Object>>> writableData,
+        Collection<String> methodNames) {
+        Map<Map<String, Object>, CollectedOutput> outputByRow = new IdentityHashMap<Map<String, Object>, CollectedOutput>();
+        for (Queue<CollectedOutput> buffer : buffers) {
+            for (CollectedOutput collectedOutput : buffer) {
+                CollectedOutput previous = outputByRow.get(collectedOutput.inputRow);
+                if (previous == null || previous.sequence < collectedOutput.sequence) {
+                    outputByRow.put(collectedOutput.inputRow, collectedOutput);
+                }
+            }
+        }
+        Map<String, List<Map<String, Object>>> mergedData = new HashMap<String, List<Map<String, Object>>>();
+        for (String methodName : methodNames) {
+            List<Map<String, Object>> inputRows = writableData.get(methodName);
+            if (inputRows == null) {
+                continue;
+            }
+            List<Map<String, Object>> mergedRows = new ArrayList<Map<String, Object>>(inputRows.size());
+            for (Map<String, Object> inputRow : inputRows) {
+                CollectedOutput collectedOutput = outputByRow.get(inputRow);
+                if (collectedOutput == null) {
+                    mergedRows.add(inputRow);
+                } else {
+                    Map<String, Object> mergedRow = new LinkedHashMap<String, Object>(inputRow);
+                    mergedRow.putAll(collectedOutput.output);
+                    mergedRows.add(mergedRow);
+                }
+            }
+            mergedData.put(methodName, mergedRows);
+        }
+        return mergedData;
+    }
+
+    /**
+     * The output data of a row of test data, as collected by a thread
+     */
+    private static class CollectedOutput {
+
+        private final Map<String, Object> inputRow;
+
+        private final Map<String, Object> output;
+
+        private final long sequence;
+
+        CollectedOutput(Map<String, Object> inputRow, Map<String, Object> output, long sequence) {
+            this.inputRow = inputRow;
+            this.output = output;
+            this.sequence = sequence;
+        }
+    }
+
+}
@@ -0,0 +1,300 @@
+package org.easetech.easytest.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ResourceLoader;
+import org.easetech.easytest.io.ResourceLoaderStrategy;
+import org.easetech.easytest.loader.Loader;
+import org.junit.experimental.theories.internal.ParameterizedAssertionError;
+import org.junit.runners.model.FrameworkMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A write-behind stage that writes the output data of the test methods of a test class back to their test data files
+ * in the background. The output data of every file is written by its {@link Loader} in a single write, and the
+ * different files are written concurrently.<br>
+ * The runner notifies the writer whenever a row of test data completes, see {@link #rowCompleted(String)}, which never
+ * blocks the test. If the System Property <B>easytest.writeBehind</B> is set to true, the output data of a file is
+ * written as soon as all the test methods whose data it holds have completed, while the other tests are still
+ * running. Otherwise, the default, all the output data is written when the writer is drained.<br>
+ * {@link #drain()} writes the output data of the files that are not written yet, including the ones of test methods
+ * whose rows did not all run, and waits for all the writes to complete.
+ *
+ */
+public class OutputDataWriter {
+
+    /**
+     * An instance of logger associated with the test framework.
+     */
+    protected static final Logger LOG = LoggerFactory.getLogger(OutputDataWriter.class);
+
+    /** The number of files that can at least be written concurrently */
+    private static final int MIN_WRITERS = 4;
+
+    /** The actual data structure that contains both the input as well as output data */
+    private final Map<String, List<Map<String, Object>>> writableData;
+
+    /** The output data of the test methods, if it is collected separately from the writable data */
+    private final OutputDataCollector outputDataCollector;
+
+    /** The files to write, in the order of the test methods */
+    private final List<OutputFile> outputFiles = new ArrayList<OutputFile>();
+
+    /** The files the output data of each test method is written to */
+    private final Map<String, List<OutputFile>> methodOutputFiles = new HashMap<String, List<OutputFile>>();
+
+    /** The number of rows of each test method that have not completed yet */
+    private final Map<String, AtomicInteger> remainingRows = new HashMap<String, AtomicInteger>();
+
+    /** Whether the files are written while the tests are running */
+    private final boolean writeBehind;
+
+    /** Whether the writer was drained or discarded, after which no file is written as its tests complete */
+    private volatile boolean closed;
+
+    /** The threads writing the files */
+    private ExecutorService writers;
+
+    /** The writes submitted so far */
+    private final List<Future<?>> writes = new ArrayList<Future<?>>();
+
+    /**
+     * Construct a new OutputDataWriter
+     *
+     * @param testInfoList the list of {@link TestInfo} containing information required to write data back to the
+     *            files.
+     * @param writableData the writable data that needs to be written to the files.
+     * @param testMethods the {@link FrameworkMethod}s that the runner will execute, one for every row of test data
+     */
+    public OutputDataWriter(List<TestInfo> testInfoList, Map<String, List<Map<String, Object>>> writableData,
+        List<FrameworkMethod> testMethods) {
+        this(testInfoList, writableData, null, testMethods);
+    }
+
+    /**
+     * Construct a new OutputDataWriter that merges the output data collected by the given {@link OutputDataCollector}
+     * with the writable data whenever the data of some test methods is written
+     *
+     * @param testInfoList the list of {@link TestInfo} containing information required to write data back to the
+     *            files.
+     * @param writableData the input data of the test methods
+     * @param outputDataCollector the collector of the output data of the test methods, or null if the output data is
+     *            part of the writable data
+     * @param testMethods the {@link FrameworkMethod}s that the runner will execute, one for every row of test data
+     */
+    public OutputDataWriter(List<TestInfo> testInfoList, Map<String, List<Map<String, Object>>> writableData,
+        OutputDataCollector outputDataCollector, List<FrameworkMethod> testMethods) {
+        this.writableData = writableData;
+        this.outputDataCollector = outputDataCollector;
+        Map<String, OutputFile> filesByKey = new LinkedHashMap<String, OutputFile>();
+        for (TestInfo testInfo : testInfoList) {
+            if (testInfo.getFilePaths() != null && testInfo.getDataLoader() != null && testInfo.getWriteData()) {
+                for (String filePath : testInfo.getFilePaths()) {
+                    // the methods are grouped by the file and the loader they got their data from, so that a loader
+                    // can write the data of all the methods of a file in a single pass
+                    String fileKey = testInfo.getDataLoader().getClass().getName() + ":" + filePath;
+                    OutputFile outputFile = filesByKey.get(fileKey);
+                    if (outputFile == null) {
+                        outputFile = new OutputFile(testInfo, filePath);
+                        filesByKey.put(fileKey, outputFile);
+                        outputFiles.add(outputFile);
+                    }
+                    outputFile.unwrittenMethods.add(testInfo.getMethodName());
+                    List<OutputFile> files = methodOutputFiles.get(testInfo.getMethodName());
+                    if (files == null) {
+                        files = new ArrayList<OutputFile>();
+                        methodOutputFiles.put(testInfo.getMethodName(), files);
+                    }
+                    if (!files.contains(outputFile)) {
+                        files.add(outputFile);
+                    }
+                }
+            }
+        }
+        for (FrameworkMethod testMethod : testMethods) {
+            String methodName = testMethod.getMethod().getName();
+            AtomicInteger rows = remainingRows.get(methodName);
+            if (rows == null) {
+                remainingRows.put(methodName, new AtomicInteger(1));
+            } else {
+                rows.incrementAndGet();
+            }
+        }
+        for (OutputFile outputFile : outputFiles) {
+            outputFile.remainingMethods.set(outputFile.unwrittenMethods.size());
+        }
+        this.writeBehind = isWriteEnabled() && !outputFiles.isEmpty()
+            && Boolean.getBoolean(SystemProperties.WRITE_BEHIND.getValue());
+    }
+
+    /**
+     * Whether the output data should be written back to the files, as specified by the
+     * {@link SystemProperties#WRITE_DATA} System Property
+     *
+     * @return whether the output data should be written
+     */
+    public static boolean isWriteEnabled() {
+        String writeData = System.getProperty(SystemProperties.WRITE_DATA.name());
+        return writeData == null || Boolean.getBoolean(writeData);
+    }
+
+    /**
+     * Notify the writer that a row of test data of the given test method has completed, whatever its outcome. The
+     * write of a file whose test methods have now all completed is submitted to the writing threads, so the calling
+     * test thread never waits for it.
+     *
+     * @param methodName the name of the test method
+     */
+    public void rowCompleted(String methodName) {
+        if (!writeBehind || closed) {
+            return;
+        }
+        AtomicInteger rows = remainingRows.get(methodName);
+        if (rows != null && rows.decrementAndGet() == 0 && methodOutputFiles.containsKey(methodName)) {
+            for (OutputFile outputFile : methodOutputFiles.get(methodName)) {
+                if (outputFile.remainingMethods.decrementAndGet() == 0) {
+                    submitWrite(outputFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the output data of all the test methods that are not written yet, and wait for all the writes to complete
+     *
+     * @throws ParameterizedAssertionError if the data of a file could not be written
+     */
+    public void drain() {
+        closed = true;
+        for (OutputFile outputFile : outputFiles) {
+            submitWrite(outputFile);
+        }
+        awaitWrites();
+    }
+
+    /**
+     * Stop writing the output data, discarding the output data of the test methods that are not written yet. The
+     * writes already started are waited for.
+     */
+    public void discard() {
+        closed = true;
+        awaitWrites();
+    }
+
+    /**
+     * Submit the write of the output data of all the methods of the given file, unless it is already submitted
+     */
+    private void submitWrite(final OutputFile outputFile) {
+        final List<String> methodNames;
+        synchronized (outputFile.unwrittenMethods) {
+            if (outputFile.unwrittenMethods.isEmpty()) {
+                return;
+            }
+            methodNames = new ArrayList<String>(outputFile.unwrittenMethods);
+            outputFile.unwrittenMethods.clear();
+        }
+        synchronized (writes) {
+            if (writers == null) {
+                // the writes mostly wait for I/O, so every file gets a thread of its own up to a limit
+                writers = Executors.newFixedThreadPool(Math.min(outputFiles.size(), Math.max(MIN_WRITERS, Runtime
+                    .getRuntime().availableProcessors())), new ThreadFactory() {
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "easytest-output-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            writes.add(writers.submit(new Runnable() {
+
+                public void run() {
+                    outputFile.write(outputDataCollector == null ? writableData : outputDataCollector.merge(
+                        writableData, methodNames), methodNames);
+                }
+            }));
+        }
+    }
+
+    private void awaitWrites() {
+        List<Future<?>> submittedWrites;
+        synchronized (writes) {
+            submittedWrites = new ArrayList<Future<?>>(writes);
+            writes.clear();
+        }
+        Throwable failure = null;
+        for (Future<?> write : submittedWrites) {
+            try {
+                write.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        synchronized (writes) {
+            if (writers != null) {
+                writers.shutdown();
+                writers = null;
+            }
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw failure instanceof RuntimeException ? (RuntimeException) failure : new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * A file that the output data is written to, along with the test methods whose data is written to it
+     */
+    private static class OutputFile {
+
+        /** The test information of the first test method whose data is written to the file */
+        private final TestInfo testInfo;
+
+        /** The path of the file */
+        private final String filePath;
+
+        /** The methods whose output data is not written yet, or not submitted for writing */
+        private final Set<String> unwrittenMethods = new LinkedHashSet<String>();
+
+        /** The number of methods whose rows have not all completed yet */
+        private final AtomicInteger remainingMethods = new AtomicInteger();
+
+        OutputFile(TestInfo testInfo, String filePath) {
+            this.testInfo = testInfo;
+            this.filePath = filePath;
+        }
+
+        /**
+         * Write the output data of the given methods
+         */
+        void write(Map<String, List<Map<String, Object>>> writableData, List<String> methodNames) {
+            LOG.debug("Writing the output data of methods {} to {}", methodNames, filePath);
+            try {
+                ResourceLoader resourceLoader = new ResourceLoaderStrategy(testInfo.getTestClass().getJavaClass());
+                testInfo.getDataLoader().writeData(resourceLoader.getResource(filePath), writableData,
+                    methodNames.toArray(new String[methodNames.size()]));
+            } catch (Exception e) {
+                throw new ParameterizedAssertionError(e, methodNames.toString(), testInfo);
+            }
+        }
+    }
+
+}
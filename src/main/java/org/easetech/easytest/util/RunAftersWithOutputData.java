@@ -1,6 +1,7 @@
 package org.easetech.easytest.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -12,13 +13,10 @@ import org.easetech.easytest.annotation.Report.REPORT_TYPE;
 import org.easetech.easytest.annotation.TestPolicy;
 import org.easetech.easytest.converter.ConverterManager;
 import org.easetech.easytest.internal.SystemProperties;
-import org.easetech.easytest.io.ResourceLoader;
-import org.easetech.easytest.io.ResourceLoaderStrategy;
 import org.easetech.easytest.reports.data.ReportDataContainer;
 import org.easetech.easytest.reports.data.ReportParametersBean;
 import org.easetech.easytest.reports.impl.ReportRunner;
 import org.junit.AfterClass;
-import org.junit.experimental.theories.internal.ParameterizedAssertionError;
 import org.junit.internal.runners.statements.RunAfters;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.MultipleFailureException;
@@ -28,7 +26,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An extension of {@link RunAfters} method to write the test data to the file at the end of executing all the test
- * methods in the test cases.
+ * methods in the test cases. The writing is done by an {@link OutputDataWriter}, which may already have written part of
+ * the data in the background while the test methods were running : only the remaining data is written here.
  * This class also encapsulates the logic of running the reports after the test execution.
  * The reports are run asynchronously so that the Test cases do not get halted for the expensive run of the reports.
  *
@@ -41,9 +40,9 @@ public class RunAftersWithOutputData extends Statement {
     protected static final Logger LOG = LoggerFactory.getLogger(RunAftersWithOutputData.class);
 
     /**
-     * The actual data structure that contains both the input as well as output data
+     * The writer of the output data to the files
      */
-    private Map<String, List<Map<String, Object>>> writableData;
+    private final OutputDataWriter outputDataWriter;
 
     /**
      * An instance of {@link Statement}
@@ -55,11 +54,6 @@ public class RunAftersWithOutputData extends Statement {
      */
     private final Object fTarget;
 
-    /**
-     * The list of {@link TestInfo} objects that contains the information required to write data back to the file.
-     */
-    private final List<TestInfo> testInfoList;
-
     /**
      * List of {@link FrameworkMethod} that should be run as part of teh {@link AfterClass} annotation.
      */
@@ -84,12 +78,29 @@ public class RunAftersWithOutputData extends Statement {
      */
     public RunAftersWithOutputData(Statement next, List<FrameworkMethod> afters, Object target,
         List<TestInfo> testInfoList, Map<String, List<Map<String, Object>>> writableData , ReportDataContainer testReportContainer) {
+        this(next, afters, target, new OutputDataWriter(testInfoList, writableData,
+            Collections.<FrameworkMethod> emptyList()), testReportContainer);
+    }
+
+    /**
+     * Construct a new RunAftersWithOutputData that waits for the given {@link OutputDataWriter} to write the output
+     * data, which may already have been partly written while the test methods were running.
+     *
+     * @param next the instance of {@link Statement} object
+     * @param afters the list of {@link FrameworkMethod} that needs to be run after all the methods in the test class
+     *            have been executed.
+     * @param target the target instance of the class. In this case it will always be null since methods with
+     *            {@link AfterClass} are always declared as static.
+     * @param outputDataWriter the writer of the output data to the files
+     * @param testReportContainer a container class representing everything required to generate reports
+     */
+    public RunAftersWithOutputData(Statement next, List<FrameworkMethod> afters, Object target,
+        OutputDataWriter outputDataWriter, ReportDataContainer testReportContainer) {
         super();
         this.fNext = next;
         this.fAfters = afters;
         this.fTarget = target;
-        this.testInfoList = testInfoList;
-        this.writableData = writableData;
+        this.outputDataWriter = outputDataWriter;
         this.testReportContainer = testReportContainer;
     }
 
@@ -121,17 +132,14 @@ public class RunAftersWithOutputData extends Statement {
                     errors.add(e);
                 }
         }
-        MultipleFailureException.assertEmpty(errors);
-        // Write any output test data to the file only if there is a write data associated with the test method.
-        String writeData = System.getProperty(SystemProperties.WRITE_DATA.name());
-        if(writeData != null) {
-            if(Boolean.getBoolean(writeData)) {
-                writeData();
-            }
+        // Write any output test data that is not written yet to the files only if there is a write data associated
+        // with the test method, and wait for the writes that are still running.
+        if (!errors.isEmpty() || !OutputDataWriter.isWriteEnabled()) {
+            outputDataWriter.discard();
         } else {
-            
-            writeData();
+            outputDataWriter.drain();
         }
+        MultipleFailureException.assertEmpty(errors);
         
 
         if (submit != null) {
@@ -145,21 +153,6 @@ public class RunAftersWithOutputData extends Statement {
         //DataContext.cleanData();
     }
     
-    private void writeData() {
-        for (TestInfo testInfo : testInfoList) {
-            if (testInfo.getFilePaths() != null && testInfo.getDataLoader() != null && testInfo.getWriteData()) {
-                try {
-                    ResourceLoader resourceLoader = new ResourceLoaderStrategy(testInfo.getTestClass().getJavaClass());
-                    for(String filePath : testInfo.getFilePaths()){
-                        testInfo.getDataLoader().writeData(resourceLoader.getResource(filePath), writableData, testInfo.getMethodName());
-                    }
-                } catch (Exception e) {
-                    throw new ParameterizedAssertionError(e, testInfo.getMethodName(), testInfo);
-                }
-            }
-        }
-    }
-
     private Future<Boolean> processReports(ReportDataContainer testReportContainer) {
     	Future<Boolean> submit = null;
         if (testReportContainer != null) {
@@ -0,0 +1,27 @@
+package org.easetech.easytest.example;
+
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.easetech.easytest.runner.DataDrivenTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose test data is loaded from, and written back to, an entry of a zip archive.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/testDataBundle.zip!/bundledTestData.csv" })
+public class TestArchivedDataLoader {
+
+    @Test
+    public Long getBundledData(@Param(name = "libraryId") Long libraryId, @Param(name = "itemId") Long itemId,
+        @Param(name = "itemType") String itemType) {
+        Assert.assertNotNull(libraryId);
+        Assert.assertNotNull(itemId);
+        Assert.assertNotNull(itemType);
+        return libraryId + itemId;
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.easetech.easytest.example;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.loader.CSVDataLoader;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.util.OutputDataCollector;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the output columns written back to a CSV file are determined by all the rows of a test method, and not
+ * only by its first row, which may not have run.
+ *
+ */
+public class TestCSVDataWriting {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void writeOutputColumnsWhenTheFirstRowDidNotRun() throws Exception {
+        File csvFile = File.createTempFile("csvDataWriting", ".csv");
+        try {
+            write(csvFile, "getItems,itemId\n,1\n,2\n");
+            PathResource resource = new PathResource(csvFile.toPath());
+            new CSVDataLoader().writeData(resource, mergeOutputOfSecondRow(resource), "getItems");
+
+            List<String> lines = Files.readAllLines(csvFile.toPath(), UTF8);
+            Assert.assertEquals("getItems,itemId,ActualResult,TestStatus,Duration(ms)", lines.get(0));
+            Assert.assertEquals("\"\",1", lines.get(1));
+            Assert.assertEquals("\"\",2,ran-2,PASSED,5", lines.get(2));
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void writeAllDataWhenTheFirstRowDidNotRun() throws Exception {
+        File csvFile = File.createTempFile("csvDataWriting", ".csv");
+        try {
+            write(csvFile, "getItems,itemId\n,1\n,2\n");
+            PathResource resource = new PathResource(csvFile.toPath());
+            new CSVDataLoader().writeData(resource, mergeOutputOfSecondRow(resource));
+
+            List<String> lines = Files.readAllLines(csvFile.toPath(), UTF8);
+            Assert.assertEquals("getItems,itemId,ActualResult,TestStatus,Duration(ms)", lines.get(0));
+            Assert.assertEquals("\"\",1,,,", lines.get(1));
+            Assert.assertEquals("\"\",2,ran-2,PASSED,5", lines.get(2));
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    /**
+     * Load the data of the file and merge the output data of its second row only, the way the runner does
+     */
+    private static Map<String, List<Map<String, Object>>> mergeOutputOfSecondRow(PathResource resource) {
+        Map<String, List<Map<String, Object>>> data = new CSVDataLoader().loadData(resource);
+        Map<String, Object> output = new LinkedHashMap<String, Object>();
+        output.put(Loader.ACTUAL_RESULT, "ran-2");
+        output.put(Loader.TEST_STATUS, Loader.TEST_PASSED);
+        output.put(Loader.DURATION, "5");
+        OutputDataCollector collector = new OutputDataCollector();
+        collector.collect(data.get("getItems").get(1), output);
+        return collector.merge(data, Collections.singletonList("getItems"));
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(UTF8));
+    }
+
+}
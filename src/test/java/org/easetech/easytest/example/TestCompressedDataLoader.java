@@ -0,0 +1,27 @@
+package org.easetech.easytest.example;
+
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.easetech.easytest.runner.DataDrivenTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose test data is loaded from, and written back to, a gzip compressed CSV file.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/compressedTestData.csv.gz" })
+public class TestCompressedDataLoader {
+
+    @Test
+    public Long getCompressedData(@Param(name = "libraryId") Long libraryId, @Param(name = "itemId") Long itemId,
+        @Param(name = "itemType") String itemType) {
+        Assert.assertNotNull(libraryId);
+        Assert.assertNotNull(itemId);
+        Assert.assertTrue(itemType.endsWith("book"));
+        return libraryId + itemId;
+    }
+
+}
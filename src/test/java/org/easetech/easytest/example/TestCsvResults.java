@@ -0,0 +1,103 @@
+package org.easetech.easytest.example;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.loader.CSVDataLoader;
+import org.easetech.easytest.loader.Loader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the output data of a CSV file is appended to its result sidecar and merged back into the file only when
+ * the results are compacted.
+ *
+ */
+public class TestCsvResults {
+
+    @Test
+    public void appendAndCompactResults() throws Exception {
+        File csvFile = File.createTempFile("csvResults", ".csv");
+        File resultsFile = new File(csvFile.getPath() + ".results");
+        String content = "getItems,libraryId,itemId\n,1,10\n,1,11\n,2,12\ngetNothing\ngetOthers,name\n,a\n";
+        write(csvFile, content);
+        PathResource resource = new PathResource(csvFile.toPath());
+        System.setProperty(SystemProperties.CSV_RESULTS.getValue(), "true");
+        try {
+            Map<String, List<Map<String, Object>>> data = new CSVDataLoader().loadData(resource);
+            // the loaded rows are read only, the output data is added to copies of them
+            List<Map<String, Object>> items = new ArrayList<Map<String, Object>>();
+            for (Map<String, Object> row : data.get("getItems")) {
+                Map<String, Object> item = new LinkedHashMap<String, Object>(row);
+                item.put(Loader.ACTUAL_RESULT, "item" + row.get("itemId"));
+                item.put(Loader.TEST_STATUS, Loader.TEST_PASSED);
+                item.put(Loader.DURATION, Double.valueOf(1.5));
+                items.add(item);
+            }
+            // the rows are identified by their content, whatever their order
+            List<Map<String, Object>> reversedItems = new ArrayList<Map<String, Object>>(items);
+            Collections.reverse(reversedItems);
+            data.put("getItems", reversedItems);
+            new CSVDataLoader().writeData(resource, data, "getItems", "getOthers");
+            Assert.assertEquals(content, read(csvFile));
+            Assert.assertTrue(resultsFile.isFile());
+
+            // a later batch replaces the output data of the rows it holds
+            items.get(1).put(Loader.ACTUAL_RESULT, "rerun");
+            items.get(1).put(Loader.TEST_STATUS, Loader.TEST_FAILED);
+            new CSVDataLoader().writeData(resource, Collections.singletonMap("getItems", items.subList(1, 2)),
+                "getItems");
+            Assert.assertEquals(content, read(csvFile));
+
+            Assert.assertTrue(new CSVDataLoader().compactResults(resource));
+            Assert.assertFalse(resultsFile.exists());
+            Assert.assertEquals("getItems,libraryId,itemId,ActualResult,TestStatus,Duration(ms)\n"
+                + ",1,10,item10,PASSED,1.5\n" + ",1,11,rerun,FAILED,1.5\n" + ",2,12,item12,PASSED,1.5\n"
+                + "getNothing\n" + "getOthers,name\n" + ",a\n", compacted(csvFile));
+            Assert.assertFalse(new CSVDataLoader().compactResults(resource));
+
+            // compacting again replaces the output columns instead of adding new ones
+            data = new CSVDataLoader().loadData(resource);
+            Assert.assertEquals("rerun", data.get("getItems").get(1).get(Loader.ACTUAL_RESULT));
+            Map<String, Object> item = new LinkedHashMap<String, Object>(data.get("getItems").get(1));
+            item.put(Loader.ACTUAL_RESULT, "item11");
+            item.put(Loader.TEST_STATUS, Loader.TEST_PASSED);
+            data.get("getItems").set(1, item);
+            new CSVDataLoader().writeData(resource, data, "getItems");
+            Assert.assertTrue(new CSVDataLoader().compactResults(resource));
+            Assert.assertEquals("getItems,libraryId,itemId,ActualResult,TestStatus,Duration(ms)\n"
+                + ",1,10,item10,PASSED,1.5\n" + ",1,11,item11,PASSED,1.5\n" + ",2,12,item12,PASSED,1.5\n"
+                + "getNothing\n" + "getOthers,name\n" + ",a\n", compacted(csvFile));
+        } finally {
+            System.clearProperty(SystemProperties.CSV_RESULTS.getValue());
+            csvFile.delete();
+            resultsFile.delete();
+        }
+    }
+
+    private static void write(File file, String content) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String compacted(File file) throws Exception {
+        // the CSV writer quotes the empty first value of the data rows
+        return read(file).replace("\r\n", "\n").replace("\n\"\",", "\n,");
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+}
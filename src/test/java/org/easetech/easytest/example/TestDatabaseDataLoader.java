@@ -0,0 +1,65 @@
+package org.easetech.easytest.example;
+
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.loader.DatabaseDataLoader;
+import org.easetech.easytest.loader.LoaderType;
+import org.easetech.easytest.runner.DataDrivenTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose test data is queried from an embedded database, created by the script
+ * databaseTestData.sql when the first connection to it is opened.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/databaseTestData.properties" }, loaderType = LoaderType.DATABASE, writeData = false)
+public class TestDatabaseDataLoader {
+
+    private static final String DATA_FILE = "org/easetech/data/databaseTestData.properties";
+
+    @Test
+    public void getItemsFromDatabase(@Param(name = "libraryId") Long libraryId, @Param(name = "itemId") Long itemId,
+        @Param(name = "itemType") String itemType) {
+        Assert.assertTrue(libraryId >= 2);
+        Assert.assertTrue(itemId > 10);
+        Assert.assertNotNull(itemType);
+    }
+
+    @Test
+    public void countItemsFromDatabase(@Param(name = "libraryId") Long libraryId,
+        @Param(name = "itemCount") int itemCount) {
+        Assert.assertEquals(libraryId == 1 || libraryId == 4 ? 1 : 2, itemCount);
+    }
+
+    @Test
+    public void loadRowsOfEveryQuery() {
+        Map<String, List<Map<String, Object>>> data = new DatabaseDataLoader().loadData(new ClasspathResource(
+            DATA_FILE));
+        List<Map<String, Object>> items = data.get("getItemsFromDatabase");
+        Assert.assertEquals(5, items.size());
+        Assert.assertEquals("11", items.get(0).get("itemId"));
+        Assert.assertEquals("journal", items.get(0).get("itemType"));
+        Assert.assertEquals("15", items.get(4).get("itemId"));
+        List<Map<String, Object>> counts = data.get("countItemsFromDatabase");
+        Assert.assertEquals(4, counts.size());
+        Assert.assertEquals("2", counts.get(2).get("itemCount"));
+
+        // the placeholder of the query is bound to the System Property once it is set
+        System.setProperty("easytest.example.minLibraryId", "3");
+        try {
+            data = new DatabaseDataLoader().loadData(new ClasspathResource(DATA_FILE));
+            items = data.get("getItemsFromDatabase");
+            Assert.assertEquals(3, items.size());
+            Assert.assertEquals("13", items.get(0).get("itemId"));
+        } finally {
+            System.clearProperty("easytest.example.minLibraryId");
+        }
+    }
+
+}
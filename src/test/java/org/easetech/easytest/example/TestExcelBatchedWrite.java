@@ -0,0 +1,80 @@
+package org.easetech.easytest.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.loader.ExcelDataLoader;
+import org.easetech.easytest.loader.Loader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the output data of all the methods of an Excel file is written back with a single write of the workbook.
+ *
+ */
+public class TestExcelBatchedWrite {
+
+    @Test
+    public void writeAllMethodsInOnePass() throws Exception {
+        File excelFile = File.createTempFile("batchedWrite", ".xls");
+        try {
+            InputStream in = new ClasspathResource("org/easetech/data/testExcelData.xls").getInputStream();
+            try {
+                Files.copy(in, excelFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                in.close();
+            }
+            final int[] writes = new int[1];
+            PathResource resource = new PathResource(excelFile.toPath()) {
+                @Override
+                public OutputStream getOutputStream() throws IOException {
+                    writes[0]++;
+                    return super.getOutputStream();
+                }
+            };
+            Map<String, List<Map<String, Object>>> data = new ExcelDataLoader().loadData(resource);
+            Assert.assertTrue(data.size() > 1);
+            for (Map.Entry<String, List<Map<String, Object>>> methodData : data.entrySet()) {
+                int rowNum = 0;
+                for (ListIterator<Map<String, Object>> rows = methodData.getValue().listIterator(); rows.hasNext();) {
+                    // the runner records the duration of every row along with its actual result, in a copy of the
+                    // read only row
+                    Map<String, Object> row = new LinkedHashMap<String, Object>(rows.next());
+                    row.put(Loader.DURATION, Long.valueOf(rowNum));
+                    row.put(Loader.ACTUAL_RESULT, methodData.getKey() + "-" + rowNum++);
+                    rows.set(row);
+                }
+            }
+            String[] methodNames = data.keySet().toArray(new String[data.size()]);
+            new ExcelDataLoader().writeData(resource, data, methodNames);
+            Assert.assertEquals(1, writes[0]);
+
+            Map<String, List<Map<String, Object>>> written = new ExcelDataLoader().loadData(new PathResource(
+                excelFile.toPath()));
+            Assert.assertEquals(data.keySet(), written.keySet());
+            for (Map.Entry<String, List<Map<String, Object>>> methodData : written.entrySet()) {
+                int rowNum = 0;
+                for (Map<String, Object> row : methodData.getValue()) {
+                    Assert.assertEquals(methodData.getKey() + "-" + rowNum++, row.get(Loader.ACTUAL_RESULT));
+                }
+                Assert.assertEquals(data.get(methodData.getKey()).size(), rowNum);
+            }
+
+            // methods that are not in the workbook leave the file untouched
+            new ExcelDataLoader().writeData(resource, data, "getUnknownMethod");
+            Assert.assertEquals(1, writes[0]);
+        } finally {
+            excelFile.delete();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.easetech.easytest.example;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.easetech.easytest.io.FileSystemResource;
+import org.easetech.easytest.loader.ExcelDataLoader;
+import org.easetech.easytest.loader.Loader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the output data of a test method is written back to the sheet of the workbook its data was loaded from.
+ *
+ */
+public class TestExcelSheetsWriting {
+
+    @Test
+    public void writeEachMethodToItsOwnSheet() throws Exception {
+        File excelFile = File.createTempFile("sheetsWriting", ".xls");
+        try {
+            Workbook workbook = new HSSFWorkbook();
+            addMethod(workbook.createSheet(), "getFirstItems", "1");
+            addMethod(workbook.createSheet(), "getSecondItems", "2");
+            OutputStream out = new FileOutputStream(excelFile);
+            try {
+                workbook.write(out);
+            } finally {
+                out.close();
+            }
+            FileSystemResource resource = new FileSystemResource(excelFile.getPath());
+            Map<String, List<Map<String, Object>>> data = new ExcelDataLoader().loadData(resource);
+            // the loaded rows are read only, the output data is added to copies of them
+            addOutput(data.get("getFirstItems"), "first");
+            addOutput(data.get("getSecondItems"), "second");
+            new ExcelDataLoader().writeData(resource, data, "getFirstItems", "getSecondItems");
+
+            Map<String, List<Map<String, Object>>> written = new ExcelDataLoader().loadData(resource);
+            Assert.assertEquals("first", written.get("getFirstItems").get(0).get(Loader.ACTUAL_RESULT));
+            Assert.assertEquals("second", written.get("getSecondItems").get(0).get(Loader.ACTUAL_RESULT));
+        } finally {
+            excelFile.delete();
+        }
+    }
+
+    private static void addOutput(List<Map<String, Object>> rows, String actualResult) {
+        Map<String, Object> row = new LinkedHashMap<String, Object>(rows.get(0));
+        row.put(Loader.ACTUAL_RESULT, actualResult);
+        rows.set(0, row);
+    }
+
+    private static void addMethod(Sheet sheet, String methodName, String itemId) {
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue(methodName);
+        header.createCell(1).setCellValue("itemId");
+        Row row = sheet.createRow(1);
+        row.createCell(1).setCellValue(itemId);
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.easetech.easytest.example;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.loader.GeneratorDataLoader;
+import org.easetech.easytest.runner.DataDrivenTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose test data is generated from a specification instead of being read from a test data file.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/generatedTestData.datagen" }, writeData = false)
+public class TestGeneratorDataLoader {
+
+    private static final String DATA_FILE = "org/easetech/data/generatedTestData.datagen";
+
+    @Test
+    public void getGeneratedItems(@Param(name = "itemId") Long itemId, @Param(name = "libraryId") Long libraryId,
+        @Param(name = "itemType") String itemType, @Param(name = "price") Double price) {
+        Assert.assertTrue(itemId >= 1000 && itemId <= 1199);
+        Assert.assertTrue(libraryId >= 1 && libraryId <= 50);
+        Assert.assertTrue("book".equals(itemType) || "journal".equals(itemType) || "ebook".equals(itemType));
+        Assert.assertNotNull(price);
+    }
+
+    @Test
+    public void getGeneratedOrders(@Param(name = "orderId") Long orderId, @Param(name = "discount") Double discount,
+        @Param(name = "channel") String channel) {
+        Assert.assertEquals(0, (orderId - 500) % 10);
+        Assert.assertTrue(discount >= 0 && discount <= 0.25);
+        Assert.assertEquals("web", channel);
+    }
+
+    @Test
+    public void generateTheSameRowsFromTheSameSeed() throws Exception {
+        GeneratorDataLoader loader = new GeneratorDataLoader();
+        Map<String, List<Map<String, Object>>> data = loader.loadData(new ClasspathResource(DATA_FILE));
+        List<Map<String, Object>> items = data.get("getGeneratedItems");
+        Assert.assertEquals(200, items.size());
+        Assert.assertEquals(20, data.get("getGeneratedOrders").size());
+        Assert.assertEquals(items, loader.loadData(new ClasspathResource(DATA_FILE)).get("getGeneratedItems"));
+
+        Set<Object> itemIds = new HashSet<Object>();
+        for (Map<String, Object> item : items) {
+            itemIds.add(item.get("itemId"));
+            Assert.assertEquals(12, ((String) item.get("description")).length());
+            Assert.assertTrue(((String) item.get("published")).matches("201[0-2]-\\d\\d-\\d\\d"));
+        }
+        Assert.assertEquals(200, itemIds.size());
+
+        // a single row is generated again from its index
+        Assert.assertEquals(items.get(137), loader.generateRow(new ClasspathResource(DATA_FILE), "getGeneratedItems",
+            137));
+        Assert.assertEquals("137", items.get(137).get("row"));
+        Assert.assertNull(loader.generateRow(new ClasspathResource(DATA_FILE), "getGeneratedItems", 200));
+    }
+
+}
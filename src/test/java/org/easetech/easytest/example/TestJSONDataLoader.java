@@ -0,0 +1,54 @@
+package org.easetech.easytest.example;
+
+import java.util.List;
+import java.util.Map;
+import org.codehaus.jackson.JsonNode;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.loader.JSONDataLoader;
+import org.easetech.easytest.runner.DataDrivenTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose test data is loaded from, and written back to, a JSON document and a newline delimited JSON
+ * file.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/jsonTestData.json" })
+public class TestJSONDataLoader {
+
+    @Test
+    public Item getItemsFromJSON(@Param(name = "Item") Item item, LibraryId libraryId,
+        @Param(name = "itemCount") int itemCount) {
+        Assert.assertNotNull(item.getItemId());
+        Assert.assertNotNull(libraryId);
+        Assert.assertEquals(libraryId.getId() + 1, itemCount);
+        return item;
+    }
+
+    @Test
+    @DataLoader(filePaths = { "classpath:org/easetech/data/ndjsonTestData.ndjson" })
+    public Long getItemsFromNDJSON(@Param(name = "Item") Item item, LibraryId libraryId,
+        @Param(name = "itemCount") int itemCount) {
+        Assert.assertNotNull(item.getItemId());
+        Assert.assertEquals(libraryId.getId() + 1, itemCount);
+        return libraryId.getId();
+    }
+
+    @Test
+    public void loadNestedObjectsAsTrees() {
+        Map<String, List<Map<String, Object>>> data = new JSONDataLoader().loadData(new ClasspathResource(
+            "org/easetech/data/ndjsonTestData.ndjson"));
+        List<Map<String, Object>> rows = data.get("getItemsFromNDJSON");
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals("7", rows.get(0).get("LibraryId"));
+        Assert.assertFalse(rows.get(0).containsKey(JSONDataLoader.METHOD_FIELD));
+        Assert.assertTrue(rows.get(0).get("Item") instanceof JsonNode);
+        Assert.assertEquals(1, data.get("getItemsNotTested").size());
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.easetech.easytest.example;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.loader.JSONDataLoader;
+import org.easetech.easytest.loader.Loader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the output data written back to a JSON file lands on the rows it belongs to, whatever the rows that did
+ * not run, and leaves the input data as it was.
+ *
+ */
+public class TestJSONDataWriting {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void writeOutputDataOfTheRowsThatRan() throws Exception {
+        File jsonFile = File.createTempFile("jsonDataWriting", ".json");
+        try {
+            write(jsonFile, "{\"getData\":[{\"libraryId\":1,\"itemType\":\"book\"},"
+                + "{\"libraryId\":2,\"itemType\":\"ebook\"},{\"libraryId\":3,\"itemType\":\"book\"}]}");
+            PathResource resource = new PathResource(jsonFile.toPath());
+            List<Map<String, Object>> rows = new JSONDataLoader().loadData(resource).get("getData");
+            // only the ebook row ran, as if the others were filtered out. Its output is added to a copy of the read
+            // only row
+            Map<String, Object> ebookRow = new LinkedHashMap<String, Object>(rows.get(1));
+            ebookRow.put(Loader.ACTUAL_RESULT, "ran-2");
+            new JSONDataLoader().writeData(resource, Collections.singletonMap("getData", Collections
+                .singletonList(ebookRow)), "getData");
+
+            List<Map<String, Object>> written = new JSONDataLoader().loadData(resource).get("getData");
+            Assert.assertEquals(3, written.size());
+            Assert.assertEquals("1", written.get(0).get("libraryId"));
+            Assert.assertEquals("book", written.get(0).get("itemType"));
+            Assert.assertNull(written.get(0).get(Loader.ACTUAL_RESULT));
+            Assert.assertEquals("ebook", written.get(1).get("itemType"));
+            Assert.assertEquals("ran-2", written.get(1).get(Loader.ACTUAL_RESULT));
+            Assert.assertNull(written.get(2).get(Loader.ACTUAL_RESULT));
+        } finally {
+            jsonFile.delete();
+        }
+    }
+
+    @Test
+    public void writeOutputDataOfSplitMethodBlocks() throws Exception {
+        File ndjsonFile = File.createTempFile("jsonDataWriting", ".ndjson");
+        try {
+            write(ndjsonFile, "{\"testMethod\":\"getData\",\"libraryId\":1}\n"
+                + "{\"testMethod\":\"getOthers\",\"libraryId\":9}\n" + "{\"testMethod\":\"getData\",\"libraryId\":2}\n");
+            PathResource resource = new PathResource(ndjsonFile.toPath());
+            // the later block of a test method replaces the earlier one
+            Map<String, List<Map<String, Object>>> data = new JSONDataLoader().loadData(resource);
+            Assert.assertEquals("2", data.get("getData").get(0).get("libraryId"));
+            Map<String, Object> row = new LinkedHashMap<String, Object>(data.get("getData").get(0));
+            row.put(Loader.ACTUAL_RESULT, "ran-2");
+            data.get("getData").set(0, row);
+            new JSONDataLoader().writeData(resource, data, "getData");
+
+            List<String> lines = Files.readAllLines(ndjsonFile.toPath(), UTF8);
+            Assert.assertFalse(lines.get(0), lines.get(0).contains(Loader.ACTUAL_RESULT));
+            Assert.assertFalse(lines.get(1), lines.get(1).contains(Loader.ACTUAL_RESULT));
+            Assert.assertTrue(lines.get(2), lines.get(2).contains("\"libraryId\":2"));
+            Assert.assertTrue(lines.get(2), lines.get(2).contains("\"ActualResult\":\"ran-2\""));
+        } finally {
+            ndjsonFile.delete();
+        }
+    }
+
+    @Test
+    public void leaveAFileThatCanNotBeReadUntouched() throws Exception {
+        File jsonFile = File.createTempFile("jsonDataWriting", ".json");
+        try {
+            String content = "{\"getData\":[{\"libraryId\":1}";
+            write(jsonFile, content);
+            Map<String, Object> row = new LinkedHashMap<String, Object>();
+            row.put("libraryId", "1");
+            row.put(Loader.ACTUAL_RESULT, "ran-1");
+            // the failure is logged like with the other loaders, instead of failing the test run
+            new JSONDataLoader().writeData(new PathResource(jsonFile.toPath()), Collections.singletonMap("getData",
+                Collections.singletonList(row)), "getData");
+            Assert.assertEquals(content, new String(Files.readAllBytes(jsonFile.toPath()), UTF8));
+        } finally {
+            jsonFile.delete();
+        }
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(UTF8));
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.easetech.easytest.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.util.OutputDataCollector;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the output data collected by the threads running the tests is kept apart from the rows of input data and
+ * merged with them in the order of the input data.
+ *
+ */
+public class TestOutputDataCollector {
+
+    private static final int THREADS = 4;
+
+    private static final int ROWS_PER_THREAD = 250;
+
+    @Test
+    public void mergeOutputDataCollectedConcurrently() throws Exception {
+        final List<Map<String, Object>> inputRows = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < THREADS * ROWS_PER_THREAD; i++) {
+            Map<String, Object> row = new HashMap<String, Object>();
+            row.put("itemId", String.valueOf(i));
+            inputRows.add(row);
+        }
+        Map<String, Object> skippedRow = new HashMap<String, Object>();
+        skippedRow.put("itemId", "skipped");
+        inputRows.add(skippedRow);
+        Map<String, List<Map<String, Object>>> writableData = new HashMap<String, List<Map<String, Object>>>();
+        writableData.put("getItems", inputRows);
+        writableData.put("getOthers", new ArrayList<Map<String, Object>>());
+
+        final OutputDataCollector collector = new OutputDataCollector();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            final int firstRow = t * ROWS_PER_THREAD;
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = firstRow; i < firstRow + ROWS_PER_THREAD; i++) {
+                        collector.collect(inputRows.get(i), output("item" + i));
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // a row that runs again replaces its output data
+        collector.collect(inputRows.get(1), output("rerun"));
+
+        Map<String, List<Map<String, Object>>> mergedData = collector.merge(writableData, Arrays.asList("getItems",
+            "getUnknown"));
+        Assert.assertEquals(1, mergedData.size());
+        List<Map<String, Object>> mergedRows = mergedData.get("getItems");
+        Assert.assertEquals(inputRows.size(), mergedRows.size());
+        for (int i = 0; i < THREADS * ROWS_PER_THREAD; i++) {
+            Map<String, Object> mergedRow = mergedRows.get(i);
+            Assert.assertEquals(String.valueOf(i), mergedRow.get("itemId"));
+            Assert.assertEquals(i == 1 ? "rerun" : "item" + i, mergedRow.get(Loader.ACTUAL_RESULT));
+            Assert.assertEquals(Loader.TEST_PASSED, mergedRow.get(Loader.TEST_STATUS));
+            // the input data is left untouched
+            Assert.assertEquals(1, inputRows.get(i).size());
+        }
+        Assert.assertSame(skippedRow, mergedRows.get(mergedRows.size() - 1));
+    }
+
+    private static Map<String, Object> output(Object actualResult) {
+        Map<String, Object> output = new HashMap<String, Object>();
+        output.put(Loader.ACTUAL_RESULT, actualResult);
+        output.put(Loader.TEST_STATUS, Loader.TEST_PASSED);
+        return output;
+    }
+
+}
@@ -0,0 +1,157 @@
+package org.easetech.easytest.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.Resource;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.util.OutputDataWriter;
+import org.easetech.easytest.util.TestInfo;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.TestClass;
+
+/**
+ * Test that the output data of a file is written in the background, once, as soon as all its test methods have
+ * completed, with the different files written concurrently and the remaining data written when the writer is drained.
+ *
+ */
+public class TestOutputDataWriter {
+
+    private static final String FIRST_FILE = "classpath:input-data.xml";
+
+    private static final String SECOND_FILE = "classpath:org/easetech/data/testExcelData.xls";
+
+    @Test
+    public void writeEveryFileOnceItsMethodsCompleted() throws Exception {
+        // the last writes of the two files wait for each other, so they only complete if they run concurrently
+        CyclicBarrier bothFilesWriting = new CyclicBarrier(2);
+        RecordingLoader firstLoader = new RecordingLoader(bothFilesWriting);
+        RecordingLoader secondLoader = new RecordingLoader(bothFilesWriting);
+        List<TestInfo> testInfoList = Arrays.asList(testInfo(firstLoader, FIRST_FILE, "first"),
+            testInfo(firstLoader, FIRST_FILE, "second"), testInfo(firstLoader, FIRST_FILE, "third"),
+            testInfo(secondLoader, SECOND_FILE, "fourth"));
+        List<FrameworkMethod> testMethods = Arrays.asList(method("first"), method("first"), method("second"),
+            method("third"), method("fourth"));
+        Map<String, List<Map<String, Object>>> writableData = new HashMap<String, List<Map<String, Object>>>();
+
+        System.setProperty(SystemProperties.WRITE_BEHIND.getValue(), "true");
+        OutputDataWriter writer;
+        try {
+            writer = new OutputDataWriter(testInfoList, writableData, testMethods);
+        } finally {
+            System.clearProperty(SystemProperties.WRITE_BEHIND.getValue());
+        }
+        writer.rowCompleted("first");
+        writer.rowCompleted("second");
+        writer.rowCompleted("third");
+        writer.rowCompleted("fourth");
+        // the first method has a row that did not complete yet, and the second file waits for the first one
+        Thread.sleep(100);
+        Assert.assertTrue(firstLoader.getWrites().isEmpty());
+        Assert.assertTrue(secondLoader.getWrites().isEmpty());
+        writer.rowCompleted("first");
+        Assert.assertTrue(firstLoader.awaitWrites(1));
+        Assert.assertTrue(secondLoader.awaitWrites(1));
+        Assert.assertEquals(Arrays.asList(Arrays.asList("first", "second", "third")), firstLoader.getWrites());
+        Assert.assertEquals(Arrays.asList(Arrays.asList("fourth")), secondLoader.getWrites());
+
+        // every file was already written once
+        writer.drain();
+        Assert.assertEquals(1, firstLoader.getWrites().size());
+        Assert.assertEquals(1, secondLoader.getWrites().size());
+
+        // without a batch size, everything is written when the writer is drained
+        RecordingLoader loader = new RecordingLoader(null);
+        writer = new OutputDataWriter(Collections.singletonList(testInfo(loader, FIRST_FILE, "first")), writableData,
+            testMethods);
+        writer.rowCompleted("first");
+        writer.rowCompleted("first");
+        Assert.assertTrue(loader.getWrites().isEmpty());
+        writer.drain();
+        Assert.assertEquals(Arrays.asList(Arrays.asList("first")), loader.getWrites());
+    }
+
+    private static TestInfo testInfo(Loader loader, String filePath, String methodName) {
+        TestInfo testInfo = new TestInfo(new TestClass(TestOutputDataWriter.class));
+        testInfo.setDataLoader(loader);
+        testInfo.setFilePaths(new String[] {filePath});
+        testInfo.setWriteData(Boolean.TRUE);
+        testInfo.setMethodName(methodName);
+        return testInfo;
+    }
+
+    private static FrameworkMethod method(String name) throws Exception {
+        return new FrameworkMethod(TestOutputDataWriter.class.getDeclaredMethod(name));
+    }
+
+    public void first() {
+        // a test method
+    }
+
+    public void second() {
+        // a test method
+    }
+
+    public void third() {
+        // a test method
+    }
+
+    public void fourth() {
+        // a test method
+    }
+
+    private static class RecordingLoader implements Loader {
+
+        private final CyclicBarrier bothFilesWriting;
+
+        private final List<List<String>> writes = new ArrayList<List<String>>();
+
+        RecordingLoader(CyclicBarrier bothFilesWriting) {
+            this.bothFilesWriting = bothFilesWriting;
+        }
+
+        public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
+            return new HashMap<String, List<Map<String, Object>>>();
+        }
+
+        public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData,
+            String... methodNames) {
+            if (bothFilesWriting != null
+                && (Arrays.asList(methodNames).contains("third") || Arrays.asList(methodNames).contains("fourth"))) {
+                try {
+                    bothFilesWriting.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            synchronized (this) {
+                writes.add(Arrays.asList(methodNames));
+                notifyAll();
+            }
+        }
+
+        synchronized List<List<String>> getWrites() {
+            return new ArrayList<List<String>>(writes);
+        }
+
+        /**
+         * Wait for the given number of writes, for a little while
+         */
+        synchronized boolean awaitWrites(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (writes.size() < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            return writes.size() == count;
+        }
+    }
+
+}
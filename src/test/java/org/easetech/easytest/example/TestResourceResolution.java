@@ -0,0 +1,51 @@
+package org.easetech.easytest.example;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.io.Resource;
+import org.easetech.easytest.io.ResourceLoaderStrategy;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the resources are resolved once and that a {@link PathResource} detects the changes of its file.
+ *
+ */
+public class TestResourceResolution {
+
+    @Test
+    public void resolveLocationOnce() {
+        Resource resource = new ResourceLoaderStrategy(getClass()).getResource("classpath:input-data.xml");
+        Assert.assertTrue(resource instanceof ClasspathResource);
+        Assert.assertSame(resource, new ResourceLoaderStrategy(getClass()).getResource("classpath:input-data.xml"));
+        ResourceLoaderStrategy.clearResolvedResources();
+        Assert.assertNotSame(resource, new ResourceLoaderStrategy(getClass()).getResource("classpath:input-data.xml"));
+    }
+
+    @Test
+    public void detectChangesOfPathResource() throws Exception {
+        File file = File.createTempFile("pathResource", ".csv");
+        file.deleteOnExit();
+        try {
+            Resource resource = new ResourceLoaderStrategy(getClass()).getResource(file.getPath());
+            Assert.assertTrue(resource instanceof PathResource);
+            PathResource pathResource = (PathResource) resource;
+            String version = pathResource.getVersion();
+            OutputStream outputStream = pathResource.getOutputStream();
+            outputStream.write("getItems,itemId\n,1\n".getBytes("UTF-8"));
+            outputStream.close();
+            Assert.assertFalse(version.equals(pathResource.getVersion()));
+            InputStream inputStream = pathResource.getInputStream();
+            byte[] data = new byte[64];
+            int read = inputStream.read(data);
+            inputStream.close();
+            Assert.assertEquals("getItems,itemId\n,1\n", new String(data, 0, read, "UTF-8"));
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.easetech.easytest.example;
+
+import java.util.Date;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.easetech.easytest.runner.DataDrivenTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Test loading the data from a binary snapshot created from the data of an xlsx workbook.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/testSnapshotData.snapshot" }, writeData = false)
+public class TestSnapshotDataLoader {
+
+    @Test
+    public void getXlsxTestData(@Param(name = "libraryId") Float libraryId, @Param(name = "itemId") Float itemId,
+        @Param(name = "startDate") Date startDate) {
+        Assert.assertNotNull(libraryId);
+        Assert.assertNotNull(itemId);
+        Assert.assertNotNull(startDate);
+    }
+
+    @Test
+    public void getXlsxTestDataFromSecondSheet(@Param(name = "description") String description,
+        @Param(name = "total") Double total) {
+        Assert.assertTrue(description.toLowerCase().startsWith("id is"));
+        Assert.assertTrue(total == 5.0 || total == 40.0);
+    }
+
+}
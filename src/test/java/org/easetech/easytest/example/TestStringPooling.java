@@ -0,0 +1,46 @@
+package org.easetech.easytest.example;
+
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.loader.XMLDataLoader;
+import org.easetech.easytest.runner.DataDrivenTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Test that the names and the low cardinality values of the parameters loaded from a test data file share a single
+ * instance.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+public class TestStringPooling {
+
+    @Test
+    public void poolNamesAndLowCardinalityValues() {
+        System.setProperty(SystemProperties.INTERN_VALUE_CARDINALITY.getValue(), "10");
+        try {
+            List<Map<String, Object>> rows = new XMLDataLoader().loadData(new ClasspathResource("input-data.xml")).get(
+                "getItemsDataFromXMLLoader");
+            Assert.assertEquals(3, rows.size());
+            Assert.assertSame(keyOf(rows.get(0), "libraryId"), keyOf(rows.get(1), "libraryId"));
+            Assert.assertEquals("91475", rows.get(0).get("libraryId"));
+            Assert.assertSame(rows.get(0).get("libraryId"), rows.get(1).get("libraryId"));
+            Assert.assertSame(rows.get(0).get("globalParam"), rows.get(2).get("globalParam"));
+        } finally {
+            System.clearProperty(SystemProperties.INTERN_VALUE_CARDINALITY.getValue());
+        }
+    }
+
+    private static String keyOf(Map<String, Object> row, String parameterName) {
+        for (String key : row.keySet()) {
+            if (key.equals(parameterName)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+}
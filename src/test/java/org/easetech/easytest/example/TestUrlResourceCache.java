@@ -0,0 +1,200 @@
+package org.easetech.easytest.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.UrlResource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the data of an HTTP {@link UrlResource} is cached on disk and revalidated using conditional requests,
+ * against an embedded HTTP server.
+ *
+ */
+public class TestUrlResourceCache {
+
+    private static final String DATA = "getItems,libraryId,itemId\n,1,2\n";
+
+    private HttpServer server;
+
+    private File cacheDirectory;
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private final AtomicInteger revalidations = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        cacheDirectory = File.createTempFile("urlCache", "");
+        cacheDirectory.delete();
+        System.setProperty(SystemProperties.URL_CACHE_DIRECTORY.getValue(), cacheDirectory.getPath());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/data.csv", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    revalidations.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    downloads.incrementAndGet();
+                    try {
+                        // keeps the download in progress while the other threads request it
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    byte[] data = DATA.getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, data.length);
+                    exchange.getResponseBody().write(data);
+                }
+                exchange.close();
+            }
+        });
+        server.createContext("/large", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+                downloads.incrementAndGet();
+                // two copies do not fit in a cache of a megabyte
+                byte[] data = new byte[600 * 1024];
+                exchange.sendResponseHeaders(200, data.length);
+                exchange.getResponseBody().write(data);
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        System.clearProperty(SystemProperties.URL_CACHE_DIRECTORY.getValue());
+        System.clearProperty(SystemProperties.URL_CACHE_TTL.getValue());
+        System.clearProperty(SystemProperties.URL_CACHE_SIZE.getValue());
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDirectory.delete();
+    }
+
+    @Test
+    public void revalidateCachedCopy() throws Exception {
+        UrlResource resource = new UrlResource(getURL());
+        Assert.assertEquals(DATA, read(resource));
+        Assert.assertEquals(DATA, read(resource));
+        Assert.assertEquals(1, downloads.get());
+        Assert.assertEquals(1, revalidations.get());
+    }
+
+    @Test
+    public void useFreshCopyWithoutRequest() throws Exception {
+        System.setProperty(SystemProperties.URL_CACHE_TTL.getValue(), "60");
+        UrlResource resource = new UrlResource(getURL());
+        Assert.assertEquals(DATA, read(resource));
+        Assert.assertEquals(DATA, read(resource));
+        Assert.assertTrue(resource.exists());
+        Assert.assertEquals(1, downloads.get());
+        Assert.assertEquals(0, revalidations.get());
+    }
+
+    @Test
+    public void useStaleCopyWhenTheServerIsDown() throws Exception {
+        UrlResource resource = new UrlResource(getURL());
+        UrlResource uncachedResource = new UrlResource(new URL(getURL(), "/other.csv"));
+        Assert.assertEquals(DATA, read(resource));
+        server.stop(0);
+        Assert.assertTrue(resource.exists());
+        Assert.assertEquals(DATA, read(resource));
+        Assert.assertEquals(1, downloads.get());
+        Assert.assertFalse(uncachedResource.exists());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedCopiesBeyondTheCacheSize() throws Exception {
+        System.setProperty(SystemProperties.URL_CACHE_SIZE.getValue(), "1");
+        UrlResource first = new UrlResource(new URL(getURL(), "/large/first"));
+        UrlResource second = new UrlResource(new URL(getURL(), "/large/second"));
+        Assert.assertEquals(600 * 1024, read(first).length());
+        Assert.assertEquals(1, countCopies());
+        Assert.assertEquals(600 * 1024, read(second).length());
+        Assert.assertEquals(1, countCopies());
+        // the copy of the first resource was evicted, so it is downloaded again
+        Assert.assertEquals(600 * 1024, read(first).length());
+        Assert.assertEquals(3, downloads.get());
+        Assert.assertEquals(1, countCopies());
+    }
+
+    @Test
+    public void downloadOnceForConcurrentRequests() throws Exception {
+        final UrlResource resource = new UrlResource(getURL());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(new Callable<String>() {
+
+                    public String call() throws Exception {
+                        return read(resource);
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals(DATA, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, downloads.get());
+    }
+
+    private int countCopies() {
+        int copies = 0;
+        for (File file : cacheDirectory.listFiles()) {
+            if (file.getName().endsWith(".data")) {
+                copies++;
+            }
+        }
+        return copies;
+    }
+
+    private URL getURL() throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/data.csv");
+    }
+
+    private static String read(UrlResource resource) throws IOException {
+        InputStream inputStream = resource.getInputStream();
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                data.write(buffer, 0, read);
+            }
+            return data.toString("UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.easetech.easytest.example;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.loader.XMLDataLoader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Test that the output data written back to an XML file replaces the output data of the records it belongs to and
+ * leaves the rest of the file as it was.
+ *
+ */
+public class TestXMLDataWriting {
+
+    private static final String METHOD_NAME = "getItemsDataFromXMLLoader";
+
+    @Test
+    public void writeOutputDataOfRecords() throws Exception {
+        File xmlFile = File.createTempFile("xmlDataWriting", ".xml");
+        try {
+            InputStream in = new ClasspathResource("input-data.xml").getInputStream();
+            try {
+                Files.copy(in, xmlFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                in.close();
+            }
+            PathResource resource = new PathResource(xmlFile.toPath());
+            Map<String, List<Map<String, Object>>> inputData = new XMLDataLoader().loadData(resource);
+            // the copied file may already hold the output data of an earlier run
+            String secondRecordDuration = outputData(parse(xmlFile), "2").getLength() == 0 ? null : outputValue(
+                parse(xmlFile), "2", Loader.DURATION);
+
+            Map<String, List<Map<String, Object>>> data = new XMLDataLoader().loadData(resource);
+            List<Map<String, Object>> records = data.get(METHOD_NAME);
+            // the loaded records are read only, the output data is added to copies of them
+            for (ListIterator<Map<String, Object>> record = records.listIterator(); record.hasNext();) {
+                record.set(new LinkedHashMap<String, Object>(record.next()));
+            }
+            records.get(0).put(Loader.ACTUAL_RESULT, "first & <result>");
+            records.get(0).put(Loader.DURATION, Long.valueOf(12));
+            records.get(0).put(Loader.TEST_STATUS, Loader.TEST_PASSED);
+            records.get(2).put(Loader.DURATION, Long.valueOf(3));
+            new XMLDataLoader().writeData(resource, data, METHOD_NAME);
+
+            Document document = parse(xmlFile);
+            Assert.assertEquals("first & <result>", outputValue(document, "1", Loader.ACTUAL_RESULT));
+            Assert.assertEquals("12", outputValue(document, "1", Loader.DURATION));
+            Assert.assertEquals(Loader.TEST_PASSED, outputValue(document, "1", Loader.TEST_STATUS));
+            Assert.assertEquals(secondRecordDuration == null ? 0 : 1, outputData(document, "2").getLength());
+            if (secondRecordDuration != null) {
+                Assert.assertEquals(secondRecordDuration, outputValue(document, "2", Loader.DURATION));
+            }
+            Assert.assertEquals(null, outputValue(document, "3", Loader.ACTUAL_RESULT));
+            Assert.assertEquals("3", outputValue(document, "3", Loader.DURATION));
+
+            // the output data of a second run replaces the one of the first run
+            records.get(0).put(Loader.ACTUAL_RESULT, "second result");
+            new XMLDataLoader().writeData(resource, data, METHOD_NAME);
+            document = parse(xmlFile);
+            Assert.assertEquals(1, outputData(document, "1").getLength());
+            Assert.assertEquals("second result", outputValue(document, "1", Loader.ACTUAL_RESULT));
+            Assert.assertEquals(1, outputData(document, "3").getLength());
+            Assert.assertTrue(document.getElementsByTagName("Description").item(0).getTextContent().startsWith(
+                "The method with name GetItemsData"));
+
+            // the input data is left untouched
+            Assert.assertEquals(inputData, new XMLDataLoader().loadData(resource));
+        } finally {
+            xmlFile.delete();
+        }
+    }
+
+    private static Document parse(File xmlFile) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(xmlFile);
+    }
+
+    private static NodeList outputData(Document document, String recordId) {
+        NodeList testRecords = document.getElementsByTagName("TestRecord");
+        for (int i = 0; i < testRecords.getLength(); i++) {
+            Element testRecord = (Element) testRecords.item(i);
+            if (recordId.equals(testRecord.getAttribute("id"))) {
+                return testRecord.getElementsByTagName("OutputData");
+            }
+        }
+        throw new AssertionError("No test record with id " + recordId);
+    }
+
+    private static String outputValue(Document document, String recordId, String key) {
+        NodeList entries = ((Element) outputData(document, recordId).item(0)).getElementsByTagName("Entry");
+        for (int i = 0; i < entries.getLength(); i++) {
+            Element entry = (Element) entries.item(i);
+            if (key.equals(entry.getAttribute("key"))) {
+                return entry.getAttribute("value");
+            }
+        }
+        return null;
+    }
+
+}
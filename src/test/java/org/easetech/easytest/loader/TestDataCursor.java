@@ -0,0 +1,173 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.FileSystemResource;
+import org.easetech.easytest.io.Resource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the {@link DataCursor} of every {@link StreamingLoader} honours the contract of the interface : a cursor
+ * stays exhausted once it has returned all its method blocks or all the rows of a block, it skips the rows of a block
+ * that are not read, and closing it more than once has no effect.
+ *
+ */
+public class TestDataCursor {
+
+    /** The name of the CSV file read through its index */
+    private static final String INDEXED = "indexed";
+
+    private String previousCsvIndex;
+
+    private File indexedCsvFile;
+
+    /** The loaders to test, mapped by the name of the resource they read */
+    private Map<String, StreamingLoader> loaders;
+
+    private Map<String, Resource> resources;
+
+    @Before
+    public void createCursors() throws IOException {
+        previousCsvIndex = System.getProperty(SystemProperties.CSV_INDEX.getValue());
+        indexedCsvFile = File.createTempFile("dataCursor", ".csv");
+        InputStream in = new ClasspathResource("org/easetech/data/indexedTestData.csv").getInputStream();
+        try {
+            Files.copy(in, indexedCsvFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            in.close();
+        }
+        loaders = new LinkedHashMap<String, StreamingLoader>();
+        resources = new LinkedHashMap<String, Resource>();
+        add(new CSVDataLoader(), "org/easetech/data/filteredTestData.csv");
+        add(new ExcelDataLoader(), "org/easetech/data/testExcelData.xls");
+        add(new ExcelDataLoader(), "org/easetech/data/testExcelData.xlsx");
+        add(new XMLDataLoader(), "input-data.xml");
+        add(new JSONDataLoader(), "org/easetech/data/jsonTestData.json");
+        add(new JSONDataLoader(), "org/easetech/data/ndjsonTestData.ndjson");
+        add(new GeneratorDataLoader(), "org/easetech/data/generatedTestData.datagen");
+        add(new DatabaseDataLoader(), "org/easetech/data/databaseTestData.properties");
+        add(new SnapshotDataLoader(), "org/easetech/data/testSnapshotData.snapshot");
+        // a loader that can not stream its data is read through a cursor over the data it loaded
+        loaders.put("map", new SnapshotDataLoader(new Loader() {
+
+            public Map<String, List<Map<String, Object>>> loadData(Resource resource) {
+                return new CSVDataLoader().loadData(resource);
+            }
+
+            public void writeData(Resource resource, Map<String, List<Map<String, Object>>> actualData,
+                String... methodNames) {
+                // never written
+            }
+        }));
+        resources.put("map", new ClasspathResource("org/easetech/data/filteredTestData.csv"));
+        loaders.put(INDEXED, new CSVDataLoader());
+        resources.put(INDEXED, new FileSystemResource(indexedCsvFile.getPath()));
+    }
+
+    @After
+    public void deleteIndexedFile() {
+        if (previousCsvIndex == null) {
+            System.clearProperty(SystemProperties.CSV_INDEX.getValue());
+        } else {
+            System.setProperty(SystemProperties.CSV_INDEX.getValue(), previousCsvIndex);
+        }
+        indexedCsvFile.delete();
+        new File(indexedCsvFile.getPath() + ".idx").delete();
+    }
+
+    @Test
+    public void stayExhaustedOnceAllTheDataIsRead() throws Exception {
+        for (String name : loaders.keySet()) {
+            DataCursor cursor = openCursor(name);
+            int rowCount = 0;
+            try {
+                while (cursor.nextMethod()) {
+                    Assert.assertNotNull(name, cursor.getMethodName());
+                    while (cursor.nextRow()) {
+                        Assert.assertNotNull(name, cursor.getRow());
+                        rowCount++;
+                    }
+                    Assert.assertFalse(name, cursor.nextRow());
+                }
+                Assert.assertTrue(name, rowCount > 0);
+                Assert.assertFalse(name, cursor.nextMethod());
+                Assert.assertFalse(name, cursor.nextRow());
+                Assert.assertFalse(name, cursor.nextMethod());
+            } finally {
+                cursor.close();
+            }
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void skipTheRowsThatAreNotRead() throws Exception {
+        for (String name : loaders.keySet()) {
+            StringBuilder allMethods = new StringBuilder();
+            DataCursor cursor = openCursor(name);
+            try {
+                while (cursor.nextMethod()) {
+                    allMethods.append(cursor.getMethodName()).append(',');
+                    while (cursor.nextRow()) {
+                        cursor.getRow();
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            StringBuilder skippedMethods = new StringBuilder();
+            cursor = openCursor(name);
+            try {
+                boolean firstRowRead = false;
+                while (cursor.nextMethod()) {
+                    skippedMethods.append(cursor.getMethodName()).append(',');
+                    if (!firstRowRead) {
+                        // read a single row of the first block, and none of the other blocks
+                        firstRowRead = cursor.nextRow();
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            Assert.assertEquals(name, allMethods.toString(), skippedMethods.toString());
+        }
+    }
+
+    @Test
+    public void closeMoreThanOnceWhileReading() throws Exception {
+        for (String name : loaders.keySet()) {
+            DataCursor cursor = openCursor(name);
+            Assert.assertTrue(name, cursor.nextMethod());
+            cursor.nextRow();
+            cursor.close();
+            cursor.close();
+
+            cursor = openCursor(name);
+            cursor.close();
+            cursor.close();
+        }
+    }
+
+    private void add(StreamingLoader loader, String path) {
+        loaders.put(path, loader);
+        resources.put(path, new ClasspathResource(path));
+    }
+
+    private DataCursor openCursor(String name) throws IOException {
+        // only the copy of the CSV file is indexed, the index of a file is written next to it
+        System.setProperty(SystemProperties.CSV_INDEX.getValue(), String.valueOf(INDEXED.equals(name)));
+        return loaders.get(name).openCursor(resources.get(name));
+    }
+
+}
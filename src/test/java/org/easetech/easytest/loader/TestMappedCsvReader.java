@@ -0,0 +1,105 @@
+package org.easetech.easytest.loader;
+
+import com.csvreader.CsvReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the {@link MappedCsvReader} gives the same records as the <code>com.csvreader.CsvReader</code> whatever the
+ * size of its chunks, in particular when a quoted column spanning several lines crosses the end of a chunk.
+ *
+ */
+public class TestMappedCsvReader {
+
+    private static final String CSV_DATA = "getItems,itemId,note\r\n" + ",1,\"a note spanning\r\ntwo lines\"\r\n"
+        + "\r\n" + ",2,\"quoted, with a \"\"quote\"\" and\nanother\rline\"\n" + ",3, caf\u00e9 \u20ac \n"
+        + ",4,\"\"\r" + ",5,last";
+
+    @Test
+    public void readTheSameRecordsWithChunksOfAnySize() throws Exception {
+        List<List<String>> expected = readWithCsvReader(CSV_DATA);
+        Assert.assertEquals(6, expected.size());
+        Assert.assertEquals(Arrays.asList("", "1", "a note spanning\r\ntwo lines"), expected.get(1));
+        File csvFile = createCsvFile(CSV_DATA);
+        try {
+            for (int chunkSize = 1; chunkSize <= CSV_DATA.length() + 1; chunkSize++) {
+                Assert.assertEquals("chunk size " + chunkSize, expected, readWithMappedReader(csvFile, chunkSize));
+            }
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void readRecordsCrossingManyChunks() throws Exception {
+        StringBuilder content = new StringBuilder("getItems,itemId,note\n");
+        for (int i = 0; i < 500; i++) {
+            content.append(',').append(i).append(",\"line one of ").append(i).append("\nline, two\"\n");
+        }
+        File csvFile = createCsvFile(content.toString());
+        try {
+            List<List<String>> records = readWithMappedReader(csvFile, 16);
+            Assert.assertEquals(readWithCsvReader(content.toString()), records);
+            Assert.assertEquals(Arrays.asList("", "499", "line one of 499\nline, two"), records.get(500));
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void skipTheByteOrderMark() throws Exception {
+        File csvFile = createCsvFile("\uFEFF" + CSV_DATA);
+        try {
+            List<List<String>> records = readWithMappedReader(csvFile, 3);
+            Assert.assertEquals("getItems", records.get(0).get(0));
+            Assert.assertEquals(readWithCsvReader(CSV_DATA), records);
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    private static List<List<String>> readWithMappedReader(File csvFile, int chunkSize) throws IOException {
+        MappedCsvReader reader = new MappedCsvReader(csvFile, chunkSize);
+        try {
+            List<List<String>> records = new ArrayList<List<String>>();
+            while (reader.readRecord()) {
+                records.add(Arrays.asList(reader.getValues()));
+            }
+            return records;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<List<String>> readWithCsvReader(String content) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(content), ',');
+        try {
+            List<List<String>> records = new ArrayList<List<String>>();
+            while (reader.readRecord()) {
+                records.add(Arrays.asList(reader.getValues()));
+            }
+            return records;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static File createCsvFile(String content) throws IOException {
+        File csvFile = File.createTempFile("mappedCsvReader", ".csv");
+        FileOutputStream out = new FileOutputStream(csvFile);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return csvFile;
+    }
+
+}
@@ -0,0 +1,178 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.FileSystemResource;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.io.Resource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the {@link ParsedDataCache} hands out read only rows shared by all the lookups, forgets the data of a
+ * file as soon as the file changes and evicts the least recently used data when it grows beyond <B>easytest.dataCacheSize</B>.
+ *
+ */
+public class TestParsedDataCache {
+
+    private static final String CSV_DATA = "getItems,itemId,itemType\n,1,book\n,2,ebook\n";
+
+    @Before
+    public void clearCache() {
+        ParsedDataCache.clear();
+    }
+
+    @After
+    public void clearCacheAgain() {
+        ParsedDataCache.clear();
+    }
+
+    @Test
+    public void lookupsShareReadOnlyRows() throws Exception {
+        File csvFile = createCsvFile(CSV_DATA);
+        try {
+            Map<String, List<Map<String, Object>>> data = new CSVDataLoader().loadData(new PathResource(csvFile
+                .toPath()));
+            Map<String, Object> plainRow = new HashMap<String, Object>();
+            plainRow.put("itemId", "3");
+            data.put("getOthers", new ArrayList<Map<String, Object>>());
+            data.get("getOthers").add(plainRow);
+            ParsedDataCache.put("key", data);
+
+            Map<String, List<Map<String, Object>>> first = ParsedDataCache.get("key");
+            Map<String, List<Map<String, Object>>> second = ParsedDataCache.get("key");
+            Assert.assertEquals(data, first);
+            for (String methodName : data.keySet()) {
+                for (int rowNum = 0; rowNum < first.get(methodName).size(); rowNum++) {
+                    Assert.assertSame(first.get(methodName).get(rowNum), second.get(methodName).get(rowNum));
+                    assertReadOnly(first.get(methodName).get(rowNum));
+                }
+            }
+            Assert.assertEquals("ebook", second.get("getItems").get(1).get("itemType"));
+
+            // every lookup gets lists of its own
+            first.get("getItems").remove(0);
+            first.get("getOthers").add(plainRow);
+            Assert.assertEquals(2, second.get("getItems").size());
+            Assert.assertEquals(1, second.get("getOthers").size());
+            Assert.assertEquals(2, ParsedDataCache.get("key").get("getItems").size());
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void changedFilesAreNotTakenFromTheCache() throws Exception {
+        File csvFile = createCsvFile(CSV_DATA);
+        try {
+            assertInvalidatedOnChange(csvFile, new PathResource(csvFile.toPath()));
+            assertInvalidatedOnChange(csvFile, new FileSystemResource(csvFile.getPath()));
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedDataIsEvictedBeyondTheCacheSize() {
+        String cacheSizeProperty = SystemProperties.DATA_CACHE_SIZE.getValue();
+        String previousCacheSize = System.getProperty(cacheSizeProperty);
+        System.setProperty(cacheSizeProperty, "1");
+        try {
+            // every entry takes about 400 kilobytes, so that only two of them fit in a megabyte
+            ParsedDataCache.put("first", createData(20));
+            ParsedDataCache.put("second", createData(20));
+            Assert.assertNotNull(ParsedDataCache.get("first"));
+            ParsedDataCache.put("third", createData(20));
+            Assert.assertNotNull(ParsedDataCache.get("first"));
+            Assert.assertNull(ParsedDataCache.get("second"));
+            Assert.assertNotNull(ParsedDataCache.get("third"));
+
+            // data larger than the whole cache is not cached at all
+            ParsedDataCache.put("tooLarge", createData(60));
+            Assert.assertNull(ParsedDataCache.get("tooLarge"));
+            Assert.assertNotNull(ParsedDataCache.get("first"));
+
+            // a cache size of 0 disables the cache
+            System.setProperty(cacheSizeProperty, "0");
+            Assert.assertNull(ParsedDataCache.getCacheKey(new CSVDataLoader(), new FileSystemResource("any.csv")));
+        } finally {
+            if (previousCacheSize == null) {
+                System.clearProperty(cacheSizeProperty);
+            } else {
+                System.setProperty(cacheSizeProperty, previousCacheSize);
+            }
+        }
+    }
+
+    private static void assertReadOnly(Map<String, Object> row) {
+        try {
+            row.put(Loader.ACTUAL_RESULT, "modified");
+            Assert.fail("The row " + row + " can be modified");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertNull(row.get(Loader.ACTUAL_RESULT));
+        }
+    }
+
+    private static void assertInvalidatedOnChange(File csvFile, Resource resource) throws IOException {
+        writeCsvFile(csvFile, CSV_DATA);
+        String cacheKey = ParsedDataCache.getCacheKey(new CSVDataLoader(), resource);
+        Assert.assertNotNull(cacheKey);
+        Assert.assertEquals(cacheKey, ParsedDataCache.getCacheKey(new CSVDataLoader(), resource));
+        ParsedDataCache.put(cacheKey, new CSVDataLoader().loadData(resource));
+
+        // same size, other modification time
+        Assert.assertTrue(csvFile.setLastModified(csvFile.lastModified() - 10000));
+        String touchedKey = ParsedDataCache.getCacheKey(new CSVDataLoader(), resource);
+        Assert.assertFalse(cacheKey.equals(touchedKey));
+        Assert.assertNull(ParsedDataCache.get(touchedKey));
+
+        // same modification time, other size
+        long lastModified = csvFile.lastModified();
+        writeCsvFile(csvFile, CSV_DATA + ",3,book\n");
+        Assert.assertTrue(csvFile.setLastModified(lastModified));
+        String resizedKey = ParsedDataCache.getCacheKey(new CSVDataLoader(), resource);
+        Assert.assertFalse(touchedKey.equals(resizedKey));
+        Assert.assertNull(ParsedDataCache.get(resizedKey));
+        Assert.assertNotNull(ParsedDataCache.get(cacheKey));
+    }
+
+    private static Map<String, List<Map<String, Object>>> createData(int rows) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            value.append('x');
+        }
+        List<Map<String, Object>> methodData = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new HashMap<String, Object>();
+            row.put("value", value.toString());
+            methodData.add(row);
+        }
+        Map<String, List<Map<String, Object>>> data = new HashMap<String, List<Map<String, Object>>>();
+        data.put("getItems", methodData);
+        return data;
+    }
+
+    private static File createCsvFile(String content) throws IOException {
+        File csvFile = File.createTempFile("parsedDataCache", ".csv");
+        writeCsvFile(csvFile, content);
+        return csvFile;
+    }
+
+    private static void writeCsvFile(File csvFile, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(csvFile);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+}
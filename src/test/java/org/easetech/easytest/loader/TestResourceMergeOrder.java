@@ -0,0 +1,100 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.util.DataContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.model.TestClass;
+
+/**
+ * Test that the data of the resources of a test class, which are parsed in parallel, is always appended in the order
+ * in which the resources are declared, whichever resource is parsed first. The first resource spans several chunks
+ * that are parsed on the same executor as the resources themselves.
+ *
+ */
+public class TestResourceMergeOrder {
+
+    private static final String FIXTURE_DIRECTORY = "target/easytest-fixtures";
+
+    private static final int LARGE_FILE_ROWS = 10000;
+
+    private List<File> csvFiles;
+
+    @Before
+    public void createDataFiles() throws IOException {
+        csvFiles = new ArrayList<File>();
+        StringBuilder note = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            note.append('x');
+        }
+        int itemId = 0;
+        for (int file = 1; file <= 4; file++) {
+            File csvFile = new File(FIXTURE_DIRECTORY, "mergeOrder" + file + ".csv");
+            csvFile.getParentFile().mkdirs();
+            csvFiles.add(csvFile);
+            OutputStream out = new FileOutputStream(csvFile);
+            try {
+                out.write("getItems,itemId,note\n".getBytes("UTF-8"));
+                int rows = file == 1 ? LARGE_FILE_ROWS : 3;
+                for (int row = 0; row < rows; row++) {
+                    out.write((',' + String.valueOf(itemId++) + ',' + note + '\n').getBytes("UTF-8"));
+                }
+            } finally {
+                out.close();
+            }
+        }
+        Assert.assertTrue(csvFiles.get(0).length() > 2 * MappedCsvReader.DEFAULT_CHUNK_SIZE);
+        ParsedDataCache.clear();
+    }
+
+    @After
+    public void deleteDataFiles() {
+        ParsedDataCache.clear();
+        DataContext.cleanData();
+        for (File csvFile : csvFiles) {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void appendTheDataInTheDeclaredOrder() {
+        TestClass testClass = new TestClass(MergeOrderExample.class);
+        for (int run = 0; run < 3; run++) {
+            ParsedDataCache.clear();
+            DataContext.cleanData();
+            Map<String, List<Map<String, Object>>> writableData = new HashMap<String, List<Map<String, Object>>>();
+            DataLoaderUtil.loadData(MergeOrderExample.class, null, testClass, writableData);
+            assertDeclaredOrder(writableData.get("getItems"));
+            assertDeclaredOrder(DataContext.getData().get(MergeOrderExample.class.getName() + ":getItems"));
+        }
+    }
+
+    private static void assertDeclaredOrder(List<Map<String, Object>> rows) {
+        Assert.assertNotNull(rows);
+        Assert.assertEquals(LARGE_FILE_ROWS + 9, rows.size());
+        for (int row = 0; row < rows.size(); row++) {
+            Assert.assertEquals(String.valueOf(row), rows.get(row).get("itemId"));
+        }
+    }
+
+    /**
+     * A test class whose data is appended from several files. It is never run.
+     */
+    @DataLoader(appendData = true, filePaths = { FIXTURE_DIRECTORY + "/mergeOrder1.csv",
+        FIXTURE_DIRECTORY + "/mergeOrder2.csv", FIXTURE_DIRECTORY + "/mergeOrder3.csv",
+        FIXTURE_DIRECTORY + "/mergeOrder4.csv" }, loaderType = LoaderType.CSV, writeData = false)
+    public static class MergeOrderExample {
+
+    }
+
+}
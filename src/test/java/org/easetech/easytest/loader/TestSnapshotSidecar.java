@@ -0,0 +1,150 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.FileSystemResource;
+import org.easetech.easytest.io.Resource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.model.TestClass;
+
+/**
+ * Test that a snapshot holds the same data as the file it was created from, that a snapshot sidecar is read instead of
+ * its data file only as long as it is newer than the data file, and that the loader of a test class reads the sidecar
+ * as soon as it exists.
+ *
+ */
+public class TestSnapshotSidecar {
+
+    private static final String FIXTURE_DIRECTORY = "target/easytest-fixtures";
+
+    private static final String CSV_DATA = "getItems,itemId,itemType\n,1,book\n,2,ebook\n";
+
+    private String previousCreateSnapshots;
+
+    private File csvFile;
+
+    private File sidecar;
+
+    @Before
+    public void createDataFile() throws IOException {
+        previousCreateSnapshots = System.getProperty(SystemProperties.CREATE_SNAPSHOTS.getValue());
+        csvFile = new File(FIXTURE_DIRECTORY, "snapshotSource.csv");
+        csvFile.getParentFile().mkdirs();
+        write(csvFile, CSV_DATA);
+        sidecar = new File(csvFile.getPath() + SnapshotDataLoader.SNAPSHOT_EXTENSION);
+        sidecar.delete();
+        ParsedDataCache.clear();
+    }
+
+    @After
+    public void deleteDataFile() {
+        if (previousCreateSnapshots == null) {
+            System.clearProperty(SystemProperties.CREATE_SNAPSHOTS.getValue());
+        } else {
+            System.setProperty(SystemProperties.CREATE_SNAPSHOTS.getValue(), previousCreateSnapshots);
+        }
+        ParsedDataCache.clear();
+        csvFile.delete();
+        sidecar.delete();
+    }
+
+    @Test
+    public void readTheSameDataFromTheSnapshot() throws Exception {
+        assertRoundTrip(new GeneratorDataLoader().loadData(new ClasspathResource(
+            "org/easetech/data/generatedTestData.datagen")));
+        assertRoundTrip(new ExcelDataLoader().loadData(new ClasspathResource("org/easetech/data/testExcelData.xlsx")));
+        assertRoundTrip(new CSVDataLoader().loadData(new FileSystemResource(csvFile.getPath())));
+    }
+
+    @Test
+    public void createTheSidecarOnlyWhenAskedTo() throws Exception {
+        Resource resource = new FileSystemResource(csvFile.getPath());
+        Map<String, List<Map<String, Object>>> data = new CSVDataLoader().loadData(resource);
+        SnapshotDataLoader.createSnapshot(resource, data);
+        Assert.assertFalse(sidecar.exists());
+
+        System.setProperty(SystemProperties.CREATE_SNAPSHOTS.getValue(), "true");
+        SnapshotDataLoader.createSnapshot(resource, data);
+        Assert.assertTrue(sidecar.isFile());
+        makeNewerThan(sidecar, csvFile);
+        Assert.assertEquals(sidecar, SnapshotDataLoader.getFreshSnapshot(resource));
+        Assert.assertEquals(data, new SnapshotDataLoader(new CSVDataLoader()).loadData(resource));
+    }
+
+    @Test
+    public void readTheDataFileWhenTheSidecarIsStale() throws Exception {
+        Resource resource = new FileSystemResource(csvFile.getPath());
+        SnapshotDataLoader.writeSnapshot(new CSVDataLoader().loadData(resource), sidecar);
+        makeNewerThan(sidecar, csvFile);
+        Assert.assertEquals(2, new SnapshotDataLoader(new CSVDataLoader()).loadData(resource).get("getItems").size());
+
+        write(csvFile, CSV_DATA + ",3,journal\n");
+        makeNewerThan(csvFile, sidecar);
+        Assert.assertNull(SnapshotDataLoader.getFreshSnapshot(resource));
+        Map<String, List<Map<String, Object>>> data = new SnapshotDataLoader(new CSVDataLoader()).loadData(resource);
+        Assert.assertEquals(new CSVDataLoader().loadData(resource), data);
+        Assert.assertEquals("journal", data.get("getItems").get(2).get("itemType"));
+    }
+
+    @Test
+    public void determineTheSnapshotLoaderWhenASidecarExists() throws Exception {
+        TestClass testClass = new TestClass(SidecarExample.class);
+        DataLoader dataLoader = SidecarExample.class.getAnnotation(DataLoader.class);
+        Assert.assertTrue(DataLoaderUtil.determineLoader(dataLoader, testClass).getDataLoader() instanceof CSVDataLoader);
+
+        SnapshotDataLoader.writeSnapshot(new CSVDataLoader().loadData(new FileSystemResource(csvFile.getPath())),
+            sidecar);
+        makeNewerThan(sidecar, csvFile);
+        Loader loader = DataLoaderUtil.determineLoader(dataLoader, testClass).getDataLoader();
+        Assert.assertTrue(loader instanceof SnapshotDataLoader);
+        Assert.assertTrue(((SnapshotDataLoader) loader).getSourceLoader() instanceof CSVDataLoader);
+
+        makeNewerThan(csvFile, sidecar);
+        Assert.assertTrue(DataLoaderUtil.determineLoader(dataLoader, testClass).getDataLoader() instanceof CSVDataLoader);
+    }
+
+    /**
+     * A test class whose data file gets a snapshot sidecar. It is never run.
+     */
+    @DataLoader(filePaths = { FIXTURE_DIRECTORY + "/snapshotSource.csv" })
+    public static class SidecarExample {
+
+    }
+
+    private static void assertRoundTrip(Map<String, List<Map<String, Object>>> data) throws IOException {
+        File snapshot = File.createTempFile("snapshotSidecar", SnapshotDataLoader.SNAPSHOT_EXTENSION);
+        try {
+            SnapshotDataLoader.writeSnapshot(data, snapshot);
+            Assert.assertEquals(data, new SnapshotDataLoader().loadData(new FileSystemResource(snapshot.getPath())));
+        } finally {
+            snapshot.delete();
+        }
+    }
+
+    /**
+     * Make the modification time of the given file later than that of the other file, as the modification times of
+     * files written in quick succession may be equal
+     */
+    private static void makeNewerThan(File file, File other) {
+        Assert.assertTrue(file.setLastModified(other.lastModified() + 2000));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.io.PathResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the rows of a {@link TestDataTable} behave like the {@link HashMap}s or {@link LinkedHashMap}s they
+ * replace, and that a published table is read only.
+ *
+ */
+public class TestTestDataTable {
+
+    private static final String[] COLUMNS = { "libraryId", "itemId", "itemType", "startDate", "ActualResult",
+        "description", "total", "a", "b", "zz" };
+
+    @Test
+    public void iterateInTheOrderOfAHashMap() {
+        Map<String, Object> expected = new HashMap<String, Object>();
+        Map<String, Object> row = new TestDataTable(true).addRow();
+        for (int column = 0; column < COLUMNS.length; column++) {
+            expected.put(COLUMNS[column], Integer.valueOf(column));
+            row.put(COLUMNS[column], Integer.valueOf(column));
+        }
+        Assert.assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(row.keySet()));
+        Assert.assertEquals(expected.toString(), row.toString());
+        Assert.assertEquals(expected, row);
+        Assert.assertEquals(expected.hashCode(), row.hashCode());
+    }
+
+    @Test
+    public void iterateInTheOrderTheColumnsWereAdded() {
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        Map<String, Object> row = new TestDataTable(false).addRow();
+        for (int column = COLUMNS.length - 1; column >= 0; column--) {
+            expected.put(COLUMNS[column], Integer.valueOf(column));
+            row.put(COLUMNS[column], Integer.valueOf(column));
+        }
+        Assert.assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(row.keySet()));
+        Assert.assertEquals(expected.toString(), row.toString());
+    }
+
+    @Test
+    public void distinguishAbsentCellsFromNullCells() {
+        TestDataTable table = new TestDataTable(false);
+        Map<String, Object> first = table.addRow();
+        first.put("itemId", "1");
+        first.put(Loader.ACTUAL_RESULT, null);
+        Assert.assertTrue(first.containsKey(Loader.ACTUAL_RESULT));
+        Assert.assertNull(first.get(Loader.ACTUAL_RESULT));
+        Assert.assertEquals(2, first.size());
+
+        // a column added through one row is absent from the other rows
+        Map<String, Object> second = table.addRow();
+        second.put("itemId", "2");
+        Assert.assertFalse(second.containsKey(Loader.ACTUAL_RESULT));
+        Assert.assertEquals(1, second.size());
+        Assert.assertFalse(first.equals(second));
+
+        // unless the row is added with a null value in every column
+        Map<String, Object> third = table.addRowWithNullValues();
+        Assert.assertEquals(2, third.size());
+        Assert.assertTrue(third.containsKey("itemId"));
+        Assert.assertNull(third.get("itemId"));
+
+        Assert.assertNull(first.remove(Loader.ACTUAL_RESULT));
+        Assert.assertFalse(first.containsKey(Loader.ACTUAL_RESULT));
+        Assert.assertNull(first.remove("unknown"));
+        first.clear();
+        Assert.assertTrue(first.isEmpty());
+        Assert.assertEquals(2, table.getColumnCount());
+    }
+
+    @Test
+    public void discardOnlyTheLastRow() {
+        TestDataTable table = new TestDataTable(false);
+        Map<String, Object> first = table.addRow();
+        first.put("itemId", "1");
+        Map<String, Object> second = table.addRow();
+        second.put("itemId", "2");
+        Assert.assertFalse(table.discardLastRow(first));
+        Assert.assertFalse(new TestDataTable(false).discardLastRow(second));
+        Map<String, Object> plainRow = new HashMap<String, Object>(second);
+        Assert.assertFalse(table.discardLastRow(plainRow));
+        Assert.assertTrue(table.discardLastRow(second));
+        Assert.assertEquals(1, table.getRowCount());
+        Assert.assertEquals(1, table.getRows().size());
+
+        // the row taking the place of the discarded one does not inherit its cells
+        Map<String, Object> third = table.addRow();
+        Assert.assertTrue(third.isEmpty());
+        Assert.assertEquals("1", table.getRow(0).get("itemId"));
+    }
+
+    @Test
+    public void copyTheTableWithoutSharingItsCells() {
+        TestDataTable table = new TestDataTable(true);
+        for (int rowNum = 0; rowNum < 20; rowNum++) {
+            table.addRow().put("itemId", String.valueOf(rowNum));
+        }
+        table.publish();
+        TestDataTable copy = table.copy();
+        Assert.assertFalse(copy.isPublished());
+        Assert.assertTrue(copy.isHashOrdered());
+        Assert.assertEquals(table.getRows(), copy.getRows());
+
+        copy.getRow(3).put("itemId", "changed");
+        copy.getRow(3).put(Loader.ACTUAL_RESULT, "ran");
+        copy.addRow().put("itemId", "20");
+        Assert.assertEquals("3", table.getRow(3).get("itemId"));
+        Assert.assertFalse(table.getRow(3).containsKey(Loader.ACTUAL_RESULT));
+        Assert.assertEquals(20, table.getRowCount());
+        Assert.assertEquals(21, copy.getRowCount());
+        Assert.assertSame(copy, TestDataTable.tableOf(copy.getRow(0)));
+    }
+
+    @Test
+    public void writeEntriesThroughToTheTable() {
+        TestDataTable table = new TestDataTable(false);
+        Map<String, Object> row = table.addRow();
+        row.put("itemId", "1");
+        row.put("itemType", "book");
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (entry.getKey().equals("itemType")) {
+                Assert.assertEquals("book", entry.setValue("ebook"));
+                Assert.assertEquals("ebook", entry.getValue());
+            }
+        }
+        Assert.assertEquals("ebook", row.get("itemType"));
+
+        Iterator<Map.Entry<String, Object>> entries = row.entrySet().iterator();
+        Assert.assertEquals("itemId", entries.next().getKey());
+        entries.remove();
+        Assert.assertFalse(row.containsKey("itemId"));
+        Assert.assertEquals(1, row.size());
+    }
+
+    @Test
+    public void refuseChangesToAPublishedTable() {
+        TestDataTable table = new TestDataTable(false);
+        Map<String, Object> row = table.addRow();
+        row.put("itemId", "1");
+        table.publish();
+        Assert.assertTrue(table.isPublished());
+        Assert.assertEquals("1", row.get("itemId"));
+        Assert.assertEquals(0, table.addColumn("itemId"));
+        assertRefused(row, table);
+    }
+
+    @Test
+    public void publishTheTablesOfTheLoadedRows() throws Exception {
+        File csvFile = File.createTempFile("testDataTable", ".csv");
+        try {
+            FileOutputStream out = new FileOutputStream(csvFile);
+            try {
+                out.write("getItems,itemId\n,1\n,2\n".getBytes("UTF-8"));
+            } finally {
+                out.close();
+            }
+            List<Map<String, Object>> rows = new CSVDataLoader().loadData(new PathResource(csvFile.toPath())).get(
+                "getItems");
+            Assert.assertEquals(2, rows.size());
+            TestDataTable table = TestDataTable.tableOf(rows.get(0));
+            Assert.assertNotNull(table);
+            Assert.assertTrue(table.isPublished());
+            assertRefused(rows.get(1), table);
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    private static void assertRefused(Map<String, Object> row, TestDataTable table) {
+        Map<String, Object> before = new HashMap<String, Object>(row);
+        try {
+            row.put(Loader.ACTUAL_RESULT, "ran");
+            Assert.fail("put");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            row.remove("itemId");
+            Assert.fail("remove");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            row.clear();
+            Assert.fail("clear");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            row.entrySet().iterator().next().setValue("changed");
+            Assert.fail("setValue");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            table.addRow();
+            Assert.fail("addRow");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            table.addColumn("unknown");
+            Assert.fail("addColumn");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            table.discardLastRow(table.getRow(table.getRowCount() - 1));
+            Assert.fail("discardLastRow");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertEquals(before, row);
+    }
+
+}
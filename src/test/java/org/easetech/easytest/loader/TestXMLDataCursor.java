@@ -0,0 +1,152 @@
+package org.easetech.easytest.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.io.PathResource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the StAX cursor of the {@link XMLDataLoader} applies the default input data of a test method to its
+ * records, reads only the input data of a record and reports malformed XML as an {@link IOException}.
+ *
+ */
+public class TestXMLDataCursor {
+
+    private static final String HEADER = "<?xml version=\"1.0\"?>\n"
+        + "<easytest:InputTestData xmlns:easytest=\"urn:org:easetech:easytest:1.0\">\n";
+
+    private static final String FOOTER = "</easytest:InputTestData>\n";
+
+    private File xmlFile;
+
+    @Before
+    public void createFile() throws IOException {
+        xmlFile = File.createTempFile("xmlDataCursor", ".xml");
+    }
+
+    @After
+    public void deleteFile() {
+        xmlFile.delete();
+    }
+
+    @Test
+    public void applyTheDefaultInputDataOfTheMethod() throws Exception {
+        write(HEADER + "<TestMethod name=\"getItems\">\n" + " <Description>The items</Description>\n"
+            + " <InputData><Entry key=\"libraryId\" value=\"1\"/><Entry key=\"itemType\" value=\"book\"/></InputData>\n"
+            + " <TestRecord id=\"first\"><InputData><Entry key=\"itemId\" value=\"10\"/>"
+            + "<Entry key=\"itemType\" value=\"ebook\"/></InputData></TestRecord>\n"
+            + " <TestRecord id=\"second\"/>\n" + "</TestMethod>\n" + "<TestMethod name=\"getNothing\">\n"
+            + " <InputData><Entry key=\"libraryId\" value=\"2\"/></InputData>\n" + "</TestMethod>\n"
+            + "<TestMethod name=\"getOthers\">\n" + " <TestRecord id=\"third\"><InputData>"
+            + "<Entry key=\"itemId\" value=\"30\"/></InputData></TestRecord>\n" + "</TestMethod>\n" + FOOTER);
+        Map<String, List<Map<String, Object>>> data = load();
+        Assert.assertEquals(3, data.size());
+        Assert.assertEquals(row("first", "libraryId", "1", "itemType", "ebook", "itemId", "10"), data.get("getItems")
+            .get(0));
+        Assert.assertEquals(row("second", "libraryId", "1", "itemType", "book"), data.get("getItems").get(1));
+        Assert.assertTrue(data.get("getNothing").isEmpty());
+        // the default input data of a method does not leak in to the records of the next method
+        Assert.assertEquals(row("third", "itemId", "30"), data.get("getOthers").get(0));
+
+        // the default input data is projected like the input data of the records
+        DataCursor cursor = new XMLDataLoader().openCursor(new PathResource(xmlFile.toPath()));
+        try {
+            Assert.assertTrue(cursor.nextMethod());
+            cursor.retainColumns(new HashSet<String>(Collections.singleton("itemType")));
+            Assert.assertTrue(cursor.nextRow());
+            Assert.assertEquals(row("first", "itemType", "ebook"), new HashMap<String, Object>(cursor.getRow()));
+            Assert.assertTrue(cursor.nextRow());
+            Assert.assertEquals(row("second", "itemType", "book"), new HashMap<String, Object>(cursor.getRow()));
+            Assert.assertFalse(cursor.nextRow());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void skipTheOutputDataOfTheRecords() throws Exception {
+        write(HEADER + "<TestMethod name=\"getItems\">\n" + " <TestRecord id=\"1\">\n"
+            + "  <OutputData><Entry key=\"ActualResult\" value=\"old\"/><Entry key=\"itemId\" value=\"99\"/>"
+            + "</OutputData>\n" + "  <Description>A record <b>with markup</b></Description>\n"
+            + "  <InputData><Entry key=\"itemId\" value=\"10\"><Description>ignored</Description></Entry>"
+            + "</InputData>\n" + "  <OutputData><Entry key=\"TestStatus\" value=\"PASSED\"/></OutputData>\n"
+            + " </TestRecord>\n" + " <TestRecord id=\"2\"><InputData><Entry key=\"itemId\" value=\"20\"/></InputData>"
+            + "</TestRecord>\n" + "</TestMethod>\n" + FOOTER);
+        List<Map<String, Object>> rows = load().get("getItems");
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals(row("1", "itemId", "10"), rows.get(0));
+        Assert.assertEquals(row("2", "itemId", "20"), rows.get(1));
+    }
+
+    @Test
+    public void reportMalformedXml() throws Exception {
+        write(HEADER + "<TestMethod name=\"getItems\">\n" + " <TestRecord id=\"1\"><InputData>"
+            + "<Entry key=\"itemId\" value=\"10\"/></InputData></TestRecord>\n" + "</TestMethod>\n"
+            + "<TestMethod name=\"getOthers\">\n" + " <TestRecord id=\"2\"><InputData>"
+            + "<Entry key=\"itemId\" value=\"20\"></InputData></TestRecord>\n" + "</TestMethod>\n" + FOOTER);
+        Assert.assertNull(new XMLDataLoader().loadData(new PathResource(xmlFile.toPath())));
+
+        // the records before the malformed part are read
+        DataCursor cursor = new XMLDataLoader().openCursor(new PathResource(xmlFile.toPath()));
+        try {
+            Assert.assertTrue(cursor.nextMethod());
+            Assert.assertTrue(cursor.nextRow());
+            Assert.assertEquals("10", cursor.getRow().get("itemId"));
+            Assert.assertTrue(cursor.nextMethod());
+            cursor.nextRow();
+            Assert.fail("The malformed record was read");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("XMLStreamException"));
+        } finally {
+            cursor.close();
+        }
+
+        write("not xml at all");
+        try {
+            DataCursor notXml = new XMLDataLoader().openCursor(new PathResource(xmlFile.toPath()));
+            try {
+                notXml.nextMethod();
+            } finally {
+                notXml.close();
+            }
+            Assert.fail("The file was read as XML");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("XMLStreamException"));
+        }
+    }
+
+    private Map<String, List<Map<String, Object>>> load() {
+        Map<String, List<Map<String, Object>>> data = new XMLDataLoader().loadData(new PathResource(xmlFile
+            .toPath()));
+        Assert.assertNotNull(data);
+        return data;
+    }
+
+    private static Map<String, Object> row(String recordPosition, String... entries) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put(XMLDataLoader.RECORD_POSITION, recordPosition);
+        for (int i = 0; i < entries.length; i += 2) {
+            row.put(entries[i], entries[i + 1]);
+        }
+        return row;
+    }
+
+    private void write(String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(xmlFile);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.annotation.DataFilter;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class that runs its test method only with the rows of test data matching a {@link DataFilter}. It is run by
+ * {@link TestDataFilter}.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/wideTestData.csv" }, writeData = false)
+public class FilteredDataExample {
+
+    @Test
+    @DataFilter("itemType = 'ebook' and libraryId > 2")
+    public void getWideData(@Param(name = "libraryId") Long libraryId, @Param(name = "itemType") String itemType) {
+        Assert.assertEquals(Long.valueOf(3), libraryId);
+        Assert.assertEquals("ebook", itemType);
+    }
+
+}
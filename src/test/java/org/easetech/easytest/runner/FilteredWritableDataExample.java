@@ -0,0 +1,28 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.annotation.DataFilter;
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class that runs its test method only with the rows of test data matching a {@link DataFilter} and writes
+ * its output data back to the file. It is run by {@link TestDataFilter}, which copies the file to the fixture
+ * directory first.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { RunnerTestSupport.FIXTURE_DIRECTORY + "/filteredTestData.csv" })
+public class FilteredWritableDataExample {
+
+    @Test
+    @DataFilter("itemType = 'ebook'")
+    public String getFilteredItems(@Param(name = "libraryId") Long libraryId,
+        @Param(name = "itemType") String itemType) {
+        Assert.assertEquals("ebook", itemType);
+        return "ran-" + libraryId;
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose test data is read from a CSV file through its index. It is run by {@link TestCsvIndex}, which
+ * copies the file to the fixture directory first.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { RunnerTestSupport.FIXTURE_DIRECTORY + "/indexedTestData.csv" },
+    writeData = false)
+public class IndexedDataExample {
+
+    @Test
+    public void getIndexedItems(@Param(name = "libraryId") Long libraryId, @Param(name = "itemId") Long itemId,
+        @Param(name = "itemType") String itemType) {
+        Assert.assertEquals(Long.valueOf((itemId - 1000) % 7 + 1), libraryId);
+        Assert.assertNotNull(itemType);
+    }
+
+}
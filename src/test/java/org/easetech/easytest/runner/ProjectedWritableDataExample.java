@@ -0,0 +1,25 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose XML test data has more columns than its test method references and that writes its output data
+ * back to the file. It is run by {@link TestColumnProjection}, which copies the file to the fixture directory first.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { RunnerTestSupport.FIXTURE_DIRECTORY + "/projectedTestData.xml" })
+public class ProjectedWritableDataExample {
+
+    @Test
+    public String getProjectedItems(@Param(name = "libraryId") Long libraryId,
+        @Param(name = "itemType") String itemType) {
+        Assert.assertNotNull(itemType);
+        return "ran-" + libraryId;
+    }
+
+}
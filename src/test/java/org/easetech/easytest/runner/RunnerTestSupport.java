@@ -0,0 +1,80 @@
+package org.easetech.easytest.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ClasspathResource;
+
+/**
+ * Support for the tests that run a test class through a {@link DataDrivenTestRunner}. The test data files that the
+ * test classes write to or index are copied to a scratch directory first, so that the files on the classpath are
+ * never changed, and the System Properties the tests set are restored once they are done.
+ *
+ */
+final class RunnerTestSupport {
+
+    /**
+     * The directory, relative to the working directory of the build, that the copies of the test data files are made
+     * in. The test classes reference their copies through a file system path starting with this directory.
+     */
+    static final String FIXTURE_DIRECTORY = "target/easytest-fixtures";
+
+    private RunnerTestSupport() {
+        // static helpers only
+    }
+
+    /**
+     * Copy a test data file of the org/easetech/data classpath folder to the {@link #FIXTURE_DIRECTORY}, replacing
+     * any copy left behind by an earlier test.
+     *
+     * @param fileName the name of the test data file
+     * @return the copy of the file
+     * @throws IOException if the file could not be copied
+     */
+    static File copyFixture(String fileName) throws IOException {
+        File copy = new File(FIXTURE_DIRECTORY, fileName);
+        copy.getParentFile().mkdirs();
+        InputStream in = new ClasspathResource("org/easetech/data/" + fileName).getInputStream();
+        try {
+            Files.copy(in, copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            in.close();
+        }
+        return copy;
+    }
+
+    /**
+     * Remember the current values of the given System Properties
+     *
+     * @param properties the System Properties a test is going to set
+     * @return the values to hand to {@link #restoreProperties(Map)} once the test is done
+     */
+    static Map<String, String> saveProperties(SystemProperties... properties) {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        for (SystemProperties property : properties) {
+            values.put(property.getValue(), System.getProperty(property.getValue()));
+        }
+        return values;
+    }
+
+    /**
+     * Set the System Properties back to the values returned by {@link #saveProperties(SystemProperties...)}
+     *
+     * @param values the saved values of the System Properties
+     */
+    static void restoreProperties(Map<String, String> values) {
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            if (value.getValue() == null) {
+                System.clearProperty(value.getKey());
+            } else {
+                System.setProperty(value.getKey(), value.getValue());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose rows of test data are split in to shards. It is run by {@link TestRowSharding}.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/generatedTestData.datagen" }, writeData = false)
+public class ShardedDataExample {
+
+    @Test
+    public void getGeneratedOrders(@Param(name = "orderId") Long orderId, @Param(name = "channel") String channel) {
+        Assert.assertEquals(0, (orderId - 500) % 10);
+        Assert.assertEquals("web", channel);
+    }
+
+}
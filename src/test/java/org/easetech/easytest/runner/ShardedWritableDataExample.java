@@ -0,0 +1,24 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose rows of test data are split in to shards, each shard writing its output data back to the same
+ * file. It is run by {@link TestShardedDataWriting}, which copies the file to the fixture directory first.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { RunnerTestSupport.FIXTURE_DIRECTORY + "/shardedTestData.csv" })
+public class ShardedWritableDataExample {
+
+    @Test
+    public String getShardedItems(@Param(name = "libraryId") Long libraryId, @Param(name = "itemType") String itemType) {
+        Assert.assertNotNull(itemType);
+        return "ran-" + libraryId;
+    }
+
+}
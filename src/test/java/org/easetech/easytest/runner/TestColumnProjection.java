@@ -0,0 +1,85 @@
+package org.easetech.easytest.runner;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.util.DataContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+/**
+ * Test that only the columns of the test data that a test method references are loaded when the System Property
+ * easytest.projectColumns is set.
+ *
+ */
+public class TestColumnProjection {
+
+    private Map<String, String> properties;
+
+    @Before
+    public void saveProperties() {
+        properties = RunnerTestSupport.saveProperties(SystemProperties.PROJECT_COLUMNS);
+    }
+
+    @After
+    public void restoreProperties() {
+        RunnerTestSupport.restoreProperties(properties);
+        DataContext.cleanData();
+    }
+
+    @Test
+    public void loadOnlyTheReferencedColumns() throws Exception {
+        System.setProperty(SystemProperties.PROJECT_COLUMNS.getValue(), "true");
+        DataContext.cleanData();
+        DataDrivenTestRunner runner = new DataDrivenTestRunner(WideDataExample.class);
+        Assert.assertEquals(2, runner.getDescription().getChildren().size());
+
+        List<Map<String, Object>> rows = DataContext.getData().get(WideDataExample.class.getName() + ":getWideData");
+        Assert.assertEquals(2, rows.size());
+        for (Map<String, Object> row : rows) {
+            Assert.assertEquals(new HashSet<String>(Arrays.asList("libraryId", "itemType")), row.keySet());
+        }
+
+        Result result = new JUnitCore().run(Request.runner(runner));
+        Assert.assertEquals(2, result.getRunCount());
+        Assert.assertTrue(result.wasSuccessful());
+    }
+
+    @Test
+    public void writeOutputDataOfXmlRowsProjectedFromTheCache() throws Exception {
+        File xmlFile = RunnerTestSupport.copyFixture("projectedTestData.xml");
+        try {
+            // loading all the columns puts the parsed data in to the cache
+            DataContext.cleanData();
+            new DataDrivenTestRunner(ProjectedWritableDataExample.class).getDescription();
+
+            System.setProperty(SystemProperties.PROJECT_COLUMNS.getValue(), "true");
+            DataContext.cleanData();
+            Result result = new JUnitCore().run(Request.runner(new DataDrivenTestRunner(
+                ProjectedWritableDataExample.class)));
+            Assert.assertEquals(2, result.getRunCount());
+            Assert.assertTrue(result.getFailures().toString(), result.wasSuccessful());
+
+            String xml = new String(Files.readAllBytes(xmlFile.toPath()), Charset.forName("UTF-8"));
+            // the output data of every record is written, whatever the order of the attributes of its entries
+            for (int libraryId = 1; libraryId <= 2; libraryId++) {
+                Assert.assertTrue(xml, xml.matches("(?s).*<Entry [^>]*\"ran-" + libraryId + "\"[^>]*>.*"));
+            }
+            Assert.assertTrue(xml, xml.contains("\"" + Loader.ACTUAL_RESULT + "\""));
+        } finally {
+            xmlFile.delete();
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package org.easetech.easytest.runner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.FileSystemResource;
+import org.easetech.easytest.io.PathResource;
+import org.easetech.easytest.loader.CSVDataLoader;
+import org.easetech.easytest.util.DataContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+/**
+ * Test that the data read from a CSV file through its index sidecar is the same as the data read from the whole file,
+ * both when all the rows are loaded and when only the rows of a shard are.
+ *
+ */
+public class TestCsvIndex {
+
+    private static final String DATA_FILE = "org/easetech/data/indexedTestData.csv";
+
+    private Map<String, String> properties;
+
+    private File csvFile;
+
+    private File indexFile;
+
+    @Before
+    public void copyDataFile() throws IOException {
+        properties = RunnerTestSupport.saveProperties(SystemProperties.CSV_INDEX, SystemProperties.SHARD);
+        csvFile = RunnerTestSupport.copyFixture("indexedTestData.csv");
+        indexFile = new File(csvFile.getPath() + ".idx");
+        indexFile.delete();
+    }
+
+    @After
+    public void restoreProperties() {
+        RunnerTestSupport.restoreProperties(properties);
+        DataContext.cleanData();
+        csvFile.delete();
+        indexFile.delete();
+    }
+
+    @Test
+    public void readTheSameDataThroughTheIndex() throws Exception {
+        Map<String, List<Map<String, Object>>> expected = new CSVDataLoader().loadData(new ClasspathResource(
+            DATA_FILE));
+        System.setProperty(SystemProperties.CSV_INDEX.getValue(), "true");
+        Assert.assertEquals(expected, new CSVDataLoader().loadData(new FileSystemResource(csvFile.getPath())));
+        Assert.assertTrue(indexFile.isFile());
+        long indexLastModified = indexFile.lastModified();
+        // the fresh index is used as is
+        Assert.assertEquals(expected, new CSVDataLoader().loadData(new FileSystemResource(csvFile.getPath())));
+        Assert.assertEquals(indexLastModified, indexFile.lastModified());
+        Assert.assertEquals("a note spanning\r\ntwo lines", expected.get("getIndexedNotes").get(1).get("note"));
+
+        Set<String> allTests = new HashSet<String>();
+        for (Description child : new DataDrivenTestRunner(IndexedDataExample.class).getDescription().getChildren()) {
+            allTests.add(child.getMethodName());
+        }
+        Assert.assertEquals(60, allTests.size());
+        Set<String> shardTests = new HashSet<String>();
+        for (int shard = 1; shard <= 4; shard++) {
+            System.setProperty(SystemProperties.SHARD.getValue(), shard + "/4");
+            DataContext.cleanData();
+            DataDrivenTestRunner runner = new DataDrivenTestRunner(IndexedDataExample.class);
+            for (Description child : runner.getDescription().getChildren()) {
+                Assert.assertTrue(shardTests.add(child.getMethodName()));
+            }
+            Result result = new JUnitCore().run(Request.runner(runner));
+            Assert.assertTrue(result.wasSuccessful());
+        }
+        Assert.assertEquals(allTests, shardTests);
+    }
+
+    @Test
+    public void indexChangedFilesAgain() throws Exception {
+        System.setProperty(SystemProperties.CSV_INDEX.getValue(), "true");
+        File changingFile = File.createTempFile("indexedTestData", ".csv");
+        File changingIndexFile = new File(changingFile.getPath() + ".idx");
+        try {
+            write(changingFile, "\ufeffgetIndexedItems,itemId\n,1\n\n,2\n");
+            Assert.assertEquals(2, new CSVDataLoader().loadData(new PathResource(changingFile.toPath()))
+                .get("getIndexedItems").size());
+            write(changingFile, "getIndexedItems,itemId\n,1\n,2\n,3");
+            changingFile.setLastModified(changingFile.lastModified() + 2000);
+            Map<String, List<Map<String, Object>>> data = new CSVDataLoader().loadData(new PathResource(changingFile
+                .toPath()));
+            Assert.assertEquals(3, data.get("getIndexedItems").size());
+            Assert.assertEquals("3", data.get("getIndexedItems").get(2).get("itemId"));
+        } finally {
+            changingFile.delete();
+            changingIndexFile.delete();
+        }
+    }
+
+    @Test
+    public void indexAgainWhenTheOffsetsDoNotFitTheFile() throws Exception {
+        System.setProperty(SystemProperties.CSV_INDEX.getValue(), "true");
+        File shortFile = File.createTempFile("indexedTestData", ".csv");
+        File shortIndexFile = new File(shortFile.getPath() + ".idx");
+        try {
+            write(shortFile, "getIndexedItems,itemId\n,1\n,2\n,3\n");
+            Assert.assertEquals(3, new CSVDataLoader().loadData(new PathResource(shortFile.toPath()))
+                .get("getIndexedItems").size());
+            long indexLength = shortIndexFile.length();
+            write(shortFile, "getIndexedItems,itemId\n,1\n");
+            // an index whose header matches the file but whose offsets do not, as left behind by a corrupted build
+            RandomAccessFile index = new RandomAccessFile(shortIndexFile, "rw");
+            try {
+                index.seek(8);
+                index.writeLong(shortFile.length());
+                index.writeLong(shortFile.lastModified());
+            } finally {
+                index.close();
+            }
+            Map<String, List<Map<String, Object>>> data = new CSVDataLoader().loadData(new PathResource(shortFile
+                .toPath()));
+            Assert.assertEquals(1, data.get("getIndexedItems").size());
+            Assert.assertEquals("1", data.get("getIndexedItems").get(0).get("itemId"));
+            Assert.assertTrue(shortIndexFile.length() < indexLength);
+        } finally {
+            shortFile.delete();
+            shortIndexFile.delete();
+        }
+    }
+
+    private static void write(File file, String content) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+}
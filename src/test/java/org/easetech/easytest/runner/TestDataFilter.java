@@ -0,0 +1,170 @@
+package org.easetech.easytest.runner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.io.FileSystemResource;
+import org.easetech.easytest.loader.ExcelDataLoader;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.loader.RowFilter;
+import org.easetech.easytest.util.DataContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+/**
+ * Test that only the rows of test data matching a DataFilter are loaded.
+ *
+ */
+public class TestDataFilter {
+
+    @After
+    public void cleanData() {
+        DataContext.cleanData();
+    }
+
+    @Test
+    public void loadOnlyTheMatchingRows() throws Exception {
+        DataContext.cleanData();
+        DataDrivenTestRunner runner = new DataDrivenTestRunner(FilteredDataExample.class);
+        Assert.assertEquals(1, runner.getDescription().getChildren().size());
+
+        List<Map<String, Object>> rows = DataContext.getData().get(
+            FilteredDataExample.class.getName() + ":getWideData");
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals("ebook", rows.get(0).get("itemType"));
+
+        Result result = new JUnitCore().run(Request.runner(runner));
+        Assert.assertEquals(1, result.getRunCount());
+        Assert.assertTrue(result.wasSuccessful());
+    }
+
+    @Test
+    public void writeOutputDataOfTheMatchingRowsOnly() throws Exception {
+        File csvFile = RunnerTestSupport.copyFixture("filteredTestData.csv");
+        try {
+            DataContext.cleanData();
+            Result result = new JUnitCore().run(Request.runner(new DataDrivenTestRunner(
+                FilteredWritableDataExample.class)));
+            Assert.assertEquals(1, result.getRunCount());
+            Assert.assertTrue(result.getFailures().toString(), result.wasSuccessful());
+
+            List<String> lines = readLines(csvFile);
+            Assert.assertEquals(4, lines.size());
+            Assert.assertTrue(lines.get(0), lines.get(0).startsWith("getFilteredItems,libraryId,itemType,"
+                + "ActualResult,"));
+            // the rows that were filtered out are left as they were, the CSV writer quoting their empty first value
+            Assert.assertEquals(Arrays.asList("\"\",1,book", "\"\",3,book"), Arrays.asList(lines.get(1), lines
+                .get(3)));
+            Assert.assertTrue(lines.get(2), lines.get(2).matches(".*,2,ebook,ran-2,[0-9.]+"));
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void writeOutputDataOfTheMatchingExcelRowsOnly() throws Exception {
+        File excelFile = File.createTempFile("dataFilter", ".xls");
+        try {
+            write(excelFile, read(new ClasspathResource("org/easetech/data/testExcelData.xls").getInputStream()));
+            FileSystemResource resource = new FileSystemResource(excelFile.getPath());
+            Map<String, List<Map<String, Object>>> data = new ExcelDataLoader().loadData(resource);
+            String methodName = null;
+            for (Map.Entry<String, List<Map<String, Object>>> methodData : data.entrySet()) {
+                List<Map<String, Object>> rows = methodData.getValue();
+                if (rows.size() > 1 && !rows.get(0).equals(rows.get(rows.size() - 1))) {
+                    methodName = methodData.getKey();
+                }
+            }
+            Assert.assertNotNull(methodName);
+            // only the last row ran, as if the others were filtered out. Its output is added to a copy of the read
+            // only row
+            List<Map<String, Object>> rows = data.get(methodName);
+            Map<String, Object> lastRow = new LinkedHashMap<String, Object>(rows.get(rows.size() - 1));
+            lastRow.put(Loader.ACTUAL_RESULT, "last");
+            new ExcelDataLoader().writeData(resource, Collections.singletonMap(methodName, Collections
+                .singletonList(lastRow)), methodName);
+
+            List<Map<String, Object>> written = new ExcelDataLoader().loadData(resource).get(methodName);
+            Assert.assertEquals(rows.size(), written.size());
+            for (int rowNum = 0; rowNum < written.size() - 1; rowNum++) {
+                Assert.assertNull(written.get(rowNum).get(Loader.ACTUAL_RESULT));
+            }
+            Assert.assertEquals("last", written.get(written.size() - 1).get(Loader.ACTUAL_RESULT));
+        } finally {
+            excelFile.delete();
+        }
+    }
+
+    @Test
+    public void evaluateExpressions() {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("tag", "smoke");
+        row.put("amount", 15000.0);
+        row.put("name", "it's");
+        Assert.assertTrue(RowFilter.compile("tag = 'smoke'").accept(row));
+        Assert.assertTrue(RowFilter.compile("amount > 10000 AND not (tag != \"smoke\")").accept(row));
+        Assert.assertFalse(RowFilter.compile("amount <= 10000 || tag == 'regression'").accept(row));
+        Assert.assertTrue(RowFilter.compile("missing = null and tag != null").accept(row));
+        Assert.assertTrue(RowFilter.compile("name = 'it''s'").accept(row));
+        Assert.assertEquals(2, RowFilter.compile("amount >= 1 and tag <> 'x'").getColumnNames().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectInvalidExpressions() {
+        RowFilter.compile("amount > ");
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            List<String> lines = new ArrayList<String>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.example.TestXlsxDataLoader;
+import org.easetech.easytest.util.DataContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.manipulation.Filter;
+
+/**
+ * Test that filtering a {@link DataDrivenTestRunner} down to a single method loads only the test data of that method.
+ *
+ */
+public class TestFilteredDataLoading {
+
+    @After
+    public void cleanData() {
+        DataContext.cleanData();
+    }
+
+    @Test
+    public void loadOnlyTheDataOfTheFilteredMethod() throws Exception {
+        DataContext.cleanData();
+        DataDrivenTestRunner runner = new DataDrivenTestRunner(TestXlsxDataLoader.class);
+        runner.filter(Filter.matchMethodDescription(Description.createTestDescription(TestXlsxDataLoader.class,
+            "getXlsxTestDataFromSecondSheet")));
+        Assert.assertNull("No data should be loaded before the methods are computed", DataContext.getData());
+
+        Assert.assertEquals(2, runner.getDescription().getChildren().size());
+        for (Description child : runner.getDescription().getChildren()) {
+            Assert.assertTrue(child.getMethodName().startsWith("getXlsxTestDataFromSecondSheet"));
+        }
+        Assert.assertTrue(DataContext.getData().containsKey(
+            TestXlsxDataLoader.class.getName() + ":getXlsxTestDataFromSecondSheet"));
+        Assert.assertFalse(DataContext.getData().containsKey(TestXlsxDataLoader.class.getName() + ":getXlsxTestData"));
+
+        Result result = new JUnitCore().run(Request.runner(runner));
+        Assert.assertEquals(2, result.getRunCount());
+        Assert.assertTrue(result.wasSuccessful());
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.easetech.easytest.runner;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.io.ClasspathResource;
+import org.easetech.easytest.loader.GeneratorDataLoader;
+import org.easetech.easytest.loader.RowFilter;
+import org.easetech.easytest.util.DataContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+/**
+ * Test that the rows of test data are split between the shards given by the System Property easytest.shard, every
+ * row being run by exactly one shard.
+ *
+ */
+public class TestRowSharding {
+
+    private Map<String, String> properties;
+
+    @Before
+    public void saveProperties() {
+        properties = RunnerTestSupport.saveProperties(SystemProperties.SHARD, SystemProperties.PROJECT_COLUMNS);
+    }
+
+    @After
+    public void restoreProperties() {
+        RunnerTestSupport.restoreProperties(properties);
+        DataContext.cleanData();
+    }
+
+    @Test
+    public void runEveryRowInExactlyOneShard() throws Exception {
+        List<Map<String, Object>> rows = new GeneratorDataLoader().loadData(
+            new ClasspathResource("org/easetech/data/generatedTestData.datagen")).get("getGeneratedItems");
+        int[] shardSizes = new int[4];
+        for (Map<String, Object> row : rows) {
+            int shards = 0;
+            for (int shard = 1; shard <= 4; shard++) {
+                if (RowFilter.shard("getGeneratedItems", shard, 4).accept(row)) {
+                    shardSizes[shard - 1]++;
+                    shards++;
+                }
+            }
+            Assert.assertEquals(1, shards);
+        }
+        for (int shardSize : shardSizes) {
+            Assert.assertTrue(shardSize > 20);
+        }
+
+        Set<String> testNames = new HashSet<String>();
+        int runCount = 0;
+        for (int shard = 1; shard <= 3; shard++) {
+            System.setProperty(SystemProperties.SHARD.getValue(), shard + "/3");
+            DataContext.cleanData();
+            DataDrivenTestRunner runner = new DataDrivenTestRunner(ShardedDataExample.class);
+            for (Description child : runner.getDescription().getChildren()) {
+                Assert.assertTrue(testNames.add(child.getMethodName()));
+            }
+            Result result = new JUnitCore().run(Request.runner(runner));
+            Assert.assertTrue(result.wasSuccessful());
+            runCount += result.getRunCount();
+        }
+        Assert.assertEquals(20, testNames.size());
+        Assert.assertEquals(20, runCount);
+    }
+
+    @Test
+    public void assignTheSameShardsWhetherTheColumnsAreProjectedOrNot() throws Exception {
+        for (int shard = 1; shard <= 3; shard++) {
+            System.setProperty(SystemProperties.SHARD.getValue(), shard + "/3");
+            System.setProperty(SystemProperties.PROJECT_COLUMNS.getValue(), "false");
+            Set<String> unprojectedTests = getTestNames();
+            // the discount column is not referenced by the test method
+            System.setProperty(SystemProperties.PROJECT_COLUMNS.getValue(), "true");
+            Assert.assertEquals(unprojectedTests, getTestNames());
+        }
+    }
+
+    @Test
+    public void hashDatesIndependentlyOfTheTimeZone() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            for (long instant = 0; instant < 100; instant++) {
+                Map<String, Object> row = new HashMap<String, Object>();
+                row.put("orderDate", new Date(instant * 86400000L));
+                TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+                boolean accepted = RowFilter.shard("getOrders", 1, 2).accept(row);
+                TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+                Assert.assertEquals(accepted, RowFilter.shard("getOrders", 1, 2).accept(row));
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    private static Set<String> getTestNames() throws Exception {
+        DataContext.cleanData();
+        Set<String> testNames = new HashSet<String>();
+        for (Description child : new DataDrivenTestRunner(ShardedDataExample.class).getDescription().getChildren()) {
+            testNames.add(child.getMethodName());
+        }
+        return testNames;
+    }
+
+}
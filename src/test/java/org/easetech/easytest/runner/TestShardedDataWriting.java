@@ -0,0 +1,70 @@
+package org.easetech.easytest.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.easetech.easytest.internal.SystemProperties;
+import org.easetech.easytest.loader.Loader;
+import org.easetech.easytest.util.DataContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+/**
+ * Test that the shards of a test class write the output data of their own rows back to the same file, without
+ * disturbing the rows of the other shards.
+ *
+ */
+public class TestShardedDataWriting {
+
+    private Map<String, String> properties;
+
+    private File csvFile;
+
+    @Before
+    public void copyDataFile() throws IOException {
+        properties = RunnerTestSupport.saveProperties(SystemProperties.SHARD);
+        csvFile = RunnerTestSupport.copyFixture("shardedTestData.csv");
+    }
+
+    @After
+    public void restoreProperties() {
+        RunnerTestSupport.restoreProperties(properties);
+        DataContext.cleanData();
+        csvFile.delete();
+    }
+
+    @Test
+    public void writeTheOutputDataOfEveryShard() throws Exception {
+        int runCount = 0;
+        for (int shard = 1; shard <= 2; shard++) {
+            System.setProperty(SystemProperties.SHARD.getValue(), shard + "/2");
+            DataContext.cleanData();
+            Result result = new JUnitCore().run(Request.runner(new DataDrivenTestRunner(
+                ShardedWritableDataExample.class)));
+            Assert.assertTrue(result.getFailures().toString(), result.wasSuccessful());
+            runCount += result.getRunCount();
+        }
+        Assert.assertEquals(5, runCount);
+
+        List<String> lines = Files.readAllLines(csvFile.toPath(), Charset.forName("UTF-8"));
+        Assert.assertEquals(6, lines.size());
+        // the output columns written by the first shard are reused by the second one
+        Assert.assertTrue(lines.get(0), lines.get(0).startsWith("getShardedItems,libraryId,itemType,"
+            + Loader.ACTUAL_RESULT + ","));
+        Assert.assertEquals(lines.get(0), lines.get(0).indexOf(Loader.ACTUAL_RESULT), lines.get(0).lastIndexOf(
+            Loader.ACTUAL_RESULT));
+        for (int libraryId = 1; libraryId <= 5; libraryId++) {
+            String line = lines.get(libraryId);
+            Assert.assertTrue(line, line.matches(".*," + libraryId + ",[a-z]+,ran-" + libraryId + ",[0-9.]+"));
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.easetech.easytest.runner;
+
+import org.easetech.easytest.annotation.DataLoader;
+import org.easetech.easytest.annotation.Param;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * A test class whose test data has more columns than its test method references. It is run by
+ * {@link TestColumnProjection}.
+ *
+ */
+@RunWith(DataDrivenTestRunner.class)
+@DataLoader(filePaths = { "classpath:org/easetech/data/wideTestData.csv" }, writeData = false)
+public class WideDataExample {
+
+    @Test
+    public void getWideData(@Param(name = "libraryId") Long libraryId, @Param(name = "itemType") String itemType) {
+        Assert.assertNotNull(libraryId);
+        Assert.assertTrue(itemType.endsWith("book"));
+    }
+
+}
@@ -0,0 +1,3 @@
+CREATE TABLE IF NOT EXISTS items (library_id BIGINT, item_id BIGINT PRIMARY KEY, item_type VARCHAR(20));
+MERGE INTO items KEY(item_id) VALUES (1, 10, 'book'), (2, 11, 'journal'), (2, 12, 'book'), (3, 13, 'dvd'),
+    (3, 14, 'book'), (4, 15, 'journal');